@@ -465,6 +465,15 @@ public class ClassInfo {
     return className;
   }
 
+  /**
+   * Tells if the class has an accessible default constructor.
+   *
+   * @return true if {@link #instantiateClass()} can create instances
+   */
+  public boolean hasDefaultConstructor() {
+    return defaultConstructor != null;
+  }
+
   /**
    * Instantiate class.
    *
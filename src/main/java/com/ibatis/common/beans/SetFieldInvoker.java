@@ -46,6 +46,15 @@ public class SetFieldInvoker implements Invoker {
     return null;
   }
 
+  /**
+   * Gets the field.
+   *
+   * @return the field
+   */
+  public Field getField() {
+    return field;
+  }
+
   @Override
   public String getName() {
     return name;
@@ -95,6 +95,9 @@ public class SimpleDataSource implements DataSource {
   /** The Constant PROP_POOL_PING_ENABLED. */
   private static final String PROP_POOL_PING_ENABLED = "Pool.PingEnabled";
 
+  /** The Constant PROP_POOL_STATEMENT_CACHE_SIZE. */
+  private static final String PROP_POOL_STATEMENT_CACHE_SIZE = "Pool.StatementCacheSize";
+
   /** The Constant PROP_POOL_PING_CONN_NOT_USED_FOR. */
   private static final String PROP_POOL_PING_CONN_NOT_USED_FOR = "Pool.PingConnectionsNotUsedFor";
 
@@ -189,6 +192,9 @@ public class SimpleDataSource implements DataSource {
   /** The pool ping connections not used for. */
   private int poolPingConnectionsNotUsedFor;
 
+  /** The number of prepared statements kept open per connection, 0 to keep none. */
+  private int poolStatementCacheSize;
+
   // ----- END: PROPERTY FIELDS FOR CONFIGURATION -----
 
   /**
@@ -248,6 +254,9 @@ public class SimpleDataSource implements DataSource {
       poolPingConnectionsNotUsedFor = props.containsKey(PROP_POOL_PING_CONN_NOT_USED_FOR)
           ? Integer.parseInt((String) props.get(PROP_POOL_PING_CONN_NOT_USED_FOR)) : 0;
 
+      poolStatementCacheSize = props.containsKey(PROP_POOL_STATEMENT_CACHE_SIZE)
+          ? Integer.parseInt((String) props.get(PROP_POOL_STATEMENT_CACHE_SIZE)) : 0;
+
       jdbcDefaultAutoCommit = props.containsKey(PROP_JDBC_DEFAULT_AUTOCOMMIT)
           && Boolean.parseBoolean((String) props.get(PROP_JDBC_DEFAULT_AUTOCOMMIT));
 
@@ -354,6 +363,16 @@ public class SimpleDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  /**
+   * Getter for the number of prepared statements kept open per connection, so that the statements closed by a
+   * transaction are reused by the next ones instead of being prepared again.
+   *
+   * @return the statement cache size, 0 if statements are not kept
+   */
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
   /**
    * Getter for the name of the JDBC driver class used.
    *
@@ -646,7 +665,8 @@ public class SimpleDataSource implements DataSource {
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
-          SimplePooledConnection newConn = new SimplePooledConnection(conn.getRealConnection(), this);
+          SimplePooledConnection newConn = new SimplePooledConnection(conn.getRealConnection(), this,
+              conn.statementCache);
           idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
@@ -732,7 +752,8 @@ public class SimpleDataSource implements DataSource {
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 oldestActiveConnection.getRealConnection().rollback();
               }
-              conn = new SimplePooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn = new SimplePooledConnection(oldestActiveConnection.getRealConnection(), this,
+                  oldestActiveConnection.statementCache);
               oldestActiveConnection.invalidate();
               if (log.isDebugEnabled()) {
                 log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
@@ -914,6 +935,9 @@ public class SimpleDataSource implements DataSource {
     /** The valid. */
     private boolean valid;
 
+    /** The prepared statements kept open, shared by the pooled connections of the same real connection. */
+    private final StatementCache statementCache;
+
     /**
      * Constructor for SimplePooledConnection that uses the Connection and SimpleDataSource passed in.
      *
@@ -923,6 +947,22 @@ public class SimpleDataSource implements DataSource {
      *          - the dataSource that the connection is from
      */
     public SimplePooledConnection(Connection connection, SimpleDataSource dataSource) {
+      this(connection, dataSource, dataSource.poolStatementCacheSize > 0
+          ? new StatementCache(connection, dataSource.poolStatementCacheSize) : null);
+    }
+
+    /**
+     * Constructor for a SimplePooledConnection that takes over the statements kept open for the real connection.
+     *
+     * @param connection
+     *          - the connection that is to be presented as a pooled connection
+     * @param dataSource
+     *          - the dataSource that the connection is from
+     * @param statementCache
+     *          - the statements kept open for the connection, or null
+     */
+    private SimplePooledConnection(Connection connection, SimpleDataSource dataSource, StatementCache statementCache) {
+      this.statementCache = statementCache;
       this.hashCode = connection.hashCode();
       this.realConnection = connection;
       this.dataSource = dataSource;
@@ -1141,6 +1181,10 @@ public class SimpleDataSource implements DataSource {
         dataSource.pushConnection(this);
         return null;
       }
+      if (statementCache != null && StatementCache.isCached(methodName)) {
+        getValidConnection();
+        return statementCache.prepare(method, args);
+      }
       try {
         return method.invoke(getValidConnection(), args);
       } catch (Throwable t) {
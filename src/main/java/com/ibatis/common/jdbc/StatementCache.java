@@ -0,0 +1,349 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.common.jdbc;
+
+import com.ibatis.common.beans.ClassInfo;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The prepared statements of a physical connection, kept open once closed by their user so that the same SQL is not
+ * prepared again by later transactions and sessions of the connection.
+ * <p>
+ * The statements handed out are proxies: closing one clears its parameters and batch, restores the settings its user
+ * changed, such as the query timeout and the fetch size, and keeps it for the next prepare of the same SQL with the
+ * same arguments. A statement is handed out to one user at a time. Beyond the maximum number of statements kept, the
+ * least recently used one is closed. The statements are closed with the connection.
+ */
+final class StatementCache {
+
+  /** The Constant PREPARE_STATEMENT. */
+  private static final String PREPARE_STATEMENT = "prepareStatement";
+
+  /** The Constant PREPARE_CALL. */
+  private static final String PREPARE_CALL = "prepareCall";
+
+  /** The statement settings restored when a statement is returned, by setter. */
+  private static final Set<String> TRACKED_SETTINGS = new HashSet<>(
+      Arrays.asList("setQueryTimeout", "setFetchSize", "setMaxRows", "setMaxFieldSize", "setFetchDirection"));
+
+  /** The connection. */
+  private final Connection connection;
+
+  /** The maximum number of statements kept. */
+  private final int maxSize;
+
+  /** The statements not in use, in access order. */
+  private final LinkedHashMap<Key, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The number of prepares that reused a statement. */
+  private long hits;
+
+  /** The number of prepares that created a statement. */
+  private long misses;
+
+  /**
+   * Instantiates a new statement cache.
+   *
+   * @param connection
+   *          the physical connection
+   * @param maxSize
+   *          the maximum number of statements kept
+   */
+  StatementCache(Connection connection, int maxSize) {
+    this.connection = connection;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Tells if the statements created by a method of the connection are cached.
+   *
+   * @param methodName
+   *          the name of the method
+   *
+   * @return true for the prepareStatement and prepareCall methods
+   */
+  static boolean isCached(String methodName) {
+    return PREPARE_STATEMENT.equals(methodName) || PREPARE_CALL.equals(methodName);
+  }
+
+  /**
+   * Gets a statement, reusing an idle one prepared by the same method with the same arguments if there is one.
+   *
+   * @param method
+   *          the prepareStatement or prepareCall method of the connection
+   * @param args
+   *          the arguments
+   *
+   * @return the statement
+   *
+   * @throws Throwable
+   *           what the connection throws
+   */
+  Object prepare(Method method, Object[] args) throws Throwable {
+    Key key = new Key(method, args);
+    PreparedStatement statement;
+    synchronized (this) {
+      statement = idle.remove(key);
+      if (statement != null) {
+        hits++;
+      } else {
+        misses++;
+      }
+    }
+    if (statement == null) {
+      try {
+        statement = (PreparedStatement) method.invoke(connection, args);
+      } catch (Throwable t) {
+        throw ClassInfo.unwrapThrowable(t);
+      }
+    }
+    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[] { method.getReturnType() },
+        new CachedStatement(key, statement));
+  }
+
+  /**
+   * Keeps a statement returned by its user, closing the least recently used one if there are too many.
+   *
+   * @param key
+   *          the key
+   * @param statement
+   *          the statement
+   */
+  private void release(Key key, PreparedStatement statement) {
+    PreparedStatement closed = null;
+    synchronized (this) {
+      PreparedStatement previous = idle.put(key, statement);
+      if (previous != null) {
+        // the same SQL was in use twice, keep one statement
+        closed = previous;
+      } else if (idle.size() > maxSize) {
+        Iterator<PreparedStatement> eldest = idle.values().iterator();
+        closed = eldest.next();
+        eldest.remove();
+      }
+    }
+    closeQuietly(closed);
+  }
+
+  /**
+   * Closes the idle statements.
+   */
+  void clear() {
+    PreparedStatement[] statements;
+    synchronized (this) {
+      statements = idle.values().toArray(new PreparedStatement[0]);
+      idle.clear();
+    }
+    for (PreparedStatement statement : statements) {
+      closeQuietly(statement);
+    }
+  }
+
+  /**
+   * Gets the number of idle statements.
+   *
+   * @return the size
+   */
+  synchronized int size() {
+    return idle.size();
+  }
+
+  /**
+   * Gets the number of prepares that reused a statement.
+   *
+   * @return the hit count
+   */
+  synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of prepares that created a statement.
+   *
+   * @return the miss count
+   */
+  synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Closes a statement, ignoring failures.
+   *
+   * @param statement
+   *          the statement, or null
+   */
+  private static void closeQuietly(Statement statement) {
+    if (statement != null) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * The method and arguments a statement was prepared with.
+   */
+  private static final class Key {
+
+    /** The method. */
+    private final Method method;
+
+    /** The arguments. */
+    private final Object[] args;
+
+    /** The hash code. */
+    private final int hashCode;
+
+    /**
+     * Instantiates a new key.
+     *
+     * @param method
+     *          the method
+     * @param args
+     *          the arguments
+     */
+    Key(Method method, Object[] args) {
+      this.method = method;
+      this.args = args == null ? new Object[0] : args.clone();
+      this.hashCode = 31 * method.hashCode() + Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hashCode == other.hashCode && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * A statement handed out to a user, returned to the cache when closed.
+   */
+  private final class CachedStatement implements InvocationHandler {
+
+    /** The key. */
+    private final Key key;
+
+    /** The statement. */
+    private final PreparedStatement statement;
+
+    /** The original values of the settings changed by the user, by setter. */
+    private final Map<String, Object> changedSettings = new HashMap<>();
+
+    /** Whether the user added to the batch of the statement. */
+    private boolean batched;
+
+    /** Whether the user closed the statement. */
+    private boolean closed;
+
+    /**
+     * Instantiates a new cached statement.
+     *
+     * @param key
+     *          the key
+     * @param statement
+     *          the statement
+     */
+    CachedStatement(Key key, PreparedStatement statement) {
+      this.key = key;
+      this.statement = statement;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if ("close".equals(name)) {
+        if (!closed) {
+          closed = true;
+          recycle();
+        }
+        return null;
+      }
+      if ("isClosed".equals(name)) {
+        return closed || statement.isClosed();
+      }
+      if ("hashCode".equals(name)) {
+        return System.identityHashCode(proxy);
+      }
+      if ("equals".equals(name)) {
+        return proxy == args[0];
+      }
+      if (closed) {
+        throw new SQLException("Statement is closed.");
+      }
+      if ("addBatch".equals(name)) {
+        batched = true;
+      } else if (TRACKED_SETTINGS.contains(name) && !changedSettings.containsKey(name)) {
+        changedSettings.put(name, Statement.class.getMethod("get" + name.substring(3)).invoke(statement));
+      }
+      try {
+        return method.invoke(statement, args);
+      } catch (Throwable t) {
+        throw ClassInfo.unwrapThrowable(t);
+      }
+    }
+
+    /**
+     * Resets the statement and returns it to the cache, or closes it if it cannot be reset.
+     */
+    private void recycle() {
+      try {
+        if (statement.isClosed()) {
+          return;
+        }
+        statement.clearParameters();
+        if (batched) {
+          statement.clearBatch();
+        }
+        for (Map.Entry<String, Object> setting : changedSettings.entrySet()) {
+          Statement.class.getMethod(setting.getKey(), int.class).invoke(statement, setting.getValue());
+        }
+        statement.clearWarnings();
+      } catch (Exception e) {
+        closeQuietly(statement);
+        return;
+      }
+      release(key, statement);
+    }
+  }
+
+}
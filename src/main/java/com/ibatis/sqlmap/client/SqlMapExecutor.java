@@ -404,6 +404,24 @@ public interface SqlMapExecutor {
    */
   void startBatch() throws SQLException;
 
+  /**
+   * Starts a batch that is executed each time the given number of statements has been added to it, instead of holding
+   * every statement until {@link #executeBatch()}. The results of these executions are added to the ones returned by
+   * {@link #executeBatch()} and {@link #executeBatchDetailed()}.
+   * <p>
+   * The default implementation ignores the size and starts a batch with {@link #startBatch()}, for the implementations
+   * written before batches could be limited.
+   *
+   * @param batchSize
+   *          the number of statements after which the batch is executed, or 0 for no limit
+   *
+   * @throws SQLException
+   *           the SQL exception
+   */
+  default void startBatch(int batchSize) throws SQLException {
+    startBatch();
+  }
+
   /**
    * Executes (flushes) all statements currently batched.
    *
@@ -20,6 +20,9 @@ import com.ibatis.common.xml.NodeletParser;
 import com.ibatis.common.xml.NodeletUtils;
 import com.ibatis.sqlmap.client.SqlMapClient;
 import com.ibatis.sqlmap.client.SqlMapException;
+import com.ibatis.sqlmap.engine.cache.CacheWarmup;
+import com.ibatis.sqlmap.engine.cache.InvalidationTransport;
+import com.ibatis.sqlmap.engine.cache.weighted.CacheMemoryBudget;
 import com.ibatis.sqlmap.engine.config.SqlMapConfiguration;
 import com.ibatis.sqlmap.engine.datasource.DataSourceFactory;
 import com.ibatis.sqlmap.engine.mapping.result.ResultObjectFactory;
@@ -59,6 +62,8 @@ public class SqlMapConfigParser {
     addTransactionManagerNodelets();
     addSqlMapNodelets();
     addResultObjectFactoryNodelets();
+    addInvalidationBusNodelets();
+    addCacheWarmupNodelets();
 
   }
 
@@ -138,7 +143,62 @@ public class SqlMapConfigParser {
    * Adds the sql map config nodelets.
    */
   private void addSqlMapConfigNodelets() {
-    parser.addNodelet("/sqlMapConfig/end()", node -> state.getConfig().finalizeSqlMapConfig());
+    parser.addNodelet("/sqlMapConfig/end()", node -> {
+      state.getConfig().finalizeSqlMapConfig();
+      state.getConfig().warmUpCaches();
+    });
+  }
+
+  /**
+   * Adds the invalidation bus nodelets.
+   */
+  private void addInvalidationBusNodelets() {
+    parser.addNodelet("/sqlMapConfig/invalidationBus/property", node -> {
+      Properties attributes = NodeletUtils.parseAttributes(node, state.getGlobalProps());
+      String name = attributes.getProperty("name");
+      String value = NodeletUtils.parsePropertyTokens(attributes.getProperty("value"), state.getGlobalProps());
+      state.getInvalidationProps().setProperty(name, value);
+    });
+    parser.addNodelet("/sqlMapConfig/invalidationBus/end()", node -> {
+      Properties attributes = NodeletUtils.parseAttributes(node, state.getGlobalProps());
+      String type = attributes.getProperty("type");
+
+      state.getConfig().getErrorContext().setActivity("configuring the cache invalidation bus");
+      type = state.getConfig().getTypeHandlerFactory().resolveAlias(type);
+      InvalidationTransport transport;
+      try {
+        transport = (InvalidationTransport) Resources.instantiate(type);
+        transport.setProperties(state.getInvalidationProps());
+      } catch (Exception e) {
+        throw new SqlMapException("Error instantiating invalidation transport: " + type, e);
+      }
+      state.getConfig().setInvalidationTransport(transport);
+    });
+  }
+
+  /**
+   * Adds the cache warmup nodelets.
+   */
+  private void addCacheWarmupNodelets() {
+    parser.addNodelet("/sqlMapConfig/cacheWarmup", node -> {
+      Properties attributes = NodeletUtils.parseAttributes(node, state.getGlobalProps());
+      CacheWarmup warmup = new CacheWarmup();
+      String threads = attributes.getProperty("threads");
+      if (threads != null) {
+        warmup.setThreads(Integer.parseInt(threads));
+      }
+      String timeout = attributes.getProperty("timeout");
+      if (timeout != null) {
+        warmup.setTimeout(Long.parseLong(timeout));
+      }
+      warmup.setSnapshot(attributes.getProperty("snapshot"));
+      state.getConfig().setCacheWarmup(warmup);
+    });
+    parser.addNodelet("/sqlMapConfig/cacheWarmup/statement", node -> {
+      Properties attributes = NodeletUtils.parseAttributes(node, state.getGlobalProps());
+      state.getConfig().getCacheWarmup().addStatement(attributes.getProperty("id"),
+          attributes.getProperty("parameters"), "object".equals(attributes.getProperty("call")));
+    });
   }
 
   /**
@@ -190,6 +250,28 @@ public class SqlMapConfigParser {
       boolean forceMultipleResultSetSupport = "true".equals(forceMultipleResultSetSupportAttr);
       config.setForceMultipleResultSetSupport(forceMultipleResultSetSupport);
 
+      String batchReorderingAttr = attributes.getProperty("batchReordering");
+      config.setBatchReordering("true".equals(batchReorderingAttr));
+
+      String batchSizeAttr = attributes.getProperty("batchSize");
+      if (batchSizeAttr != null) {
+        config.setBatchSize(Integer.parseInt(batchSizeAttr));
+      }
+
+      String cacheMemoryBudgetAttr = attributes.getProperty("cacheMemoryBudget");
+      if (cacheMemoryBudgetAttr != null) {
+        config.setCacheMemoryBudget(CacheMemoryBudget.parseSize(cacheMemoryBudgetAttr));
+      }
+
+      String cacheSchedulerAttr = attributes.getProperty("cacheScheduler");
+      if ("true".equals(cacheSchedulerAttr)) {
+        config.setCacheSchedulerEnabled(true);
+      }
+
+      String cacheJmxAttr = attributes.getProperty("cacheJmx");
+      config.setCacheJmxEnabled("true".equals(cacheJmxAttr));
+      config.setCacheJmxName(attributes.getProperty("cacheJmxName"));
+
       String defaultTimeoutAttr = attributes.getProperty("defaultStatementTimeout");
       Integer defaultTimeout = defaultTimeoutAttr == null ? null : Integer.valueOf(defaultTimeoutAttr);
       config.setDefaultStatementTimeout(defaultTimeout);
@@ -21,6 +21,8 @@ import com.ibatis.common.xml.NodeletParser;
 import com.ibatis.common.xml.NodeletUtils;
 import com.ibatis.sqlmap.client.SqlMapException;
 import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheSerializer;
+import com.ibatis.sqlmap.engine.cache.EntityCache;
 import com.ibatis.sqlmap.engine.config.CacheModelConfig;
 import com.ibatis.sqlmap.engine.config.ParameterMapConfig;
 import com.ibatis.sqlmap.engine.config.ResultMapConfig;
@@ -155,14 +157,28 @@ public class SqlMapParser {
           : Boolean.valueOf("true".equals(serializeAttr));
       type = state.getConfig().getTypeHandlerFactory().resolveAlias(type);
       Class clazz = Resources.classForName(type);
+      boolean copyOnRead = "true".equals(attributes.getProperty("copyOnRead"));
       if (readOnly == null) {
-        readOnly = Boolean.TRUE;
+        readOnly = Boolean.valueOf(!copyOnRead);
       }
       if (serialize == null) {
         serialize = Boolean.FALSE;
       }
       CacheModelConfig cacheConfig = state.getConfig().newCacheModelConfig(id,
           (CacheController) Resources.instantiate(clazz), readOnly.booleanValue(), serialize.booleanValue());
+      cacheConfig.setConcurrent("true".equals(attributes.getProperty("concurrent")));
+      cacheConfig.setCopyOnRead(copyOnRead);
+      cacheConfig.setDependencyTracking("true".equals(attributes.getProperty("dependencyTracking")));
+      cacheConfig.setSingleFlight("true".equals(attributes.getProperty("singleFlight")));
+      String loadTimeout = attributes.getProperty("loadTimeout");
+      if (loadTimeout != null && !loadTimeout.isEmpty()) {
+        cacheConfig.setLoadTimeout(Long.parseLong(loadTimeout));
+      }
+      String serializer = attributes.getProperty("serializer");
+      if (serializer != null && !serializer.isEmpty()) {
+        serializer = state.getConfig().getTypeHandlerFactory().resolveAlias(serializer);
+        cacheConfig.setSerializer((CacheSerializer) Resources.instantiate(serializer));
+      }
       state.setCacheConfig(cacheConfig);
     });
     parser.addNodelet("/sqlMap/cacheModel/end()",
@@ -179,7 +195,23 @@ public class SqlMapParser {
       String statement = childAttributes.getProperty("statement");
       state.getCacheConfig().addFlushTriggerStatement(statement);
     });
-    parser.addNodelet("/sqlMap/cacheModel/flushInterval", node -> {
+    addCacheTimeNodelet("flushInterval", "Flush interval", CacheModelConfig::setFlushInterval);
+    addCacheTimeNodelet("timeToLive", "Time to live", CacheModelConfig::setTimeToLive);
+    addCacheTimeNodelet("refreshAfter", "Refresh time", CacheModelConfig::setRefreshAfter);
+  }
+
+  /**
+   * Adds the nodelet of a cache model element that gives a time in hours, minutes, seconds and milliseconds.
+   *
+   * @param element
+   *          the name of the element
+   * @param description
+   *          the description of the time, for the error message
+   * @param setter
+   *          sets the time on the cache model configuration
+   */
+  private void addCacheTimeNodelet(String element, String description, CacheTimeSetter setter) {
+    parser.addNodelet("/sqlMap/cacheModel/" + element, node -> {
       Properties childAttributes = NodeletUtils.parseAttributes(node, state.getGlobalProps());
       try {
         int milliseconds = childAttributes.getProperty("milliseconds") == null ? 0
@@ -190,10 +222,10 @@ public class SqlMapParser {
             : Integer.parseInt(childAttributes.getProperty("minutes"));
         int hours = childAttributes.getProperty("hours") == null ? 0
             : Integer.parseInt(childAttributes.getProperty("hours"));
-        state.getCacheConfig().setFlushInterval(hours, minutes, seconds, milliseconds);
+        setter.set(state.getCacheConfig(), hours, minutes, seconds, milliseconds);
       } catch (NumberFormatException e) {
-        throw new RuntimeException("Error building cache in '" + "resourceNAME"
-            + "'.  Flush interval milliseconds must be a valid long integer value.  Cause: " + e, e);
+        throw new RuntimeException("Error building cache in '" + state.getConfig().getErrorContext().getResource()
+            + "'.  " + description + " values must be valid integer values.  Cause: " + e, e);
       }
     });
   }
@@ -274,6 +306,10 @@ public class SqlMapParser {
       String extended = state.applyNamespace(attributes.getProperty("extends"));
       String xmlName = attributes.getProperty("xmlName");
       String groupBy = attributes.getProperty("groupBy");
+      String entityCache = attributes.getProperty("entityCache");
+      String idProperty = attributes.getProperty("idProperty");
+      String entityCacheSize = attributes.getProperty("entityCacheSize");
+      String entityCacheReadOnly = attributes.getProperty("entityCacheReadOnly");
 
       resultClassName = state.getConfig().getTypeHandlerFactory().resolveAlias(resultClassName);
       Class resultClass;
@@ -284,6 +320,11 @@ public class SqlMapParser {
         throw new RuntimeException("Error configuring Result.  Could not set ResultClass.  Cause: " + e, e);
       }
       ResultMapConfig resultConf = state.getConfig().newResultMapConfig(id, resultClass, groupBy, extended, xmlName);
+      if ("true".equals(entityCache)) {
+        resultConf.setEntityCache(idProperty,
+            entityCacheSize == null ? EntityCache.DEFAULT_SIZE : Integer.parseInt(entityCacheSize),
+            !"false".equals(entityCacheReadOnly));
+      }
       state.setResultConfig(resultConf);
     });
     parser.addNodelet("/sqlMap/resultMap/result", node -> {
@@ -402,4 +443,27 @@ public class SqlMapParser {
         node -> statementParser.parseGeneralStatement(node, new ProcedureStatement()));
   }
 
+  /**
+   * Sets a time of a cache model configuration.
+   */
+  @FunctionalInterface
+  private interface CacheTimeSetter {
+
+    /**
+     * Sets the time.
+     *
+     * @param config
+     *          the cache model configuration
+     * @param hours
+     *          the hours
+     * @param minutes
+     *          the minutes
+     * @param seconds
+     *          the seconds
+     * @param milliseconds
+     *          the milliseconds
+     */
+    void set(CacheModelConfig config, long hours, long minutes, long seconds, long milliseconds);
+  }
+
 }
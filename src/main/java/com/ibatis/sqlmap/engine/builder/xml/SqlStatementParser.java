@@ -68,6 +68,11 @@ public class SqlStatementParser {
     String fetchSize = attributes.getProperty("fetchSize");
     String allowRemapping = attributes.getProperty("remapResults");
     String timeout = attributes.getProperty("timeout");
+    String tables = attributes.getProperty("tables");
+    String byId = attributes.getProperty("byId");
+    String entity = attributes.getProperty("entity");
+    String batchOrder = attributes.getProperty("batchOrder");
+    String useGeneratedKeys = attributes.getProperty("useGeneratedKeys");
 
     if (state.isUseStatementNamespaces()) {
       id = state.applyNamespace(id);
@@ -109,6 +114,27 @@ public class SqlStatementParser {
         new XMLSqlSource(state, node), parameterMapName, parameterClass, resultMapName, additionalResultMapNames,
         resultClass, additionalResultClasses, resultSetType, fetchSizeInt, allowRemappingBool, timeoutInt,
         cacheModelName, xmlResultName);
+    if (tables != null) {
+      statementConf.setTables(tables);
+    }
+    if (byId != null) {
+      statementConf.setById("true".equals(byId));
+    }
+    if ("true".equals(useGeneratedKeys)) {
+      statementConf.setGeneratedKeys(attributes.getProperty("keyProperty"), attributes.getProperty("keyColumn"));
+    }
+    if (batchOrder != null) {
+      statementConf.setBatchOrder(Integer.parseInt(batchOrder));
+    }
+    if (entity != null) {
+      int open = entity.indexOf('(');
+      if (open <= 0 || !entity.trim().endsWith(")")) {
+        throw new SqlMapException("Invalid entity '" + entity + "' for the statement named " + id
+            + ".  Expected a result map and its key property, such as account(id).");
+      }
+      String keyProperty = entity.substring(open + 1, entity.lastIndexOf(')'));
+      statementConf.setEntity(state.applyNamespace(entity.substring(0, open).trim()), keyProperty);
+    }
 
     findAndParseSelectKey(node, statementConf);
   }
@@ -50,6 +50,9 @@ public class XmlParserState {
   /** The cache props. */
   private Properties cacheProps = new Properties();
 
+  /** The invalidation transport props. */
+  private Properties invalidationProps = new Properties();
+
   /** The use statement namespaces. */
   private boolean useStatementNamespaces = false;
 
@@ -117,6 +120,15 @@ public class XmlParserState {
     return dsProps;
   }
 
+  /**
+   * Gets the invalidation transport props.
+   *
+   * @return the invalidation transport props
+   */
+  public Properties getInvalidationProps() {
+    return invalidationProps;
+  }
+
   /**
    * Gets the cache props.
    *
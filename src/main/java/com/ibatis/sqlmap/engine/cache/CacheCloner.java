@@ -0,0 +1,308 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.common.beans.ClassInfo;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Makes deep copies of cached object graphs for cache models with <code>copyOnRead="true"</code>.
+ * <p>
+ * Beans are created through the default constructor known to their {@link ClassInfo} and copied field by field, like
+ * the layouts of the bean cache serializer, using a copy plan that is built once per class. Static and transient
+ * fields are not copied. Immutable values are shared, dates, arrays, collections and maps are copied, and shared
+ * references and cycles are preserved. Objects that cannot be copied this way, such as JDK classes without a known
+ * copy strategy, are copied through the cache serializer, so they must be serializable.
+ */
+public class CacheCloner {
+
+  /** The types whose instances are immutable and can be shared between copies. */
+  private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Byte.class,
+      Short.class, Character.class, Integer.class, Long.class, Float.class, Double.class, Boolean.class,
+      BigInteger.class, BigDecimal.class, Class.class, java.util.Locale.class, java.util.UUID.class,
+      java.time.LocalDate.class, java.time.LocalTime.class, java.time.LocalDateTime.class, java.time.Instant.class,
+      java.time.OffsetDateTime.class, java.time.ZonedDateTime.class));
+
+  /** The copy plans of the bean classes seen so far. */
+  private static final Map<Class<?>, BeanPlan> PLANS = new ConcurrentHashMap<>();
+
+  /** The plan of the classes that are not copied field by field. */
+  private static final BeanPlan UNSUPPORTED = new BeanPlan(null, new Field[0]);
+
+  /** The serializer used for objects that cannot be copied field by field. */
+  private final CacheSerializer serializer;
+
+  /**
+   * Instantiates a new cache cloner.
+   *
+   * @param serializer
+   *          the serializer used for objects that cannot be copied field by field
+   */
+  public CacheCloner(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  /**
+   * Makes a deep copy of an object.
+   *
+   * @param value
+   *          the object to copy
+   *
+   * @return the copy
+   */
+  public Object copy(Object value) {
+    return copy(value, new IdentityHashMap<>());
+  }
+
+  /**
+   * Copy.
+   *
+   * @param value
+   *          the value
+   * @param copies
+   *          the copies made so far, by original
+   *
+   * @return the copy
+   */
+  private Object copy(Object value, Map<Object, Object> copies) {
+    if (value == null || value instanceof Enum || IMMUTABLE_TYPES.contains(value.getClass())) {
+      return value;
+    }
+    Object copy = copies.get(value);
+    if (copy != null) {
+      return copy;
+    }
+    Class<?> type = value.getClass();
+    if (type.isArray()) {
+      int length = Array.getLength(value);
+      copy = Array.newInstance(type.getComponentType(), length);
+      copies.put(value, copy);
+      if (type.getComponentType().isPrimitive()) {
+        System.arraycopy(value, 0, copy, 0, length);
+      } else {
+        Object[] source = (Object[]) value;
+        Object[] target = (Object[]) copy;
+        for (int i = 0; i < length; i++) {
+          target[i] = copy(source[i], copies);
+        }
+      }
+      return copy;
+    }
+    if (value instanceof Date) {
+      copy = ((Date) value).clone();
+      copies.put(value, copy);
+      return copy;
+    }
+    if (value instanceof Collection && isCopyableContainer(value)) {
+      Collection<Object> collection = newInstance(type);
+      copies.put(value, collection);
+      for (Object element : (Collection<?>) value) {
+        collection.add(copy(element, copies));
+      }
+      return collection;
+    }
+    if (value instanceof Map && isCopyableContainer(value)) {
+      Map<Object, Object> map = newInstance(type);
+      copies.put(value, map);
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+      }
+      return map;
+    }
+    BeanPlan plan = planOf(type);
+    if (plan == UNSUPPORTED) {
+      copy = copyBySerialization(value);
+      copies.put(value, copy);
+      return copy;
+    }
+    copy = plan.classInfo.instantiateClass();
+    copies.put(value, copy);
+    try {
+      for (Field field : plan.fields) {
+        Object fieldValue = field.get(value);
+        field.set(copy, field.getType().isPrimitive() ? fieldValue : copy(fieldValue, copies));
+      }
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException("Error copying cached object of class " + type.getName() + ".  Cause: " + e, e);
+    }
+    return copy;
+  }
+
+  /**
+   * Creates an empty collection or map of the given class.
+   *
+   * @param <T>
+   *          the container type
+   * @param type
+   *          the class
+   *
+   * @return the new instance
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> T newInstance(Class<?> type) {
+    return (T) ClassInfo.getInstance(type).instantiateClass();
+  }
+
+  /**
+   * Tells if a collection or map can be copied into a new instance of its class.
+   *
+   * @param value
+   *          the collection or map
+   *
+   * @return true if it can
+   */
+  private static boolean isCopyableContainer(Object value) {
+    Class<?> type = value.getClass();
+    if (value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null
+        || value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null) {
+      return false;
+    }
+    return (!isSpecial(type) || type.getName().startsWith("java.util.") && !Modifier.isAbstract(type.getModifiers()))
+        && ClassInfo.getInstance(type).hasDefaultConstructor();
+  }
+
+  /**
+   * Gets the copy plan of a bean class, building it the first time.
+   *
+   * @param type
+   *          the class
+   *
+   * @return the plan, or {@link #UNSUPPORTED}
+   */
+  private static BeanPlan planOf(Class<?> type) {
+    BeanPlan plan = PLANS.get(type);
+    if (plan == null) {
+      plan = BeanPlan.of(type);
+      PLANS.put(type, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Tells if a class must not be instantiated by the cloner: abstract classes, JDK classes whose state is not exposed
+   * as properties, and generated proxies such as the ones used for lazy loading.
+   *
+   * @param type
+   *          the class
+   *
+   * @return true if it must not
+   */
+  private static boolean isSpecial(Class<?> type) {
+    String name = type.getName();
+    return Modifier.isAbstract(type.getModifiers()) || Proxy.isProxyClass(type) || name.contains("$$")
+        || name.startsWith("java.") || name.startsWith("javax.")
+        || name.startsWith("jdk.") || name.startsWith("sun.");
+  }
+
+  /**
+   * Copies an object through the serializer.
+   *
+   * @param value
+   *          the value
+   *
+   * @return the copy
+   */
+  private Object copyBySerialization(Object value) {
+    if (!(value instanceof Serializable)) {
+      throw new RuntimeException("Error copying cached object.  The class " + value.getClass().getName()
+          + " is neither a bean with a default constructor nor serializable.");
+    }
+    try {
+      return serializer.deserialize(serializer.serialize(value));
+    } catch (Exception e) {
+      throw new RuntimeException("Error copying cached object.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * The fields copied for a bean class.
+   */
+  private static class BeanPlan {
+
+    /** The class info. */
+    private final ClassInfo classInfo;
+
+    /** The copied fields, from every class of the hierarchy. */
+    private final Field[] fields;
+
+    /**
+     * Instantiates a new bean plan.
+     *
+     * @param classInfo
+     *          the class info
+     * @param fields
+     *          the fields
+     */
+    BeanPlan(ClassInfo classInfo, Field[] fields) {
+      this.classInfo = classInfo;
+      this.fields = fields;
+    }
+
+    /**
+     * Builds the plan of a class, which copies every field that is neither static nor transient.
+     *
+     * @param type
+     *          the class
+     *
+     * @return the plan, or {@link #UNSUPPORTED}
+     */
+    static BeanPlan of(Class<?> type) {
+      if (isSpecial(type) || ClassInfo.isKnownType(type)) {
+        return UNSUPPORTED;
+      }
+      ClassInfo classInfo = ClassInfo.getInstance(type);
+      if (!classInfo.hasDefaultConstructor()) {
+        return UNSUPPORTED;
+      }
+      List<Field> fields = new ArrayList<>();
+      try {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+          for (Field field : current.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+              field.setAccessible(true);
+              fields.add(field);
+            }
+          }
+        }
+      } catch (RuntimeException e) {
+        // a field of a class in a closed module, for example
+        return UNSUPPORTED;
+      }
+      return new BeanPlan(classInfo, fields.toArray(new Field[fields.size()]));
+    }
+  }
+
+}
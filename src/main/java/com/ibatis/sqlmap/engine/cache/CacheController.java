@@ -15,6 +15,8 @@
  */
 package com.ibatis.sqlmap.engine.cache;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -54,6 +56,32 @@ public interface CacheController {
    */
   Object removeObject(CacheModel cacheModel, Object key);
 
+  /**
+   * Remove an object from a cache model only if the key still maps to it, so that an object put under the same key in
+   * the meantime is kept. Serialized values are compared by content. The default implementation holds the monitor of
+   * the controller, so it is atomic for the controllers that synchronize on themselves; the others should override it.
+   *
+   * @param cacheModel
+   *          - the model to remove the object from
+   * @param key
+   *          - the key to the object
+   * @param object
+   *          - the object expected under the key
+   *
+   * @return true if the object was removed
+   */
+  default boolean removeObject(CacheModel cacheModel, Object key, Object object) {
+    synchronized (this) {
+      Object current = getObject(cacheModel, key);
+      if (current != object && !(current instanceof byte[] && object instanceof byte[]
+          && Arrays.equals((byte[]) current, (byte[]) object))) {
+        return false;
+      }
+      removeObject(cacheModel, key);
+      return true;
+    }
+  }
+
   /**
    * Put an object into a cache model.
    *
@@ -74,4 +102,41 @@ public interface CacheController {
    */
   void setProperties(Properties props);
 
+  /**
+   * Lists the keys of the cached objects, for exporting the contents of the cache.
+   *
+   * @return a snapshot of the keys, or null if the cache cannot list them
+   */
+  default List<Object> getKeys() {
+    return null;
+  }
+
+  /**
+   * Gets the number of cached objects, for the statistics of the cache.
+   *
+   * @return the number of cached objects, or -1 if the cache cannot tell
+   */
+  default int getSize() {
+    List<Object> keys = getKeys();
+    return keys == null ? -1 : keys.size();
+  }
+
+  /**
+   * Gets the estimated memory held by the cached objects, for the statistics of the cache.
+   *
+   * @return the estimated size in bytes, or -1 if the cache cannot tell
+   */
+  default long getEstimatedSize() {
+    return -1;
+  }
+
+  /**
+   * Gets the number of objects evicted so far to make room for others, for the statistics of the cache.
+   *
+   * @return the eviction count, 0 for caches that do not evict
+   */
+  default long getEvictionCount() {
+    return 0;
+  }
+
 }
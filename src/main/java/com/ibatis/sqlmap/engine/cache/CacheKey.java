@@ -16,16 +16,19 @@
 package com.ibatis.sqlmap.engine.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
  * Hash value generator for cache keys.
+ * <p>
+ * The updates are kept in slots sized up front when the number of updates is known, int and long values are stored
+ * without boxing, and the hash is a 64-bit mix of the updates, so that building and probing a key allocates little and
+ * keys that differ are told apart without comparing their slots.
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1L;
+  private static final long serialVersionUID = 2L;
 
   /** The Constant DEFAULT_MULTIPLYER. */
   private static final int DEFAULT_MULTIPLYER = 37;
@@ -33,28 +36,36 @@ public class CacheKey implements Cloneable, Serializable {
   /** The Constant DEFAULT_HASHCODE. */
   private static final int DEFAULT_HASHCODE = 17;
 
-  /** The multiplier. */
-  private int multiplier;
+  /** The Constant DEFAULT_CAPACITY. */
+  private static final int DEFAULT_CAPACITY = 8;
 
-  /** The hashcode. */
-  private int hashcode;
+  /** The multiplier. */
+  private long multiplier;
 
-  /** The checksum. */
-  private long checksum;
+  /** The hash of the updates. */
+  private long hash;
 
   /** The count. */
   private int count;
 
-  /** The param list. */
-  private List paramList = new ArrayList<>();
+  /** The objects of the updates, or a {@link Slot} for the primitive ones. */
+  private Object[] objects;
+
+  /** The values of the primitive updates. */
+  private long[] primitives;
+
+  /**
+   * The kinds of primitive slots. Enum constants keep their identity when a key is serialized.
+   */
+  private enum Slot {
+    INT, LONG
+  }
 
   /**
    * Default constructor.
    */
   public CacheKey() {
-    hashcode = DEFAULT_HASHCODE;
-    multiplier = DEFAULT_MULTIPLYER;
-    count = 0;
+    this(DEFAULT_HASHCODE, DEFAULT_MULTIPLYER);
   }
 
   /**
@@ -64,9 +75,7 @@ public class CacheKey implements Cloneable, Serializable {
    *          - the hashcode to use
    */
   public CacheKey(int initialNonZeroOddNumber) {
-    hashcode = initialNonZeroOddNumber;
-    multiplier = DEFAULT_MULTIPLYER;
-    count = 0;
+    this(initialNonZeroOddNumber, DEFAULT_MULTIPLYER);
   }
 
   /**
@@ -78,9 +87,45 @@ public class CacheKey implements Cloneable, Serializable {
    *          - the multiplier to use
    */
   public CacheKey(int initialNonZeroOddNumber, int multiplierNonZeroOddNumber) {
-    hashcode = initialNonZeroOddNumber;
+    hash = initialNonZeroOddNumber;
     multiplier = multiplierNonZeroOddNumber;
     count = 0;
+    objects = new Object[DEFAULT_CAPACITY];
+    primitives = new long[DEFAULT_CAPACITY];
+  }
+
+  /**
+   * Constructor that starts from a prefix, such as the updates shared by all the keys of a statement, and makes room
+   * for a known number of further updates.
+   *
+   * @param prefix
+   *          - the key to start from, which is not modified
+   * @param expectedUpdates
+   *          - the number of updates expected after the prefix
+   */
+  public CacheKey(CacheKey prefix, int expectedUpdates) {
+    hash = prefix.hash;
+    multiplier = prefix.multiplier;
+    count = prefix.count;
+    int capacity = Math.max(count + expectedUpdates, 1);
+    objects = Arrays.copyOf(prefix.objects, capacity);
+    primitives = Arrays.copyOf(prefix.primitives, capacity);
+  }
+
+  /**
+   * Makes room for a number of further updates.
+   *
+   * @param expectedUpdates
+   *          - the number of updates expected
+   *
+   * @return the cache key
+   */
+  public CacheKey ensureCapacity(int expectedUpdates) {
+    if (count + expectedUpdates > objects.length) {
+      objects = Arrays.copyOf(objects, count + expectedUpdates);
+      primitives = Arrays.copyOf(primitives, count + expectedUpdates);
+    }
+    return this;
   }
 
   /**
@@ -92,12 +137,26 @@ public class CacheKey implements Cloneable, Serializable {
    * @return the cache key
    */
   public CacheKey update(int x) {
-    update(Integer.valueOf(x));
+    add(Slot.INT, x);
+    return this;
+  }
+
+  /**
+   * Updates this object with new information based on a long value.
+   *
+   * @param x
+   *          - the long value
+   *
+   * @return the cache key
+   */
+  public CacheKey update(long x) {
+    add(Slot.LONG, x);
     return this;
   }
 
   /**
-   * Updates this object with new information based on an object.
+   * Updates this object with new information based on an object. Integer and Long values are stored like the
+   * primitive ones, and null is allowed.
    *
    * @param object
    *          - the object
@@ -105,17 +164,51 @@ public class CacheKey implements Cloneable, Serializable {
    * @return the cachekey
    */
   public CacheKey update(Object object) {
-    int baseHashCode = object.hashCode();
+    if (object instanceof Integer) {
+      add(Slot.INT, ((Integer) object).intValue());
+    } else if (object instanceof Long) {
+      add(Slot.LONG, ((Long) object).longValue());
+    } else {
+      add(object, Objects.hashCode(object));
+    }
+    return this;
+  }
 
+  /**
+   * Adds a slot and mixes its value into the hash.
+   *
+   * @param object
+   *          the object, or the kind of a primitive slot
+   * @param value
+   *          the hash code of the object, or the primitive value
+   */
+  private void add(Object object, long value) {
+    if (count == objects.length) {
+      objects = Arrays.copyOf(objects, count * 2);
+      primitives = Arrays.copyOf(primitives, count * 2);
+    }
+    objects[count] = object;
+    primitives[count] = value;
     count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
-
-    hashcode = multiplier * hashcode + baseHashCode;
-
-    paramList.add(object);
+    hash = multiplier * hash + mix(value + count * 0x9E3779B97F4A7C15L + (object == Slot.LONG ? 1 : 0));
+  }
 
-    return this;
+  /**
+   * Spreads the bits of a value over the 64 bits of the result (the MurmurHash3 finalizer).
+   *
+   * @param value
+   *          the value
+   *
+   * @return the mixed value
+   */
+  private static long mix(long value) {
+    long h = value;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
   }
 
   @Override
@@ -129,14 +222,18 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode || checksum != cacheKey.checksum || count != cacheKey.count) {
+    if (hash != cacheKey.hash || count != cacheKey.count) {
       return false;
     }
 
-    for (int i = 0; i < paramList.size(); i++) {
-      Object thisParam = paramList.get(i);
-      Object thatParam = cacheKey.paramList.get(i);
-      if (!Objects.equals(thisParam, thatParam)) {
+    for (int i = 0; i < count; i++) {
+      Object thisParam = objects[i];
+      Object thatParam = cacheKey.objects[i];
+      if (thisParam instanceof Slot || thatParam instanceof Slot) {
+        if (thisParam != thatParam || primitives[i] != cacheKey.primitives[i]) {
+          return false;
+        }
+      } else if (!Objects.equals(thisParam, thatParam)) {
         return false;
       }
     }
@@ -146,14 +243,14 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    return (int) (hash ^ hash >>> 32);
   }
 
   @Override
   public String toString() {
-    StringBuilder returnValue = new StringBuilder().append(hashcode).append('|').append(checksum);
-    for (Object element : paramList) {
-      returnValue.append('|').append(element);
+    StringBuilder returnValue = new StringBuilder().append(hash);
+    for (int i = 0; i < count; i++) {
+      returnValue.append('|').append(objects[i] instanceof Slot ? (Object) primitives[i] : objects[i]);
     }
 
     return returnValue.toString();
@@ -162,7 +259,8 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.paramList = new ArrayList<>(paramList);
+    clonedCacheKey.objects = objects.clone();
+    clonedCacheKey.primitives = primitives.clone();
     return clonedCacheKey;
   }
 
@@ -15,20 +15,30 @@
  */
 package com.ibatis.sqlmap.engine.cache;
 
+import com.ibatis.common.beans.ClassInfo;
+import com.ibatis.common.beans.ProbeFactory;
 import com.ibatis.common.logging.Log;
 import com.ibatis.common.logging.LogFactory;
+import com.ibatis.sqlmap.engine.cache.CacheStatistics.FlushCause;
+import com.ibatis.sqlmap.engine.cache.serializer.BeanCacheSerializer;
 import com.ibatis.sqlmap.engine.mapping.statement.ExecuteListener;
 import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
  * Wrapper for Caches.
@@ -46,15 +56,27 @@ public class CacheModel implements ExecuteListener {
    */
   public static final Object NULL_OBJECT = "SERIALIZABLE_NULL_OBJECT";
 
-  /** The requests. */
-  private int requests = 0;
-
-  /** The hits. */
-  private int hits = 0;
+  /** The statistics. */
+  private final CacheStatistics statistics = new CacheStatistics(this);
 
   /** Constant to turn off periodic cache flushes. */
   private static final long NO_FLUSH_INTERVAL = -99999;
 
+  /** The table of the entries whose tables are unknown, which any write evicts. */
+  private static final String ANY_TABLE = "*";
+
+  /** The number of dependencies beyond which the records of the entries no longer cached are pruned. */
+  private static final int MAX_TRACKED_DEPENDENCIES = 100000;
+
+  /** Marks an entry that is being refreshed. */
+  private static final Long REFRESH_CLAIMED = Long.valueOf(Long.MAX_VALUE);
+
+  /** The default time callers wait for a load in progress, in milliseconds. */
+  private static final long DEFAULT_LOAD_TIMEOUT = 5000;
+
+  /** Without a scheduler, expired entries are removed every this many puts; must be a power of two. */
+  private static final int EXPIRY_PUT_INTERVAL = 1024;
+
   /** The id. */
   private String id;
 
@@ -64,12 +86,72 @@ public class CacheModel implements ExecuteListener {
   /** The serialize. */
   private boolean serialize;
 
+  /** The serializer used when the cache model serializes objects. */
+  private CacheSerializer serializer = new BeanCacheSerializer();
+
+  /** The copy on read. */
+  private boolean copyOnRead;
+
+  /** The cloner used when the cache model copies objects on read. */
+  private CacheCloner cloner = new CacheCloner(serializer);
+
+  /** The concurrent. */
+  private boolean concurrent;
+
   /** The last flush. */
-  private long lastFlush;
+  private final AtomicLong lastFlush = new AtomicLong();
+
+  /** The flush generation, incremented on every flush. */
+  private final AtomicLong flushGeneration = new AtomicLong();
 
   /** The flush interval. */
   private long flushInterval;
 
+  /** The time to live of each entry in milliseconds, or 0 if entries do not expire. */
+  private long timeToLive;
+
+  /** The expiry time of each entry, when entries have a time to live. */
+  private final ConcurrentHashMap<Object, Long> expiries = new ConcurrentHashMap<>();
+
+  /** The number of puts since entries were last expired. */
+  private final AtomicInteger putsSinceExpiry = new AtomicInteger();
+
+  /** Tells if a {@link CacheScheduler} flushes and expires this cache model. */
+  private volatile boolean scheduled;
+
+  /** The time after which an entry is reloaded in the background, in milliseconds, or 0 to never reload. */
+  private long refreshAfter;
+
+  /** The time each entry is due for refresh, or {@link #REFRESH_CLAIMED} while it is being refreshed. */
+  private final ConcurrentHashMap<Object, Long> refreshTimes = new ConcurrentHashMap<>();
+
+  /** Tells if write statements evict only the entries that depend on the tables they write. */
+  private boolean dependencyTracking;
+
+  /** The keys of the entries that depend on a whole table, by table. */
+  private final ConcurrentHashMap<String, Set<Object>> tableDependents = new ConcurrentHashMap<>();
+
+  /** The keys of the entries that depend on some rows of a table, by table and row key. */
+  private final ConcurrentHashMap<String, ConcurrentHashMap<Object, Set<Object>>> rowDependents = new ConcurrentHashMap<>();
+
+  /** The number of dependencies recorded since the last flush. */
+  private final AtomicInteger trackedDependencies = new AtomicInteger();
+
+  /** The number of dependencies beyond which the records are pruned, raised when most records are still in use. */
+  private volatile int pruneThreshold = MAX_TRACKED_DEPENDENCIES;
+
+  /** Tells if the records are being pruned. */
+  private final AtomicBoolean pruning = new AtomicBoolean();
+
+  /** Tells if only one caller per key loads a missing entry. */
+  private boolean singleFlight;
+
+  /** How long callers wait for a load in progress, in milliseconds. */
+  private long loadTimeout = DEFAULT_LOAD_TIMEOUT;
+
+  /** The loads in progress, by key. */
+  private final ConcurrentHashMap<CacheKey, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
   /** The flush interval seconds. */
   private long flushIntervalSeconds;
 
@@ -82,16 +164,34 @@ public class CacheModel implements ExecuteListener {
   /** The resource. */
   private String resource;
 
+  /** The bus that broadcasts the invalidations of this cache model to the other nodes, null if there is none. */
+  private volatile InvalidationBus invalidationBus;
+
+  /** The clock of the flush interval, the times to live and the refresh times, in milliseconds. */
+  private LongSupplier clock = System::currentTimeMillis;
+
   /**
    * Default constructor.
    */
   public CacheModel() {
     this.flushInterval = NO_FLUSH_INTERVAL;
     this.flushIntervalSeconds = NO_FLUSH_INTERVAL;
-    this.lastFlush = System.currentTimeMillis();
+    this.lastFlush.set(clock.getAsLong());
     this.flushTriggerStatements = new HashSet<>();
   }
 
+  /**
+   * Sets the clock of the flush interval, the times to live and the refresh times, and restarts the flush interval.
+   * Used by tests to control time.
+   *
+   * @param clock
+   *          the clock, in milliseconds
+   */
+  void setClock(LongSupplier clock) {
+    this.clock = clock;
+    this.lastFlush.set(clock.getAsLong());
+  }
+
   /**
    * Getter for the cache model's id.
    *
@@ -149,6 +249,66 @@ public class CacheModel implements ExecuteListener {
     this.serialize = serialize;
   }
 
+  /**
+   * Gets the serializer.
+   *
+   * @return the serializer used when the cache model serializes objects
+   */
+  public CacheSerializer getSerializer() {
+    return serializer;
+  }
+
+  /**
+   * Sets the serializer.
+   *
+   * @param serializer
+   *          - the serializer to use when the cache model serializes objects
+   */
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+    this.cloner = new CacheCloner(serializer);
+  }
+
+  /**
+   * Getter to tell if the cache returns a deep copy of the cached object on each read.
+   *
+   * @return true if the cache model copies objects on read
+   */
+  public boolean isCopyOnRead() {
+    return copyOnRead;
+  }
+
+  /**
+   * Setter to tell the cache to return a deep copy of the cached object on each read. Like a serializing cache, such a
+   * read-write cache can be shared by all sessions.
+   *
+   * @param copyOnRead
+   *          - if the cache model is to copy objects on read
+   */
+  public void setCopyOnRead(boolean copyOnRead) {
+    this.copyOnRead = copyOnRead;
+  }
+
+  /**
+   * Getter for concurrent property.
+   *
+   * @return true if the cache model does not guard its controller with a model-wide lock
+   */
+  public boolean isConcurrent() {
+    return concurrent;
+  }
+
+  /**
+   * Setter for concurrent property. A concurrent cache model calls its controller without holding the model monitor,
+   * so the controller must be thread safe on its own.
+   *
+   * @param concurrent
+   *          - if the cache model is to run without a model-wide lock
+   */
+  public void setConcurrent(boolean concurrent) {
+    this.concurrent = concurrent;
+  }
+
   /**
    * Getter for resource property.
    *
@@ -186,6 +346,15 @@ public class CacheModel implements ExecuteListener {
     this.controller = controller;
   }
 
+  /**
+   * Getter for the cache controller.
+   *
+   * @return the cache controller
+   */
+  public CacheController getCacheController() {
+    return controller;
+  }
+
   /**
    * Getter for flushInterval property.
    *
@@ -215,6 +384,235 @@ public class CacheModel implements ExecuteListener {
     this.flushIntervalSeconds = flushInterval / 1000;
   }
 
+  /**
+   * Tells if write statements evict only the entries that depend on the tables they write, instead of flushing the
+   * whole cache.
+   *
+   * @return true if the cache model tracks table dependencies
+   */
+  public boolean isDependencyTracking() {
+    return dependencyTracking;
+  }
+
+  /**
+   * Sets if write statements evict only the entries that depend on the tables they write, instead of flushing the whole
+   * cache. The writes that declare their tables evict the dependent entries; a flush trigger that declares no tables
+   * still flushes the whole cache.
+   *
+   * @param dependencyTracking
+   *          - if the cache model is to track table dependencies
+   */
+  public void setDependencyTracking(boolean dependencyTracking) {
+    this.dependencyTracking = dependencyTracking;
+  }
+
+  /**
+   * Gets the time after which an entry is reloaded in the background.
+   *
+   * @return the refresh time in milliseconds, or 0 if entries are never reloaded
+   */
+  public long getRefreshAfter() {
+    return refreshAfter;
+  }
+
+  /**
+   * Sets the time after which an entry is reloaded in the background. Once it has elapsed since the entry was stored,
+   * the next read still returns the cached value but starts a reload of the entry. The flush interval and the flush on
+   * execute statements still clear the cache as usual.
+   *
+   * @param refreshAfter
+   *          - the refresh time in milliseconds, or 0 if entries are never reloaded
+   */
+  public void setRefreshAfter(long refreshAfter) {
+    this.refreshAfter = refreshAfter;
+  }
+
+  /**
+   * Claims the refresh of an entry that is due for one. Only one caller can claim the refresh of an entry; it must call
+   * {@link #endRefresh(CacheKey)} once the refresh is done, whether or not it succeeded.
+   *
+   * @param key
+   *          the key of the entry
+   *
+   * @return true if the caller must refresh the entry
+   */
+  public boolean claimRefresh(CacheKey key) {
+    if (refreshAfter <= 0) {
+      return false;
+    }
+    Long due = refreshTimes.get(key);
+    if (due == null) {
+      // the refresh time was pruned, so the entry is old
+      return refreshTimes.putIfAbsent(key, REFRESH_CLAIMED) == null;
+    }
+    return due.longValue() <= clock.getAsLong() && refreshTimes.replace(key, due, REFRESH_CLAIMED);
+  }
+
+  /**
+   * Ends the refresh of an entry. If the refresh did not store a new value, the entry is due again after the refresh
+   * time.
+   *
+   * @param key
+   *          the key of the entry
+   */
+  public void endRefresh(CacheKey key) {
+    refreshTimes.replace(key, REFRESH_CLAIMED, Long.valueOf(clock.getAsLong() + refreshAfter));
+  }
+
+  /**
+   * Tells if only one caller per key runs the query of a cache miss while the others wait for its result.
+   *
+   * @return true if the cache model loads single flight
+   */
+  public boolean isSingleFlight() {
+    return singleFlight;
+  }
+
+  /**
+   * Sets if only one caller per key runs the query of a cache miss while the others wait for its result.
+   *
+   * @param singleFlight
+   *          - if the cache model is to load single flight
+   */
+  public void setSingleFlight(boolean singleFlight) {
+    this.singleFlight = singleFlight;
+  }
+
+  /**
+   * Gets how long callers wait for a load in progress before running the query themselves.
+   *
+   * @return the load timeout in milliseconds
+   */
+  public long getLoadTimeout() {
+    return loadTimeout;
+  }
+
+  /**
+   * Sets how long callers wait for a load in progress before running the query themselves.
+   *
+   * @param loadTimeout
+   *          - the load timeout in milliseconds
+   */
+  public void setLoadTimeout(long loadTimeout) {
+    this.loadTimeout = loadTimeout;
+  }
+
+  /**
+   * Registers the load of a missing entry.
+   *
+   * @param key
+   *          the key of the entry
+   * @param load
+   *          the load, completed by the caller once the entry has been cached
+   *
+   * @return null if the caller must run the load, or the load already in progress for the key
+   */
+  public CompletableFuture<Object> beginLoad(CacheKey key, CompletableFuture<Object> load) {
+    return loads.putIfAbsent(key, load);
+  }
+
+  /**
+   * Unregisters a load registered with {@link #beginLoad(CacheKey, CompletableFuture)}.
+   *
+   * @param key
+   *          the key of the entry
+   * @param load
+   *          the load
+   */
+  public void endLoad(CacheKey key, CompletableFuture<Object> load) {
+    loads.remove(key, load);
+  }
+
+  /**
+   * Gives a caller that waited for a load its own view of the loaded value, as {@link #getObject(CacheKey)} would: the
+   * value itself for read only cache models, and a copy otherwise. The cache is not read, so no request is counted.
+   *
+   * @param value
+   *          the value returned by the load, may be null
+   *
+   * @return the value or its copy
+   */
+  public Object copyLoadedValue(Object value) {
+    if (value == null || readOnly) {
+      return value;
+    }
+    if (serialize) {
+      try {
+        return serializer.deserialize(serializer.serialize(value));
+      } catch (Exception e) {
+        throw new RuntimeException("Error copying serializable object.  Cause: " + e, e);
+      }
+    }
+    return copyOnRead ? cloner.copy(value) : value;
+  }
+
+  /**
+   * Gets the time to live of each entry.
+   *
+   * @return the time to live in milliseconds, or 0 if entries do not expire
+   */
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  /**
+   * Sets the time to live of each entry. An entry is dropped once this time has elapsed since it was stored,
+   * independently of the flush interval of the whole cache model.
+   *
+   * @param timeToLive
+   *          the time to live in milliseconds, or 0 if entries do not expire
+   */
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  /**
+   * Gets the time of the last flush.
+   *
+   * @return the time of the last flush in milliseconds
+   */
+  public long getLastFlush() {
+    return lastFlush.get();
+  }
+
+  /**
+   * Tells if a {@link CacheScheduler} flushes and expires this cache model.
+   *
+   * @return true if it does
+   */
+  public boolean isScheduled() {
+    return scheduled;
+  }
+
+  /**
+   * Sets if a {@link CacheScheduler} flushes and expires this cache model.
+   *
+   * @param scheduled
+   *          the new scheduled
+   */
+  void setScheduled(boolean scheduled) {
+    this.scheduled = scheduled;
+  }
+
+  /**
+   * Gets the bus that broadcasts the invalidations of this cache model to the other nodes.
+   *
+   * @return the invalidation bus, or null if invalidations stay local
+   */
+  public InvalidationBus getInvalidationBus() {
+    return invalidationBus;
+  }
+
+  /**
+   * Sets the bus that broadcasts the invalidations of this cache model. Set by {@link InvalidationBus#register}.
+   *
+   * @param invalidationBus
+   *          the new invalidation bus
+   */
+  void setInvalidationBus(InvalidationBus invalidationBus) {
+    this.invalidationBus = invalidationBus;
+  }
+
   /**
    * Adds a flushTriggerStatment. When a flushTriggerStatment is executed, the cache is flushed (cleared).
    *
@@ -245,16 +643,346 @@ public class CacheModel implements ExecuteListener {
    */
   @Override
   public void onExecuteStatement(MappedStatement statement) {
-    flush();
+    flush(FlushCause.STATEMENT);
+  }
+
+  /**
+   * ExecuteListener event. When the cache model tracks table dependencies and the tables written by the statement are
+   * known, only the entries that depend on them are evicted. Otherwise the cache is flushed.
+   *
+   * @param statement
+   *          The statement to execute
+   * @param parameterObject
+   *          The parameter object of the statement
+   */
+  @Override
+  public void onExecuteStatement(MappedStatement statement, Object parameterObject) {
+    TableDependency[] dependencies = statement.getTableDependencies();
+    if (!dependencyTracking || dependencies == null || dependencies.length == 0) {
+      flush(FlushCause.STATEMENT);
+    } else {
+      invalidate(dependencies, parameterObject);
+    }
+  }
+
+  /**
+   * Evicts the entries that depend on the given tables. Entries whose tables are unknown are evicted as well.
+   *
+   * @param dependencies
+   *          the tables written
+   * @param parameterObject
+   *          the parameter object of the write, used to find the rows written when a dependency has a key property
+   */
+  public void invalidate(TableDependency[] dependencies, Object parameterObject) {
+    if (concurrent) {
+      doInvalidate(dependencies, parameterObject);
+    } else {
+      synchronized (this) {
+        doInvalidate(dependencies, parameterObject);
+      }
+    }
+  }
+
+  /**
+   * Evicts the entries that depend on the given tables.
+   *
+   * @param dependencies
+   *          the tables written
+   * @param parameterObject
+   *          the parameter object of the write
+   */
+  private void doInvalidate(TableDependency[] dependencies, Object parameterObject) {
+    String[] tables = new String[dependencies.length];
+    String[] rows = new String[dependencies.length];
+    for (int i = 0; i < dependencies.length; i++) {
+      tables[i] = dependencies[i].getTable();
+      rows[i] = rowKey(dependencies[i], parameterObject);
+    }
+    doInvalidate(tables, rows);
+    InvalidationBus bus = invalidationBus;
+    if (bus != null) {
+      bus.publishInvalidation(this, tables, rows);
+    }
+  }
+
+  /**
+   * Evicts the entries that depend on the given tables, without broadcasting the invalidation. Called by the
+   * {@link InvalidationBus} for the invalidations of the other nodes.
+   *
+   * @param tables
+   *          the tables written
+   * @param rows
+   *          the keys of the rows written, by table, null elements for whole tables
+   */
+  void invalidateLocally(String[] tables, String[] rows) {
+    if (concurrent) {
+      doInvalidate(tables, rows);
+    } else {
+      synchronized (this) {
+        doInvalidate(tables, rows);
+      }
+    }
+  }
+
+  /**
+   * Evicts the entries that depend on the given tables.
+   *
+   * @param tables
+   *          the tables written
+   * @param rows
+   *          the keys of the rows written, by table, null elements for whole tables
+   */
+  private void doInvalidate(String[] tables, String[] rows) {
+    flushGeneration.incrementAndGet();
+    statistics.recordInvalidation();
+    Set<Object> keys = new HashSet<>();
+    collect(tableDependents.remove(ANY_TABLE), keys);
+    for (int i = 0; i < tables.length; i++) {
+      collect(tableDependents.remove(tables[i]), keys);
+      String row = rows[i];
+      if (row == null) {
+        Map<Object, Set<Object>> dependents = rowDependents.remove(tables[i]);
+        if (dependents != null) {
+          for (Set<Object> rowKeys : dependents.values()) {
+            collect(rowKeys, keys);
+          }
+        }
+      } else {
+        Map<Object, Set<Object>> dependents = rowDependents.get(tables[i]);
+        if (dependents != null) {
+          collect(dependents.remove(row), keys);
+        }
+      }
+    }
+    for (Object key : keys) {
+      controller.removeObject(this, key);
+      expiries.remove(key);
+      refreshTimes.remove(key);
+    }
+    if (log.isDebugEnabled()) {
+      log("invalidated " + keys.size() + " entries depending on " + Arrays.toString(tables), false, null);
+    }
+  }
+
+  /**
+   * Adds the keys of a dependents set to a set of keys to evict.
+   *
+   * @param dependents
+   *          the dependents, may be null
+   * @param keys
+   *          the keys to evict
+   */
+  private void collect(Set<Object> dependents, Set<Object> keys) {
+    if (dependents != null) {
+      trackedDependencies.addAndGet(-dependents.size());
+      keys.addAll(dependents);
+    }
+  }
+
+  /**
+   * Records the tables an entry depends on.
+   *
+   * @param key
+   *          the key of the entry
+   * @param dependencies
+   *          the tables read, null or empty if unknown
+   * @param parameterObject
+   *          the parameter object of the read, used to find the rows read when a dependency has a key property
+   */
+  private void trackDependencies(CacheKey key, TableDependency[] dependencies, Object parameterObject) {
+    if (dependencies == null || dependencies.length == 0) {
+      track(tableDependents, ANY_TABLE, key);
+    } else {
+      for (TableDependency dependency : dependencies) {
+        String row = rowKey(dependency, parameterObject);
+        if (row == null) {
+          track(tableDependents, dependency.getTable(), key);
+        } else {
+          track(rowDependents.computeIfAbsent(dependency.getTable(), table -> new ConcurrentHashMap<>()), row, key);
+        }
+      }
+    }
+    if (trackedDependencies.get() > pruneThreshold) {
+      pruneDependencies();
+    }
+  }
+
+  /**
+   * Gets the number of dependencies recorded.
+   *
+   * @return the number of dependencies
+   */
+  int getTrackedDependencyCount() {
+    return trackedDependencies.get();
+  }
+
+  /**
+   * Adds the key of an entry to a dependents set. The set is updated inside the map so that pruning cannot drop it
+   * while the key is added.
+   *
+   * @param <K>
+   *          the type of the map key
+   * @param dependents
+   *          the dependents sets
+   * @param dependency
+   *          the table or the row key
+   * @param key
+   *          the key of the entry
+   */
+  private <K> void track(ConcurrentHashMap<K, Set<Object>> dependents, K dependency, CacheKey key) {
+    dependents.compute(dependency, (k, keys) -> {
+      Set<Object> set = keys == null ? ConcurrentHashMap.newKeySet() : keys;
+      if (set.add(key)) {
+        trackedDependencies.incrementAndGet();
+      }
+      return set;
+    });
+  }
+
+  /**
+   * Drops the records of the entries that are no longer cached, such as the ones evicted by the controller. The
+   * threshold of the next pruning is raised when most records are still in use, so that a large cache is not pruned
+   * over and over. A controller that cannot list its keys is flushed instead.
+   */
+  private void pruneDependencies() {
+    if (!pruning.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      List<Object> keys;
+      if (concurrent) {
+        keys = controller.getKeys();
+      } else {
+        synchronized (this) {
+          keys = controller.getKeys();
+        }
+      }
+      if (keys == null) {
+        flushLocally(FlushCause.OTHER);
+        return;
+      }
+      Set<Object> cached = new HashSet<>(keys);
+      int remaining = prune(tableDependents, cached);
+      for (ConcurrentHashMap<Object, Set<Object>> rows : rowDependents.values()) {
+        remaining += prune(rows, cached);
+      }
+      trackedDependencies.set(remaining);
+      pruneThreshold = Math.max(MAX_TRACKED_DEPENDENCIES, remaining * 2);
+      if (log.isDebugEnabled()) {
+        log("pruned the table dependencies to " + remaining + " records", false, null);
+      }
+    } finally {
+      pruning.set(false);
+    }
+  }
+
+  /**
+   * Drops the keys that are no longer cached from dependents sets, and the sets left empty.
+   *
+   * @param <K>
+   *          the type of the map key
+   * @param dependents
+   *          the dependents sets
+   * @param cached
+   *          the keys of the cached entries
+   *
+   * @return the number of records left
+   */
+  private static <K> int prune(ConcurrentHashMap<K, Set<Object>> dependents, Set<Object> cached) {
+    int remaining = 0;
+    for (K dependency : dependents.keySet()) {
+      Set<Object> left = dependents.computeIfPresent(dependency, (k, keys) -> {
+        keys.retainAll(cached);
+        return keys.isEmpty() ? null : keys;
+      });
+      if (left != null) {
+        remaining += left.size();
+      }
+    }
+    return remaining;
+  }
+
+  /**
+   * Gets the key of the rows of a dependency, from the parameter object.
+   *
+   * @param dependency
+   *          the dependency
+   * @param parameterObject
+   *          the parameter object
+   *
+   * @return the row key, or null if the dependency is on the whole table
+   */
+  private static String rowKey(TableDependency dependency, Object parameterObject) {
+    if (dependency.getKeyProperty() == null || parameterObject == null) {
+      return null;
+    }
+    Object value;
+    Class<?> type = parameterObject.getClass();
+    if (ClassInfo.isKnownType(type) && !(parameterObject instanceof Map)) {
+      value = parameterObject;
+    } else {
+      try {
+        value = ProbeFactory.getProbe(parameterObject).getObject(parameterObject, dependency.getKeyProperty());
+      } catch (RuntimeException e) {
+        return null;
+      }
+    }
+    if (value instanceof Number) {
+      try {
+        // so that an Integer and a Long with the same value match
+        return new BigDecimal(value.toString()).stripTrailingZeros().toPlainString();
+      } catch (NumberFormatException e) {
+        return value.toString();
+      }
+    }
+    return value == null ? null : value.toString();
+  }
+
+  /**
+   * Returns the statistics of the cache.
+   *
+   * @return the statistics, a live view
+   */
+  public CacheStatistics getStatistics() {
+    return statistics;
   }
 
   /**
    * Returns statistical information about the cache.
    *
-   * @return the number of cache hits divided by the total requests
+   * @return the number of cache hits divided by the total requests, 0 if there was no request
    */
   public double getHitRatio() {
-    return (double) hits / (double) requests;
+    return statistics.getHitRatio();
+  }
+
+  /**
+   * Returns the number of lookups made against the cache.
+   *
+   * @return the request count
+   */
+  public long getRequestCount() {
+    return statistics.getRequestCount();
+  }
+
+  /**
+   * Returns the number of lookups that found a cached object.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return statistics.getHitCount();
+  }
+
+  /**
+   * Returns the current flush generation. The generation is incremented by every flush, so a caller that reads it
+   * before loading a value can pass it to {@link #putObject(CacheKey, Object, long)} to avoid caching a value that was
+   * loaded before a flush.
+   *
+   * @return the flush generation
+   */
+  public long getFlushGeneration() {
+    return flushGeneration.get();
   }
 
   /**
@@ -268,18 +996,188 @@ public class CacheModel implements ExecuteListener {
   }
 
   /**
-   * Clears the cache.
+   * Clears the cache, and the same cache model of the other nodes if there is an invalidation bus.
    */
   public void flush() {
-    synchronized (this) {
-      controller.flush(this);
-      lastFlush = System.currentTimeMillis();
-      if (log.isDebugEnabled()) {
-        log("flushed", false, null);
+    flush(FlushCause.OTHER);
+  }
+
+  /**
+   * Clears the cache, and the same cache model of the other nodes if there is an invalidation bus.
+   *
+   * @param cause
+   *          the cause of the flush, for the statistics
+   */
+  void flush(FlushCause cause) {
+    flushLocally(cause);
+    InvalidationBus bus = invalidationBus;
+    if (bus != null) {
+      bus.publishFlush(this);
+    }
+  }
+
+  /**
+   * Clears the cache without broadcasting the flush. Used for the interval flushes, which every node performs on its
+   * own, and for the flushes received from the other nodes.
+   *
+   * @param cause
+   *          the cause of the flush, for the statistics
+   */
+  void flushLocally(FlushCause cause) {
+    statistics.recordFlush(cause);
+    if (concurrent) {
+      doFlush();
+    } else {
+      synchronized (this) {
+        doFlush();
+      }
+    }
+  }
+
+  /**
+   * Clears the controller and advances the flush generation.
+   */
+  private void doFlush() {
+    flushGeneration.incrementAndGet();
+    controller.flush(this);
+    expiries.clear();
+    refreshTimes.clear();
+    tableDependents.clear();
+    rowDependents.clear();
+    trackedDependencies.set(0);
+    pruneThreshold = MAX_TRACKED_DEPENDENCIES;
+    lastFlush.set(clock.getAsLong());
+    if (log.isDebugEnabled()) {
+      log("flushed", false, null);
+    }
+  }
+
+  /**
+   * Flushes the cache if it has not been flushed in the flushInterval. In concurrent mode only the thread that wins
+   * the update of the last flush time performs the flush.
+   */
+  private void flushIfExpired() {
+    if (flushInterval == NO_FLUSH_INTERVAL) {
+      return;
+    }
+    long last = lastFlush.get();
+    long now = clock.getAsLong();
+    if (now - last > flushInterval && (!concurrent || lastFlush.compareAndSet(last, now))) {
+      flushLocally(FlushCause.INTERVAL);
+    }
+  }
+
+  /**
+   * Flushes the cache if it has not been flushed in the flushInterval. Called by the {@link CacheScheduler}.
+   */
+  void flushIfDue() {
+    if (concurrent) {
+      flushIfExpired();
+    } else {
+      synchronized (this) {
+        flushIfExpired();
       }
     }
   }
 
+  /**
+   * Removes the entries whose time to live has elapsed.
+   */
+  void expireEntries() {
+    if (concurrent) {
+      doExpireEntries();
+    } else {
+      synchronized (this) {
+        doExpireEntries();
+      }
+    }
+  }
+
+  /**
+   * Removes the entries whose time to live has elapsed.
+   */
+  private void doExpireEntries() {
+    long now = clock.getAsLong();
+    for (Map.Entry<Object, Long> entry : expiries.entrySet()) {
+      if (entry.getValue().longValue() <= now && expiries.remove(entry.getKey(), entry.getValue())) {
+        removeExpired(entry.getKey(), controller.getObject(this, entry.getKey()));
+      }
+    }
+  }
+
+  /**
+   * Removes an entry if its time to live has elapsed.
+   *
+   * @param key
+   *          the key
+   *
+   * @return true if the entry was removed
+   */
+  private boolean expireEntry(Object key) {
+    Long expiry = expiries.get(key);
+    if (expiry != null && expiry.longValue() <= clock.getAsLong() && expiries.remove(key, expiry)) {
+      removeExpired(key, controller.getObject(this, key));
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes the value of an entry whose expiry was just removed. A put records the expiry of its value before storing
+   * the value, so an expiry recorded again means a fresh value is being put, and the value read is left for it to
+   * replace; otherwise only the value read is removed, so that a value stored since is kept.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the value read after the expiry was removed
+   */
+  private void removeExpired(Object key, Object value) {
+    if (value != null && !expiries.containsKey(key)) {
+      controller.removeObject(this, key, value);
+    }
+    statistics.recordExpiration();
+  }
+
+  /**
+   * Reads an entry straight from the controller, for an export. Unlike {@link #getObject(CacheKey)}, no request is
+   * counted, the value is not copied, no refresh is started and the cache is not flushed; an entry whose time to live
+   * has elapsed is skipped but left for the next read to remove.
+   *
+   * @param key
+   *          the key
+   *
+   * @return the value, {@link #NULL_OBJECT} for a cached null, or null if the entry is not cached or has expired
+   *
+   * @throws IOException
+   *           if a serialized value cannot be read
+   * @throws ClassNotFoundException
+   *           if the class of a serialized value cannot be found
+   */
+  Object peekObject(CacheKey key) throws IOException, ClassNotFoundException {
+    Object value;
+    if (concurrent) {
+      value = controller.getObject(this, key);
+    } else {
+      synchronized (this) {
+        value = controller.getObject(this, key);
+      }
+    }
+    if (value == null) {
+      return null;
+    }
+    if (timeToLive > 0) {
+      Long expiry = expiries.get(key);
+      if (expiry != null && expiry.longValue() <= clock.getAsLong()) {
+        return null;
+      }
+    }
+    if (serialize && !readOnly && value != NULL_OBJECT) {
+      value = serializer.deserialize((byte[]) value);
+    }
+    return value;
+  }
+
   /**
    * Get an object out of the cache. A side effect of this method is that is may clear the cache if it has not been
    * cleared in the flushInterval.
@@ -290,34 +1188,42 @@ public class CacheModel implements ExecuteListener {
    * @return The cached object (or null)
    */
   public Object getObject(CacheKey key) {
-    Object value = null;
-    synchronized (this) {
-      if (flushInterval != NO_FLUSH_INTERVAL && System.currentTimeMillis() - lastFlush > flushInterval) {
-        flush();
+    Object value;
+    if (concurrent) {
+      if (!scheduled) {
+        flushIfExpired();
       }
-
       value = controller.getObject(this, key);
-      if (serialize && !readOnly && value != NULL_OBJECT && value != null) {
-        try {
-          ByteArrayInputStream bis = new ByteArrayInputStream((byte[]) value);
-          ObjectInputStream ois = new ObjectInputStream(bis);
-          value = ois.readObject();
-          ois.close();
-        } catch (Exception e) {
-          throw new RuntimeException("Error caching serializable object.  Be sure you're not attempting to use "
-              + "a serialized cache for an object that may be taking advantage of lazy loading.  Cause: " + e, e);
+      if (value != null && timeToLive > 0 && expireEntry(key)) {
+        value = null;
+      }
+    } else {
+      synchronized (this) {
+        if (!scheduled) {
+          flushIfExpired();
+        }
+        value = controller.getObject(this, key);
+        if (value != null && timeToLive > 0 && expireEntry(key)) {
+          value = null;
         }
       }
-      requests++;
-      if (value != null) {
-        hits++;
+    }
+    if (serialize && !readOnly && value != NULL_OBJECT && value != null) {
+      try {
+        value = serializer.deserialize((byte[]) value);
+      } catch (Exception e) {
+        throw new RuntimeException("Error caching serializable object.  Be sure you're not attempting to use "
+            + "a serialized cache for an object that may be taking advantage of lazy loading.  Cause: " + e, e);
       }
-      if (log.isDebugEnabled()) {
-        if (value != null) {
-          log("retrieved object", true, value);
-        } else {
-          log("cache miss", false, null);
-        }
+    } else if (copyOnRead && !readOnly && value != NULL_OBJECT && value != null) {
+      value = cloner.copy(value);
+    }
+    statistics.recordRequest(value != null);
+    if (log.isDebugEnabled()) {
+      if (value != null) {
+        log("retrieved object", true, value);
+      } else {
+        log("cache miss", false, null);
       }
     }
     return value;
@@ -332,27 +1238,143 @@ public class CacheModel implements ExecuteListener {
    *          The object to be cached
    */
   public void putObject(CacheKey key, Object value) {
+    putObject(key, value, -1);
+  }
+
+  /**
+   * Add an object to the cache unless the cache has been flushed since the given generation was read.
+   *
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   * @param generation
+   *          The flush generation read before the value was loaded, or a negative number to always store the value
+   *
+   * @see #getFlushGeneration()
+   */
+  public void putObject(CacheKey key, Object value, long generation) {
+    storeObject(key, value, generation);
+  }
+
+  /**
+   * Adds an object to the cache unless the cache has been flushed since the given generation was read.
+   *
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   * @param generation
+   *          The flush generation read before the value was loaded, or a negative number to always store the value
+   *
+   * @return the value as stored in the controller, or null if it was not stored
+   */
+  private Object storeObject(CacheKey key, Object value, long generation) {
     if (null == value) {
       value = NULL_OBJECT;
     }
-    synchronized (this) {
-      if (serialize && !readOnly && value != NULL_OBJECT) {
-        try {
-          ByteArrayOutputStream bos = new ByteArrayOutputStream();
-          ObjectOutputStream oos = new ObjectOutputStream(bos);
-          oos.writeObject(value);
-          oos.flush();
-          oos.close();
-          value = bos.toByteArray();
-        } catch (IOException e) {
-          throw new RuntimeException("Error caching serializable object.  Cause: " + e, e);
+    if (serialize && !readOnly && value != NULL_OBJECT) {
+      try {
+        value = serializer.serialize(value);
+      } catch (IOException e) {
+        throw new RuntimeException("Error caching serializable object.  Cause: " + e, e);
+      }
+    } else if (copyOnRead && !readOnly && value != NULL_OBJECT) {
+      value = cloner.copy(value);
+    }
+    if (concurrent) {
+      if (generation >= 0 && generation != flushGeneration.get()) {
+        return null;
+      }
+      putEntry(key, value);
+      if (generation >= 0 && generation != flushGeneration.get()) {
+        // a flush raced with this put, so the value may predate it; a value put after the flush is kept
+        controller.removeObject(this, key, value);
+        return null;
+      }
+    } else {
+      synchronized (this) {
+        if (generation >= 0 && generation != flushGeneration.get()) {
+          return null;
         }
+        putEntry(key, value);
       }
-      controller.putObject(this, key, value);
-      if (log.isDebugEnabled()) {
-        log("stored object", true, value);
+    }
+    if ((timeToLive > 0 || refreshAfter > 0)
+        && (putsSinceExpiry.incrementAndGet() & (EXPIRY_PUT_INTERVAL - 1)) == 0) {
+      if (timeToLive > 0 && !scheduled) {
+        expireEntries();
+      }
+      if (refreshAfter > 0) {
+        pruneRefreshTimes();
       }
     }
+    if (log.isDebugEnabled()) {
+      log("stored object", true, value);
+    }
+    return value;
+  }
+
+  /**
+   * Stores an entry in the controller and records its expiry time.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the value
+   */
+  private void putEntry(CacheKey key, Object value) {
+    statistics.recordPut();
+    long now = clock.getAsLong();
+    if (timeToLive > 0) {
+      expiries.put(key, Long.valueOf(now + timeToLive));
+    }
+    if (refreshAfter > 0) {
+      refreshTimes.put(key, Long.valueOf(now + refreshAfter));
+    }
+    controller.putObject(this, key, value);
+  }
+
+  /**
+   * Forgets the refresh times of the entries that have been due for a long time, which are most likely no longer
+   * cached. An entry without a refresh time is due for refresh, so this never prevents a refresh.
+   */
+  private void pruneRefreshTimes() {
+    long oldest = clock.getAsLong() - refreshAfter;
+    refreshTimes.values().removeIf(due -> due.longValue() < oldest);
+  }
+
+  /**
+   * Add an object to the cache, recording the tables it was read from when the cache model tracks table dependencies.
+   *
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   * @param generation
+   *          The flush generation read before the value was loaded, or a negative number to always store the value
+   * @param dependencies
+   *          The tables the value was read from, null or empty if unknown
+   * @param parameterObject
+   *          The parameter object the value was read with
+   */
+  public void putObject(CacheKey key, Object value, long generation, TableDependency[] dependencies,
+      Object parameterObject) {
+    if (!dependencyTracking) {
+      putObject(key, value, generation);
+      return;
+    }
+    long current = generation >= 0 ? generation : flushGeneration.get();
+    Object stored = storeObject(key, value, current);
+    if (stored == null) {
+      // rejected, so nothing to track
+      return;
+    }
+    trackDependencies(key, dependencies, parameterObject);
+    if (current != flushGeneration.get()) {
+      // a write raced with the tracking and may have missed the entry; a value put after it is kept
+      controller.removeObject(this, key, stored);
+    }
   }
 
   /**
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the background reloads of cache entries that are due for refresh. It uses a small pool of daemon threads and a
+ * bounded queue; when both are full, a refresh is simply not run and the stale entry is served a while longer.
+ */
+public class CacheRefresher {
+
+  /** The default number of threads. */
+  private static final int DEFAULT_THREADS = 2;
+
+  /** The maximum number of refreshes waiting for a thread. */
+  private static final int MAX_QUEUED_REFRESHES = 1000;
+
+  /** The executor. */
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Instantiates a new cache refresher with the default number of threads.
+   */
+  public CacheRefresher() {
+    this(DEFAULT_THREADS);
+  }
+
+  /**
+   * Instantiates a new cache refresher.
+   *
+   * @param threads
+   *          the number of threads
+   */
+  public CacheRefresher(int threads) {
+    AtomicInteger count = new AtomicInteger();
+    executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(MAX_QUEUED_REFRESHES), runnable -> {
+          Thread thread = new Thread(runnable, "ibatis-cache-refresh-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+    executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Submits a refresh.
+   *
+   * @param refresh
+   *          the refresh
+   *
+   * @return true if the refresh will run, false if it was rejected
+   */
+  public boolean submit(Runnable refresh) {
+    try {
+      executor.execute(refresh);
+      return true;
+    } catch (RejectedExecutionException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Stops the refresher. Refreshes that have not started yet are dropped.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the interval flushes and the time to live expiry of cache models on a background thread, so that no request has
+ * to pay for them. One scheduler is shared by all the cache models of a client, and its thread is a daemon thread.
+ */
+public class CacheScheduler {
+
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(CacheScheduler.class);
+
+  /** The executor. */
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Instantiates a new cache scheduler.
+   */
+  public CacheScheduler() {
+    executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "ibatis-cache-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Takes over the interval flushes and the entry expiry of a cache model. Requests using the model no longer check
+   * whether it is due for a flush.
+   *
+   * @param cacheModel
+   *          the cache model
+   */
+  public void schedule(CacheModel cacheModel) {
+    boolean flushes = cacheModel.getFlushInterval() > 0;
+    long timeToLive = cacheModel.getTimeToLive();
+    if (!flushes && timeToLive <= 0) {
+      return;
+    }
+    cacheModel.setScheduled(true);
+    if (flushes) {
+      scheduleFlush(cacheModel);
+    }
+    if (timeToLive > 0) {
+      executor.scheduleWithFixedDelay(() -> {
+        try {
+          cacheModel.expireEntries();
+        } catch (RuntimeException e) {
+          log.error("Error expiring entries of cache '" + cacheModel.getId() + "'.  Cause: " + e, e);
+        }
+      }, timeToLive, timeToLive, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Stops the scheduler. Cache models that were scheduled are no longer flushed on their interval.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Tells if the scheduler has been stopped.
+   *
+   * @return true if it has
+   */
+  public boolean isShutdown() {
+    return executor.isShutdown();
+  }
+
+  /**
+   * Schedules the next interval flush of a cache model, right after its flush interval has elapsed since its last
+   * flush. A flush triggered by a statement therefore postpones the next interval flush.
+   *
+   * @param cacheModel
+   *          the cache model
+   */
+  private void scheduleFlush(CacheModel cacheModel) {
+    long delay = cacheModel.getLastFlush() + cacheModel.getFlushInterval() + 1 - System.currentTimeMillis();
+    try {
+      executor.schedule(() -> {
+        try {
+          cacheModel.flushIfDue();
+        } catch (RuntimeException e) {
+          log.error("Error flushing cache '" + cacheModel.getId() + "'.  Cause: " + e, e);
+        } finally {
+          scheduleFlush(cacheModel);
+        }
+      }, Math.max(delay, 0), TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // the scheduler has been shut down
+    }
+  }
+
+}
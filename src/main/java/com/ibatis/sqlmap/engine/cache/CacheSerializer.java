@@ -0,0 +1,54 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import java.io.IOException;
+
+/**
+ * Turns the values of a read-write cache model with <code>serialize="true"</code> into bytes and back. Implementations
+ * must be thread safe.
+ */
+public interface CacheSerializer {
+
+  /**
+   * Serialize a value.
+   *
+   * @param value
+   *          - the value, never null
+   *
+   * @return the serialized value
+   *
+   * @throws IOException
+   *           - if the value cannot be serialized
+   */
+  byte[] serialize(Object value) throws IOException;
+
+  /**
+   * Deserialize a value.
+   *
+   * @param bytes
+   *          - bytes produced by {@link #serialize(Object)}
+   *
+   * @return a copy of the serialized value
+   *
+   * @throws IOException
+   *           - if the bytes cannot be read
+   * @throws ClassNotFoundException
+   *           - if a class of the serialized value cannot be found
+   */
+  Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException;
+
+}
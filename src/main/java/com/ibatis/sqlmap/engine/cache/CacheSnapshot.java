@@ -0,0 +1,243 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes the contents of cache models to a stream and reads them back, so that a node can start with the caches of
+ * another one, or of a previous run.
+ * <p>
+ * Keys and values are written with the serializer of their cache model, so both must be serializable by it. Entries
+ * that cannot be written or read, such as the ones keyed by session, are skipped. Cache controllers that cannot list
+ * their keys contribute no entries.
+ */
+public final class CacheSnapshot {
+
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(CacheSnapshot.class);
+
+  /** The first bytes of a snapshot: "IBCS". */
+  private static final int MAGIC = 0x49424353;
+
+  /** The version of the format. */
+  private static final int VERSION = 1;
+
+  /**
+   * Instantiates a new cache snapshot.
+   */
+  private CacheSnapshot() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Writes the entries of cache models to a stream. The stream is flushed but not closed.
+   *
+   * @param cacheModels
+   *          the cache models
+   * @param out
+   *          the stream
+   *
+   * @return the number of entries written
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  public static int write(Collection<CacheModel> cacheModels, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    int written = 0;
+    for (CacheModel cacheModel : cacheModels) {
+      data.writeBoolean(true);
+      data.writeUTF(cacheModel.getId());
+      List<Object> keys = cacheModel.getCacheController().getKeys();
+      if (keys == null) {
+        log.debug("Cache '" + cacheModel.getId() + "' cannot list its keys, no entries exported.");
+      } else {
+        CacheSerializer serializer = cacheModel.getSerializer();
+        for (Object key : keys) {
+          if (key instanceof CacheKey && writeEntry(data, cacheModel, serializer, (CacheKey) key)) {
+            written++;
+          }
+        }
+      }
+      data.writeBoolean(false);
+    }
+    data.writeBoolean(false);
+    data.flush();
+    return written;
+  }
+
+  /**
+   * Writes an entry.
+   *
+   * @param data
+   *          the stream
+   * @param cacheModel
+   *          the cache model
+   * @param serializer
+   *          the serializer
+   * @param key
+   *          the key
+   *
+   * @return true if the entry was written, false if it is gone or cannot be serialized
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private static boolean writeEntry(DataOutputStream data, CacheModel cacheModel, CacheSerializer serializer,
+      CacheKey key) throws IOException {
+    byte[] keyBytes;
+    byte[] valueBytes;
+    try {
+      Object value = cacheModel.peekObject(key);
+      if (value == null) {
+        return false;
+      }
+      keyBytes = serializer.serialize(key);
+      valueBytes = value == CacheModel.NULL_OBJECT ? null : serializer.serialize(value);
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      log.debug("Skipping entry of cache '" + cacheModel.getId() + "' that cannot be serialized.  Cause: " + e);
+      return false;
+    }
+    data.writeBoolean(true);
+    writeBytes(data, keyBytes);
+    writeBytes(data, valueBytes);
+    return true;
+  }
+
+  /**
+   * Reads entries written by {@link #write(Collection, OutputStream)} into the cache models of the same id. Entries of
+   * unknown cache models are skipped. The stream is not closed.
+   *
+   * @param in
+   *          the stream
+   * @param cacheModels
+   *          the cache models, by id; returns null for unknown ids
+   *
+   * @return the number of entries read into cache models
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  public static int read(InputStream in, Function<String, CacheModel> cacheModels) throws IOException {
+    DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+    if (data.readInt() != MAGIC) {
+      throw new StreamCorruptedException("Not a cache snapshot.");
+    }
+    int version = data.readInt();
+    if (version != VERSION) {
+      throw new StreamCorruptedException("Unsupported cache snapshot version " + version + ".");
+    }
+    int read = 0;
+    while (data.readBoolean()) {
+      String id = data.readUTF();
+      CacheModel cacheModel = cacheModels.apply(id);
+      while (data.readBoolean()) {
+        byte[] keyBytes = readBytes(data);
+        byte[] valueBytes = readBytes(data);
+        if (cacheModel != null && readEntry(cacheModel, keyBytes, valueBytes)) {
+          read++;
+        }
+      }
+    }
+    return read;
+  }
+
+  /**
+   * Puts an entry read from a snapshot in its cache model.
+   *
+   * @param cacheModel
+   *          the cache model
+   * @param keyBytes
+   *          the serialized key
+   * @param valueBytes
+   *          the serialized value, or null for a cached null
+   *
+   * @return true if the entry was put, false if it cannot be deserialized
+   */
+  private static boolean readEntry(CacheModel cacheModel, byte[] keyBytes, byte[] valueBytes) {
+    CacheSerializer serializer = cacheModel.getSerializer();
+    try {
+      Object key = serializer.deserialize(keyBytes);
+      if (!(key instanceof CacheKey)) {
+        return false;
+      }
+      Object value = valueBytes == null ? null : serializer.deserialize(valueBytes);
+      cacheModel.putObject((CacheKey) key, value);
+      return true;
+    } catch (IOException | ClassNotFoundException | RuntimeException e) {
+      log.debug("Skipping entry of cache '" + cacheModel.getId() + "' that cannot be deserialized.  Cause: " + e);
+      return false;
+    }
+  }
+
+  /**
+   * Writes a byte array, or null, prefixed with its length.
+   *
+   * @param data
+   *          the stream
+   * @param bytes
+   *          the bytes
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+    if (bytes == null) {
+      data.writeInt(-1);
+    } else {
+      data.writeInt(bytes.length);
+      data.write(bytes);
+    }
+  }
+
+  /**
+   * Reads a byte array written by {@link #writeBytes(DataOutputStream, byte[])}.
+   *
+   * @param data
+   *          the stream
+   *
+   * @return the bytes
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private static byte[] readBytes(DataInputStream data) throws IOException {
+    int length = data.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    data.readFully(bytes);
+    return bytes;
+  }
+
+}
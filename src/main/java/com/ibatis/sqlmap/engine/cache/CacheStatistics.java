@@ -0,0 +1,284 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of a cache model, updated as it is used. Instances are live views, and the standard MBean registered
+ * for the cache model when JMX is enabled.
+ */
+public class CacheStatistics implements CacheStatisticsMBean {
+
+  /** The number of nanoseconds in a millisecond. */
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  /**
+   * The causes of a flush.
+   */
+  public enum FlushCause {
+
+    /** The flush interval elapsed. */
+    INTERVAL,
+
+    /** A statement that writes data the cache model depends on was executed. */
+    STATEMENT,
+
+    /** Another node flushed its cache model. */
+    REMOTE,
+
+    /** The application flushed the cache, or the cache model flushed itself. */
+    OTHER
+  }
+
+  /** The cache model. */
+  private final CacheModel cacheModel;
+
+  /** The requests. */
+  private final LongAdder requests = new LongAdder();
+
+  /** The hits. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The puts. */
+  private final LongAdder puts = new LongAdder();
+
+  /** The expirations. */
+  private final LongAdder expirations = new LongAdder();
+
+  /** The invalidations. */
+  private final LongAdder invalidations = new LongAdder();
+
+  /** The flushes, by cause. */
+  private final LongAdder[] flushes = new LongAdder[FlushCause.values().length];
+
+  /** The loads. */
+  private final LongAdder loads = new LongAdder();
+
+  /** The load time, in nanoseconds. */
+  private final LongAdder loadTime = new LongAdder();
+
+  /** The eviction count of the cache controller at the last reset. */
+  private volatile long evictionBase;
+
+  /**
+   * Instantiates new statistics.
+   *
+   * @param cacheModel
+   *          the cache model
+   */
+  public CacheStatistics(CacheModel cacheModel) {
+    this.cacheModel = cacheModel;
+    for (int i = 0; i < flushes.length; i++) {
+      flushes[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a lookup.
+   *
+   * @param hit
+   *          whether an entry was found
+   */
+  void recordRequest(boolean hit) {
+    requests.increment();
+    if (hit) {
+      hits.increment();
+    }
+  }
+
+  /**
+   * Records a put.
+   */
+  void recordPut() {
+    puts.increment();
+  }
+
+  /**
+   * Records the removal of an expired entry.
+   */
+  void recordExpiration() {
+    expirations.increment();
+  }
+
+  /**
+   * Records a partial invalidation.
+   */
+  void recordInvalidation() {
+    invalidations.increment();
+  }
+
+  /**
+   * Records a flush.
+   *
+   * @param cause
+   *          the cause
+   */
+  void recordFlush(FlushCause cause) {
+    flushes[cause.ordinal()].increment();
+  }
+
+  /**
+   * Records the load of a result from the database on a miss.
+   *
+   * @param nanos
+   *          the time the load took, in nanoseconds
+   */
+  public void recordLoad(long nanos) {
+    loads.increment();
+    loadTime.add(nanos);
+  }
+
+  @Override
+  public String getCacheModelId() {
+    return cacheModel.getId();
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return Math.max(requests.sum() - hits.sum(), 0);
+  }
+
+  @Override
+  public double getHitRatio() {
+    long requestCount = requests.sum();
+    return requestCount == 0 ? 0 : (double) hits.sum() / (double) requestCount;
+  }
+
+  @Override
+  public long getPutCount() {
+    return puts.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    CacheController controller = cacheModel.getCacheController();
+    return controller == null ? 0 : controller.getEvictionCount() - evictionBase;
+  }
+
+  @Override
+  public long getExpirationCount() {
+    return expirations.sum();
+  }
+
+  @Override
+  public long getInvalidationCount() {
+    return invalidations.sum();
+  }
+
+  @Override
+  public long getFlushCount() {
+    long count = 0;
+    for (LongAdder flush : flushes) {
+      count += flush.sum();
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of flushes with a given cause.
+   *
+   * @param cause
+   *          the cause
+   *
+   * @return the flush count
+   */
+  public long getFlushCount(FlushCause cause) {
+    return flushes[cause.ordinal()].sum();
+  }
+
+  @Override
+  public long getIntervalFlushCount() {
+    return getFlushCount(FlushCause.INTERVAL);
+  }
+
+  @Override
+  public long getStatementFlushCount() {
+    return getFlushCount(FlushCause.STATEMENT);
+  }
+
+  @Override
+  public long getRemoteFlushCount() {
+    return getFlushCount(FlushCause.REMOTE);
+  }
+
+  @Override
+  public long getOtherFlushCount() {
+    return getFlushCount(FlushCause.OTHER);
+  }
+
+  @Override
+  public long getLoadCount() {
+    return loads.sum();
+  }
+
+  @Override
+  public double getTotalLoadTime() {
+    return loadTime.sum() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public double getAverageLoadTime() {
+    long loadCount = loads.sum();
+    return loadCount == 0 ? 0 : loadTime.sum() / NANOS_PER_MILLI / loadCount;
+  }
+
+  @Override
+  public int getEntryCount() {
+    CacheController controller = cacheModel.getCacheController();
+    return controller == null ? 0 : controller.getSize();
+  }
+
+  @Override
+  public long getEstimatedSize() {
+    CacheController controller = cacheModel.getCacheController();
+    return controller == null ? 0 : controller.getEstimatedSize();
+  }
+
+  @Override
+  public void reset() {
+    requests.reset();
+    hits.reset();
+    puts.reset();
+    expirations.reset();
+    invalidations.reset();
+    for (LongAdder flush : flushes) {
+      flush.reset();
+    }
+    loads.reset();
+    loadTime.reset();
+    CacheController controller = cacheModel.getCacheController();
+    evictionBase = controller == null ? 0 : controller.getEvictionCount();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics[" + getCacheModelId() + ": requests=" + getRequestCount() + ", hits=" + getHitCount()
+        + ", puts=" + getPutCount() + ", evictions=" + getEvictionCount() + ", flushes=" + getFlushCount()
+        + ", entries=" + getEntryCount() + "]";
+  }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+/**
+ * Management interface of the statistics of a cache model. Counts are since the cache model was built, or since the
+ * last reset, and times are in milliseconds.
+ */
+public interface CacheStatisticsMBean {
+
+  /**
+   * Gets the id of the cache model.
+   *
+   * @return the cache model id
+   */
+  String getCacheModelId();
+
+  /**
+   * Gets the number of lookups.
+   *
+   * @return the request count
+   */
+  long getRequestCount();
+
+  /**
+   * Gets the number of lookups that found an entry.
+   *
+   * @return the hit count
+   */
+  long getHitCount();
+
+  /**
+   * Gets the number of lookups that found no entry.
+   *
+   * @return the miss count
+   */
+  long getMissCount();
+
+  /**
+   * Gets the number of hits divided by the number of lookups.
+   *
+   * @return the hit ratio, 0 if there was no lookup
+   */
+  double getHitRatio();
+
+  /**
+   * Gets the number of entries put in the cache.
+   *
+   * @return the put count
+   */
+  long getPutCount();
+
+  /**
+   * Gets the number of entries evicted by the cache controller to make room for others.
+   *
+   * @return the eviction count
+   */
+  long getEvictionCount();
+
+  /**
+   * Gets the number of entries removed because their time to live elapsed.
+   *
+   * @return the expiration count
+   */
+  long getExpirationCount();
+
+  /**
+   * Gets the number of partial invalidations, by the writes to tables the entries depend on.
+   *
+   * @return the invalidation count
+   */
+  long getInvalidationCount();
+
+  /**
+   * Gets the number of flushes, whatever their cause.
+   *
+   * @return the flush count
+   */
+  long getFlushCount();
+
+  /**
+   * Gets the number of flushes caused by the flush interval.
+   *
+   * @return the interval flush count
+   */
+  long getIntervalFlushCount();
+
+  /**
+   * Gets the number of flushes caused by the execution of a statement.
+   *
+   * @return the statement flush count
+   */
+  long getStatementFlushCount();
+
+  /**
+   * Gets the number of flushes received from other nodes.
+   *
+   * @return the remote flush count
+   */
+  long getRemoteFlushCount();
+
+  /**
+   * Gets the number of flushes requested by the application or forced by the cache model itself.
+   *
+   * @return the other flush count
+   */
+  long getOtherFlushCount();
+
+  /**
+   * Gets the number of results loaded from the database on a miss.
+   *
+   * @return the load count
+   */
+  long getLoadCount();
+
+  /**
+   * Gets the total time spent loading results on a miss.
+   *
+   * @return the total load time, in milliseconds
+   */
+  double getTotalLoadTime();
+
+  /**
+   * Gets the average time spent loading a result on a miss.
+   *
+   * @return the average load time, in milliseconds, 0 if there was no load
+   */
+  double getAverageLoadTime();
+
+  /**
+   * Gets the number of entries currently cached.
+   *
+   * @return the entry count, -1 if the cache controller cannot tell
+   */
+  int getEntryCount();
+
+  /**
+   * Gets the estimated size of the entries currently cached.
+   *
+   * @return the estimated size, in bytes, -1 if the cache controller cannot tell
+   */
+  long getEstimatedSize();
+
+  /**
+   * Resets the counts.
+   */
+  void reset();
+
+}
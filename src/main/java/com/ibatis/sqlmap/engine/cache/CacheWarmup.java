@@ -0,0 +1,395 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.common.beans.ClassInfo;
+import com.ibatis.common.beans.Probe;
+import com.ibatis.common.beans.ProbeFactory;
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
+import com.ibatis.common.resources.Resources;
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
+import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMap;
+import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMapping;
+import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
+import com.ibatis.sqlmap.engine.type.TypeHandler;
+import com.ibatis.sqlmap.engine.type.TypeHandlerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the cache models of a client before it is handed out, as declared by the <code>&lt;cacheWarmup&gt;</code>
+ * element of the configuration.
+ * <p>
+ * A snapshot written by {@link CacheSnapshot} is imported first, if the file exists. Then the warm-up statements run
+ * in parallel, once per line of their parameter file, or once without parameter if they have none. Each statement is
+ * called as <code>queryForList</code>, or as <code>queryForObject</code> when declared with <code>call="object"</code>,
+ * so that the cached entries match the keys of the application's calls.
+ * <p>
+ * Each non-empty line that does not start with <code>#</code> is one parameter. <code>name=value</code> pairs
+ * separated by <code>&amp;</code> set the properties of a new instance of the parameter class of the statement, or
+ * make a map without parameter class, and any other line is the parameter itself. Values are converted by the type
+ * handler of the property type, or of the matching mapping of the parameter map, so that they are equal to the typed
+ * parameters of the application. Failures are logged and do not stop the warm-up, which gives up waiting after its
+ * timeout.
+ */
+public class CacheWarmup {
+
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(CacheWarmup.class);
+
+  /** The default number of threads. */
+  private static final int DEFAULT_THREADS = 4;
+
+  /** The default timeout, in milliseconds. */
+  private static final long DEFAULT_TIMEOUT = 60000;
+
+  /** The statements. */
+  private final List<String> statementIds = new ArrayList<>();
+
+  /** The parameter resources of the statements, null for none. */
+  private final List<String> parameterResources = new ArrayList<>();
+
+  /** Tells, for each statement, if it is called as queryForObject rather than queryForList. */
+  private final List<Boolean> objectCalls = new ArrayList<>();
+
+  /** The number of threads. */
+  private int threads = DEFAULT_THREADS;
+
+  /** The timeout, in milliseconds. */
+  private long timeout = DEFAULT_TIMEOUT;
+
+  /** The snapshot file. */
+  private String snapshot;
+
+  /**
+   * Adds a statement to run.
+   *
+   * @param statementId
+   *          the statement id
+   * @param parameterResource
+   *          the classpath resource holding the parameters, one per line, or null to run the statement once
+   */
+  public void addStatement(String statementId, String parameterResource) {
+    addStatement(statementId, parameterResource, false);
+  }
+
+  /**
+   * Adds a statement to run.
+   *
+   * @param statementId
+   *          the statement id
+   * @param parameterResource
+   *          the classpath resource holding the parameters, one per line, or null to run the statement once
+   * @param object
+   *          true to call the statement as queryForObject, false to call it as queryForList
+   */
+  public void addStatement(String statementId, String parameterResource, boolean object) {
+    statementIds.add(statementId);
+    parameterResources.add(parameterResource);
+    objectCalls.add(Boolean.valueOf(object));
+  }
+
+  /**
+   * Gets the number of threads.
+   *
+   * @return the number of threads
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Sets the number of threads.
+   *
+   * @param threads
+   *          the new number of threads
+   */
+  public void setThreads(int threads) {
+    this.threads = Math.max(threads, 1);
+  }
+
+  /**
+   * Gets the timeout.
+   *
+   * @return the timeout, in milliseconds
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Sets the timeout.
+   *
+   * @param timeout
+   *          the new timeout, in milliseconds
+   */
+  public void setTimeout(long timeout) {
+    this.timeout = timeout;
+  }
+
+  /**
+   * Gets the snapshot file.
+   *
+   * @return the snapshot file
+   */
+  public String getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Sets the snapshot file to import before running the statements.
+   *
+   * @param snapshot
+   *          the path of the snapshot file
+   */
+  public void setSnapshot(String snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  /**
+   * Imports the snapshot, then runs the statements and waits for them, at most for the timeout.
+   *
+   * @param client
+   *          the client
+   *
+   * @return the number of statements that ran successfully
+   */
+  public int run(SqlMapClientImpl client) {
+    importSnapshot(client);
+    List<Runnable> queries = new ArrayList<>();
+    AtomicInteger succeeded = new AtomicInteger();
+    for (int i = 0; i < statementIds.size(); i++) {
+      String statementId = statementIds.get(i);
+      boolean object = objectCalls.get(i).booleanValue();
+      for (Object line : readParameters(parameterResources.get(i))) {
+        queries.add(() -> {
+          try {
+            Object parameter = toParameter(client, statementId, line);
+            if (object) {
+              client.queryForObject(statementId, parameter);
+            } else {
+              client.queryForList(statementId, parameter);
+            }
+            succeeded.incrementAndGet();
+          } catch (Exception e) {
+            log.warn("Error warming up cache with statement '" + statementId + "'.  Cause: " + e);
+          }
+        });
+      }
+    }
+    if (queries.isEmpty()) {
+      return 0;
+    }
+    AtomicInteger count = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, queries.size()), runnable -> {
+      Thread thread = new Thread(runnable, "ibatis-cache-warmup-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      queries.forEach(executor::execute);
+      executor.shutdown();
+      if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+        log.warn("Cache warm-up did not complete within " + timeout + " ms.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+    return succeeded.get();
+  }
+
+  /**
+   * Imports the snapshot file, if there is one.
+   *
+   * @param client
+   *          the client
+   */
+  private void importSnapshot(SqlMapClientImpl client) {
+    if (snapshot == null || !new File(snapshot).isFile()) {
+      return;
+    }
+    try (InputStream in = new FileInputStream(snapshot)) {
+      int entries = client.importCaches(in);
+      log.debug("Imported " + entries + " cache entries from " + snapshot + ".");
+    } catch (IOException e) {
+      log.warn("Error importing cache snapshot " + snapshot + ".  Cause: " + e);
+    }
+  }
+
+  /**
+   * Reads the parameters of a statement.
+   *
+   * @param resource
+   *          the parameter resource, or null
+   *
+   * @return the parameters
+   */
+  private static List<Object> readParameters(String resource) {
+    List<Object> parameters = new ArrayList<>();
+    if (resource == null) {
+      parameters.add(null);
+      return parameters;
+    }
+    try (Reader reader = Resources.getResourceAsReader(resource);
+        BufferedReader lines = new BufferedReader(reader)) {
+      String line;
+      while ((line = lines.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          parameters.add(parseParameter(line));
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Error reading cache warm-up parameters " + resource + ".  Cause: " + e);
+    }
+    return parameters;
+  }
+
+  /**
+   * Converts a parsed line of a parameter file to the parameter of a statement.
+   *
+   * @param client
+   *          the client
+   * @param statementId
+   *          the statement id
+   * @param line
+   *          the parsed line: null, a string, or a map of strings
+   *
+   * @return the parameter
+   */
+  static Object toParameter(SqlMapClientImpl client, String statementId, Object line) {
+    if (line == null) {
+      return null;
+    }
+    MappedStatement statement = client.getMappedStatement(statementId);
+    TypeHandlerFactory typeHandlers = client.getDelegate().getTypeHandlerFactory();
+    Class<?> parameterClass = statement.getParameterClass();
+    ParameterMap parameterMap = statement.getParameterMap();
+    if (line instanceof String) {
+      ParameterMapping[] mappings = parameterMap == null ? null : parameterMap.getParameterMappings();
+      if (parameterClass == null && mappings != null && mappings.length == 1) {
+        return convert(mappings[0].getTypeHandler(), (String) line);
+      }
+      return convert(typeHandlerOf(typeHandlers, parameterClass), (String) line);
+    }
+    Map<?, ?> values = (Map<?, ?>) line;
+    if (parameterClass == null || Map.class.isAssignableFrom(parameterClass)) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      for (Map.Entry<?, ?> entry : values.entrySet()) {
+        String name = (String) entry.getKey();
+        map.put(name, convert(mappingTypeHandler(parameterMap, name), (String) entry.getValue()));
+      }
+      return map;
+    }
+    Object bean = ClassInfo.getInstance(parameterClass).instantiateClass();
+    Probe probe = ProbeFactory.getProbe(bean);
+    for (Map.Entry<?, ?> entry : values.entrySet()) {
+      String name = (String) entry.getKey();
+      TypeHandler handler = typeHandlerOf(typeHandlers, probe.getPropertyTypeForSetter(bean, name));
+      probe.setObject(bean, name, convert(handler, (String) entry.getValue()));
+    }
+    return bean;
+  }
+
+  /**
+   * Gets the type handler of a type.
+   *
+   * @param typeHandlers
+   *          the type handler factory
+   * @param type
+   *          the type, may be null
+   *
+   * @return the type handler, or null if there is none
+   */
+  private static TypeHandler typeHandlerOf(TypeHandlerFactory typeHandlers, Class<?> type) {
+    return type == null ? null : typeHandlers.getTypeHandler(type);
+  }
+
+  /**
+   * Gets the type handler of the mapping of a property in a parameter map.
+   *
+   * @param parameterMap
+   *          the parameter map, may be null
+   * @param name
+   *          the property name
+   *
+   * @return the type handler, or null if the property is not mapped
+   */
+  private static TypeHandler mappingTypeHandler(ParameterMap parameterMap, String name) {
+    ParameterMapping[] mappings = parameterMap == null ? null : parameterMap.getParameterMappings();
+    if (mappings != null) {
+      for (ParameterMapping mapping : mappings) {
+        if (name.equals(mapping.getPropertyName())) {
+          return mapping.getTypeHandler();
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Converts a value with a type handler.
+   *
+   * @param handler
+   *          the type handler, may be null
+   * @param value
+   *          the value
+   *
+   * @return the converted value, or the value itself without type handler
+   */
+  private static Object convert(TypeHandler handler, String value) {
+    return handler == null ? value : handler.valueOf(value);
+  }
+
+  /**
+   * Parses a line of a parameter file.
+   *
+   * @param line
+   *          the line
+   *
+   * @return a map for <code>name=value</code> pairs, or the line itself
+   */
+  static Object parseParameter(String line) {
+    if (line.indexOf('=') < 0) {
+      return line;
+    }
+    Map<String, String> map = new LinkedHashMap<>();
+    for (String pair : line.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0) {
+        map.put(pair.substring(0, equals).trim(), pair.substring(equals + 1).trim());
+      }
+    }
+    return map;
+  }
+
+}
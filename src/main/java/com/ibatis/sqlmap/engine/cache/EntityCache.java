@@ -0,0 +1,440 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.common.beans.ClassInfo;
+import com.ibatis.common.beans.ProbeFactory;
+import com.ibatis.sqlmap.engine.cache.serializer.BeanCacheSerializer;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An identity map of the objects of a result map, by id, as declared by the <code>entityCache</code> attribute of the
+ * result map.
+ * <p>
+ * Select statements marked <code>byId</code> look their object up here before running, and statements that declare
+ * the entity of the result map evict the id they write, so a write does not flush the objects of other ids. A read-only
+ * entity cache hands the cached objects out to every caller, and they must not be modified; otherwise every caller
+ * gets its own copy. The evictions are broadcast to the other nodes when there is an invalidation bus.
+ * <p>
+ * Entries are spread over segments, each one guarded by its own lock. Integral ids are kept in a map keyed by primitive
+ * longs, so that an <code>Integer</code> and a <code>Long</code> of the same value are the same id; other ids, such as
+ * strings or the value lists of composite ids, are kept in an access-ordered map. A load that started before an
+ * eviction does not cache its result, since it may have read the data the eviction was for.
+ */
+public class EntityCache {
+
+  /** The number of segments. */
+  private static final int SEGMENTS = 16;
+
+  /** The default maximum number of entries. */
+  public static final int DEFAULT_SIZE = 1000;
+
+  /** The id of the result map. */
+  private final String id;
+
+  /** The properties that make the id. */
+  private final String[] idProperties;
+
+  /** The segments. */
+  private final Segment[] segments;
+
+  /** Incremented by every eviction, so that the loads it overlaps do not cache their results. */
+  private final AtomicLong generation = new AtomicLong();
+
+  /** The hits. */
+  private final LongAdder hits = new LongAdder();
+
+  /** The misses. */
+  private final LongAdder misses = new LongAdder();
+
+  /** The cloner that copies the objects, null if the entity cache is read-only. */
+  private final CacheCloner cloner;
+
+  /** The bus that broadcasts the evictions, null if they stay local. */
+  private volatile InvalidationBus invalidationBus;
+
+  /**
+   * Instantiates a new entity cache.
+   *
+   * @param id
+   *          the id of the result map
+   * @param idProperties
+   *          the properties that make the id
+   * @param size
+   *          the maximum number of entries
+   */
+  public EntityCache(String id, String[] idProperties, int size) {
+    this(id, idProperties, size, true);
+  }
+
+  /**
+   * Instantiates a new entity cache.
+   *
+   * @param id
+   *          the id of the result map
+   * @param idProperties
+   *          the properties that make the id
+   * @param size
+   *          the maximum number of entries
+   * @param readOnly
+   *          false to copy the objects as they are cached and handed out
+   */
+  public EntityCache(String id, String[] idProperties, int size, boolean readOnly) {
+    this.id = id;
+    this.cloner = readOnly ? null : new CacheCloner(new BeanCacheSerializer());
+    this.idProperties = idProperties.clone();
+    int segmentSize = Math.max(1, (size + SEGMENTS - 1) / SEGMENTS);
+    this.segments = new Segment[SEGMENTS];
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  /**
+   * Gets the id of the result map.
+   *
+   * @return the id
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Gets the properties that make the id.
+   *
+   * @return the id properties
+   */
+  public String[] getIdProperties() {
+    return idProperties.clone();
+  }
+
+  /**
+   * Tells if the cached objects are handed out without being copied.
+   *
+   * @return true if read-only
+   */
+  public boolean isReadOnly() {
+    return cloner == null;
+  }
+
+  /**
+   * Sets the bus that broadcasts the evictions. Set by {@link InvalidationBus#register(EntityCache)}.
+   *
+   * @param invalidationBus
+   *          the new invalidation bus
+   */
+  void setInvalidationBus(InvalidationBus invalidationBus) {
+    this.invalidationBus = invalidationBus;
+  }
+
+  /**
+   * Gets the id of the object a parameter object refers to: the parameter object itself if it is a simple value, or the
+   * values of its id properties.
+   *
+   * @param parameterObject
+   *          the parameter object
+   *
+   * @return the id, or null if the parameter object has none
+   */
+  public Object idOf(Object parameterObject) {
+    return idOf(parameterObject, idProperties);
+  }
+
+  /**
+   * Gets the id a parameter object refers to: the parameter object itself if it is a simple value and there is a
+   * single id property, or the values of the given properties, in a list if there are several.
+   *
+   * @param parameterObject
+   *          the parameter object
+   * @param properties
+   *          the properties of the parameter object that make the id
+   *
+   * @return the id, or null if the parameter object has none
+   */
+  public static Object idOf(Object parameterObject, String[] properties) {
+    if (parameterObject == null) {
+      return null;
+    }
+    if (properties.length == 1 && ClassInfo.isKnownType(parameterObject.getClass())
+        && !(parameterObject instanceof Map)) {
+      return parameterObject;
+    }
+    Object[] values = new Object[properties.length];
+    for (int i = 0; i < properties.length; i++) {
+      try {
+        values[i] = ProbeFactory.getProbe(parameterObject).getObject(parameterObject, properties[i]);
+      } catch (RuntimeException e) {
+        return null;
+      }
+      if (values[i] == null) {
+        return null;
+      }
+    }
+    return values.length == 1 ? values[0] : Arrays.asList(values);
+  }
+
+  /**
+   * Gets the object of an id.
+   *
+   * @param id
+   *          the id
+   *
+   * @return the object, or null if it is not cached
+   */
+  public Object getObject(Object id) {
+    Object value;
+    if (isIntegral(id)) {
+      long key = ((Number) id).longValue();
+      Segment segment = segmentFor(Long.hashCode(key));
+      synchronized (segment) {
+        value = segment.numeric.get(key);
+      }
+    } else {
+      Segment segment = segmentFor(id.hashCode());
+      synchronized (segment) {
+        value = segment.objects.get(id);
+      }
+    }
+    if (value == null) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return cloner == null ? value : cloner.copy(value);
+  }
+
+  /**
+   * Gets the eviction generation, to read before loading an object.
+   *
+   * @return the generation
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * Caches the object of an id, unless an eviction happened since the generation was read.
+   *
+   * @param id
+   *          the id
+   * @param value
+   *          the object
+   * @param loadGeneration
+   *          the generation read before the object was loaded
+   */
+  public void putObject(Object id, Object value, long loadGeneration) {
+    if (value == null) {
+      return;
+    }
+    if (cloner != null) {
+      value = cloner.copy(value);
+    }
+    if (isIntegral(id)) {
+      long key = ((Number) id).longValue();
+      Segment segment = segmentFor(Long.hashCode(key));
+      synchronized (segment) {
+        if (generation.get() == loadGeneration) {
+          if (segment.numeric.get(key) == null) {
+            segment.makeRoom(true);
+          }
+          segment.numeric.put(key, value);
+        }
+      }
+    } else {
+      Segment segment = segmentFor(id.hashCode());
+      synchronized (segment) {
+        if (generation.get() == loadGeneration) {
+          if (!segment.objects.containsKey(id)) {
+            segment.makeRoom(false);
+          }
+          segment.objects.put(id, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Evicts the object of an id, and the same id from the entity cache of the other nodes if there is an invalidation
+   * bus.
+   *
+   * @param id
+   *          the id
+   */
+  public void evict(Object id) {
+    evictLocally(id);
+    InvalidationBus bus = invalidationBus;
+    if (bus != null) {
+      bus.publishEviction(this, id);
+    }
+  }
+
+  /**
+   * Evicts the object of an id without broadcasting the eviction. Used for the evictions received from the other nodes.
+   *
+   * @param id
+   *          the id
+   */
+  void evictLocally(Object id) {
+    generation.incrementAndGet();
+    if (isIntegral(id)) {
+      long key = ((Number) id).longValue();
+      Segment segment = segmentFor(Long.hashCode(key));
+      synchronized (segment) {
+        segment.numeric.remove(key);
+      }
+    } else {
+      Segment segment = segmentFor(id.hashCode());
+      synchronized (segment) {
+        segment.objects.remove(id);
+      }
+    }
+  }
+
+  /**
+   * Evicts all the objects, and those of the entity cache of the other nodes if there is an invalidation bus.
+   */
+  public void flush() {
+    flushLocally();
+    InvalidationBus bus = invalidationBus;
+    if (bus != null) {
+      bus.publishEviction(this, null);
+    }
+  }
+
+  /**
+   * Evicts all the objects without broadcasting the flush. Used for the flushes received from the other nodes.
+   */
+  void flushLocally() {
+    generation.incrementAndGet();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.numeric.clear();
+        segment.objects.clear();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of cached objects.
+   *
+   * @return the size
+   */
+  public int getSize() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.numeric.size() + segment.objects.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the number of lookups that found their object.
+   *
+   * @return the hit count
+   */
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  /**
+   * Gets the number of lookups that did not find their object.
+   *
+   * @return the miss count
+   */
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  /**
+   * Tells if an id is kept in the primitive map.
+   *
+   * @param id
+   *          the id
+   *
+   * @return true if it is a Long, Integer, Short or Byte
+   */
+  private static boolean isIntegral(Object id) {
+    return id instanceof Long || id instanceof Integer || id instanceof Short || id instanceof Byte;
+  }
+
+  /**
+   * Gets the segment of a hash.
+   *
+   * @param hash
+   *          the hash
+   *
+   * @return the segment
+   */
+  private Segment segmentFor(int hash) {
+    hash ^= hash >>> 16;
+    return segments[hash & SEGMENTS - 1];
+  }
+
+  /**
+   * A part of the entries, guarded by its own lock.
+   */
+  private static final class Segment {
+
+    /** The maximum number of entries of the segment. */
+    private final int maxSize;
+
+    /** The entries of integral ids. */
+    private final LongObjectMap numeric;
+
+    /** The entries of other ids, in access order. */
+    private final Map<Object, Object> objects = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Instantiates a new segment.
+     *
+     * @param maxSize
+     *          the maximum number of entries
+     */
+    Segment(int maxSize) {
+      this.maxSize = maxSize;
+      this.numeric = new LongObjectMap(maxSize);
+    }
+
+    /**
+     * Evicts an entry if the segment is full, of the same kind as the entry to add if there is one: the entry chosen by
+     * the clock of the integral ids, or the least recently used of the other ids.
+     *
+     * @param integral
+     *          true if the entry to add has an integral id
+     */
+    void makeRoom(boolean integral) {
+      if (numeric.size() + objects.size() < maxSize) {
+        return;
+      }
+      if (objects.isEmpty() || integral && numeric.size() > 0) {
+        numeric.evict();
+      } else {
+        Iterator<Object> keys = objects.keySet().iterator();
+        keys.next();
+        keys.remove();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.mapping.statement.ExecuteListener;
+import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
+
+/**
+ * Evicts from an entity cache the id written by a statement, as declared by the <code>entity</code> attribute of the
+ * statement, such as <code>entity="account(id)"</code>. The whole entity cache is flushed when the parameter object of
+ * the statement does not hold the id. The evictions reach the other nodes through the invalidation bus the entity cache
+ * is registered with, if any.
+ */
+public class EntityInvalidation implements ExecuteListener {
+
+  /** The entity cache. */
+  private final EntityCache entityCache;
+
+  /** The properties of the parameter object that make the id. */
+  private final String[] keyProperties;
+
+  /**
+   * Instantiates a new entity invalidation.
+   *
+   * @param entityCache
+   *          the entity cache
+   * @param keyProperties
+   *          the properties of the parameter object that make the id
+   */
+  public EntityInvalidation(EntityCache entityCache, String[] keyProperties) {
+    this.entityCache = entityCache;
+    this.keyProperties = keyProperties.clone();
+  }
+
+  /**
+   * Gets the entity cache.
+   *
+   * @return the entity cache
+   */
+  public EntityCache getEntityCache() {
+    return entityCache;
+  }
+
+  @Override
+  public void onExecuteStatement(MappedStatement statement) {
+    entityCache.flush();
+  }
+
+  @Override
+  public void onExecuteStatement(MappedStatement statement, Object parameterObject) {
+    evict(EntityCache.idOf(parameterObject, keyProperties));
+  }
+
+  /**
+   * Evicts the id written by a statement of a transaction, and evicts it again when the transaction ends, since other
+   * sessions may load the object again before the write is committed.
+   *
+   * @param statement
+   *          the statement
+   * @param parameterObject
+   *          the parameter object
+   * @param transactionalCache
+   *          the cache changes of the transaction
+   */
+  public void onExecuteStatement(MappedStatement statement, Object parameterObject,
+      TransactionalCache transactionalCache) {
+    Object id = EntityCache.idOf(parameterObject, keyProperties);
+    evict(id);
+    transactionalCache.deferEviction(entityCache, id);
+  }
+
+  /**
+   * Evicts an id.
+   *
+   * @param id
+   *          the id, or null to flush the entity cache
+   */
+  private void evict(Object id) {
+    if (id == null) {
+      entityCache.flush();
+    } else {
+      entityCache.evict(id);
+    }
+  }
+
+}
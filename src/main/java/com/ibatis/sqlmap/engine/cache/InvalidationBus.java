@@ -0,0 +1,651 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
+import com.ibatis.sqlmap.engine.cache.CacheStatistics.FlushCause;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Broadcasts the invalidations of cache models to the other nodes that share the database, and applies theirs, so that
+ * a write on one node does not leave stale entries in the caches of the others.
+ * <p>
+ * The flushes of a cache model are broadcast as such. A cache model that tracks table dependencies broadcasts the
+ * tables and rows written instead, and the other nodes evict their own entries that depend on them. Interval flushes
+ * and expiry are not broadcast, since every node performs them on its own.
+ * <p>
+ * Invalidations are queued and sent by a background thread, so the statements that trigger them never wait for the
+ * network. The invalidations queued meanwhile are merged and sent together, in as few messages as the transport
+ * allows. The invalidations of the other nodes are applied on the thread of the transport, one message at a time.
+ * <p>
+ * The evictions of the entity caches of the result maps are broadcast the same way, by id. An entity cache whose ids
+ * are not integers, strings or lists of them is flushed on the other nodes instead.
+ */
+public class InvalidationBus {
+
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(InvalidationBus.class);
+
+  /** The first bytes of a message: "IBIV". */
+  private static final int MAGIC = 0x49424956;
+
+  /** The size of the header of a message: magic number and node id. */
+  private static final int HEADER_SIZE = 20;
+
+  /** The kind of the part that ends a message. */
+  private static final int END = 0;
+
+  /** The kind of the parts that invalidate a cache model. */
+  private static final int CACHE_MODEL = 1;
+
+  /** The kind of the parts that evict ids from an entity cache. */
+  private static final int ENTITY_CACHE = 2;
+
+  /** The maximum number of queued invalidations, beyond which all the cache models are flushed on the other nodes. */
+  private static final int MAX_QUEUED = 10000;
+
+  /** The maximum number of invalidations merged in one batch. */
+  private static final int MAX_BATCH_SIZE = 1000;
+
+  /** The number of tables and rows invalidated in a batch beyond which a cache model is flushed instead. */
+  private static final int MAX_ROWS = 1000;
+
+  /** The transport. */
+  private final InvalidationTransport transport;
+
+  /** The id of this node. */
+  private final UUID node = UUID.randomUUID();
+
+  /** The registered cache models, by id. */
+  private final Map<String, CacheModel> cacheModels = new ConcurrentHashMap<>();
+
+  /** The registered entity caches, by id of result map. */
+  private final Map<String, EntityCache> entityCaches = new ConcurrentHashMap<>();
+
+  /** The invalidations to send. */
+  private final BlockingQueue<Invalidation> queue = new LinkedBlockingQueue<>(MAX_QUEUED);
+
+  /** Whether invalidations were dropped because the queue was full. */
+  private final AtomicBoolean overflow = new AtomicBoolean();
+
+  /** The sender thread. */
+  private final Thread sender;
+
+  /** Whether the bus is closed. */
+  private volatile boolean closed;
+
+  /**
+   * Instantiates a new invalidation bus, and starts its transport.
+   *
+   * @param transport
+   *          the transport, configured
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  public InvalidationBus(InvalidationTransport transport) throws IOException {
+    this.transport = transport;
+    transport.start(this::receive);
+    sender = new Thread(this::sendQueued, "ibatis-cache-invalidation");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Registers a cache model, whose invalidations are broadcast from now on. The other nodes apply them to their cache
+   * model of the same id.
+   *
+   * @param cacheModel
+   *          the cache model
+   */
+  public void register(CacheModel cacheModel) {
+    cacheModels.put(cacheModel.getId(), cacheModel);
+    cacheModel.setInvalidationBus(this);
+  }
+
+  /**
+   * Registers an entity cache, whose evictions are broadcast from now on. The other nodes apply them to the entity
+   * cache of the result map of the same id.
+   *
+   * @param entityCache
+   *          the entity cache
+   */
+  public void register(EntityCache entityCache) {
+    entityCaches.put(entityCache.getId(), entityCache);
+    entityCache.setInvalidationBus(this);
+  }
+
+  /**
+   * Stops the bus. Queued invalidations that have not been sent yet are dropped.
+   */
+  public void close() {
+    closed = true;
+    sender.interrupt();
+    transport.close();
+    for (CacheModel cacheModel : cacheModels.values()) {
+      cacheModel.setInvalidationBus(null);
+    }
+    for (EntityCache entityCache : entityCaches.values()) {
+      entityCache.setInvalidationBus(null);
+    }
+  }
+
+  /**
+   * Queues the flush of a cache model.
+   *
+   * @param cacheModel
+   *          the cache model
+   */
+  void publishFlush(CacheModel cacheModel) {
+    publish(new Invalidation(cacheModel, null, null));
+  }
+
+  /**
+   * Queues the invalidation of the entries of a cache model that depend on tables.
+   *
+   * @param cacheModel
+   *          the cache model
+   * @param tables
+   *          the tables written
+   * @param rows
+   *          the keys of the rows written, by table, null elements for whole tables
+   */
+  void publishInvalidation(CacheModel cacheModel, String[] tables, String[] rows) {
+    publish(new Invalidation(cacheModel, tables, rows));
+  }
+
+  /**
+   * Queues the eviction of an id from an entity cache.
+   *
+   * @param entityCache
+   *          the entity cache
+   * @param id
+   *          the id, or null to flush the entity cache
+   */
+  void publishEviction(EntityCache entityCache, Object id) {
+    publish(new Invalidation(entityCache, id));
+  }
+
+  /**
+   * Queues an invalidation.
+   *
+   * @param invalidation
+   *          the invalidation
+   */
+  private void publish(Invalidation invalidation) {
+    if (!closed && !queue.offer(invalidation)) {
+      overflow.set(true);
+    }
+  }
+
+  /**
+   * Sends the queued invalidations until the bus is closed.
+   */
+  private void sendQueued() {
+    List<Invalidation> batch = new ArrayList<>();
+    while (!closed) {
+      try {
+        batch.add(queue.take());
+        queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+        if (overflow.getAndSet(false)) {
+          queue.clear();
+          batch.clear();
+          for (CacheModel cacheModel : cacheModels.values()) {
+            batch.add(new Invalidation(cacheModel, null, null));
+          }
+          for (EntityCache entityCache : entityCaches.values()) {
+            batch.add(new Invalidation(entityCache, null));
+          }
+        }
+        send(merge(batch), mergeEvictions(batch));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (IOException | RuntimeException e) {
+        log.error("Error sending cache invalidations.  Cause: " + e, e);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Merges the invalidations of a batch by cache model.
+   *
+   * @param batch
+   *          the batch
+   *
+   * @return the tables and rows invalidated, by cache model, null for a flush
+   */
+  private static Map<CacheModel, Set<List<String>>> merge(List<Invalidation> batch) {
+    Map<CacheModel, Set<List<String>>> merged = new LinkedHashMap<>();
+    for (Invalidation invalidation : batch) {
+      CacheModel cacheModel = invalidation.cacheModel;
+      if (cacheModel == null || merged.containsKey(cacheModel) && merged.get(cacheModel) == null) {
+        continue;
+      }
+      if (invalidation.tables == null) {
+        merged.put(cacheModel, null);
+        continue;
+      }
+      Set<List<String>> rows = merged.computeIfAbsent(cacheModel, model -> new LinkedHashSet<>());
+      for (int i = 0; i < invalidation.tables.length; i++) {
+        rows.add(Arrays.asList(invalidation.tables[i], invalidation.rows[i]));
+      }
+      if (rows.size() > MAX_ROWS) {
+        merged.put(cacheModel, null);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Merges the entity cache evictions of a batch by entity cache.
+   *
+   * @param batch
+   *          the batch
+   *
+   * @return the ids evicted, by entity cache, null for a flush
+   */
+  private static Map<EntityCache, Set<Object>> mergeEvictions(List<Invalidation> batch) {
+    Map<EntityCache, Set<Object>> merged = new LinkedHashMap<>();
+    for (Invalidation invalidation : batch) {
+      EntityCache entityCache = invalidation.entityCache;
+      if (entityCache == null || merged.containsKey(entityCache) && merged.get(entityCache) == null) {
+        continue;
+      }
+      if (invalidation.entityId == null) {
+        merged.put(entityCache, null);
+        continue;
+      }
+      Set<Object> ids = merged.computeIfAbsent(entityCache, cache -> new LinkedHashSet<>());
+      ids.add(invalidation.entityId);
+      if (ids.size() > MAX_ROWS) {
+        merged.put(entityCache, null);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Sends merged invalidations, splitting them in messages no larger than the transport allows.
+   *
+   * @param invalidations
+   *          the tables and rows invalidated, by cache model, null for a flush
+   * @param evictions
+   *          the ids evicted, by entity cache, null for a flush
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private void send(Map<CacheModel, Set<List<String>>> invalidations, Map<EntityCache, Set<Object>> evictions)
+      throws IOException {
+    int maxSize = transport.getMaxMessageSize();
+    List<byte[]> parts = new ArrayList<>();
+    for (Map.Entry<CacheModel, Set<List<String>>> entry : invalidations.entrySet()) {
+      byte[] part = encode(entry.getKey().getId(), entry.getValue());
+      if (HEADER_SIZE + part.length + 1 > maxSize) {
+        part = encode(entry.getKey().getId(), null);
+      }
+      parts.add(part);
+    }
+    for (Map.Entry<EntityCache, Set<Object>> entry : evictions.entrySet()) {
+      byte[] part = encodeEvictions(entry.getKey().getId(), entry.getValue());
+      if (HEADER_SIZE + part.length + 1 > maxSize) {
+        part = encodeEvictions(entry.getKey().getId(), null);
+      }
+      parts.add(part);
+    }
+    ByteArrayOutputStream message = newMessage();
+    for (byte[] part : parts) {
+      if (message.size() > HEADER_SIZE && message.size() + part.length + 1 > maxSize) {
+        message.write(END);
+        transport.send(message.toByteArray());
+        message = newMessage();
+      }
+      message.write(part);
+    }
+    message.write(END);
+    transport.send(message.toByteArray());
+  }
+
+  /**
+   * Starts a message.
+   *
+   * @return the message, with its header
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private ByteArrayOutputStream newMessage() throws IOException {
+    ByteArrayOutputStream message = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(message);
+    data.writeInt(MAGIC);
+    data.writeLong(node.getMostSignificantBits());
+    data.writeLong(node.getLeastSignificantBits());
+    return message;
+  }
+
+  /**
+   * Encodes the invalidation of a cache model.
+   *
+   * @param id
+   *          the id of the cache model
+   * @param rows
+   *          the tables and rows invalidated, null for a flush
+   *
+   * @return the bytes, starting with the kind of the part
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private static byte[] encode(String id, Set<List<String>> rows) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeByte(CACHE_MODEL);
+    data.writeUTF(id);
+    if (rows == null) {
+      data.writeInt(-1);
+    } else {
+      data.writeInt(rows.size());
+      for (List<String> row : rows) {
+        data.writeUTF(row.get(0));
+        data.writeBoolean(row.get(1) != null);
+        if (row.get(1) != null) {
+          data.writeUTF(row.get(1));
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Encodes the evictions of an entity cache. The entity cache is flushed instead if one of the ids cannot be encoded.
+   *
+   * @param id
+   *          the id of the result map
+   * @param ids
+   *          the ids evicted, null for a flush
+   *
+   * @return the bytes, starting with the kind of the part
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private static byte[] encodeEvictions(String id, Set<Object> ids) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream data = new DataOutputStream(bytes);
+    data.writeByte(ENTITY_CACHE);
+    data.writeUTF(id);
+    if (ids == null) {
+      data.writeInt(-1);
+    } else {
+      data.writeInt(ids.size());
+      for (Object entityId : ids) {
+        if (!writeId(data, entityId)) {
+          return encodeEvictions(id, null);
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Writes the id of an entity, keeping its type so that it is equal to the id of the other nodes.
+   *
+   * @param data
+   *          the output
+   * @param id
+   *          the id
+   *
+   * @return false if the id is of a type that cannot be written
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private static boolean writeId(DataOutputStream data, Object id) throws IOException {
+    if (id instanceof Long) {
+      data.writeByte('J');
+      data.writeLong((Long) id);
+    } else if (id instanceof Integer) {
+      data.writeByte('I');
+      data.writeInt((Integer) id);
+    } else if (id instanceof Short) {
+      data.writeByte('S');
+      data.writeShort((Short) id);
+    } else if (id instanceof Byte) {
+      data.writeByte('B');
+      data.writeByte((Byte) id);
+    } else if (id instanceof String) {
+      data.writeByte('T');
+      data.writeUTF((String) id);
+    } else if (id instanceof List) {
+      List<?> values = (List<?>) id;
+      data.writeByte('L');
+      data.writeInt(values.size());
+      for (Object value : values) {
+        if (!writeId(data, value)) {
+          return false;
+        }
+      }
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Reads the id of an entity.
+   *
+   * @param data
+   *          the input
+   *
+   * @return the id
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private static Object readId(DataInputStream data) throws IOException {
+    int type = data.readByte();
+    switch (type) {
+      case 'J':
+        return data.readLong();
+      case 'I':
+        return data.readInt();
+      case 'S':
+        return data.readShort();
+      case 'B':
+        return data.readByte();
+      case 'T':
+        return data.readUTF();
+      case 'L':
+        int size = data.readInt();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+          values.add(readId(data));
+        }
+        return values;
+      default:
+        throw new IOException("Unknown entity id type " + type + ".");
+    }
+  }
+
+  /**
+   * Applies the invalidations of a message from another node. Messages from this node are ignored.
+   *
+   * @param message
+   *          the message
+   */
+  void receive(byte[] message) {
+    try {
+      DataInputStream data = new DataInputStream(new ByteArrayInputStream(message));
+      if (data.readInt() != MAGIC) {
+        return;
+      }
+      long mostSignificantBits = data.readLong();
+      long leastSignificantBits = data.readLong();
+      if (mostSignificantBits == node.getMostSignificantBits()
+          && leastSignificantBits == node.getLeastSignificantBits()) {
+        return;
+      }
+      int kind;
+      while ((kind = data.readByte()) != END) {
+        if (kind == CACHE_MODEL) {
+          receiveInvalidation(data);
+        } else if (kind == ENTITY_CACHE) {
+          receiveEvictions(data);
+        } else {
+          throw new IOException("Unknown part kind " + kind + ".");
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Ignoring malformed cache invalidation message.  Cause: " + e);
+    }
+  }
+
+  /**
+   * Applies the invalidation of a cache model.
+   *
+   * @param data
+   *          the message, positioned after the kind of the part
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private void receiveInvalidation(DataInputStream data) throws IOException {
+    CacheModel cacheModel = cacheModels.get(data.readUTF());
+    int count = data.readInt();
+    if (count < 0) {
+      if (cacheModel != null) {
+        cacheModel.flushLocally(FlushCause.REMOTE);
+      }
+      return;
+    }
+    String[] tables = new String[count];
+    String[] rows = new String[count];
+    for (int i = 0; i < count; i++) {
+      tables[i] = data.readUTF();
+      rows[i] = data.readBoolean() ? data.readUTF() : null;
+    }
+    if (cacheModel != null) {
+      if (cacheModel.isDependencyTracking()) {
+        cacheModel.invalidateLocally(tables, rows);
+      } else {
+        cacheModel.flushLocally(FlushCause.REMOTE);
+      }
+    }
+  }
+
+  /**
+   * Applies the evictions of an entity cache.
+   *
+   * @param data
+   *          the message, positioned after the kind of the part
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private void receiveEvictions(DataInputStream data) throws IOException {
+    EntityCache entityCache = entityCaches.get(data.readUTF());
+    int count = data.readInt();
+    if (count < 0) {
+      if (entityCache != null) {
+        entityCache.flushLocally();
+      }
+      return;
+    }
+    for (int i = 0; i < count; i++) {
+      Object id = readId(data);
+      if (entityCache != null) {
+        entityCache.evictLocally(id);
+      }
+    }
+  }
+
+  /**
+   * An invalidation to broadcast, of a cache model or of an entity cache.
+   */
+  private static class Invalidation {
+
+    /** The cache model, null for an entity cache eviction. */
+    private final CacheModel cacheModel;
+
+    /** The entity cache, null for a cache model invalidation. */
+    private final EntityCache entityCache;
+
+    /** The id evicted from the entity cache, null for a flush. */
+    private final Object entityId;
+
+    /** The tables written, null for a flush. */
+    private final String[] tables;
+
+    /** The keys of the rows written, by table. */
+    private final String[] rows;
+
+    /**
+     * Instantiates a new invalidation.
+     *
+     * @param cacheModel
+     *          the cache model
+     * @param tables
+     *          the tables written, null for a flush
+     * @param rows
+     *          the keys of the rows written, by table
+     */
+    Invalidation(CacheModel cacheModel, String[] tables, String[] rows) {
+      this.cacheModel = cacheModel;
+      this.entityCache = null;
+      this.entityId = null;
+      this.tables = tables;
+      this.rows = rows;
+    }
+
+    /**
+     * Instantiates a new eviction from an entity cache.
+     *
+     * @param entityCache
+     *          the entity cache
+     * @param entityId
+     *          the id evicted, null for a flush
+     */
+    Invalidation(EntityCache entityCache, Object entityId) {
+      this.cacheModel = null;
+      this.entityCache = entityCache;
+      this.entityId = entityId;
+      this.tables = null;
+      this.rows = null;
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidation messages between the nodes that share a database, for the {@link InvalidationBus}.
+ * <p>
+ * A transport delivers each message it sends to the receivers of all the nodes, possibly including the sending node
+ * itself, which ignores its own messages. Delivery may be unreliable: a lost message only leaves stale entries until
+ * the next flush of their cache model.
+ */
+public interface InvalidationTransport {
+
+  /**
+   * Configures the transport.
+   *
+   * @param props
+   *          the properties
+   */
+  void setProperties(Properties props);
+
+  /**
+   * Starts receiving messages.
+   *
+   * @param receiver
+   *          the receiver of the messages of the other nodes, called on a thread of the transport
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  void start(Consumer<byte[]> receiver) throws IOException;
+
+  /**
+   * Sends a message to all the nodes.
+   *
+   * @param message
+   *          the message, at most {@link #getMaxMessageSize()} bytes long
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  void send(byte[] message) throws IOException;
+
+  /**
+   * Gets the maximum size of a message.
+   *
+   * @return the maximum size of a message, in bytes
+   */
+  int getMaxMessageSize();
+
+  /**
+   * Stops the transport.
+   */
+  void close();
+
+}
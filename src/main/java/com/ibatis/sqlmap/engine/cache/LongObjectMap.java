@@ -0,0 +1,281 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive long keys to objects, with open addressing and linear probing, so that numeric ids are stored
+ * without boxing and looked up without following references.
+ * <p>
+ * The map holds at most a given number of entries. Beyond it, an entry is evicted with the clock algorithm: a clock
+ * hand sweeps the slots, sparing once the entries read since it last passed them. Removed entries are filled by
+ * shifting back the entries of the same probe sequence, so there are no tombstones.
+ * <p>
+ * This class is not thread safe.
+ */
+final class LongObjectMap {
+
+  /** The smallest number of slots. */
+  private static final int MIN_CAPACITY = 8;
+
+  /** The keys. */
+  private long[] keys;
+
+  /** The values, null for an empty slot. */
+  private Object[] values;
+
+  /** The slots read since the clock hand last passed them. */
+  private boolean[] referenced;
+
+  /** The number of entries. */
+  private int size;
+
+  /** The maximum number of entries. */
+  private final int maxSize;
+
+  /** The position of the clock hand. */
+  private int hand;
+
+  /**
+   * Instantiates a new map.
+   *
+   * @param maxSize
+   *          the maximum number of entries
+   */
+  LongObjectMap(int maxSize) {
+    this.maxSize = Math.max(maxSize, 1);
+    allocate(MIN_CAPACITY);
+  }
+
+  /**
+   * Gets the value of a key, and marks it as read.
+   *
+   * @param key
+   *          the key
+   *
+   * @return the value, or null if there is none
+   */
+  Object get(long key) {
+    int slot = find(key);
+    if (slot < 0) {
+      return null;
+    }
+    referenced[slot] = true;
+    return values[slot];
+  }
+
+  /**
+   * Puts a value, evicting an entry if the map is full.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the value, not null
+   *
+   * @return true if an entry was evicted to make room
+   */
+  boolean put(long key, Object value) {
+    int slot = find(key);
+    if (slot >= 0) {
+      values[slot] = value;
+      return false;
+    }
+    boolean evicted = false;
+    if (size >= maxSize) {
+      evict();
+      evicted = true;
+    } else if ((size + 1) * 2 > keys.length) {
+      resize(keys.length * 2);
+    }
+    insert(key, value);
+    return evicted;
+  }
+
+  /**
+   * Removes a key.
+   *
+   * @param key
+   *          the key
+   *
+   * @return the removed value, or null if there was none
+   */
+  Object remove(long key) {
+    int slot = find(key);
+    if (slot < 0) {
+      return null;
+    }
+    Object value = values[slot];
+    delete(slot);
+    return value;
+  }
+
+  /**
+   * Removes all the entries.
+   */
+  void clear() {
+    if (keys.length > MIN_CAPACITY) {
+      allocate(MIN_CAPACITY);
+    } else {
+      Arrays.fill(values, null);
+      Arrays.fill(referenced, false);
+    }
+    size = 0;
+    hand = 0;
+  }
+
+  /**
+   * Gets the number of entries.
+   *
+   * @return the size
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Evicts an entry, chosen by the clock hand.
+   */
+  void evict() {
+    if (size == 0) {
+      return;
+    }
+    while (true) {
+      hand = (hand + 1) & keys.length - 1;
+      if (values[hand] != null) {
+        if (!referenced[hand]) {
+          delete(hand);
+          return;
+        }
+        referenced[hand] = false;
+      }
+    }
+  }
+
+  /**
+   * Finds the slot of a key.
+   *
+   * @param key
+   *          the key
+   *
+   * @return the slot, or -1 if the key is absent
+   */
+  private int find(long key) {
+    int mask = keys.length - 1;
+    for (int slot = index(key, mask); values[slot] != null; slot = slot + 1 & mask) {
+      if (keys[slot] == key) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Inserts an absent key. There must be a free slot.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the value
+   *
+   * @return the slot of the key
+   */
+  private int insert(long key, Object value) {
+    int mask = keys.length - 1;
+    int slot = index(key, mask);
+    while (values[slot] != null) {
+      slot = slot + 1 & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    referenced[slot] = false;
+    size++;
+    return slot;
+  }
+
+  /**
+   * Empties a slot, then shifts back the following entries of the cluster that would no longer be found.
+   *
+   * @param slot
+   *          the slot
+   */
+  private void delete(int slot) {
+    int mask = keys.length - 1;
+    int free = slot;
+    for (int next = free + 1 & mask; values[next] != null; next = next + 1 & mask) {
+      int home = index(keys[next], mask);
+      // the entry can move to the free slot if its home is not cyclically within (free, next]
+      if ((next - home & mask) >= (next - free & mask)) {
+        keys[free] = keys[next];
+        values[free] = values[next];
+        referenced[free] = referenced[next];
+        free = next;
+      }
+    }
+    values[free] = null;
+    referenced[free] = false;
+    size--;
+  }
+
+  /**
+   * Rehashes the entries into a new number of slots.
+   *
+   * @param capacity
+   *          the number of slots, a power of two
+   */
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    boolean[] oldReferenced = referenced;
+    allocate(capacity);
+    size = 0;
+    int mask = capacity - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldValues[i] != null) {
+        referenced[insert(oldKeys[i], oldValues[i])] = oldReferenced[i];
+      }
+    }
+    hand = hand & mask;
+  }
+
+  /**
+   * Allocates empty slots.
+   *
+   * @param capacity
+   *          the number of slots, a power of two
+   */
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Object[capacity];
+    referenced = new boolean[capacity];
+  }
+
+  /**
+   * Gets the home slot of a key.
+   *
+   * @param key
+   *          the key
+   * @param mask
+   *          the number of slots minus one
+   *
+   * @return the slot
+   */
+  private static int index(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ hash >>> 32) & mask;
+  }
+
+}
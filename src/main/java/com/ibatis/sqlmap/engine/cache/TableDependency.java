@@ -0,0 +1,392 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * A table read or written by a statement, optionally narrowed to the rows whose key equals a property of the
+ * parameter object. Used by cache models with <code>dependencyTracking="true"</code>.
+ * <p>
+ * Dependencies are declared with the <code>tables</code> attribute of a statement, as a comma separated list of table
+ * names, each optionally followed by the key property in parentheses: <code>tables="ACCOUNT(id), ORDERS"</code>.
+ * Otherwise they are derived from the SQL text of statements whose SQL is static: the target table of an insert,
+ * update, delete or merge statement, including one that follows a <code>with</code> clause, or the tables in the from
+ * and join clauses of any other statement.
+ */
+public final class TableDependency {
+
+  /** The words that can follow a table name in a from clause and are not an alias. */
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList("where", "join", "inner", "left", "right",
+      "full", "outer", "cross", "natural", "on", "using", "group", "order", "having", "union", "intersect", "except",
+      "minus", "limit", "offset", "fetch", "for", "with", "window", "set", "values", "select", "lateral",
+      "straight_join", "connect", "start", "partition", "sample", "tablesample", "pivot", "unpivot", "returning"));
+
+  /** The verbs of the statements that write a table. */
+  private static final Set<String> WRITE_VERBS = new HashSet<>(
+      Arrays.asList("insert", "update", "delete", "merge", "replace", "upsert"));
+
+  /** The table, in lower case and without schema. */
+  private final String table;
+
+  /** The key property, or null for the whole table. */
+  private final String keyProperty;
+
+  /**
+   * Instantiates a new table dependency.
+   *
+   * @param table
+   *          the table
+   * @param keyProperty
+   *          the key property, or null for the whole table
+   */
+  public TableDependency(String table, String keyProperty) {
+    this.table = normalizeTable(table);
+    this.keyProperty = keyProperty;
+  }
+
+  /**
+   * Gets the table.
+   *
+   * @return the table, in lower case and without schema
+   */
+  public String getTable() {
+    return table;
+  }
+
+  /**
+   * Gets the key property.
+   *
+   * @return the key property, or null for the whole table
+   */
+  public String getKeyProperty() {
+    return keyProperty;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof TableDependency)) {
+      return false;
+    }
+    TableDependency other = (TableDependency) object;
+    return table.equals(other.table)
+        && (keyProperty == null ? other.keyProperty == null : keyProperty.equals(other.keyProperty));
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * table.hashCode() + (keyProperty == null ? 0 : keyProperty.hashCode());
+  }
+
+  @Override
+  public String toString() {
+    return keyProperty == null ? table : table + "(" + keyProperty + ")";
+  }
+
+  /**
+   * Parses the <code>tables</code> attribute of a statement.
+   *
+   * @param tables
+   *          the attribute, such as <code>ACCOUNT(id), ORDERS</code>
+   *
+   * @return the dependencies
+   */
+  public static TableDependency[] parse(String tables) {
+    List<TableDependency> dependencies = new ArrayList<>();
+    for (String token : tables.split(",")) {
+      String spec = token.trim();
+      if (spec.isEmpty()) {
+        continue;
+      }
+      int open = spec.indexOf('(');
+      if (open < 0) {
+        dependencies.add(new TableDependency(spec, null));
+      } else {
+        int close = spec.indexOf(')', open);
+        if (close < 0) {
+          throw new IllegalArgumentException("Missing ')' in table dependency '" + spec + "'.");
+        }
+        String keyProperty = spec.substring(open + 1, close).trim();
+        dependencies.add(new TableDependency(spec.substring(0, open).trim(), keyProperty.isEmpty() ? null : keyProperty));
+      }
+    }
+    return dependencies.toArray(new TableDependency[dependencies.size()]);
+  }
+
+  /**
+   * Derives the tables of a statement from its SQL text.
+   *
+   * @param sql
+   *          the SQL text
+   *
+   * @return the dependencies, empty if no table could be found
+   */
+  public static TableDependency[] fromSql(String sql) {
+    List<String> tokens = tokenize(sql);
+    Set<String> tables = new LinkedHashSet<>();
+    int first = verbIndex(tokens);
+    String verb = first < tokens.size() ? tokens.get(first) : "";
+    if (WRITE_VERBS.contains(verb)) {
+      int i = first + 1;
+      while (i < tokens.size() && ("into".equals(tokens.get(i)) || "from".equals(tokens.get(i))
+          || "only".equals(tokens.get(i)) || "ignore".equals(tokens.get(i)) || "low_priority".equals(tokens.get(i)))) {
+        i++;
+      }
+      if (i < tokens.size() && isIdentifier(tokens.get(i))) {
+        tables.add(tokens.get(i));
+      }
+    } else {
+      for (int i = 0; i < tokens.size(); i++) {
+        String token = tokens.get(i);
+        if ("from".equals(token) || "join".equals(token)) {
+          i = readTables(tokens, i + 1, "from".equals(token), tables);
+        }
+      }
+    }
+    List<TableDependency> dependencies = new ArrayList<>();
+    for (String table : tables) {
+      dependencies.add(new TableDependency(table, null));
+    }
+    return dependencies.toArray(new TableDependency[dependencies.size()]);
+  }
+
+  /**
+   * Tells if SQL text writes a table, that is if its verb is insert, update, delete, merge, replace or upsert, after any
+   * <code>with</code> clause.
+   *
+   * @param sql
+   *          the SQL text
+   *
+   * @return true if it does
+   */
+  public static boolean isWrite(String sql) {
+    List<String> tokens = tokenize(sql);
+    int first = verbIndex(tokens);
+    return first < tokens.size() && WRITE_VERBS.contains(tokens.get(first));
+  }
+
+  /**
+   * Finds the verb of a statement, skipping opening parentheses and the common table expressions of a
+   * <code>with</code> clause.
+   *
+   * @param tokens
+   *          the tokens
+   *
+   * @return the index of the verb, or the number of tokens if there is none
+   */
+  private static int verbIndex(List<String> tokens) {
+    int i = 0;
+    while (i < tokens.size() && "(".equals(tokens.get(i))) {
+      i++;
+    }
+    if (i >= tokens.size() || !"with".equals(tokens.get(i))) {
+      return i;
+    }
+    i++;
+    if (i < tokens.size() && "recursive".equals(tokens.get(i))) {
+      i++;
+    }
+    while (i < tokens.size()) {
+      // name [(columns)] as [not] [materialized] (query)
+      i++;
+      if (i < tokens.size() && "(".equals(tokens.get(i))) {
+        i = skipParentheses(tokens, i);
+      }
+      while (i < tokens.size() && !"(".equals(tokens.get(i))) {
+        i++;
+      }
+      i = skipParentheses(tokens, i);
+      if (i >= tokens.size() || !",".equals(tokens.get(i))) {
+        break;
+      }
+      i++;
+    }
+    while (i < tokens.size() && "(".equals(tokens.get(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Skips a parenthesized group of tokens.
+   *
+   * @param tokens
+   *          the tokens
+   * @param open
+   *          the index of the opening parenthesis
+   *
+   * @return the index of the token after the matching closing parenthesis
+   */
+  private static int skipParentheses(List<String> tokens, int open) {
+    int depth = 0;
+    for (int i = open; i < tokens.size(); i++) {
+      String token = tokens.get(i);
+      if ("(".equals(token)) {
+        depth++;
+      } else if (")".equals(token) && --depth == 0) {
+        return i + 1;
+      }
+    }
+    return tokens.size();
+  }
+
+  /**
+   * Reads the table names that follow a from or join keyword.
+   *
+   * @param tokens
+   *          the tokens
+   * @param start
+   *          the index of the first token after the keyword
+   * @param list
+   *          true if a comma separated list of tables may follow
+   * @param tables
+   *          the tables found
+   *
+   * @return the index of the last token read
+   */
+  private static int readTables(List<String> tokens, int start, boolean list, Set<String> tables) {
+    int i = start;
+    while (i < tokens.size() && isIdentifier(tokens.get(i))) {
+      tables.add(tokens.get(i));
+      i++;
+      if (i < tokens.size() && "as".equals(tokens.get(i))) {
+        i++;
+      }
+      if (i < tokens.size() && isIdentifier(tokens.get(i))) {
+        // alias
+        i++;
+      }
+      if (!list || i >= tokens.size() || !",".equals(tokens.get(i))) {
+        break;
+      }
+      i++;
+    }
+    return i - 1;
+  }
+
+  /**
+   * Tells if a token is a name rather than a keyword or a symbol.
+   *
+   * @param token
+   *          the token
+   *
+   * @return true if it is
+   */
+  private static boolean isIdentifier(String token) {
+    char c = token.charAt(0);
+    return (Character.isLetter(c) || c == '_' || c == '"') && !KEYWORDS.contains(token)
+        && !WRITE_VERBS.contains(token);
+  }
+
+  /**
+   * Splits SQL text into lower case words, quoted names and symbols, skipping literals and comments.
+   *
+   * @param sql
+   *          the SQL text
+   *
+   * @return the tokens
+   */
+  private static List<String> tokenize(String sql) {
+    List<String> tokens = new ArrayList<>();
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        while (i < length && sql.charAt(i) != '\n') {
+          i++;
+        }
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (c == '\'') {
+        i++;
+        while (i < length) {
+          if (sql.charAt(i) == '\'') {
+            if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+              i += 2;
+              continue;
+            }
+            break;
+          }
+          i++;
+        }
+        i++;
+      } else if (Character.isLetterOrDigit(c) || c == '_' || c == '"' || c == '`' || c == '[' || c == '$'
+          || c == '#') {
+        int start = i;
+        while (i < length) {
+          char d = sql.charAt(i);
+          if (d == '"' || d == '`' || d == '[') {
+            char close = d == '[' ? ']' : d;
+            int end = sql.indexOf(close, i + 1);
+            i = end < 0 ? length : end + 1;
+          } else if (Character.isLetterOrDigit(d) || d == '_' || d == '$' || d == '#' || d == '.' || d == '@') {
+            i++;
+          } else {
+            break;
+          }
+        }
+        String word = sql.substring(start, i);
+        tokens.add(c == '"' || c == '`' || c == '[' ? "\"" + normalizeTable(word) : word.toLowerCase(Locale.ENGLISH));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  /**
+   * Normalizes a table name: strips the schema and the quotes, and converts it to lower case.
+   *
+   * @param name
+   *          the name
+   *
+   * @return the normalized name
+   */
+  static String normalizeTable(String name) {
+    String table = name.trim();
+    if (table.startsWith("\"") && table.indexOf('"', 1) < 0) {
+      // a name marked as quoted by the tokenizer
+      table = table.substring(1);
+    }
+    int dot = table.lastIndexOf('.');
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    StringBuilder builder = new StringBuilder(table.length());
+    for (int i = 0; i < table.length(); i++) {
+      char c = table.charAt(i);
+      if (c != '"' && c != '`' && c != '[' && c != ']') {
+        builder.append(c);
+      }
+    }
+    return builder.toString().toLowerCase(Locale.ENGLISH);
+  }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.CacheStatistics.FlushCause;
+import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The cache changes of a transaction, kept apart from the shared cache models until the transaction commits.
+ * <p>
+ * Once a transaction has written to the database, the results of its queries may depend on its uncommitted writes, so
+ * they are staged here instead of being put in the shared cache: they are published when the transaction commits and
+ * discarded when it ends without committing. The flushes triggered by the statements of the transaction are deferred to
+ * the end of the transaction as well, so that other sessions cannot cache the old data again between the write and the
+ * commit. Until then, the queries of the transaction bypass the cache models it flushed, since their entries do not
+ * reflect its own writes. For the same reason, the ids the transaction evicts from entity caches are evicted again when
+ * it ends.
+ * <p>
+ * There is one instance per session, used only by the thread that runs the session.
+ */
+public class TransactionalCache {
+
+  /** The number of deferred invalidations of a cache model beyond which a flush is deferred instead. */
+  private static final int MAX_PENDING_INVALIDATIONS = 1000;
+
+  /** The staged entries, by cache model. */
+  private final Map<CacheModel, Map<CacheKey, StagedEntry>> staged = new HashMap<>();
+
+  /** The deferred invalidations, by cache model. A null list stands for a flush of the whole model. */
+  private final Map<CacheModel, List<Invalidation>> pending = new LinkedHashMap<>();
+
+  /** The cache models flushed by the transaction. */
+  private final Set<CacheModel> flushed = new HashSet<>();
+
+  /** The ids to evict again from entity caches, by entity cache. A null set stands for a flush of the whole cache. */
+  private final Map<EntityCache, Set<Object>> evictions = new LinkedHashMap<>();
+
+  /**
+   * Tells if the transaction has triggered a flush of any cache model.
+   *
+   * @return true if it has
+   */
+  public boolean hasPendingFlushes() {
+    return !pending.isEmpty() || !evictions.isEmpty();
+  }
+
+  /**
+   * Tells if the transaction has triggered a flush of a cache model, in which case its entries must not be used by the
+   * transaction.
+   *
+   * @param cacheModel
+   *          the cache model
+   *
+   * @return true if it has
+   */
+  public boolean isFlushed(CacheModel cacheModel) {
+    return flushed.contains(cacheModel);
+  }
+
+  /**
+   * Stages an entry, to be put in the cache model when the transaction commits.
+   *
+   * @param cacheModel
+   *          the cache model
+   * @param key
+   *          the key
+   * @param value
+   *          the value
+   * @param generation
+   *          the flush generation of the cache model read before the value was loaded
+   * @param dependencies
+   *          the tables the value was read from
+   * @param parameterObject
+   *          the parameter object the value was read with
+   */
+  public void putObject(CacheModel cacheModel, CacheKey key, Object value, long generation,
+      TableDependency[] dependencies, Object parameterObject) {
+    if (!flushed.contains(cacheModel)) {
+      staged.computeIfAbsent(cacheModel, model -> new LinkedHashMap<>()).put(key,
+          new StagedEntry(value, generation, dependencies, parameterObject));
+    }
+  }
+
+  /**
+   * Defers the flush of a cache model triggered by a statement of the transaction. The entries staged for the model are
+   * dropped.
+   *
+   * @param cacheModel
+   *          the cache model
+   * @param statement
+   *          the statement
+   * @param parameterObject
+   *          the parameter object of the statement
+   */
+  public void onExecuteStatement(CacheModel cacheModel, MappedStatement statement, Object parameterObject) {
+    flushed.add(cacheModel);
+    staged.remove(cacheModel);
+    if (!cacheModel.isDependencyTracking()) {
+      pending.put(cacheModel, null);
+      return;
+    }
+    if (pending.containsKey(cacheModel) && pending.get(cacheModel) == null) {
+      return;
+    }
+    List<Invalidation> invalidations = pending.computeIfAbsent(cacheModel, model -> new ArrayList<>());
+    if (invalidations.size() >= MAX_PENDING_INVALIDATIONS) {
+      pending.put(cacheModel, null);
+    } else {
+      invalidations.add(new Invalidation(statement, parameterObject));
+    }
+  }
+
+  /**
+   * Defers the eviction of an id written by a statement of the transaction, to repeat it when the transaction ends.
+   *
+   * @param entityCache
+   *          the entity cache
+   * @param id
+   *          the id, or null to flush the entity cache
+   */
+  public void deferEviction(EntityCache entityCache, Object id) {
+    if (evictions.containsKey(entityCache) && evictions.get(entityCache) == null) {
+      return;
+    }
+    Set<Object> ids = evictions.computeIfAbsent(entityCache, cache -> new HashSet<>());
+    if (id == null || ids.size() >= MAX_PENDING_INVALIDATIONS) {
+      evictions.put(entityCache, null);
+    } else {
+      ids.add(id);
+    }
+  }
+
+  /**
+   * Applies the deferred flushes, then publishes the staged entries.
+   */
+  public void commit() {
+    try {
+      applyPendingFlushes();
+      for (Map.Entry<CacheModel, Map<CacheKey, StagedEntry>> entry : staged.entrySet()) {
+        CacheModel cacheModel = entry.getKey();
+        for (Map.Entry<CacheKey, StagedEntry> stagedEntry : entry.getValue().entrySet()) {
+          StagedEntry value = stagedEntry.getValue();
+          cacheModel.putObject(stagedEntry.getKey(), value.value, value.generation, value.dependencies,
+              value.parameterObject);
+        }
+      }
+    } finally {
+      clear();
+    }
+  }
+
+  /**
+   * Ends the transaction: the staged entries are discarded. The deferred flushes are applied anyway, since the writes
+   * may have been committed by other means, such as an external transaction, and an extra flush is harmless.
+   */
+  public void end() {
+    try {
+      applyPendingFlushes();
+    } finally {
+      clear();
+    }
+  }
+
+  /**
+   * Applies the deferred flushes and entity cache evictions.
+   */
+  private void applyPendingFlushes() {
+    for (Map.Entry<CacheModel, List<Invalidation>> entry : pending.entrySet()) {
+      CacheModel cacheModel = entry.getKey();
+      if (entry.getValue() == null) {
+        cacheModel.flush(FlushCause.STATEMENT);
+      } else {
+        for (Invalidation invalidation : entry.getValue()) {
+          cacheModel.onExecuteStatement(invalidation.statement, invalidation.parameterObject);
+        }
+      }
+    }
+    for (Map.Entry<EntityCache, Set<Object>> entry : evictions.entrySet()) {
+      if (entry.getValue() == null) {
+        entry.getKey().flush();
+      } else {
+        entry.getValue().forEach(entry.getKey()::evict);
+      }
+    }
+  }
+
+  /**
+   * Forgets the staged entries and the deferred flushes.
+   */
+  private void clear() {
+    staged.clear();
+    pending.clear();
+    flushed.clear();
+    evictions.clear();
+  }
+
+  /**
+   * An entry staged for a cache model.
+   */
+  private static class StagedEntry {
+
+    /** The value. */
+    private final Object value;
+
+    /** The flush generation. */
+    private final long generation;
+
+    /** The dependencies. */
+    private final TableDependency[] dependencies;
+
+    /** The parameter object. */
+    private final Object parameterObject;
+
+    /**
+     * Instantiates a new staged entry.
+     *
+     * @param value
+     *          the value
+     * @param generation
+     *          the flush generation
+     * @param dependencies
+     *          the dependencies
+     * @param parameterObject
+     *          the parameter object
+     */
+    StagedEntry(Object value, long generation, TableDependency[] dependencies, Object parameterObject) {
+      this.value = value;
+      this.generation = generation;
+      this.dependencies = dependencies;
+      this.parameterObject = parameterObject;
+    }
+  }
+
+  /**
+   * A write to replay on a cache model that tracks table dependencies.
+   */
+  private static class Invalidation {
+
+    /** The statement. */
+    private final MappedStatement statement;
+
+    /** The parameter object. */
+    private final Object parameterObject;
+
+    /**
+     * Instantiates a new invalidation.
+     *
+     * @param statement
+     *          the statement
+     * @param parameterObject
+     *          the parameter object
+     */
+    Invalidation(MappedStatement statement, Object parameterObject) {
+      this.statement = statement;
+      this.parameterObject = parameterObject;
+    }
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.fifo;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * FIFO (first in, first out) cache controller that can be used concurrently without locking.
+ * <p>
+ * The entries live in a concurrent map, and their keys in a ring of the size of the cache, in the order they were
+ * inserted. Each new key takes the next slot of the ring and evicts the key that was there, so inserts and evictions
+ * take constant time and allocate nothing but the map entry. Replacing the value of a cached key does not change its
+ * place in the ring. A key removed before its slot comes round leaves the slot unused until then, and if it is put
+ * again meanwhile, it may be evicted early.
+ */
+public class ConcurrentFifoCacheController implements CacheController {
+
+  /** The cache size. */
+  private int cacheSize;
+
+  /** The cache. */
+  private final ConcurrentHashMap<Object, Object> cache = new ConcurrentHashMap<>();
+
+  /** The keys, in the order they were inserted. */
+  private volatile AtomicReferenceArray<Object> ring;
+
+  /** The number of keys inserted, which gives the next slot of the ring. */
+  private final AtomicLong inserts = new AtomicLong();
+
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Default constructor.
+   */
+  public ConcurrentFifoCacheController() {
+    setCacheSize(100);
+  }
+
+  /**
+   * Gets the cache size.
+   *
+   * @return the cache size
+   */
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Sets the cache size. Any entries already cached are discarded.
+   *
+   * @param cacheSize
+   *          the new cache size
+   */
+  public void setCacheSize(int cacheSize) {
+    this.cacheSize = Math.max(cacheSize, 1);
+    this.ring = new AtomicReferenceArray<>(this.cacheSize);
+    cache.clear();
+  }
+
+  /**
+   * Configures the cache
+   *
+   * @param props
+   *          Optionally can contain properties [cache-size=n|size=n]
+   */
+  @Override
+  public void setProperties(Properties props) {
+    String size = props.getProperty("cache-size");
+    if (size == null) {
+      size = props.getProperty("size");
+    }
+    if (size != null) {
+      setCacheSize(Integer.parseInt(size));
+    }
+  }
+
+  /**
+   * Add an object to the cache
+   *
+   * @param cacheModel
+   *          The cacheModel
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   */
+  @Override
+  public void putObject(CacheModel cacheModel, Object key, Object value) {
+    if (value == null) {
+      cache.remove(key);
+      return;
+    }
+    if (cache.put(key, value) == null) {
+      AtomicReferenceArray<Object> keys = ring;
+      int slot = (int) (inserts.getAndIncrement() % keys.length());
+      Object evicted = keys.getAndSet(slot, key);
+      if (evicted != null && !evicted.equals(key) && cache.remove(evicted) != null) {
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Get an object out of the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   * @param key
+   *          The key of the object to be returned
+   *
+   * @return The cached object (or null)
+   */
+  @Override
+  public Object getObject(CacheModel cacheModel, Object key) {
+    return cache.get(key);
+  }
+
+  @Override
+  public Object removeObject(CacheModel cacheModel, Object key) {
+    return cache.remove(key);
+  }
+
+  @Override
+  public boolean removeObject(CacheModel cacheModel, Object key, Object object) {
+    boolean[] removed = new boolean[1];
+    cache.computeIfPresent(key, (k, current) -> {
+      removed[0] = current == object;
+      return removed[0] ? null : current;
+    });
+    return removed[0];
+  }
+
+  @Override
+  public List<Object> getKeys() {
+    return new ArrayList<>(cache.keySet());
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Flushes the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   */
+  @Override
+  public void flush(CacheModel cacheModel) {
+    AtomicReferenceArray<Object> keys = ring;
+    for (int i = 0; i < keys.length(); i++) {
+      keys.set(i, null);
+    }
+    cache.clear();
+  }
+
+}
@@ -18,12 +18,14 @@ package com.ibatis.sqlmap.engine.cache.fifo;
 import com.ibatis.sqlmap.engine.cache.CacheController;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * FIFO (first in, first out) cache controller implementation.
@@ -39,6 +41,9 @@ public class FifoCacheController implements CacheController {
   /** The key list. */
   private List keyList;
 
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
+
   /**
    * Default constructor.
    */
@@ -102,6 +107,7 @@ public class FifoCacheController implements CacheController {
       try {
         Object oldestKey = keyList.remove(0);
         cache.remove(oldestKey);
+        evictions.increment();
       } catch (IndexOutOfBoundsException e) {
         // ignore
       }
@@ -129,6 +135,18 @@ public class FifoCacheController implements CacheController {
     return cache.remove(key);
   }
 
+  @Override
+  public List<Object> getKeys() {
+    synchronized (keyList) {
+      return new ArrayList<Object>((List<?>) keyList);
+    }
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
   /**
    * Flushes the cache.
    *
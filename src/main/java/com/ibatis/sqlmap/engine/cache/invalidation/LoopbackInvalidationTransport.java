@@ -0,0 +1,78 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.invalidation;
+
+import com.ibatis.sqlmap.engine.cache.InvalidationTransport;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation transport that delivers the messages to the transports of the same channel in this JVM, on the thread
+ * of the sender. Meant for tests, where several clients stand for several nodes.
+ * <p>
+ * Property: <code>channel</code>, the name of the channel, "default" if not set.
+ */
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+  /** The receivers, by channel. */
+  private static final Map<String, Set<Consumer<byte[]>>> channels = new ConcurrentHashMap<>();
+
+  /** The channel. */
+  private String channel = "default";
+
+  /** The receiver. */
+  private Consumer<byte[]> receiver;
+
+  @Override
+  public void setProperties(Properties props) {
+    channel = props.getProperty("channel", channel);
+  }
+
+  @Override
+  public synchronized void start(Consumer<byte[]> receiver) {
+    this.receiver = receiver;
+    channels.computeIfAbsent(channel, name -> new CopyOnWriteArraySet<>()).add(receiver);
+  }
+
+  @Override
+  public void send(byte[] message) {
+    Set<Consumer<byte[]>> receivers = channels.get(channel);
+    if (receivers != null) {
+      for (Consumer<byte[]> each : receivers) {
+        each.accept(message);
+      }
+    }
+  }
+
+  @Override
+  public int getMaxMessageSize() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public synchronized void close() {
+    Set<Consumer<byte[]>> receivers = channels.get(channel);
+    if (receivers != null && receiver != null) {
+      receivers.remove(receiver);
+    }
+  }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.invalidation;
+
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
+import com.ibatis.sqlmap.engine.cache.InvalidationTransport;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation transport over UDP multicast: every node joins the same group and receives the messages of all the
+ * others. Messages are single datagrams, and may be lost.
+ * <p>
+ * Properties:
+ * <ul>
+ * <li><code>group</code>, the multicast group address, 239.255.66.66 if not set</li>
+ * <li><code>port</code>, the port, 45566 if not set</li>
+ * <li><code>ttl</code>, the time to live of the datagrams, 1 (the local network) if not set</li>
+ * <li><code>interface</code>, the name of the network interface to use, the default one if not set</li>
+ * </ul>
+ */
+public class MulticastInvalidationTransport implements InvalidationTransport {
+
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(MulticastInvalidationTransport.class);
+
+  /** The maximum payload of a UDP datagram. */
+  private static final int MAX_DATAGRAM_SIZE = 65507;
+
+  /** The group. */
+  private String group = "239.255.66.66";
+
+  /** The port. */
+  private int port = 45566;
+
+  /** The time to live. */
+  private int ttl = 1;
+
+  /** The network interface name. */
+  private String networkInterface;
+
+  /** The socket. */
+  private MulticastSocket socket;
+
+  /** The group address. */
+  private InetSocketAddress groupAddress;
+
+  /** The receiver thread. */
+  private Thread receiverThread;
+
+  @Override
+  public void setProperties(Properties props) {
+    group = props.getProperty("group", group);
+    port = Integer.parseInt(props.getProperty("port", String.valueOf(port)));
+    ttl = Integer.parseInt(props.getProperty("ttl", String.valueOf(ttl)));
+    networkInterface = props.getProperty("interface", networkInterface);
+  }
+
+  @Override
+  public synchronized void start(Consumer<byte[]> receiver) throws IOException {
+    NetworkInterface ni = networkInterface == null ? null : NetworkInterface.getByName(networkInterface);
+    groupAddress = new InetSocketAddress(InetAddress.getByName(group), port);
+    socket = new MulticastSocket(port);
+    socket.setTimeToLive(ttl);
+    if (ni != null) {
+      socket.setNetworkInterface(ni);
+    }
+    socket.joinGroup(groupAddress, ni);
+    MulticastSocket receiving = socket;
+    receiverThread = new Thread(() -> receive(receiving, receiver), "ibatis-cache-invalidation-receiver");
+    receiverThread.setDaemon(true);
+    receiverThread.start();
+  }
+
+  /**
+   * Receives datagrams until the socket is closed.
+   *
+   * @param socket
+   *          the socket
+   * @param receiver
+   *          the receiver
+   */
+  private static void receive(MulticastSocket socket, Consumer<byte[]> receiver) {
+    byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+    while (!socket.isClosed()) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        socket.receive(packet);
+        int offset = packet.getOffset();
+        receiver.accept(Arrays.copyOfRange(packet.getData(), offset, offset + packet.getLength()));
+      } catch (IOException e) {
+        if (!socket.isClosed()) {
+          log.warn("Error receiving cache invalidations.  Cause: " + e);
+        }
+      } catch (RuntimeException e) {
+        log.error("Error applying cache invalidations.  Cause: " + e, e);
+      }
+    }
+  }
+
+  @Override
+  public void send(byte[] message) throws IOException {
+    MulticastSocket sending;
+    synchronized (this) {
+      sending = socket;
+    }
+    if (sending == null) {
+      throw new IOException("The multicast invalidation transport is not started.");
+    }
+    sending.send(new DatagramPacket(message, message.length, groupAddress));
+  }
+
+  @Override
+  public int getMaxMessageSize() {
+    return MAX_DATAGRAM_SIZE;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (socket != null) {
+      socket.close();
+      socket = null;
+    }
+  }
+
+}
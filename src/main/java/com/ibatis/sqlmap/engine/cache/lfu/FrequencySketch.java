@@ -0,0 +1,156 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.lfu;
+
+/**
+ * A count-min sketch of 4-bit counters used to estimate how often a key has been seen recently.
+ * <p>
+ * Each key maps to four counters, sixteen of which are packed into every long. Once the number of recorded accesses
+ * reaches ten times the cache size all counters are halved, so old popularity fades out. The sketch is not thread
+ * safe; callers synchronize on the owning controller.
+ */
+class FrequencySketch {
+
+  /** The seeds of the four hash functions. */
+  private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+      0xcbf29ce484222325L };
+
+  /** Mask that clears the high bit of every counter after a shift. */
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  /** The maximum value of a counter. */
+  private static final int MAX_FREQUENCY = 15;
+
+  /** The counters. */
+  private final long[] table;
+
+  /** The table mask. */
+  private final int tableMask;
+
+  /** The number of accesses after which the counters are halved. */
+  private final int sampleSize;
+
+  /** The accesses recorded since the last reset. */
+  private int size;
+
+  /**
+   * Instantiates a new frequency sketch.
+   *
+   * @param capacity
+   *          the number of entries of the cache the sketch is sized for
+   */
+  FrequencySketch(int capacity) {
+    int maximum = Math.max(capacity, 16);
+    int tableSize = Integer.highestOneBit(maximum - 1) << 1;
+    this.table = new long[tableSize];
+    this.tableMask = tableSize - 1;
+    this.sampleSize = 10 * maximum;
+  }
+
+  /**
+   * Returns the estimated number of recent accesses of a key.
+   *
+   * @param key
+   *          the key
+   *
+   * @return the estimated frequency, between 0 and 15
+   */
+  int frequency(Object key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_FREQUENCY;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int count = (int) (table[indexOf(hash, i)] >>> offsetOf(hash, i) & 0xfL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Records an access of a key.
+   *
+   * @param key
+   *          the key
+   */
+  void increment(Object key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int i = 0; i < SEEDS.length; i++) {
+      int index = indexOf(hash, i);
+      int offset = offsetOf(hash, i);
+      if ((table[index] >>> offset & 0xfL) != MAX_FREQUENCY) {
+        table[index] += 1L << offset;
+        added = true;
+      }
+    }
+    if (added && ++size >= sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * Halves every counter.
+   */
+  private void reset() {
+    for (int i = 0; i < table.length; i++) {
+      table[i] = table[i] >>> 1 & RESET_MASK;
+    }
+    size /= 2;
+  }
+
+  /**
+   * Returns the table index of the counter of a hash function.
+   *
+   * @param hash
+   *          the spread hash of the key
+   * @param i
+   *          the hash function
+   *
+   * @return the table index
+   */
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & tableMask;
+  }
+
+  /**
+   * Returns the bit offset, within its long, of the counter of a hash function.
+   *
+   * @param hash
+   *          the spread hash of the key
+   * @param i
+   *          the hash function
+   *
+   * @return the bit offset
+   */
+  private static int offsetOf(int hash, int i) {
+    return (hash >>> (i << 3) & 0xf) << 2;
+  }
+
+  /**
+   * Applies a supplemental hash function to defend against poor quality hash codes.
+   *
+   * @param hashCode
+   *          the hash code
+   *
+   * @return the spread hash
+   */
+  private static int spread(int hashCode) {
+    int h = hashCode * 0x9e3775cd;
+    return h ^ h >>> 16;
+  }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.lfu;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Frequency aware (TinyLFU) cache controller implementation.
+ * <p>
+ * New entries go into a small LRU window. An entry pushed out of the window only replaces the least recently used
+ * entry of the main region if a frequency sketch says it has been requested more often, so one-off lookups cannot wash
+ * out the popular keys.
+ */
+public class TinyLfuCacheController implements CacheController {
+
+  /** The percentage of the cache size given to the admission window. */
+  private static final int WINDOW_PERCENT = 1;
+
+  /** The cache size. */
+  private int cacheSize;
+
+  /** The window size. */
+  private int windowSize;
+
+  /** The recently added entries, in access order. */
+  private LinkedHashMap<Object, Object> window;
+
+  /** The admitted entries, in access order. */
+  private LinkedHashMap<Object, Object> main;
+
+  /** The frequency sketch. */
+  private FrequencySketch sketch;
+
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Default constructor.
+   */
+  public TinyLfuCacheController() {
+    setCacheSize(100);
+  }
+
+  /**
+   * Gets the cache size.
+   *
+   * @return the cache size
+   */
+  public synchronized int getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Sets the cache size. Any entries already cached are discarded.
+   *
+   * @param cacheSize
+   *          the new cache size
+   */
+  public synchronized void setCacheSize(int cacheSize) {
+    this.cacheSize = cacheSize;
+    this.windowSize = Math.min(cacheSize, Math.max(1, cacheSize * WINDOW_PERCENT / 100));
+    this.window = new LinkedHashMap<>(16, 0.75f, true);
+    this.main = new LinkedHashMap<>(16, 0.75f, true);
+    this.sketch = new FrequencySketch(cacheSize);
+  }
+
+  /**
+   * Configures the cache
+   *
+   * @param props
+   *          Optionally can contain properties [cache-size=n|size=n]
+   */
+  @Override
+  public void setProperties(Properties props) {
+    String size = props.getProperty("cache-size");
+    if (size == null) {
+      size = props.getProperty("size");
+    }
+    if (size != null) {
+      setCacheSize(Integer.parseInt(size));
+    }
+  }
+
+  /**
+   * Add an object to the cache
+   *
+   * @param cacheModel
+   *          The cacheModel
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   */
+  @Override
+  public synchronized void putObject(CacheModel cacheModel, Object key, Object value) {
+    sketch.increment(key);
+    if (main.containsKey(key)) {
+      main.put(key, value);
+      return;
+    }
+    window.put(key, value);
+    if (window.size() > windowSize) {
+      Iterator<Map.Entry<Object, Object>> iterator = window.entrySet().iterator();
+      Map.Entry<Object, Object> candidate = iterator.next();
+      iterator.remove();
+      admit(candidate.getKey(), candidate.getValue());
+    }
+  }
+
+  /**
+   * Offers an entry evicted from the window to the main region.
+   *
+   * @param key
+   *          the key
+   * @param value
+   *          the value
+   */
+  private void admit(Object key, Object value) {
+    int mainSize = cacheSize - windowSize;
+    if (main.size() < mainSize) {
+      main.put(key, value);
+      return;
+    }
+    // either the candidate or the victim is evicted
+    evictions.increment();
+    if (mainSize <= 0) {
+      return;
+    }
+    Iterator<Object> iterator = main.keySet().iterator();
+    Object victim = iterator.next();
+    if (sketch.frequency(key) > sketch.frequency(victim)) {
+      iterator.remove();
+      main.put(key, value);
+    }
+  }
+
+  /**
+   * Get an object out of the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   * @param key
+   *          The key of the object to be returned
+   *
+   * @return The cached object (or null)
+   */
+  @Override
+  public synchronized Object getObject(CacheModel cacheModel, Object key) {
+    sketch.increment(key);
+    Object value = main.get(key);
+    if (value == null) {
+      value = window.get(key);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized Object removeObject(CacheModel cacheModel, Object key) {
+    Object value = main.remove(key);
+    if (value == null) {
+      value = window.remove(key);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized List<Object> getKeys() {
+    List<Object> keys = new ArrayList<>(window.keySet());
+    keys.addAll(main.keySet());
+    return keys;
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Flushes the cache. The frequency history is kept, since the popularity of a key does not change when its cached
+   * value becomes stale.
+   *
+   * @param cacheModel
+   *          The cache model
+   */
+  @Override
+  public synchronized void flush(CacheModel cacheModel) {
+    window.clear();
+    main.clear();
+  }
+
+}
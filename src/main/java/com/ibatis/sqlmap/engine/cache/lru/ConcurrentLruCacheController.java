@@ -0,0 +1,289 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.lru;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU (least recently used) cache controller implementation with constant time access and eviction.
+ * <p>
+ * Entries are spread over a number of segments, each one an access-ordered map guarded by its own lock, so concurrent
+ * lookups of different keys rarely contend. Each segment evicts its own least recently used entry. Caches of fewer than
+ * 1024 entries, which include the default size of 100, keep a single segment and so the exact eviction order of
+ * {@link LruCacheController}; larger caches are split, and evict in an approximate least recently used order. This is
+ * the controller of the <code>LRU</code> cache model type.
+ */
+public class ConcurrentLruCacheController implements CacheController {
+
+  /** The maximum number of segments. */
+  private static final int MAX_SEGMENTS = 16;
+
+  /** The minimum number of entries held by each segment before the cache is split further. */
+  private static final int MIN_SEGMENT_SIZE = 512;
+
+  /** The cache size. */
+  private int cacheSize;
+
+  /** The segments. */
+  private volatile Segment[] segments;
+
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Default constructor.
+   */
+  public ConcurrentLruCacheController() {
+    setCacheSize(100);
+  }
+
+  /**
+   * Gets the cache size.
+   *
+   * @return the cache size
+   */
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Sets the cache size. Any entries already cached are discarded. The capacities of the segments add up to the cache
+   * size.
+   *
+   * @param cacheSize
+   *          the new cache size
+   */
+  public void setCacheSize(int cacheSize) {
+    this.cacheSize = cacheSize;
+    int segmentCount = 1;
+    while (segmentCount < MAX_SEGMENTS && segmentCount * 2 * MIN_SEGMENT_SIZE <= cacheSize) {
+      segmentCount *= 2;
+    }
+    int segmentSize = cacheSize / segmentCount;
+    int remainder = cacheSize % segmentCount;
+    Segment[] newSegments = new Segment[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      newSegments[i] = new Segment(i < remainder ? segmentSize + 1 : segmentSize, evictions);
+    }
+    this.segments = newSegments;
+  }
+
+  /**
+   * Configures the cache
+   *
+   * @param props
+   *          Optionally can contain properties [cache-size=n|size=n]
+   */
+  @Override
+  public void setProperties(Properties props) {
+    String size = props.getProperty("cache-size");
+    if (size == null) {
+      size = props.getProperty("size");
+    }
+    if (size != null) {
+      setCacheSize(Integer.parseInt(size));
+    }
+  }
+
+  /**
+   * Add an object to the cache
+   *
+   * @param cacheModel
+   *          The cacheModel
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   */
+  @Override
+  public void putObject(CacheModel cacheModel, Object key, Object value) {
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      segment.put(key, value);
+    }
+  }
+
+  /**
+   * Get an object out of the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   * @param key
+   *          The key of the object to be returned
+   *
+   * @return The cached object (or null)
+   */
+  @Override
+  public Object getObject(CacheModel cacheModel, Object key) {
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      return segment.get(key);
+    }
+  }
+
+  @Override
+  public Object removeObject(CacheModel cacheModel, Object key) {
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      return segment.remove(key);
+    }
+  }
+
+  @Override
+  public boolean removeObject(CacheModel cacheModel, Object key, Object object) {
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      return segment.removeIfSame(key, object);
+    }
+  }
+
+  @Override
+  public List<Object> getKeys() {
+    List<Object> keys = new ArrayList<>();
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        keys.addAll(segment.keySet());
+      }
+    }
+    return keys;
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  /**
+   * Flushes the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   */
+  @Override
+  public void flush(CacheModel cacheModel) {
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  /**
+   * Finds the segment that holds a key.
+   *
+   * @param key
+   *          the key
+   *
+   * @return the segment
+   */
+  private Segment segmentFor(Object key) {
+    Segment[] current = segments;
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    return current[h & (current.length - 1)];
+  }
+
+  /**
+   * An access-ordered map that drops its eldest entry once it holds more than its capacity.
+   */
+  private static class Segment extends LinkedHashMap<Object, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The capacity. */
+    private final int capacity;
+
+    /** The eviction count of the controller. */
+    private final transient LongAdder evictions;
+
+    /**
+     * Instantiates a new segment.
+     *
+     * @param capacity
+     *          the capacity
+     * @param evictions
+     *          the eviction count of the controller
+     */
+    Segment(int capacity, LongAdder evictions) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+      this.evictions = evictions;
+    }
+
+    /**
+     * Removes the entry of a key if it holds the given object, without making it the most recently used entry when it
+     * does not. {@link LinkedHashMap#get(Object)} would, so the object is matched by {@link #remove(Object, Object)}
+     * through a wrapper that is only equal to the object itself.
+     *
+     * @param key
+     *          the key
+     * @param object
+     *          the object expected under the key
+     *
+     * @return true if the entry was removed
+     */
+    boolean removeIfSame(Object key, Object object) {
+      return remove(key, new Same(object));
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+      if (size() > capacity) {
+        evictions.increment();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Matches a single object by identity.
+   */
+  private static final class Same {
+
+    /** The object. */
+    private final Object object;
+
+    /**
+     * Instantiates a new identity match.
+     *
+     * @param object
+     *          the object
+     */
+    Same(Object object) {
+      this.object = object;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other == object || other == this;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(object);
+    }
+  }
+
+}
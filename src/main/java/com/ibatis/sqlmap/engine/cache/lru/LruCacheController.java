@@ -18,12 +18,14 @@ package com.ibatis.sqlmap.engine.cache.lru;
 import com.ibatis.sqlmap.engine.cache.CacheController;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * LRU (least recently used) cache controller implementation.
@@ -39,6 +41,9 @@ public class LruCacheController implements CacheController {
   /** The key list. */
   private List keyList;
 
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
+
   /**
    * Default constructor.
    */
@@ -102,6 +107,7 @@ public class LruCacheController implements CacheController {
       try {
         Object oldestKey = keyList.remove(0);
         cache.remove(oldestKey);
+        evictions.increment();
       } catch (IndexOutOfBoundsException e) {
         // ignore
       }
@@ -134,6 +140,18 @@ public class LruCacheController implements CacheController {
     return cache.remove(key);
   }
 
+  @Override
+  public List<Object> getKeys() {
+    synchronized (keyList) {
+      return new ArrayList<Object>((List<?>) keyList);
+    }
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
   /**
    * Flushes the cache.
    *
@@ -0,0 +1,609 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.mapped;
+
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
+import com.ibatis.sqlmap.client.SqlMapException;
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.weighted.CacheMemoryBudget;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Cache controller that keeps its entries in a memory-mapped file, so a restarted application starts with a warm cache.
+ * <p>
+ * Entries are appended to the file as records holding the write time, the string form of the cache key and the
+ * serialized value. The file header holds a flush epoch, the time of the last flush and the end of the written records.
+ * A flush only advances the epoch, which invalidates every record written before it, and the next write starts over at
+ * the beginning of the file.
+ * <p>
+ * On startup the records of the current epoch are indexed again, but only for a cache model with a flush interval or a
+ * time to live, so that restored entries cannot outlive their data. Restored entries are discarded once the flush
+ * interval has elapsed since the last flush recorded in the header, or once their own time to live has elapsed since
+ * they were written. A cache model that is only flushed by statements starts with an empty file, because the
+ * statements executed while the application was down are not known.
+ * <p>
+ * The file must be given with the <code>file</code> property, or a <code>directory</code> in which the file is named
+ * after the cache model. The controller holds an exclusive lock on the file until it is closed, and fails to open a
+ * file that is locked by another controller or process.
+ * <p>
+ * Keys are matched by their string form, which includes every value the key was built from. Values that are not byte
+ * arrays are serialized with Java serialization and are not cached if they are not serializable.
+ */
+public class MappedFileCacheController implements CacheController {
+
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(MappedFileCacheController.class);
+
+  /** The file magic number. */
+  private static final int MAGIC = 0x69424331;
+
+  /** The file format version. */
+  private static final int VERSION = 2;
+
+  /** The header size. */
+  private static final int HEADER_SIZE = 64;
+
+  /** The position of the flush epoch in the header. */
+  private static final int EPOCH_POSITION = 8;
+
+  /** The position of the last flush time in the header. */
+  private static final int LAST_FLUSH_POSITION = 16;
+
+  /** The position of the write position in the header. */
+  private static final int WRITE_POSITION = 24;
+
+  /** The size of a record header: length, epoch, write time, type and key length. */
+  private static final int RECORD_HEADER_SIZE = 4 + 8 + 8 + 1 + 4;
+
+  /** The position of the write time in a record. */
+  private static final int RECORD_TIME = 12;
+
+  /** The position of the type in a record. */
+  private static final int RECORD_TYPE = 20;
+
+  /** The position of the key length in a record. */
+  private static final int RECORD_KEY_LENGTH = 21;
+
+  /** Record type for a byte array value. */
+  private static final byte TYPE_BYTES = 0;
+
+  /** Record type for the cached null marker. */
+  private static final byte TYPE_NULL = 1;
+
+  /** Record type for a value serialized by this controller. */
+  private static final byte TYPE_OBJECT = 2;
+
+  /** Record type for a removed key. */
+  private static final byte TYPE_REMOVED = 3;
+
+  /** The file. */
+  private String file;
+
+  /** The directory used when no file is given. */
+  private String directory;
+
+  /** The capacity of the file in bytes. */
+  private long capacity = 64L * 1024L * 1024L;
+
+  /** The channel of the file, kept open while the lock is held. */
+  private FileChannel channel;
+
+  /** The exclusive lock on the file. */
+  private FileLock lock;
+
+  /** The mapped file, opened on first use. */
+  private MappedByteBuffer buffer;
+
+  /** The current flush epoch. */
+  private long epoch;
+
+  /** The position where the next record is written. */
+  private int writePosition;
+
+  /** The time after which the entries restored from the file are stale, or 0 if there is no such time. */
+  private long restoredExpiry;
+
+  /** The position of the record of each cached key. */
+  private final Map<String, Integer> index = new HashMap<>();
+
+  /** The expiry time of each restored entry, when the cache model has a time to live. */
+  private final Map<String, Long> restoredExpiries = new HashMap<>();
+
+  /**
+   * Gets the file.
+   *
+   * @return the file
+   */
+  public String getFile() {
+    return file;
+  }
+
+  /**
+   * Sets the file. Must be called before the cache is used.
+   *
+   * @param file
+   *          the new file
+   */
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  /**
+   * Gets the directory.
+   *
+   * @return the directory
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Sets the directory in which the file is named after the cache model. Must be called before the cache is used.
+   *
+   * @param directory
+   *          the new directory
+   */
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Gets the capacity.
+   *
+   * @return the capacity in bytes
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the capacity. Must be called before the cache is used.
+   *
+   * @param capacity
+   *          the new capacity in bytes
+   */
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Configures the cache
+   *
+   * @param props
+   *          Must contain either a file or a directory property, and optionally can contain properties
+   *          [file=path, directory=path, capacity=n[K|M|G]]
+   */
+  @Override
+  public void setProperties(Properties props) {
+    String value = props.getProperty("file");
+    if (value != null) {
+      file = value;
+    }
+    value = props.getProperty("directory");
+    if (value != null) {
+      directory = value;
+    }
+    value = props.getProperty("capacity");
+    if (value != null) {
+      capacity = CacheMemoryBudget.parseSize(value);
+    }
+  }
+
+  /**
+   * Add an object to the cache
+   *
+   * @param cacheModel
+   *          The cacheModel
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   */
+  @Override
+  public synchronized void putObject(CacheModel cacheModel, Object key, Object value) {
+    open(cacheModel);
+    byte type;
+    byte[] bytes;
+    if (value == CacheModel.NULL_OBJECT) {
+      type = TYPE_NULL;
+      bytes = new byte[0];
+    } else if (value instanceof byte[]) {
+      type = TYPE_BYTES;
+      bytes = (byte[]) value;
+    } else {
+      type = TYPE_OBJECT;
+      bytes = serialize(value);
+      if (bytes == null) {
+        removeObject(cacheModel, key);
+        return;
+      }
+    }
+    String keyString = key.toString();
+    restoredExpiries.remove(keyString);
+    Integer position = append(keyString, type, bytes);
+    if (position == null) {
+      // too large for the file, so make sure an older value is not restored later
+      if (index.remove(keyString) != null) {
+        append(keyString, TYPE_REMOVED, new byte[0]);
+      }
+    } else {
+      index.put(keyString, position);
+    }
+  }
+
+  /**
+   * Get an object out of the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   * @param key
+   *          The key of the object to be returned
+   *
+   * @return The cached object (or null)
+   */
+  @Override
+  public synchronized Object getObject(CacheModel cacheModel, Object key) {
+    open(cacheModel);
+    if (restoredExpiry != 0 && System.currentTimeMillis() > restoredExpiry) {
+      if (log.isDebugEnabled()) {
+        log.debug("Discarding restored entries of " + file + " after the flush interval elapsed.");
+      }
+      flush(cacheModel);
+    }
+    String keyString = key.toString();
+    Long expiry = restoredExpiries.get(keyString);
+    if (expiry != null && System.currentTimeMillis() >= expiry.longValue()) {
+      removeObject(cacheModel, key);
+      return null;
+    }
+    Integer position = index.get(keyString);
+    return position == null ? null : readValue(position.intValue());
+  }
+
+  @Override
+  public synchronized Object removeObject(CacheModel cacheModel, Object key) {
+    open(cacheModel);
+    String keyString = key.toString();
+    restoredExpiries.remove(keyString);
+    Integer position = index.remove(keyString);
+    if (position == null) {
+      return null;
+    }
+    Object value = readValue(position.intValue());
+    append(keyString, TYPE_REMOVED, new byte[0]);
+    return value;
+  }
+
+  /**
+   * Flushes the cache by advancing the flush epoch in the file header.
+   *
+   * @param cacheModel
+   *          The cache model
+   */
+  @Override
+  public synchronized void flush(CacheModel cacheModel) {
+    open(cacheModel);
+    index.clear();
+    restoredExpiries.clear();
+    restoredExpiry = 0;
+    epoch++;
+    writePosition = HEADER_SIZE;
+    buffer.putLong(EPOCH_POSITION, epoch);
+    buffer.putLong(LAST_FLUSH_POSITION, System.currentTimeMillis());
+    buffer.putInt(WRITE_POSITION, writePosition);
+  }
+
+  /**
+   * Releases the lock on the file and unmaps it, so that another controller can open it. The controller opens the file
+   * again when it is used after being closed.
+   */
+  public synchronized void close() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.warn("Error closing cache file " + file + ".  Cause: " + e);
+    }
+    channel = null;
+    lock = null;
+    buffer = null;
+    index.clear();
+    restoredExpiries.clear();
+    restoredExpiry = 0;
+  }
+
+  /**
+   * Maps and locks the file and restores the index of the current epoch, if not done yet.
+   *
+   * @param cacheModel
+   *          the cache model
+   */
+  private void open(CacheModel cacheModel) {
+    if (buffer != null) {
+      return;
+    }
+    String name = cacheModel == null || cacheModel.getId() == null ? "cache" : cacheModel.getId();
+    if (file == null) {
+      if (directory == null) {
+        throw new SqlMapException(
+            "The mapped file cache model " + name + " requires a file or directory property.");
+      }
+      file = new File(directory, name.replaceAll("[^A-Za-z0-9._-]", "_") + ".cache").getPath();
+    }
+    if (capacity > Integer.MAX_VALUE || capacity < HEADER_SIZE) {
+      throw new SqlMapException("The capacity of a mapped file cache must be between " + HEADER_SIZE + " and "
+          + Integer.MAX_VALUE + " bytes.");
+    }
+    FileChannel opened = null;
+    try {
+      opened = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      lock = opened.tryLock();
+      if (lock == null) {
+        throw new SqlMapException("The cache file " + file + " is locked by another process.");
+      }
+      buffer = opened.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+      channel = opened;
+    } catch (OverlappingFileLockException e) {
+      close(opened);
+      throw new SqlMapException("The cache file " + file + " is already used by another cache controller.", e);
+    } catch (IOException e) {
+      close(opened);
+      throw new SqlMapException("Error mapping cache file " + file + ".  Cause: " + e, e);
+    } catch (RuntimeException e) {
+      close(opened);
+      throw e;
+    }
+    long flushInterval = cacheModel == null ? 0 : cacheModel.getFlushInterval();
+    long timeToLive = cacheModel == null ? 0 : cacheModel.getTimeToLive();
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      buffer.putInt(0, MAGIC);
+      buffer.putInt(4, VERSION);
+      epoch = 0;
+      flush(cacheModel);
+      return;
+    }
+    epoch = buffer.getLong(EPOCH_POSITION);
+    long lastFlush = buffer.getLong(LAST_FLUSH_POSITION);
+    int end = buffer.getInt(WRITE_POSITION);
+    if (end < HEADER_SIZE || end > capacity || flushInterval <= 0 && timeToLive <= 0
+        || flushInterval > 0 && System.currentTimeMillis() - lastFlush > flushInterval) {
+      flush(cacheModel);
+      return;
+    }
+    restore(end, timeToLive);
+    if (flushInterval > 0 && !index.isEmpty()) {
+      restoredExpiry = lastFlush + flushInterval;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Restored " + index.size() + " entries from cache file " + file + ".");
+    }
+  }
+
+  /**
+   * Closes a channel that could not be opened completely.
+   *
+   * @param opened
+   *          the channel, may be null
+   */
+  private void close(FileChannel opened) {
+    lock = null;
+    buffer = null;
+    if (opened != null) {
+      try {
+        opened.close();
+      } catch (IOException e) {
+        log.warn("Error closing cache file " + file + ".  Cause: " + e);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the index from the records of the current epoch, leaving out the records whose time to live has elapsed.
+   *
+   * @param end
+   *          the end of the written records
+   * @param timeToLive
+   *          the time to live of the cache model, or 0 if there is none
+   */
+  private void restore(int end, long timeToLive) {
+    long now = System.currentTimeMillis();
+    int position = HEADER_SIZE;
+    while (position + RECORD_HEADER_SIZE <= end) {
+      int length = buffer.getInt(position);
+      if (length < RECORD_HEADER_SIZE || position + length > end) {
+        break;
+      }
+      if (buffer.getLong(position + 4) == epoch) {
+        String key = readKey(position);
+        long expiry = timeToLive > 0 ? buffer.getLong(position + RECORD_TIME) + timeToLive : 0;
+        if (buffer.get(position + RECORD_TYPE) == TYPE_REMOVED || timeToLive > 0 && expiry <= now) {
+          index.remove(key);
+          restoredExpiries.remove(key);
+        } else {
+          index.put(key, Integer.valueOf(position));
+          if (timeToLive > 0) {
+            restoredExpiries.put(key, Long.valueOf(expiry));
+          }
+        }
+      }
+      position += length;
+    }
+    writePosition = position;
+  }
+
+  /**
+   * Appends a record, compacting the file first if it is full.
+   *
+   * @param key
+   *          the key
+   * @param type
+   *          the record type
+   * @param value
+   *          the value
+   *
+   * @return the position of the record, or null if it does not fit in the file
+   */
+  private Integer append(String key, byte type, byte[] value) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    long length = (long) RECORD_HEADER_SIZE + keyBytes.length + 4 + value.length;
+    if (HEADER_SIZE + length > capacity) {
+      return null;
+    }
+    if (writePosition + length > capacity) {
+      compact();
+      if (writePosition + length > capacity) {
+        flush(null);
+      }
+    }
+    int position = writePosition;
+    buffer.position(position);
+    buffer.putInt((int) length);
+    buffer.putLong(epoch);
+    buffer.putLong(System.currentTimeMillis());
+    buffer.put(type);
+    buffer.putInt(keyBytes.length);
+    buffer.put(keyBytes);
+    buffer.putInt(value.length);
+    buffer.put(value);
+    writePosition = position + (int) length;
+    buffer.putInt(WRITE_POSITION, writePosition);
+    return Integer.valueOf(position);
+  }
+
+  /**
+   * Rewrites the live records at the start of the file, dropping removed and overwritten ones.
+   */
+  private void compact() {
+    List<byte[]> live = new ArrayList<>(index.size());
+    List<String> keys = new ArrayList<>(index.size());
+    for (Map.Entry<String, Integer> entry : index.entrySet()) {
+      int position = entry.getValue().intValue();
+      byte[] record = new byte[buffer.getInt(position)];
+      buffer.position(position);
+      buffer.get(record);
+      live.add(record);
+      keys.add(entry.getKey());
+    }
+    index.clear();
+    writePosition = HEADER_SIZE;
+    for (int i = 0; i < live.size(); i++) {
+      byte[] record = live.get(i);
+      buffer.position(writePosition);
+      buffer.put(record);
+      index.put(keys.get(i), Integer.valueOf(writePosition));
+      writePosition += record.length;
+    }
+    buffer.putInt(WRITE_POSITION, writePosition);
+  }
+
+  /**
+   * Reads the key of a record.
+   *
+   * @param position
+   *          the position of the record
+   *
+   * @return the key
+   */
+  private String readKey(int position) {
+    byte[] keyBytes = new byte[buffer.getInt(position + RECORD_KEY_LENGTH)];
+    buffer.position(position + RECORD_HEADER_SIZE);
+    buffer.get(keyBytes);
+    return new String(keyBytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Reads the value of a record.
+   *
+   * @param position
+   *          the position of the record
+   *
+   * @return the value
+   */
+  private Object readValue(int position) {
+    byte type = buffer.get(position + RECORD_TYPE);
+    if (type == TYPE_NULL) {
+      return CacheModel.NULL_OBJECT;
+    }
+    int valuePosition = position + RECORD_HEADER_SIZE + buffer.getInt(position + RECORD_KEY_LENGTH);
+    byte[] value = new byte[buffer.getInt(valuePosition)];
+    buffer.position(valuePosition + 4);
+    buffer.get(value);
+    return type == TYPE_OBJECT ? deserialize(value) : value;
+  }
+
+  /**
+   * Serializes a value.
+   *
+   * @param value
+   *          the value
+   *
+   * @return the bytes, or null if the value is not serializable
+   */
+  private static byte[] serialize(Object value) {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(value);
+      }
+      return bos.toByteArray();
+    } catch (NotSerializableException e) {
+      return null;
+    } catch (IOException e) {
+      throw new SqlMapException("Error serializing cached object.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Deserializes a value.
+   *
+   * @param bytes
+   *          the bytes
+   *
+   * @return the value
+   */
+  private static Object deserialize(byte[] bytes) {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    } catch (Exception e) {
+      throw new SqlMapException("Error deserializing cached object.  Cause: " + e, e);
+    }
+  }
+
+}
@@ -18,29 +18,46 @@ package com.ibatis.sqlmap.engine.cache.memory;
 import com.ibatis.sqlmap.engine.cache.CacheController;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Memory-based implementation of CacheController.
+ * <p>
+ * With weak or soft references, the garbage collector reclaims the cached values under memory pressure, and the
+ * entries whose values were reclaimed are expunged as the cache is used. The cache can also be bounded, in which case
+ * arbitrary entries are evicted when it is full.
  */
 public class MemoryCacheController implements CacheController {
 
   /** The reference type. */
   private MemoryCacheLevel referenceType = MemoryCacheLevel.WEAK;
 
+  /** The maximum number of entries, 0 for no limit. */
+  private int cacheSize;
+
   /** The cache. */
-  private Map cache = Collections.synchronizedMap(new HashMap<>());
+  private final ConcurrentHashMap<Object, Object> cache = new ConcurrentHashMap<>();
+
+  /** The queue of the references whose values were reclaimed. */
+  private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
 
   /**
    * Configures the cache
    *
    * @param props
-   *          Optionally can contain properties [reference-type=WEAK|SOFT|STRONG]
+   *          Optionally can contain properties [reference-type=WEAK|SOFT|STRONG] and [cache-size=n|size=n]
    */
   @Override
   public void setProperties(Properties props) {
@@ -51,6 +68,13 @@ public class MemoryCacheController implements CacheController {
     if (refType != null) {
       referenceType = MemoryCacheLevel.getByReferenceType(refType);
     }
+    String size = props.getProperty("cache-size");
+    if (size == null) {
+      size = props.getProperty("size");
+    }
+    if (size != null) {
+      setCacheSize(Integer.parseInt(size));
+    }
   }
 
   /**
@@ -72,6 +96,25 @@ public class MemoryCacheController implements CacheController {
     this.referenceType = referenceType;
   }
 
+  /**
+   * Gets the maximum number of entries.
+   *
+   * @return the cache size, 0 for no limit
+   */
+  public int getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Sets the maximum number of entries.
+   *
+   * @param cacheSize
+   *          the new cache size, 0 for no limit
+   */
+  public void setCacheSize(int cacheSize) {
+    this.cacheSize = Math.max(cacheSize, 0);
+  }
+
   /**
    * Add an object to the cache
    *
@@ -84,15 +127,19 @@ public class MemoryCacheController implements CacheController {
    */
   @Override
   public void putObject(CacheModel cacheModel, Object key, Object value) {
-    Object reference = null;
-    if (referenceType.equals(MemoryCacheLevel.WEAK)) {
-      reference = new WeakReference(value);
-    } else if (referenceType.equals(MemoryCacheLevel.SOFT)) {
-      reference = new SoftReference(value);
+    expungeStaleEntries();
+    Object reference;
+    if (referenceType.equals(MemoryCacheLevel.SOFT)) {
+      reference = new KeyedSoftReference(key, value, queue);
     } else if (referenceType.equals(MemoryCacheLevel.STRONG)) {
       reference = new StrongReference(value);
+    } else {
+      reference = new KeyedWeakReference(key, value, queue);
     }
     cache.put(key, reference);
+    if (cacheSize > 0 && cache.size() > cacheSize) {
+      evict(key);
+    }
   }
 
   /**
@@ -107,34 +154,42 @@ public class MemoryCacheController implements CacheController {
    */
   @Override
   public Object getObject(CacheModel cacheModel, Object key) {
-    Object value = null;
+    expungeStaleEntries();
     Object ref = cache.get(key);
-    if (ref != null) {
-      if (ref instanceof StrongReference) {
-        value = ((StrongReference) ref).get();
-      } else if (ref instanceof SoftReference) {
-        value = ((SoftReference) ref).get();
-      } else if (ref instanceof WeakReference) {
-        value = ((WeakReference) ref).get();
-      }
+    Object value = dereference(ref);
+    if (value == null && ref instanceof Reference) {
+      // reclaimed, but not enqueued yet
+      cache.remove(key, ref);
     }
     return value;
   }
 
   @Override
   public Object removeObject(CacheModel cacheModel, Object key) {
-    Object value = null;
-    Object ref = cache.remove(key);
-    if (ref != null) {
-      if (ref instanceof StrongReference) {
-        value = ((StrongReference) ref).get();
-      } else if (ref instanceof SoftReference) {
-        value = ((SoftReference) ref).get();
-      } else if (ref instanceof WeakReference) {
-        value = ((WeakReference) ref).get();
-      }
-    }
-    return value;
+    expungeStaleEntries();
+    return dereference(cache.remove(key));
+  }
+
+  @Override
+  public boolean removeObject(CacheModel cacheModel, Object key, Object object) {
+    expungeStaleEntries();
+    boolean[] removed = new boolean[1];
+    cache.computeIfPresent(key, (k, ref) -> {
+      removed[0] = dereference(ref) == object;
+      return removed[0] ? null : ref;
+    });
+    return removed[0];
+  }
+
+  @Override
+  public List<Object> getKeys() {
+    expungeStaleEntries();
+    return new ArrayList<>(cache.keySet());
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
   }
 
   /**
@@ -146,6 +201,141 @@ public class MemoryCacheController implements CacheController {
   @Override
   public void flush(CacheModel cacheModel) {
     cache.clear();
+    expungeStaleEntries();
+  }
+
+  /**
+   * Clears and enqueues the reference of an entry as the garbage collector would when reclaiming its value. Used by
+   * tests to expunge entries without depending on the garbage collector.
+   *
+   * @param key
+   *          the key of the entry
+   */
+  void reclaim(Object key) {
+    Object ref = cache.get(key);
+    if (ref instanceof Reference) {
+      ((Reference<?>) ref).clear();
+      ((Reference<?>) ref).enqueue();
+    }
+  }
+
+  /**
+   * Removes the entries whose values were reclaimed by the garbage collector. An entry is only removed if it still
+   * holds the reclaimed reference, so that a value put again under the same key is kept.
+   */
+  private void expungeStaleEntries() {
+    Reference<?> reference;
+    while ((reference = queue.poll()) != null) {
+      if (cache.remove(((KeyedReference) reference).getKey(), reference)) {
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Evicts entries until the cache is back to its size.
+   *
+   * @param keep
+   *          the key of the entry just put, which is not evicted
+   */
+  private void evict(Object keep) {
+    Iterator<Object> keys = cache.keySet().iterator();
+    while (cache.size() > cacheSize && keys.hasNext()) {
+      Object key = keys.next();
+      if (!key.equals(keep)) {
+        keys.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  /**
+   * Gets the value held by a reference.
+   *
+   * @param ref
+   *          the reference, may be null
+   *
+   * @return the value, or null if it was reclaimed
+   */
+  private static Object dereference(Object ref) {
+    if (ref instanceof StrongReference) {
+      return ((StrongReference) ref).get();
+    }
+    if (ref instanceof Reference) {
+      return ((Reference<?>) ref).get();
+    }
+    return null;
+  }
+
+  /**
+   * A reference that knows the key of its entry, so that the entry can be expunged once the value is reclaimed.
+   */
+  private interface KeyedReference {
+
+    /**
+     * Gets the key.
+     *
+     * @return the key
+     */
+    Object getKey();
+  }
+
+  /**
+   * Weak reference to a cached value.
+   */
+  private static class KeyedWeakReference extends WeakReference<Object> implements KeyedReference {
+
+    /** The key. */
+    private final Object key;
+
+    /**
+     * Instantiates a new keyed weak reference.
+     *
+     * @param key
+     *          the key
+     * @param value
+     *          the value
+     * @param queue
+     *          the queue
+     */
+    KeyedWeakReference(Object key, Object value, ReferenceQueue<Object> queue) {
+      super(value, queue);
+      this.key = key;
+    }
+
+    @Override
+    public Object getKey() {
+      return key;
+    }
+  }
+
+  /**
+   * Soft reference to a cached value.
+   */
+  private static class KeyedSoftReference extends SoftReference<Object> implements KeyedReference {
+
+    /** The key. */
+    private final Object key;
+
+    /**
+     * Instantiates a new keyed soft reference.
+     *
+     * @param key
+     *          the key
+     * @param value
+     *          the value
+     * @param queue
+     *          the queue
+     */
+    KeyedSoftReference(Object key, Object value, ReferenceQueue<Object> queue) {
+      super(value, queue);
+      this.key = key;
+    }
+
+    @Override
+    public Object getKey() {
+      return key;
+    }
   }
 
   /**
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.offheap;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.weighted.CacheMemoryBudget;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache controller that keeps serialized values in direct memory, outside the Java heap.
+ * <p>
+ * It is meant for cache models with <code>serialize="true"</code> and <code>readOnly="false"</code>, whose values reach
+ * the controller as byte arrays. Those bytes are copied into chunks of direct byte buffer slabs, and only a small index
+ * entry stays on the heap. Any other value (such as the marker for a cached null) is kept on the heap as is, and is
+ * charged one chunk of the capacity so that the heap entries stay bounded too. When the slabs are full, the least
+ * recently used entries are evicted.
+ */
+public class OffHeapCacheController implements CacheController {
+
+  /** The capacity in bytes. */
+  private long capacity = 64L * 1024L * 1024L;
+
+  /** The slab size in bytes. */
+  private int slabSize = 8 * 1024 * 1024;
+
+  /** The chunk size in bytes. */
+  private int chunkSize = 512;
+
+  /** The allocator, created on first use. */
+  private SlabAllocator allocator;
+
+  /** The index of the cached entries, in access order. */
+  private final LinkedHashMap<Object, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
+
+  /** The number of entries kept on the heap, each charged one chunk. */
+  private int heapEntries;
+
+  /**
+   * Gets the capacity.
+   *
+   * @return the capacity in bytes
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the capacity. Must be called before the cache is used.
+   *
+   * @param capacity
+   *          the new capacity in bytes
+   */
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Gets the slab size.
+   *
+   * @return the slab size in bytes
+   */
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /**
+   * Sets the slab size. Must be called before the cache is used.
+   *
+   * @param slabSize
+   *          the new slab size in bytes
+   */
+  public void setSlabSize(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  /**
+   * Gets the chunk size.
+   *
+   * @return the chunk size in bytes
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Sets the chunk size. Must be called before the cache is used.
+   *
+   * @param chunkSize
+   *          the new chunk size in bytes
+   */
+  public void setChunkSize(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Gets the bytes of direct memory reserved so far.
+   *
+   * @return the reserved bytes
+   */
+  public synchronized long getReservedBytes() {
+    return allocator == null ? 0 : allocator.getReservedBytes();
+  }
+
+  /**
+   * Configures the cache
+   *
+   * @param props
+   *          Optionally can contain properties [capacity=n[K|M|G], slab-size=n[K|M|G], chunk-size=n[K|M|G]]
+   */
+  @Override
+  public void setProperties(Properties props) {
+    String value = props.getProperty("capacity");
+    if (value != null) {
+      capacity = CacheMemoryBudget.parseSize(value);
+    }
+    value = props.getProperty("slab-size");
+    if (value == null) {
+      value = props.getProperty("slabSize");
+    }
+    if (value != null) {
+      slabSize = (int) CacheMemoryBudget.parseSize(value);
+    }
+    value = props.getProperty("chunk-size");
+    if (value == null) {
+      value = props.getProperty("chunkSize");
+    }
+    if (value != null) {
+      chunkSize = (int) CacheMemoryBudget.parseSize(value);
+    }
+  }
+
+  /**
+   * Add an object to the cache
+   *
+   * @param cacheModel
+   *          The cacheModel
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   */
+  @Override
+  public synchronized void putObject(CacheModel cacheModel, Object key, Object value) {
+    release(index.remove(key));
+    SlabAllocator slabs = getAllocator();
+    if (!(value instanceof byte[])) {
+      evictFor(slabs, 1);
+      heapEntries++;
+      index.put(key, new Entry(value, null, 0));
+      return;
+    }
+    byte[] bytes = (byte[]) value;
+    int needed = slabs.chunksFor(bytes.length);
+    if (needed > slabs.getChunkCapacity()) {
+      return;
+    }
+    evictFor(slabs, needed);
+    index.put(key, new Entry(null, slabs.store(bytes), bytes.length));
+  }
+
+  /**
+   * Get an object out of the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   * @param key
+   *          The key of the object to be returned
+   *
+   * @return The cached object (or null)
+   */
+  @Override
+  public synchronized Object getObject(CacheModel cacheModel, Object key) {
+    Entry entry = index.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.chunks == null) {
+      return entry.value;
+    }
+    return allocator.read(entry.chunks, entry.length);
+  }
+
+  @Override
+  public synchronized Object removeObject(CacheModel cacheModel, Object key) {
+    Entry entry = index.remove(key);
+    if (entry == null) {
+      return null;
+    }
+    Object value = entry.chunks == null ? entry.value : allocator.read(entry.chunks, entry.length);
+    release(entry);
+    return value;
+  }
+
+  @Override
+  public synchronized List<Object> getKeys() {
+    return new ArrayList<>(index.keySet());
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public long getEstimatedSize() {
+    return getReservedBytes();
+  }
+
+  /**
+   * Flushes the cache. The slabs are kept for reuse.
+   *
+   * @param cacheModel
+   *          The cache model
+   */
+  @Override
+  public synchronized void flush(CacheModel cacheModel) {
+    for (Map.Entry<Object, Entry> mapEntry : index.entrySet()) {
+      release(mapEntry.getValue());
+    }
+    index.clear();
+  }
+
+  /**
+   * Evicts the least recently used entries until the given number of chunks is available.
+   *
+   * @param slabs
+   *          the allocator
+   * @param needed
+   *          the number of chunks needed
+   */
+  private void evictFor(SlabAllocator slabs, int needed) {
+    Iterator<Entry> eldest = index.values().iterator();
+    while (slabs.getFreeChunkCount() - heapEntries < needed && eldest.hasNext()) {
+      release(eldest.next());
+      eldest.remove();
+      evictions.increment();
+    }
+  }
+
+  /**
+   * Gets the allocator, creating it on first use.
+   *
+   * @return the allocator
+   */
+  private SlabAllocator getAllocator() {
+    if (allocator == null) {
+      allocator = new SlabAllocator(capacity, (int) Math.min(slabSize, capacity), chunkSize);
+    }
+    return allocator;
+  }
+
+  /**
+   * Returns the chunks of an entry to the allocator.
+   *
+   * @param entry
+   *          the entry, may be null
+   */
+  private void release(Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    if (entry.chunks != null) {
+      allocator.free(entry.chunks);
+    } else {
+      heapEntries--;
+    }
+  }
+
+  /**
+   * The heap side of a cached entry.
+   */
+  private static class Entry {
+
+    /** The value, when it is kept on the heap. */
+    private final Object value;
+
+    /** The chunks holding the value, when it is kept off the heap. */
+    private final int[] chunks;
+
+    /** The length of the value kept off the heap. */
+    private final int length;
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param value
+     *          the heap value
+     * @param chunks
+     *          the chunks
+     * @param length
+     *          the length
+     */
+    Entry(Object value, int[] chunks, int length) {
+      this.value = value;
+      this.chunks = chunks;
+      this.length = length;
+    }
+  }
+
+}
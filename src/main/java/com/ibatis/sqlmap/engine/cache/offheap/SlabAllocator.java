@@ -0,0 +1,190 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hands out fixed-size chunks of direct memory. Memory is reserved in slabs of direct byte buffers, which are
+ * allocated on demand until the capacity is reached and then kept for reuse. A value is stored in as many chunks as it
+ * needs, so freed space can always be reused without compaction. The allocator is not thread safe; callers synchronize
+ * on the owning controller.
+ */
+class SlabAllocator {
+
+  /** The chunk size. */
+  private final int chunkSize;
+
+  /** The number of chunks per slab. */
+  private final int chunksPerSlab;
+
+  /** The slabs, allocated on demand. */
+  private final ByteBuffer[] slabs;
+
+  /** The free chunk numbers, used as a stack. */
+  private int[] freeChunks;
+
+  /** The number of free chunk numbers on the stack. */
+  private int freeCount;
+
+  /** The number of chunks in the allocated slabs. */
+  private int allocatedChunks;
+
+  /**
+   * Instantiates a new slab allocator.
+   *
+   * @param capacity
+   *          the maximum number of bytes of direct memory to reserve
+   * @param slabSize
+   *          the size of each slab in bytes
+   * @param chunkSize
+   *          the size of each chunk in bytes
+   */
+  SlabAllocator(long capacity, int slabSize, int chunkSize) {
+    if (chunkSize <= 0 || slabSize < chunkSize) {
+      throw new IllegalArgumentException("The slab size must be at least the chunk size, which must be positive.");
+    }
+    this.chunkSize = chunkSize;
+    this.chunksPerSlab = slabSize / chunkSize;
+    long slabCount = Math.max(1, capacity / ((long) chunksPerSlab * chunkSize));
+    if (slabCount * chunksPerSlab > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many chunks; use a larger chunk size.");
+    }
+    this.slabs = new ByteBuffer[(int) slabCount];
+    this.freeChunks = new int[chunksPerSlab];
+  }
+
+  /**
+   * Gets the total number of chunks this allocator can hand out.
+   *
+   * @return the chunk capacity
+   */
+  int getChunkCapacity() {
+    return slabs.length * chunksPerSlab;
+  }
+
+  /**
+   * Gets the number of chunks available without evicting.
+   *
+   * @return the free chunk count
+   */
+  int getFreeChunkCount() {
+    return freeCount + getChunkCapacity() - allocatedChunks;
+  }
+
+  /**
+   * Gets the number of chunks needed to store a value.
+   *
+   * @param length
+   *          the length of the value
+   *
+   * @return the chunk count
+   */
+  int chunksFor(int length) {
+    return Math.max(1, (length + chunkSize - 1) / chunkSize);
+  }
+
+  /**
+   * Gets the bytes of direct memory reserved so far.
+   *
+   * @return the reserved bytes
+   */
+  long getReservedBytes() {
+    return (long) allocatedChunks * chunkSize;
+  }
+
+  /**
+   * Stores a value. The caller must make sure enough chunks are free.
+   *
+   * @param value
+   *          the value
+   *
+   * @return the chunk numbers holding the value
+   */
+  int[] store(byte[] value) {
+    int[] chunks = new int[chunksFor(value.length)];
+    int offset = 0;
+    for (int i = 0; i < chunks.length; i++) {
+      int chunk = allocate();
+      chunks[i] = chunk;
+      int length = Math.min(chunkSize, value.length - offset);
+      ByteBuffer slab = slabs[chunk / chunksPerSlab];
+      slab.position(chunk % chunksPerSlab * chunkSize);
+      slab.put(value, offset, length);
+      offset += length;
+    }
+    return chunks;
+  }
+
+  /**
+   * Reads a value back onto the heap.
+   *
+   * @param chunks
+   *          the chunk numbers holding the value
+   * @param length
+   *          the length of the value
+   *
+   * @return the value
+   */
+  byte[] read(int[] chunks, int length) {
+    byte[] value = new byte[length];
+    int offset = 0;
+    for (int chunk : chunks) {
+      int part = Math.min(chunkSize, length - offset);
+      ByteBuffer slab = slabs[chunk / chunksPerSlab];
+      slab.position(chunk % chunksPerSlab * chunkSize);
+      slab.get(value, offset, part);
+      offset += part;
+    }
+    return value;
+  }
+
+  /**
+   * Returns chunks to the allocator.
+   *
+   * @param chunks
+   *          the chunk numbers
+   */
+  void free(int[] chunks) {
+    if (freeCount + chunks.length > freeChunks.length) {
+      int[] grown = new int[Math.max(freeChunks.length * 2, freeCount + chunks.length)];
+      System.arraycopy(freeChunks, 0, grown, 0, freeCount);
+      freeChunks = grown;
+    }
+    System.arraycopy(chunks, 0, freeChunks, freeCount, chunks.length);
+    freeCount += chunks.length;
+  }
+
+  /**
+   * Takes a free chunk, reserving a new slab when every allocated chunk is in use.
+   *
+   * @return the chunk number
+   */
+  private int allocate() {
+    if (freeCount > 0) {
+      return freeChunks[--freeCount];
+    }
+    if (allocatedChunks == getChunkCapacity()) {
+      throw new IllegalStateException("The off-heap cache is out of chunks.");
+    }
+    int slab = allocatedChunks / chunksPerSlab;
+    if (slabs[slab] == null) {
+      slabs[slab] = ByteBuffer.allocateDirect(chunksPerSlab * chunkSize);
+    }
+    return allocatedChunks++;
+  }
+
+}
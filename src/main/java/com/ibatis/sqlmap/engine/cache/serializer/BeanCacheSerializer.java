@@ -0,0 +1,948 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.serializer;
+
+import com.ibatis.common.beans.ClassInfo;
+import com.ibatis.common.resources.Resources;
+import com.ibatis.sqlmap.engine.cache.CacheSerializer;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache serializer that writes beans field by field in a compact binary form, which is much faster than Java
+ * serialization for the plain result objects of a query.
+ * <p>
+ * A class is encoded field by field when it is serializable, can be created through the default constructor known to
+ * {@link ClassInfo}, and neither it nor its serializable superclasses customize serialization. Strings, boxed
+ * primitives, dates, big numbers, enums, byte arrays and the common collections and maps are encoded directly. Shared
+ * references and cycles are preserved. Any other object is written with Java serialization, which is also used for
+ * the whole value if its top level object is not supported. Output buffers are kept per thread and reused.
+ */
+public class BeanCacheSerializer implements CacheSerializer {
+
+  /** The first byte of a value written by this serializer. Java serialization streams start with 0xAC. */
+  private static final byte FORMAT = 0x42;
+
+  /** Buffers larger than this are not kept for reuse. */
+  private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+  // the tags that start each encoded value
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte BOOLEAN = 7;
+  private static final byte CHARACTER = 8;
+  private static final byte FLOAT = 9;
+  private static final byte DOUBLE = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte TIMESTAMP = 16;
+  private static final byte BYTES = 17;
+  private static final byte ENUM = 18;
+  private static final byte COLLECTION = 19;
+  private static final byte MAP = 20;
+  private static final byte BEAN = 21;
+  private static final byte JAVA = 22;
+
+  /** The collection classes written directly, indexed by their kind. */
+  private static final Class<?>[] COLLECTION_TYPES = { ArrayList.class, LinkedList.class, HashSet.class,
+      LinkedHashSet.class, TreeSet.class };
+
+  /** The map classes written directly, indexed by their kind. */
+  private static final Class<?>[] MAP_TYPES = { HashMap.class, LinkedHashMap.class, TreeMap.class };
+
+  /** The layouts of the classes seen so far; {@link Layout#UNSUPPORTED} for classes that are not encoded directly. */
+  private static final Map<Class<?>, Layout> LAYOUTS = new ConcurrentHashMap<>();
+
+  /** The output of each thread. */
+  private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
+  /** The serializer for values that cannot be encoded directly. */
+  private final JavaCacheSerializer java = new JavaCacheSerializer();
+
+  @Override
+  public byte[] serialize(Object value) throws IOException {
+    if (!isDirect(value)) {
+      return java.serialize(value);
+    }
+    Output out = OUTPUT.get();
+    try {
+      out.writeByte(FORMAT);
+      writeValue(out, value);
+      return out.toByteArray();
+    } finally {
+      if (out.buffer.length > MAX_RETAINED_BUFFER) {
+        OUTPUT.remove();
+      } else {
+        out.reset();
+      }
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    if (bytes.length == 0 || bytes[0] != FORMAT) {
+      return java.deserialize(bytes);
+    }
+    Input in = new Input(bytes);
+    in.position = 1;
+    return readValue(in);
+  }
+
+  /**
+   * Tells if the top level object of a value is encoded directly.
+   *
+   * @param value
+   *          the value
+   *
+   * @return true if it is
+   */
+  private static boolean isDirect(Object value) {
+    return value instanceof Collection && kindOf(COLLECTION_TYPES, value) >= 0
+        || value instanceof Map && kindOf(MAP_TYPES, value) >= 0 || layoutOf(value.getClass()) != Layout.UNSUPPORTED;
+  }
+
+  /**
+   * Write value.
+   *
+   * @param out
+   *          the out
+   * @param value
+   *          the value
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private void writeValue(Output out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (type == String.class) {
+      out.writeByte(STRING);
+      out.writeString((String) value);
+    } else if (type == Integer.class) {
+      out.writeByte(INTEGER);
+      out.writeInt(((Integer) value).intValue());
+    } else if (type == Long.class) {
+      out.writeByte(LONG);
+      out.writeLong(((Long) value).longValue());
+    } else if (type == Short.class) {
+      out.writeByte(SHORT);
+      out.writeInt(((Short) value).shortValue());
+    } else if (type == Byte.class) {
+      out.writeByte(BYTE);
+      out.writeByte(((Byte) value).byteValue());
+    } else if (type == Boolean.class) {
+      out.writeByte(BOOLEAN);
+      out.writeByte(((Boolean) value).booleanValue() ? 1 : 0);
+    } else if (type == Character.class) {
+      out.writeByte(CHARACTER);
+      out.writeInt(((Character) value).charValue());
+    } else if (type == Float.class) {
+      out.writeByte(FLOAT);
+      out.writeInt(Float.floatToRawIntBits(((Float) value).floatValue()));
+    } else if (type == Double.class) {
+      out.writeByte(DOUBLE);
+      out.writeLong(Double.doubleToRawLongBits(((Double) value).doubleValue()));
+    } else if (type == BigDecimal.class) {
+      out.writeByte(BIG_DECIMAL);
+      out.writeString(value.toString());
+    } else if (type == BigInteger.class) {
+      out.writeByte(BIG_INTEGER);
+      out.writeBytes(((BigInteger) value).toByteArray());
+    } else if (value instanceof Enum) {
+      out.writeByte(ENUM);
+      writeClass(out, ((Enum<?>) value).getDeclaringClass());
+      out.writeString(((Enum<?>) value).name());
+    } else {
+      Integer handle = out.handles.get(value);
+      if (handle != null) {
+        out.writeByte(REFERENCE);
+        out.writeInt(handle.intValue());
+        return;
+      }
+      out.handles.put(value, Integer.valueOf(out.handles.size()));
+      writeObject(out, value, type);
+    }
+  }
+
+  /**
+   * Writes a mutable object, after it has been given a handle.
+   *
+   * @param out
+   *          the out
+   * @param value
+   *          the value
+   * @param type
+   *          the class of the value
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  private void writeObject(Output out, Object value, Class<?> type) throws IOException {
+    if (type == Date.class || type == java.sql.Date.class || type == Time.class) {
+      out.writeByte(type == Date.class ? DATE : type == Time.class ? SQL_TIME : SQL_DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (type == Timestamp.class) {
+      out.writeByte(TIMESTAMP);
+      out.writeLong(((Timestamp) value).getTime());
+      out.writeInt(((Timestamp) value).getNanos());
+    } else if (type == byte[].class) {
+      out.writeByte(BYTES);
+      out.writeBytes((byte[]) value);
+    } else if (value instanceof Collection && kindOf(COLLECTION_TYPES, value) >= 0) {
+      Collection<?> collection = (Collection<?>) value;
+      out.writeByte(COLLECTION);
+      out.writeByte(kindOf(COLLECTION_TYPES, value));
+      out.writeInt(collection.size());
+      for (Object element : collection) {
+        writeValue(out, element);
+      }
+    } else if (value instanceof Map && kindOf(MAP_TYPES, value) >= 0) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeByte(MAP);
+      out.writeByte(kindOf(MAP_TYPES, value));
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeValue(out, entry.getKey());
+        writeValue(out, entry.getValue());
+      }
+    } else {
+      Layout layout = layoutOf(type);
+      if (layout == Layout.UNSUPPORTED) {
+        out.writeByte(JAVA);
+        out.writeBytes(java.serialize(value));
+        return;
+      }
+      out.writeByte(BEAN);
+      if (writeClass(out, type)) {
+        out.writeLong(layout.fingerprint);
+      }
+      try {
+        for (int i = 0; i < layout.fields.length; i++) {
+          Field field = layout.fields[i];
+          switch (layout.kinds[i]) {
+            case INTEGER:
+              out.writeInt(field.getInt(value));
+              break;
+            case LONG:
+              out.writeLong(field.getLong(value));
+              break;
+            case SHORT:
+              out.writeInt(field.getShort(value));
+              break;
+            case BYTE:
+              out.writeByte(field.getByte(value));
+              break;
+            case BOOLEAN:
+              out.writeByte(field.getBoolean(value) ? 1 : 0);
+              break;
+            case CHARACTER:
+              out.writeInt(field.getChar(value));
+              break;
+            case FLOAT:
+              out.writeInt(Float.floatToRawIntBits(field.getFloat(value)));
+              break;
+            case DOUBLE:
+              out.writeLong(Double.doubleToRawLongBits(field.getDouble(value)));
+              break;
+            default:
+              writeValue(out, field.get(value));
+          }
+        }
+      } catch (IllegalAccessException e) {
+        throw new InvalidClassException(type.getName(), "Cannot read field: " + e);
+      }
+    }
+  }
+
+  /**
+   * Writes a class, by name the first time it appears in a value and by number afterwards.
+   *
+   * @param out
+   *          the out
+   * @param type
+   *          the class
+   *
+   * @return true if the class was written by name
+   */
+  private static boolean writeClass(Output out, Class<?> type) {
+    Integer number = out.classes.get(type);
+    if (number != null) {
+      out.writeInt(number.intValue());
+      return false;
+    }
+    out.classes.put(type, Integer.valueOf(out.classes.size()));
+    out.writeInt(-1);
+    out.writeString(type.getName());
+    return true;
+  }
+
+  /**
+   * Read value.
+   *
+   * @param in
+   *          the in
+   *
+   * @return the object
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws ClassNotFoundException
+   *           the class not found exception
+   */
+  private Object readValue(Input in) throws IOException, ClassNotFoundException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case REFERENCE:
+        return in.handles.get(in.readInt());
+      case STRING:
+        return in.readString();
+      case INTEGER:
+        return Integer.valueOf(in.readInt());
+      case LONG:
+        return Long.valueOf(in.readLong());
+      case SHORT:
+        return Short.valueOf((short) in.readInt());
+      case BYTE:
+        return Byte.valueOf(in.readByte());
+      case BOOLEAN:
+        return Boolean.valueOf(in.readByte() != 0);
+      case CHARACTER:
+        return Character.valueOf((char) in.readInt());
+      case FLOAT:
+        return Float.valueOf(Float.intBitsToFloat(in.readInt()));
+      case DOUBLE:
+        return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+      case BIG_DECIMAL:
+        return new BigDecimal(in.readString());
+      case BIG_INTEGER:
+        return new BigInteger(in.readBytes());
+      case ENUM:
+        return readEnum(in);
+      case DATE:
+        return in.register(new Date(in.readLong()));
+      case SQL_DATE:
+        return in.register(new java.sql.Date(in.readLong()));
+      case SQL_TIME:
+        return in.register(new Time(in.readLong()));
+      case TIMESTAMP:
+        Timestamp timestamp = new Timestamp(in.readLong());
+        timestamp.setNanos(in.readInt());
+        return in.register(timestamp);
+      case BYTES:
+        return in.register(in.readBytes());
+      case COLLECTION:
+        return readCollection(in);
+      case MAP:
+        return readMap(in);
+      case BEAN:
+        return readBean(in);
+      case JAVA:
+        int handle = in.reserve();
+        Object value = java.deserialize(in.readBytes());
+        in.handles.set(handle, value);
+        return value;
+      default:
+        throw new StreamCorruptedException("Unknown tag " + tag + " in cached value.");
+    }
+  }
+
+  /**
+   * Read collection.
+   *
+   * @param in
+   *          the in
+   *
+   * @return the collection
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws ClassNotFoundException
+   *           the class not found exception
+   */
+  private Collection<Object> readCollection(Input in) throws IOException, ClassNotFoundException {
+    int kind = in.readByte();
+    int size = in.readInt();
+    Collection<Object> collection;
+    switch (kind) {
+      case 0:
+        collection = new ArrayList<>(size);
+        break;
+      case 1:
+        collection = new LinkedList<>();
+        break;
+      case 2:
+        collection = new HashSet<>(Math.max(16, (int) (size / .75f) + 1));
+        break;
+      case 3:
+        collection = new LinkedHashSet<>(Math.max(16, (int) (size / .75f) + 1));
+        break;
+      case 4:
+        collection = new TreeSet<>();
+        break;
+      default:
+        throw new StreamCorruptedException("Unknown collection kind " + kind + " in cached value.");
+    }
+    in.register(collection);
+    for (int i = 0; i < size; i++) {
+      collection.add(readValue(in));
+    }
+    return collection;
+  }
+
+  /**
+   * Read map.
+   *
+   * @param in
+   *          the in
+   *
+   * @return the map
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws ClassNotFoundException
+   *           the class not found exception
+   */
+  private Map<Object, Object> readMap(Input in) throws IOException, ClassNotFoundException {
+    int kind = in.readByte();
+    int size = in.readInt();
+    Map<Object, Object> map;
+    switch (kind) {
+      case 0:
+        map = new HashMap<>(Math.max(16, (int) (size / .75f) + 1));
+        break;
+      case 1:
+        map = new LinkedHashMap<>(Math.max(16, (int) (size / .75f) + 1));
+        break;
+      case 2:
+        map = new TreeMap<>();
+        break;
+      default:
+        throw new StreamCorruptedException("Unknown map kind " + kind + " in cached value.");
+    }
+    in.register(map);
+    for (int i = 0; i < size; i++) {
+      Object key = readValue(in);
+      map.put(key, readValue(in));
+    }
+    return map;
+  }
+
+  /**
+   * Read bean.
+   *
+   * @param in
+   *          the in
+   *
+   * @return the object
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws ClassNotFoundException
+   *           the class not found exception
+   */
+  private Object readBean(Input in) throws IOException, ClassNotFoundException {
+    int number = in.readInt();
+    Class<?> type;
+    Layout layout;
+    if (number < 0) {
+      type = Resources.classForName(in.readString());
+      in.classes.add(type);
+      layout = layoutOf(type);
+      if (layout == Layout.UNSUPPORTED || layout.fingerprint != in.readLong()) {
+        throw new InvalidClassException(type.getName(), "The fields of the class changed since it was cached.");
+      }
+    } else {
+      type = in.classes.get(number);
+      layout = layoutOf(type);
+    }
+    Object bean = ClassInfo.getInstance(type).instantiateClass();
+    in.register(bean);
+    try {
+      for (int i = 0; i < layout.fields.length; i++) {
+        Field field = layout.fields[i];
+        switch (layout.kinds[i]) {
+          case INTEGER:
+            field.setInt(bean, in.readInt());
+            break;
+          case LONG:
+            field.setLong(bean, in.readLong());
+            break;
+          case SHORT:
+            field.setShort(bean, (short) in.readInt());
+            break;
+          case BYTE:
+            field.setByte(bean, in.readByte());
+            break;
+          case BOOLEAN:
+            field.setBoolean(bean, in.readByte() != 0);
+            break;
+          case CHARACTER:
+            field.setChar(bean, (char) in.readInt());
+            break;
+          case FLOAT:
+            field.setFloat(bean, Float.intBitsToFloat(in.readInt()));
+            break;
+          case DOUBLE:
+            field.setDouble(bean, Double.longBitsToDouble(in.readLong()));
+            break;
+          default:
+            field.set(bean, readValue(in));
+        }
+      }
+    } catch (IllegalAccessException | IllegalArgumentException e) {
+      throw new InvalidClassException(type.getName(), "Cannot restore field: " + e);
+    }
+    return bean;
+  }
+
+  /**
+   * Read enum.
+   *
+   * @param in
+   *          the in
+   *
+   * @return the enum constant
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws ClassNotFoundException
+   *           the class not found exception
+   */
+  private static Object readEnum(Input in) throws IOException, ClassNotFoundException {
+    Class<?> type = readClass(in);
+    String name = in.readString();
+    Object[] constants = type.getEnumConstants();
+    if (constants != null) {
+      for (Object constant : constants) {
+        if (((Enum<?>) constant).name().equals(name)) {
+          return constant;
+        }
+      }
+    }
+    throw new InvalidClassException(type.getName(), "No enum constant " + name + ".");
+  }
+
+  /**
+   * Reads a class written by {@link #writeClass(Output, Class)}.
+   *
+   * @param in
+   *          the in
+   *
+   * @return the class
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   * @throws ClassNotFoundException
+   *           the class not found exception
+   */
+  private static Class<?> readClass(Input in) throws IOException, ClassNotFoundException {
+    int number = in.readInt();
+    if (number >= 0) {
+      return in.classes.get(number);
+    }
+    Class<?> type = Resources.classForName(in.readString());
+    in.classes.add(type);
+    return type;
+  }
+
+  /**
+   * Finds the kind of a collection or map, which must be one of the given classes exactly and must not use a
+   * comparator.
+   *
+   * @param types
+   *          the supported classes
+   * @param value
+   *          the collection or map
+   *
+   * @return the kind, or -1 if it is not supported
+   */
+  private static int kindOf(Class<?>[] types, Object value) {
+    Class<?> type = value.getClass();
+    for (int i = 0; i < types.length; i++) {
+      if (types[i] == type) {
+        Comparator<?> comparator = value instanceof TreeSet ? ((TreeSet<?>) value).comparator()
+            : value instanceof TreeMap ? ((TreeMap<?, ?>) value).comparator() : null;
+        return comparator == null ? i : -1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the layout of a class, computing it the first time.
+   *
+   * @param type
+   *          the class
+   *
+   * @return the layout, or {@link Layout#UNSUPPORTED}
+   */
+  private static Layout layoutOf(Class<?> type) {
+    Layout layout = LAYOUTS.get(type);
+    if (layout == null) {
+      layout = Layout.of(type);
+      LAYOUTS.put(type, layout);
+    }
+    return layout;
+  }
+
+  /**
+   * The serialized fields of a class.
+   */
+  private static final class Layout {
+
+    /** Marks classes that are not encoded field by field. */
+    static final Layout UNSUPPORTED = new Layout(new Field[0], new byte[0], 0);
+
+    /** The names of the methods that customize Java serialization. */
+    private static final String[] CUSTOM_SERIALIZATION_METHODS = { "writeObject", "readObject", "readObjectNoData",
+        "writeReplace", "readResolve" };
+
+    /** The fields, from the topmost serializable superclass down, each class sorted by name. */
+    final Field[] fields;
+
+    /** The tag of each primitive field, or {@link BeanCacheSerializer#NULL} for reference fields. */
+    final byte[] kinds;
+
+    /** A hash of the field names and types, used to detect class changes. */
+    final long fingerprint;
+
+    /**
+     * Instantiates a new layout.
+     *
+     * @param fields
+     *          the fields
+     * @param kinds
+     *          the kinds
+     * @param fingerprint
+     *          the fingerprint
+     */
+    private Layout(Field[] fields, byte[] kinds, long fingerprint) {
+      this.fields = fields;
+      this.kinds = kinds;
+      this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Computes the layout of a class. Like Java serialization, only the fields of the serializable classes of the
+     * hierarchy are written; the fields of the non-serializable superclasses are left to the default constructor.
+     *
+     * @param type
+     *          the class
+     *
+     * @return the layout, or {@link #UNSUPPORTED}
+     */
+    static Layout of(Class<?> type) {
+      if (!Serializable.class.isAssignableFrom(type) || type.isArray() || type.isInterface()
+          || Modifier.isAbstract(type.getModifiers()) || ClassInfo.isKnownType(type)
+          || !ClassInfo.getInstance(type).hasDefaultConstructor()) {
+        return UNSUPPORTED;
+      }
+      List<Class<?>> hierarchy = new ArrayList<>();
+      for (Class<?> current = type; current != null && Serializable.class.isAssignableFrom(current);
+          current = current.getSuperclass()) {
+        hierarchy.add(0, current);
+      }
+      List<Field> fields = new ArrayList<>();
+      try {
+        for (Class<?> current : hierarchy) {
+          if (customizesSerialization(current)) {
+            return UNSUPPORTED;
+          }
+          Field[] declared = current.getDeclaredFields();
+          Arrays.sort(declared, (a, b) -> a.getName().compareTo(b.getName()));
+          for (Field field : declared) {
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+              field.setAccessible(true);
+              fields.add(field);
+            }
+          }
+        }
+      } catch (RuntimeException e) {
+        // a field of a class in a closed module, for example
+        return UNSUPPORTED;
+      }
+      byte[] kinds = new byte[fields.size()];
+      long fingerprint = 1125899906842597L;
+      for (int i = 0; i < kinds.length; i++) {
+        Class<?> fieldType = fields.get(i).getType();
+        kinds[i] = kindOfField(fieldType);
+        fingerprint = 31 * fingerprint + fields.get(i).getName().hashCode();
+        fingerprint = 31 * fingerprint + fieldType.getName().hashCode();
+      }
+      return new Layout(fields.toArray(new Field[fields.size()]), kinds, fingerprint);
+    }
+
+    /**
+     * Tells if a class declares any of the methods or fields that customize Java serialization.
+     *
+     * @param type
+     *          the class
+     *
+     * @return true if it does
+     */
+    private static boolean customizesSerialization(Class<?> type) {
+      for (Method method : type.getDeclaredMethods()) {
+        for (String name : CUSTOM_SERIALIZATION_METHODS) {
+          if (name.equals(method.getName())) {
+            return true;
+          }
+        }
+      }
+      for (Field field : type.getDeclaredFields()) {
+        if ("serialPersistentFields".equals(field.getName())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Gets the tag used for a field type.
+     *
+     * @param type
+     *          the field type
+     *
+     * @return the tag of a primitive type, or {@link BeanCacheSerializer#NULL}
+     */
+    private static byte kindOfField(Class<?> type) {
+      if (type == int.class) {
+        return INTEGER;
+      }
+      if (type == long.class) {
+        return LONG;
+      }
+      if (type == short.class) {
+        return SHORT;
+      }
+      if (type == byte.class) {
+        return BYTE;
+      }
+      if (type == boolean.class) {
+        return BOOLEAN;
+      }
+      if (type == char.class) {
+        return CHARACTER;
+      }
+      if (type == float.class) {
+        return FLOAT;
+      }
+      if (type == double.class) {
+        return DOUBLE;
+      }
+      return NULL;
+    }
+  }
+
+  /**
+   * A growable output buffer with the handle and class tables of the value being written.
+   */
+  private static final class Output {
+
+    /** The buffer. */
+    byte[] buffer = new byte[1024];
+
+    /** The position. */
+    int position;
+
+    /** The handles of the mutable objects written so far. */
+    final IdentityHashMap<Object, Integer> handles = new IdentityHashMap<>();
+
+    /** The numbers of the classes written so far. */
+    final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    /**
+     * Clears the buffer and the tables.
+     */
+    void reset() {
+      position = 0;
+      handles.clear();
+      classes.clear();
+    }
+
+    /**
+     * Ensure capacity.
+     *
+     * @param length
+     *          the number of bytes about to be written
+     */
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+      }
+    }
+
+    void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeInt(int value) {
+      ensureCapacity(4);
+      buffer[position++] = (byte) (value >>> 24);
+      buffer[position++] = (byte) (value >>> 16);
+      buffer[position++] = (byte) (value >>> 8);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    void writeBytes(byte[] bytes) {
+      writeInt(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    void writeString(String value) {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+  }
+
+  /**
+   * Reads a value written through an {@link Output}.
+   */
+  private static final class Input {
+
+    /** The bytes. */
+    final byte[] bytes;
+
+    /** The position. */
+    int position;
+
+    /** The mutable objects read so far, by handle. */
+    final List<Object> handles = new ArrayList<>();
+
+    /** The classes read so far, by number. */
+    final List<Class<?>> classes = new ArrayList<>();
+
+    /**
+     * Instantiates a new input.
+     *
+     * @param bytes
+     *          the bytes
+     */
+    Input(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    /**
+     * Gives an object the next handle.
+     *
+     * @param value
+     *          the value
+     *
+     * @return the value
+     */
+    <T> T register(T value) {
+      handles.add(value);
+      return value;
+    }
+
+    /**
+     * Reserves the next handle for an object that is read later.
+     *
+     * @return the handle
+     */
+    int reserve() {
+      handles.add(null);
+      return handles.size() - 1;
+    }
+
+    byte readByte() throws StreamCorruptedException {
+      if (position >= bytes.length) {
+        throw new StreamCorruptedException("Unexpected end of cached value.");
+      }
+      return bytes[position++];
+    }
+
+    int readInt() throws StreamCorruptedException {
+      return (readByte() & 0xff) << 24 | (readByte() & 0xff) << 16 | (readByte() & 0xff) << 8 | readByte() & 0xff;
+    }
+
+    long readLong() throws StreamCorruptedException {
+      return (long) readInt() << 32 | readInt() & 0xffffffffL;
+    }
+
+    byte[] readBytes() throws StreamCorruptedException {
+      int length = readInt();
+      if (length < 0 || position + length > bytes.length) {
+        throw new StreamCorruptedException("Unexpected end of cached value.");
+      }
+      byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+      position += length;
+      return value;
+    }
+
+    String readString() throws StreamCorruptedException {
+      int length = readInt();
+      if (length < 0 || position + length > bytes.length) {
+        throw new StreamCorruptedException("Unexpected end of cached value.");
+      }
+      String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+  }
+
+}
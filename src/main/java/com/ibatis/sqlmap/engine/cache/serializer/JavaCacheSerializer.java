@@ -0,0 +1,83 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.serializer;
+
+import com.ibatis.sqlmap.engine.cache.CacheSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Cache serializer based on Java serialization. The output buffer is kept per thread and reused.
+ */
+public class JavaCacheSerializer implements CacheSerializer {
+
+  /** Buffers larger than this are not kept for reuse. */
+  private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+  /** The output buffer of each thread. */
+  private static final ThreadLocal<ReusableOutputStream> BUFFER = ThreadLocal.withInitial(ReusableOutputStream::new);
+
+  @Override
+  public byte[] serialize(Object value) throws IOException {
+    ReusableOutputStream bos = BUFFER.get();
+    try {
+      try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(value);
+      }
+      return bos.toByteArray();
+    } finally {
+      if (bos.capacity() > MAX_RETAINED_BUFFER) {
+        BUFFER.remove();
+      } else {
+        bos.reset();
+      }
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    }
+  }
+
+  /**
+   * A byte array output stream that reports the size of its buffer.
+   */
+  private static class ReusableOutputStream extends ByteArrayOutputStream {
+
+    /**
+     * Instantiates a new reusable output stream.
+     */
+    ReusableOutputStream() {
+      super(1024);
+    }
+
+    /**
+     * Gets the size of the buffer.
+     *
+     * @return the capacity
+     */
+    int capacity() {
+      return buf.length;
+    }
+  }
+
+}
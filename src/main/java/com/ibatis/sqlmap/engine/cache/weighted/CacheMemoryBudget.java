@@ -0,0 +1,150 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.weighted;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A memory budget shared by all weighted cache controllers of a SqlMapClient. When the total estimated size of the
+ * cached entries goes over the budget, entries are evicted from the controller that holds the most bytes until the
+ * total fits again.
+ */
+public class CacheMemoryBudget {
+
+  /** The max bytes. */
+  private final long maxBytes;
+
+  /** The total weight of the registered controllers. */
+  private final AtomicLong weight = new AtomicLong();
+
+  /** The controllers. */
+  private final List<WeightedCacheController> controllers = new CopyOnWriteArrayList<>();
+
+  /** Held by the thread that is evicting, so only one thread evicts at a time. */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /**
+   * Instantiates a new cache memory budget.
+   *
+   * @param maxBytes
+   *          the max bytes
+   */
+  public CacheMemoryBudget(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Gets the max bytes.
+   *
+   * @return the max bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Gets the estimated number of bytes held by all registered controllers.
+   *
+   * @return the weight
+   */
+  public long getWeight() {
+    return weight.get();
+  }
+
+  /**
+   * Registers a controller with this budget.
+   *
+   * @param controller
+   *          the controller
+   */
+  void register(WeightedCacheController controller) {
+    controllers.add(controller);
+  }
+
+  /**
+   * Records a change of the weight of a registered controller and evicts if the budget is exceeded. Must not be called
+   * while holding the lock of a controller.
+   *
+   * @param delta
+   *          the change in bytes
+   */
+  void adjust(long delta) {
+    if (weight.addAndGet(delta) > maxBytes) {
+      evict();
+    }
+  }
+
+  /**
+   * Evicts entries from the largest controllers until the budget is met. A thread that finds another thread evicting
+   * leaves the work to it.
+   */
+  private void evict() {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      while (weight.get() > maxBytes) {
+        WeightedCacheController largest = null;
+        long largestWeight = 0;
+        for (WeightedCacheController controller : controllers) {
+          long controllerWeight = controller.getWeight();
+          if (controllerWeight > largestWeight) {
+            largest = controller;
+            largestWeight = controllerWeight;
+          }
+        }
+        if (largest == null) {
+          break;
+        }
+        weight.addAndGet(-largest.evictEldest());
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Parses a size in bytes, with an optional K, M or G suffix.
+   *
+   * @param size
+   *          the size, for example <code>512M</code>
+   *
+   * @return the number of bytes
+   */
+  public static long parseSize(String size) {
+    String value = size.trim().toUpperCase(Locale.ENGLISH);
+    long multiplier = 1;
+    if (value.endsWith("B")) {
+      value = value.substring(0, value.length() - 1);
+    }
+    if (value.endsWith("K")) {
+      multiplier = 1024L;
+    } else if (value.endsWith("M")) {
+      multiplier = 1024L * 1024L;
+    } else if (value.endsWith("G")) {
+      multiplier = 1024L * 1024L * 1024L;
+    }
+    if (multiplier != 1) {
+      value = value.substring(0, value.length() - 1);
+    }
+    return Long.parseLong(value.trim()) * multiplier;
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.weighted;
+
+import com.ibatis.common.beans.ClassInfo;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default weigher. Collections are weighed by their size times the estimated size of their first element, and beans by
+ * the property layout reported by {@link ClassInfo}. The estimates assume a 64-bit JVM and are meant for budgeting, not
+ * exact accounting.
+ */
+public class DefaultWeigher implements Weigher {
+
+  /** The size of an object header. */
+  private static final int OBJECT_HEADER = 16;
+
+  /** The size of a reference. */
+  private static final int REFERENCE = 8;
+
+  /** The size of a map entry, not counting its key and value. */
+  private static final int MAP_ENTRY = 32;
+
+  /** The estimated size of a string, not counting its characters. */
+  private static final int STRING_HEADER = 40;
+
+  /** The sizes of the primitive types and of the common immutable types. */
+  private static final Map<Class<?>, Integer> KNOWN_SIZES = new HashMap<>();
+
+  /** The estimated sizes of bean classes, computed once per class. */
+  private static final Map<Class<?>, Long> BEAN_SIZES = new ConcurrentHashMap<>();
+
+  static {
+    KNOWN_SIZES.put(boolean.class, 1);
+    KNOWN_SIZES.put(byte.class, 1);
+    KNOWN_SIZES.put(char.class, 2);
+    KNOWN_SIZES.put(short.class, 2);
+    KNOWN_SIZES.put(int.class, 4);
+    KNOWN_SIZES.put(float.class, 4);
+    KNOWN_SIZES.put(long.class, 8);
+    KNOWN_SIZES.put(double.class, 8);
+    KNOWN_SIZES.put(Boolean.class, 16);
+    KNOWN_SIZES.put(Byte.class, 16);
+    KNOWN_SIZES.put(Character.class, 16);
+    KNOWN_SIZES.put(Short.class, 16);
+    KNOWN_SIZES.put(Integer.class, 16);
+    KNOWN_SIZES.put(Float.class, 16);
+    KNOWN_SIZES.put(Long.class, 24);
+    KNOWN_SIZES.put(Double.class, 24);
+    KNOWN_SIZES.put(Date.class, 24);
+    KNOWN_SIZES.put(java.sql.Date.class, 24);
+    KNOWN_SIZES.put(java.sql.Time.class, 24);
+    KNOWN_SIZES.put(java.sql.Timestamp.class, 32);
+    KNOWN_SIZES.put(BigInteger.class, 56);
+    KNOWN_SIZES.put(BigDecimal.class, 96);
+    KNOWN_SIZES.put(String.class, STRING_HEADER + 16);
+  }
+
+  @Override
+  public long weigh(Object key, Object value) {
+    return MAP_ENTRY + sizeOf(value);
+  }
+
+  /**
+   * Estimate the size of an object graph.
+   *
+   * @param value
+   *          the value
+   *
+   * @return the estimated size in bytes
+   */
+  protected long sizeOf(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof byte[]) {
+      return OBJECT_HEADER + ((byte[]) value).length;
+    }
+    if (value instanceof String) {
+      return STRING_HEADER + ((String) value).length();
+    }
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      long size = OBJECT_HEADER + REFERENCE + (long) collection.size() * REFERENCE;
+      Iterator<?> iterator = collection.iterator();
+      if (iterator.hasNext()) {
+        size += collection.size() * sizeOf(iterator.next());
+      }
+      return size;
+    }
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      long size = OBJECT_HEADER + REFERENCE + (long) map.size() * (MAP_ENTRY + REFERENCE);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+      }
+      return size;
+    }
+    return sizeOfClass(value.getClass());
+  }
+
+  /**
+   * Estimate the size of an instance of a class from its properties.
+   *
+   * @param type
+   *          the class
+   *
+   * @return the estimated size in bytes
+   */
+  protected long sizeOfClass(Class<?> type) {
+    Integer known = KNOWN_SIZES.get(type);
+    if (known != null) {
+      return known.intValue();
+    }
+    Long size = BEAN_SIZES.get(type);
+    if (size == null) {
+      size = Long.valueOf(computeBeanSize(type));
+      BEAN_SIZES.put(type, size);
+    }
+    return size.longValue();
+  }
+
+  /**
+   * Compute bean size.
+   *
+   * @param type
+   *          the type
+   *
+   * @return the estimated size in bytes
+   */
+  private static long computeBeanSize(Class<?> type) {
+    long size = OBJECT_HEADER;
+    if (ClassInfo.isKnownType(type) || type.isArray()) {
+      return size;
+    }
+    ClassInfo classInfo = ClassInfo.getInstance(type);
+    String[] names = classInfo.getReadablePropertyNames();
+    for (String name : names) {
+      Class<?> propertyType = classInfo.getGetterType(name);
+      Integer known = KNOWN_SIZES.get(propertyType);
+      if (propertyType.isPrimitive()) {
+        size += known.intValue();
+      } else if (known != null) {
+        size += REFERENCE + known.intValue();
+      } else {
+        size += REFERENCE + OBJECT_HEADER;
+      }
+    }
+    return size;
+  }
+
+}
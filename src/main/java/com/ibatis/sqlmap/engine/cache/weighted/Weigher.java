@@ -0,0 +1,35 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.weighted;
+
+/**
+ * Estimates the memory used by a cache entry.
+ */
+public interface Weigher {
+
+  /**
+   * Estimate the number of bytes held by a cache entry.
+   *
+   * @param key
+   *          - the key of the entry
+   * @param value
+   *          - the cached value
+   *
+   * @return the estimated size in bytes, never negative
+   */
+  long weigh(Object key, Object value);
+
+}
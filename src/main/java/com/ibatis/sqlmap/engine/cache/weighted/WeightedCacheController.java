@@ -0,0 +1,294 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.weighted;
+
+import com.ibatis.common.resources.Resources;
+import com.ibatis.sqlmap.client.SqlMapException;
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache controller bounded by the estimated memory of its entries rather than by their number.
+ * <p>
+ * Each entry is weighed by a {@link Weigher} when it is added. Least recently used entries are evicted while the total
+ * is over the <code>max-bytes</code> property. If the SqlMapClient has a {@link CacheMemoryBudget}, the controller also
+ * counts against that shared budget.
+ */
+public class WeightedCacheController implements CacheController {
+
+  /** The max bytes. */
+  private long maxBytes;
+
+  /** The weigher. */
+  private Weigher weigher;
+
+  /** The cache. */
+  private final LinkedHashMap<Object, Entry> cache;
+
+  /** The total weight of the cached entries. */
+  private long weight;
+
+  /** The shared memory budget, if any. */
+  private volatile CacheMemoryBudget memoryBudget;
+
+  /** The number of entries evicted. */
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Default constructor.
+   */
+  public WeightedCacheController() {
+    this.maxBytes = 16L * 1024L * 1024L;
+    this.weigher = new DefaultWeigher();
+    this.cache = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Gets the max bytes.
+   *
+   * @return the max bytes
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Sets the max bytes.
+   *
+   * @param maxBytes
+   *          the new max bytes
+   */
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Gets the weigher.
+   *
+   * @return the weigher
+   */
+  public Weigher getWeigher() {
+    return weigher;
+  }
+
+  /**
+   * Sets the weigher.
+   *
+   * @param weigher
+   *          the new weigher
+   */
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Gets the estimated number of bytes held by this cache.
+   *
+   * @return the weight
+   */
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  /**
+   * Makes this controller count against a memory budget shared with other controllers.
+   *
+   * @param memoryBudget
+   *          the memory budget
+   */
+  public void setMemoryBudget(CacheMemoryBudget memoryBudget) {
+    this.memoryBudget = memoryBudget;
+    memoryBudget.register(this);
+    memoryBudget.adjust(getWeight());
+  }
+
+  /**
+   * Configures the cache
+   *
+   * @param props
+   *          Optionally can contain properties [max-bytes=n[K|M|G], weigher=class name]
+   */
+  @Override
+  public void setProperties(Properties props) {
+    String size = props.getProperty("max-bytes");
+    if (size == null) {
+      size = props.getProperty("maxBytes");
+    }
+    if (size != null) {
+      maxBytes = CacheMemoryBudget.parseSize(size);
+    }
+    String weigherClass = props.getProperty("weigher");
+    if (weigherClass != null) {
+      try {
+        weigher = (Weigher) Resources.instantiate(weigherClass);
+      } catch (Exception e) {
+        throw new SqlMapException("Error instantiating weigher " + weigherClass + ".  Cause: " + e, e);
+      }
+    }
+  }
+
+  /**
+   * Add an object to the cache
+   *
+   * @param cacheModel
+   *          The cacheModel
+   * @param key
+   *          The key of the object to be cached
+   * @param value
+   *          The object to be cached
+   */
+  @Override
+  public void putObject(CacheModel cacheModel, Object key, Object value) {
+    long entryWeight = weigher.weigh(key, value);
+    long delta;
+    synchronized (this) {
+      long before = weight;
+      Entry old = cache.put(key, new Entry(value, entryWeight));
+      weight += entryWeight - (old == null ? 0 : old.weight);
+      while (weight > maxBytes && !cache.isEmpty()) {
+        evictEldest();
+      }
+      delta = weight - before;
+    }
+    adjustBudget(delta);
+  }
+
+  /**
+   * Get an object out of the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   * @param key
+   *          The key of the object to be returned
+   *
+   * @return The cached object (or null)
+   */
+  @Override
+  public synchronized Object getObject(CacheModel cacheModel, Object key) {
+    Entry entry = cache.get(key);
+    return entry == null ? null : entry.value;
+  }
+
+  @Override
+  public Object removeObject(CacheModel cacheModel, Object key) {
+    Entry entry;
+    synchronized (this) {
+      entry = cache.remove(key);
+      if (entry == null) {
+        return null;
+      }
+      weight -= entry.weight;
+    }
+    adjustBudget(-entry.weight);
+    return entry.value;
+  }
+
+  @Override
+  public synchronized List<Object> getKeys() {
+    return new ArrayList<>(cache.keySet());
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  @Override
+  public long getEstimatedSize() {
+    return getWeight();
+  }
+
+  /**
+   * Flushes the cache.
+   *
+   * @param cacheModel
+   *          The cache model
+   */
+  @Override
+  public void flush(CacheModel cacheModel) {
+    long freed;
+    synchronized (this) {
+      cache.clear();
+      freed = weight;
+      weight = 0;
+    }
+    adjustBudget(-freed);
+  }
+
+  /**
+   * Evicts the least recently used entry. Used by the shared budget, which does its own accounting.
+   *
+   * @return the number of bytes freed
+   */
+  synchronized long evictEldest() {
+    Iterator<Map.Entry<Object, Entry>> iterator = cache.entrySet().iterator();
+    if (!iterator.hasNext()) {
+      return 0;
+    }
+    Entry eldest = iterator.next().getValue();
+    iterator.remove();
+    evictions.increment();
+    weight -= eldest.weight;
+    return eldest.weight;
+  }
+
+  /**
+   * Reports a weight change to the shared budget, if any.
+   *
+   * @param delta
+   *          the change in bytes
+   */
+  private void adjustBudget(long delta) {
+    CacheMemoryBudget budget = memoryBudget;
+    if (budget != null && delta != 0) {
+      budget.adjust(delta);
+    }
+  }
+
+  /**
+   * A cached value with its weight.
+   */
+  private static class Entry {
+
+    /** The value. */
+    private final Object value;
+
+    /** The weight. */
+    private final long weight;
+
+    /**
+     * Instantiates a new entry.
+     *
+     * @param value
+     *          the value
+     * @param weight
+     *          the weight
+     */
+    Entry(Object value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+}
@@ -17,6 +17,8 @@ package com.ibatis.sqlmap.engine.config;
 
 import com.ibatis.sqlmap.engine.cache.CacheController;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.CacheSerializer;
+import com.ibatis.sqlmap.engine.cache.offheap.OffHeapCacheController;
 import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
 import com.ibatis.sqlmap.engine.scope.ErrorContext;
 
@@ -57,6 +59,10 @@ public class CacheModelConfig {
     cacheModel.setSerialize(serialize);
     errorContext.setObjectId(id + " cache model");
     errorContext.setMoreInfo("Check the cache model type.");
+    if (controller instanceof OffHeapCacheController && (readOnly || !serialize)) {
+      throw new RuntimeException("The OFFHEAP cache model " + id
+          + " must be declared with serialize=\"true\" and readOnly=\"false\", so that its values are stored off the heap.");
+    }
     cacheModel.setId(id);
     cacheModel.setResource(errorContext.getResource());
     try {
@@ -85,7 +91,59 @@ public class CacheModelConfig {
    *          the milliseconds
    */
   public void setFlushInterval(long hours, long minutes, long seconds, long milliseconds) {
-    errorContext.setMoreInfo("Check the cache model flush interval.");
+    cacheModel.setFlushInterval(toMillis("flush interval", hours, minutes, seconds, milliseconds));
+  }
+
+  /**
+   * Sets the time to live of each entry.
+   *
+   * @param hours
+   *          the hours
+   * @param minutes
+   *          the minutes
+   * @param seconds
+   *          the seconds
+   * @param milliseconds
+   *          the milliseconds
+   */
+  public void setTimeToLive(long hours, long minutes, long seconds, long milliseconds) {
+    cacheModel.setTimeToLive(toMillis("time to live", hours, minutes, seconds, milliseconds));
+  }
+
+  /**
+   * Sets the time after which an entry is refreshed in the background.
+   *
+   * @param hours
+   *          the hours
+   * @param minutes
+   *          the minutes
+   * @param seconds
+   *          the seconds
+   * @param milliseconds
+   *          the milliseconds
+   */
+  public void setRefreshAfter(long hours, long minutes, long seconds, long milliseconds) {
+    cacheModel.setRefreshAfter(toMillis("refresh time", hours, minutes, seconds, milliseconds));
+  }
+
+  /**
+   * Converts a time of the cache model to milliseconds.
+   *
+   * @param description
+   *          the description of the time, for the error messages
+   * @param hours
+   *          the hours
+   * @param minutes
+   *          the minutes
+   * @param seconds
+   *          the seconds
+   * @param milliseconds
+   *          the milliseconds
+   *
+   * @return the time in milliseconds
+   */
+  private long toMillis(String description, long hours, long minutes, long seconds, long milliseconds) {
+    errorContext.setMoreInfo("Check the cache model " + description + ".");
     long t = 0L;
     t += milliseconds;
     t += seconds * 1000L;
@@ -93,9 +151,69 @@ public class CacheModelConfig {
     t += hours * 60L * 60L * 1000L;
     if (t < 1L) {
       throw new RuntimeException(
-          "A flush interval must specify one or more of milliseconds, seconds, minutes or hours.");
+          "A " + description + " must specify one or more of milliseconds, seconds, minutes or hours.");
     }
-    cacheModel.setFlushInterval(t);
+    return t;
+  }
+
+  /**
+   * Sets the concurrent.
+   *
+   * @param concurrent
+   *          the new concurrent
+   */
+  public void setConcurrent(boolean concurrent) {
+    cacheModel.setConcurrent(concurrent);
+  }
+
+  /**
+   * Sets the dependency tracking.
+   *
+   * @param dependencyTracking
+   *          the new dependency tracking
+   */
+  public void setDependencyTracking(boolean dependencyTracking) {
+    cacheModel.setDependencyTracking(dependencyTracking);
+  }
+
+  /**
+   * Sets the single flight.
+   *
+   * @param singleFlight
+   *          the new single flight
+   */
+  public void setSingleFlight(boolean singleFlight) {
+    cacheModel.setSingleFlight(singleFlight);
+  }
+
+  /**
+   * Sets the load timeout.
+   *
+   * @param loadTimeout
+   *          the new load timeout in milliseconds
+   */
+  public void setLoadTimeout(long loadTimeout) {
+    cacheModel.setLoadTimeout(loadTimeout);
+  }
+
+  /**
+   * Sets the copy on read.
+   *
+   * @param copyOnRead
+   *          the new copy on read
+   */
+  public void setCopyOnRead(boolean copyOnRead) {
+    cacheModel.setCopyOnRead(copyOnRead);
+  }
+
+  /**
+   * Sets the serializer.
+   *
+   * @param serializer
+   *          the new serializer
+   */
+  public void setSerializer(CacheSerializer serializer) {
+    cacheModel.setSerializer(serializer);
   }
 
   /**
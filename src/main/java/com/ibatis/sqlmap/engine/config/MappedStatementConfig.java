@@ -20,6 +20,7 @@ import com.ibatis.common.beans.ProbeFactory;
 import com.ibatis.common.resources.Resources;
 import com.ibatis.sqlmap.client.SqlMapException;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.TableDependency;
 import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
 import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
 import com.ibatis.sqlmap.engine.mapping.parameter.InlineParameterMapParser;
@@ -39,8 +40,10 @@ import com.ibatis.sqlmap.engine.scope.ErrorContext;
 import com.ibatis.sqlmap.engine.type.TypeHandlerFactory;
 
 import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.StringTokenizer;
 
 /**
  * The Class MappedStatementConfig.
@@ -59,6 +62,9 @@ public class MappedStatementConfig {
   /** The client. */
   private SqlMapClientImpl client;
 
+  /** The config. */
+  private SqlMapConfiguration config;
+
   /** The type handler factory. */
   private TypeHandlerFactory typeHandlerFactory;
 
@@ -111,6 +117,7 @@ public class MappedStatementConfig {
       Class resultClass, Class[] additionalResultClasses, String cacheModelName, String resultSetType,
       Integer fetchSize, boolean allowRemapping, Integer timeout, Integer defaultStatementTimeout,
       String xmlResultName) {
+    this.config = config;
     this.errorContext = config.getErrorContext();
     this.client = config.getClient();
     SqlMapExecutorDelegate delegate = client.getDelegate();
@@ -200,6 +207,108 @@ public class MappedStatementConfig {
     delegate.addMappedStatement(mappedStatement);
   }
 
+  /**
+   * Declares the tables the statement reads or writes, for cache models that track table dependencies.
+   *
+   * @param tables
+   *          the tables, such as <code>ACCOUNT(id), ORDERS</code>
+   */
+  public void setTables(String tables) {
+    rootStatement.setTableDependencies(TableDependency.parse(tables));
+  }
+
+  /**
+   * Marks the statement as selecting an object by id, through the entity cache of its result map.
+   *
+   * @param byId
+   *          the by id
+   */
+  public void setById(boolean byId) {
+    if (byId && (rootStatement.getResultMap() == null || rootStatement.getResultMap().getEntityCache() == null)) {
+      throw new SqlMapException("The statement named " + rootStatement.getId()
+          + " selects by id, but its result map does not declare an entity cache.");
+    }
+    rootStatement.setById(byId);
+  }
+
+  /**
+   * Sets the rank of the statement in a reordering batch.
+   *
+   * @param batchOrder
+   *          the batch order
+   */
+  public void setBatchOrder(int batchOrder) {
+    rootStatement.setBatchOrder(batchOrder);
+  }
+
+  /**
+   * Makes the insert statement read the keys generated by the database and write them to its parameter object, instead
+   * of running a select key statement.
+   *
+   * @param keyProperty
+   *          the properties the keys are written to, separated by commas
+   * @param keyColumn
+   *          the names of the key columns, separated by commas in the order of the properties, or null to let the
+   *          driver choose them
+   */
+  public void setGeneratedKeys(String keyProperty, String keyColumn) {
+    if (!(rootStatement instanceof InsertStatement)) {
+      throw new SqlMapException("The statement named " + rootStatement.getId()
+          + " cannot use generated keys because it is not an InsertStatement.");
+    }
+    String[] keyProperties = tokenize(keyProperty);
+    String[] keyColumns = keyColumn == null ? null : tokenize(keyColumn);
+    if (keyProperties.length == 0) {
+      throw new SqlMapException(
+          "The statement named " + rootStatement.getId() + " uses generated keys without key property.");
+    }
+    if (keyColumns != null && keyColumns.length != keyProperties.length) {
+      throw new SqlMapException("The statement named " + rootStatement.getId() + " declares " + keyProperties.length
+          + " key properties but " + keyColumns.length + " key columns.");
+    }
+    InsertStatement insertStatement = (InsertStatement) rootStatement;
+    insertStatement.setKeyProperties(keyProperties);
+    insertStatement.setKeyColumns(keyColumns);
+  }
+
+  /**
+   * Splits a list of names separated by commas.
+   *
+   * @param names
+   *          the names, or null
+   *
+   * @return the names
+   */
+  private static String[] tokenize(String names) {
+    List<String> tokens = new ArrayList<>();
+    if (names != null) {
+      StringTokenizer parser = new StringTokenizer(names, ", ", false);
+      while (parser.hasMoreTokens()) {
+        tokens.add(parser.nextToken());
+      }
+    }
+    return tokens.toArray(new String[0]);
+  }
+
+  /**
+   * Declares the entity the statement writes, so that it evicts the id it writes from the entity cache of the result
+   * map.
+   *
+   * @param resultMapName
+   *          the name of the result map
+   * @param keyProperty
+   *          the properties of the parameter object that make the id, separated by commas, in the order of the id
+   *          properties of the result map
+   */
+  public void setEntity(String resultMapName, String keyProperty) {
+    String[] keyProperties = tokenize(keyProperty);
+    if (keyProperties.length == 0) {
+      throw new SqlMapException("The statement named " + rootStatement.getId() + " declares the entity "
+          + resultMapName + " without key property.");
+    }
+    config.addEntityWriter(rootStatement, resultMapName, keyProperties);
+  }
+
   /**
    * Sets the select key statement.
    *
@@ -221,6 +330,10 @@ public class MappedStatementConfig {
           + " because it is not an InsertStatement.");
     }
     InsertStatement insertStatement = (InsertStatement) rootStatement;
+    if (insertStatement.isUseGeneratedKeys()) {
+      throw new SqlMapException("The statement named " + rootStatement.getId()
+          + " cannot both use generated keys and declare a select key statement.");
+    }
     Class parameterClass = insertStatement.getParameterClass();
     errorContext.setActivity("parsing a select key");
     SelectKeyStatement selectKeyStatement = new SelectKeyStatement();
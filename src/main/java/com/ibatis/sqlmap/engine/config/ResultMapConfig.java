@@ -15,7 +15,9 @@
  */
 package com.ibatis.sqlmap.engine.config;
 
+import com.ibatis.sqlmap.client.SqlMapException;
 import com.ibatis.sqlmap.client.extensions.TypeHandlerCallback;
+import com.ibatis.sqlmap.engine.cache.EntityCache;
 import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
 import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
 import com.ibatis.sqlmap.engine.mapping.result.Discriminator;
@@ -126,6 +128,38 @@ public class ResultMapConfig {
     client.getDelegate().addResultMap(resultMap);
   }
 
+  /**
+   * Caches the objects of the result map by id, for the select statements marked <code>byId</code>.
+   *
+   * @param idProperty
+   *          the properties that make the id, separated by commas, or null to use the group by property
+   * @param size
+   *          the maximum number of cached objects
+   * @param readOnly
+   *          false to hand out a copy of the cached objects to every caller
+   */
+  public void setEntityCache(String idProperty, int size, boolean readOnly) {
+    errorContext.setMoreInfo("Check the id properties of the entity cache.");
+    List<String> idProperties = new ArrayList<>();
+    if (idProperty != null && !idProperty.isEmpty()) {
+      StringTokenizer parser = new StringTokenizer(idProperty, ", ", false);
+      while (parser.hasMoreTokens()) {
+        idProperties.add(parser.nextToken());
+      }
+    } else if (resultMap.hasGroupBy()) {
+      Iterator<?> i = resultMap.groupByProps();
+      while (i.hasNext()) {
+        idProperties.add((String) i.next());
+      }
+    }
+    if (idProperties.isEmpty() || idProperties.size() > 1 && (idProperty == null || idProperty.isEmpty())) {
+      // the group by properties are unordered, and the statements that evict ids list their properties in order
+      throw new SqlMapException("The result map named " + resultMap.getId()
+          + " declares an entity cache but no single id property.  Set its idProperty attribute.");
+    }
+    resultMap.setEntityCache(new EntityCache(resultMap.getId(), idProperties.toArray(new String[0]), size, readOnly));
+  }
+
   /**
    * Sets the discriminator.
    *
@@ -18,15 +18,30 @@ package com.ibatis.sqlmap.engine.config;
 import com.ibatis.common.beans.ClassInfo;
 import com.ibatis.common.beans.Probe;
 import com.ibatis.common.beans.ProbeFactory;
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
 import com.ibatis.common.resources.Resources;
 import com.ibatis.sqlmap.client.SqlMapException;
 import com.ibatis.sqlmap.client.extensions.TypeHandlerCallback;
 import com.ibatis.sqlmap.engine.accessplan.AccessPlanFactory;
 import com.ibatis.sqlmap.engine.cache.CacheController;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
-import com.ibatis.sqlmap.engine.cache.fifo.FifoCacheController;
-import com.ibatis.sqlmap.engine.cache.lru.LruCacheController;
+import com.ibatis.sqlmap.engine.cache.CacheScheduler;
+import com.ibatis.sqlmap.engine.cache.CacheWarmup;
+import com.ibatis.sqlmap.engine.cache.EntityCache;
+import com.ibatis.sqlmap.engine.cache.EntityInvalidation;
+import com.ibatis.sqlmap.engine.cache.InvalidationBus;
+import com.ibatis.sqlmap.engine.cache.InvalidationTransport;
+import com.ibatis.sqlmap.engine.cache.fifo.ConcurrentFifoCacheController;
+import com.ibatis.sqlmap.engine.cache.invalidation.LoopbackInvalidationTransport;
+import com.ibatis.sqlmap.engine.cache.invalidation.MulticastInvalidationTransport;
+import com.ibatis.sqlmap.engine.cache.lfu.TinyLfuCacheController;
+import com.ibatis.sqlmap.engine.cache.lru.ConcurrentLruCacheController;
+import com.ibatis.sqlmap.engine.cache.mapped.MappedFileCacheController;
 import com.ibatis.sqlmap.engine.cache.memory.MemoryCacheController;
+import com.ibatis.sqlmap.engine.cache.offheap.OffHeapCacheController;
+import com.ibatis.sqlmap.engine.cache.weighted.CacheMemoryBudget;
+import com.ibatis.sqlmap.engine.cache.weighted.WeightedCacheController;
 import com.ibatis.sqlmap.engine.datasource.DbcpDataSourceFactory;
 import com.ibatis.sqlmap.engine.datasource.JndiDataSourceFactory;
 import com.ibatis.sqlmap.engine.datasource.SimpleDataSourceFactory;
@@ -36,6 +51,7 @@ import com.ibatis.sqlmap.engine.mapping.result.Discriminator;
 import com.ibatis.sqlmap.engine.mapping.result.ResultMap;
 import com.ibatis.sqlmap.engine.mapping.result.ResultObjectFactory;
 import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
+import com.ibatis.sqlmap.engine.mapping.statement.StatementType;
 import com.ibatis.sqlmap.engine.scope.ErrorContext;
 import com.ibatis.sqlmap.engine.transaction.TransactionManager;
 import com.ibatis.sqlmap.engine.transaction.external.ExternalTransactionConfig;
@@ -51,13 +67,26 @@ import com.ibatis.sqlmap.engine.type.TypeHandlerFactory;
 import com.ibatis.sqlmap.engine.type.XmlCollectionTypeMarker;
 import com.ibatis.sqlmap.engine.type.XmlTypeMarker;
 
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * The Class SqlMapConfiguration.
  */
 public class SqlMapConfiguration {
 
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(SqlMapConfiguration.class);
+
   /** The Constant PROBE. */
   private static final Probe PROBE = ProbeFactory.getProbe();
 
@@ -76,6 +105,18 @@ public class SqlMapConfiguration {
   /** The default statement timeout. */
   private Integer defaultStatementTimeout;
 
+  /** The cache warm-up. */
+  private CacheWarmup cacheWarmup;
+
+  /** Whether the statistics of the cache models are registered as MBeans. */
+  private boolean cacheJmxEnabled;
+
+  /** The name of the client in the object names of the cache MBeans. */
+  private String cacheJmxName;
+
+  /** The statements that declare the entity they write, wired up with the entity caches at the end. */
+  private final List<EntityWriter> entityWriters = new ArrayList<>();
+
   /**
    * Instantiates a new sql map configuration.
    */
@@ -204,6 +245,122 @@ public class SqlMapConfiguration {
     client.getDelegate().setForceMultipleResultSetSupport(forceMultipleResultSetSupport);
   }
 
+  /**
+   * Sets if batches keep one statement per distinct SQL, instead of starting a new sub-batch each time the SQL changes.
+   *
+   * @param batchReordering
+   *          the new batch reordering
+   */
+  public void setBatchReordering(boolean batchReordering) {
+    client.getDelegate().setBatchReordering(batchReordering);
+  }
+
+  /**
+   * Sets the number of statements after which a batch is executed, for the batches started without explicit size.
+   *
+   * @param batchSize
+   *          the new batch size, 0 for no limit
+   */
+  public void setBatchSize(int batchSize) {
+    client.getDelegate().setBatchSize(batchSize);
+  }
+
+  /**
+   * Sets the memory budget shared by all weighted cache models.
+   *
+   * @param maxBytes
+   *          the budget in bytes
+   */
+  public void setCacheMemoryBudget(long maxBytes) {
+    client.getDelegate().setCacheMemoryBudget(new CacheMemoryBudget(maxBytes));
+  }
+
+  /**
+   * Sets if the statistics of each cache model are registered as an MBean with the platform MBean server, under the
+   * name <code>com.ibatis.sqlmap:type=CacheModel,client=&lt;client&gt;,name=&lt;cache model id&gt;</code>. The client
+   * is the name set with {@link #setCacheJmxName(String)}, or the identity hash code of the client if none is set. The
+   * MBeans stay registered as long as the JVM runs.
+   *
+   * @param cacheJmxEnabled
+   *          the new cache jmx enabled
+   */
+  public void setCacheJmxEnabled(boolean cacheJmxEnabled) {
+    this.cacheJmxEnabled = cacheJmxEnabled;
+  }
+
+  /**
+   * Sets the name of the client in the object names of the cache MBeans. Clients of the same JVM must use different
+   * names; the MBeans of a cache model whose name is already registered are not registered.
+   *
+   * @param cacheJmxName
+   *          the new cache jmx name
+   */
+  public void setCacheJmxName(String cacheJmxName) {
+    this.cacheJmxName = cacheJmxName;
+  }
+
+  /**
+   * Sets the transport over which the cache invalidations are broadcast to the other nodes, and starts it.
+   *
+   * @param transport
+   *          the transport, configured
+   */
+  public void setInvalidationTransport(InvalidationTransport transport) {
+    InvalidationBus bus = client.getDelegate().getInvalidationBus();
+    if (bus != null) {
+      bus.close();
+    }
+    try {
+      client.getDelegate().setInvalidationBus(new InvalidationBus(transport));
+    } catch (IOException e) {
+      throw new SqlMapException("Error starting the cache invalidation transport.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Gets the cache warm-up.
+   *
+   * @return the cache warm-up, or null if none is declared
+   */
+  public CacheWarmup getCacheWarmup() {
+    return cacheWarmup;
+  }
+
+  /**
+   * Sets the cache warm-up, run by {@link #warmUpCaches()}.
+   *
+   * @param cacheWarmup
+   *          the new cache warm-up
+   */
+  public void setCacheWarmup(CacheWarmup cacheWarmup) {
+    this.cacheWarmup = cacheWarmup;
+  }
+
+  /**
+   * Runs the cache warm-up, if one is declared.
+   */
+  public void warmUpCaches() {
+    if (cacheWarmup != null) {
+      cacheWarmup.run(client);
+    }
+  }
+
+  /**
+   * Sets if the interval flushes and entry expiry of the cache models run on a background scheduler.
+   *
+   * @param cacheSchedulerEnabled
+   *          the new cache scheduler enabled
+   */
+  public void setCacheSchedulerEnabled(boolean cacheSchedulerEnabled) {
+    CacheScheduler scheduler = client.getDelegate().getCacheScheduler();
+    if (cacheSchedulerEnabled && scheduler == null) {
+      client.getDelegate().setCacheScheduler(new CacheScheduler());
+    } else if (!cacheSchedulerEnabled && scheduler != null) {
+      scheduler.shutdown();
+      client.getDelegate().setCacheScheduler(null);
+    }
+  }
+
   /**
    * Sets the default statement timeout.
    *
@@ -382,9 +539,26 @@ public class SqlMapConfiguration {
    */
   public void finalizeSqlMapConfig() {
     wireUpCacheModels();
+    wireUpEntityWriters();
+    wireUpEntityCaches();
     bindResultMapDiscriminators();
   }
 
+  /**
+   * Declares the entity a statement writes, so that the statement evicts the id it writes from the entity cache of the
+   * result map. The result map is looked up once all the sql maps are read.
+   *
+   * @param statement
+   *          the statement
+   * @param resultMapName
+   *          the name of the result map
+   * @param keyProperties
+   *          the properties of the parameter object that make the id
+   */
+  void addEntityWriter(MappedStatement statement, String resultMapName, String[] keyProperties) {
+    entityWriters.add(new EntityWriter(statement, resultMapName, keyProperties));
+  }
+
   /**
    * Resolve type handler.
    *
@@ -477,9 +651,17 @@ public class SqlMapConfiguration {
     typeHandlerFactory.putTypeAlias("JNDI", JndiDataSourceFactory.class.getName());
 
     // CACHE ALIASES
-    typeHandlerFactory.putTypeAlias("FIFO", FifoCacheController.class.getName());
-    typeHandlerFactory.putTypeAlias("LRU", LruCacheController.class.getName());
+    typeHandlerFactory.putTypeAlias("FIFO", ConcurrentFifoCacheController.class.getName());
+    typeHandlerFactory.putTypeAlias("LRU", ConcurrentLruCacheController.class.getName());
     typeHandlerFactory.putTypeAlias("MEMORY", MemoryCacheController.class.getName());
+    typeHandlerFactory.putTypeAlias("LFU", TinyLfuCacheController.class.getName());
+    typeHandlerFactory.putTypeAlias("WEIGHTED", WeightedCacheController.class.getName());
+    typeHandlerFactory.putTypeAlias("OFFHEAP", OffHeapCacheController.class.getName());
+    typeHandlerFactory.putTypeAlias("MAPPED", MappedFileCacheController.class.getName());
+
+    // CACHE INVALIDATION ALIASES
+    typeHandlerFactory.putTypeAlias("LOOPBACK", LoopbackInvalidationTransport.class.getName());
+    typeHandlerFactory.putTypeAlias("MULTICAST", MulticastInvalidationTransport.class.getName());
 
     // TYPE ALIASEs
     typeHandlerFactory.putTypeAlias("dom", DomTypeMarker.class.getName());
@@ -497,6 +679,22 @@ public class SqlMapConfiguration {
     while (cacheNames.hasNext()) {
       String cacheName = (String) cacheNames.next();
       CacheModel cacheModel = client.getDelegate().getCacheModel(cacheName);
+      CacheMemoryBudget budget = client.getDelegate().getCacheMemoryBudget();
+      if (budget != null && cacheModel.getCacheController() instanceof WeightedCacheController) {
+        ((WeightedCacheController) cacheModel.getCacheController()).setMemoryBudget(budget);
+      }
+      CacheScheduler scheduler = client.getDelegate().getCacheScheduler();
+      if (scheduler != null && !cacheModel.isScheduled()) {
+        scheduler.schedule(cacheModel);
+      }
+      InvalidationBus bus = client.getDelegate().getInvalidationBus();
+      if (bus != null) {
+        bus.register(cacheModel);
+      }
+      if (cacheJmxEnabled) {
+        registerCacheMBean(cacheModel);
+      }
+      Set<MappedStatement> triggers = new HashSet<>();
       Iterator statementNames = cacheModel.getFlushTriggerStatementNames();
       while (statementNames.hasNext()) {
         String statementName = (String) statementNames.next();
@@ -506,6 +704,97 @@ public class SqlMapConfiguration {
               + "' for use as a flush trigger for the cache model named '" + cacheName + "'.");
         }
         statement.addExecuteListener(cacheModel);
+        triggers.add(statement);
+      }
+      if (cacheModel.isDependencyTracking()) {
+        wireUpTableWriters(cacheModel, triggers);
+      }
+    }
+  }
+
+  /**
+   * Registers the statistics of a cache model as an MBean. A failure, including a name already registered by another
+   * client, is logged, since it does not prevent the cache from working.
+   *
+   * @param cacheModel
+   *          the cache model
+   */
+  private void registerCacheMBean(CacheModel cacheModel) {
+    try {
+      String clientName = cacheJmxName == null ? Integer.toHexString(System.identityHashCode(client))
+          : ObjectName.quote(cacheJmxName);
+      ObjectName name = new ObjectName("com.ibatis.sqlmap:type=CacheModel,client=" + clientName + ",name="
+          + ObjectName.quote(cacheModel.getId()));
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        log.warn("The statistics of cache '" + cacheModel.getId() + "' are not registered with JMX, since the name "
+            + name + " is already registered.  Set a different cacheJmxName for each client.");
+        return;
+      }
+      server.registerMBean(cacheModel.getStatistics(), name);
+    } catch (JMException e) {
+      log.warn("Error registering the statistics of cache '" + cacheModel.getId() + "' with JMX.  Cause: " + e);
+    }
+  }
+
+  /**
+   * Registers a cache model that tracks table dependencies with the inserts, updates, deletes and procedures that
+   * declare the tables they write. A write that declares no tables evicts nothing unless it is a flush trigger of the
+   * cache model, as without dependency tracking.
+   *
+   * @param cacheModel
+   *          the cache model
+   * @param triggers
+   *          the statements that already flush the cache model
+   */
+  private void wireUpTableWriters(CacheModel cacheModel, Set<MappedStatement> triggers) {
+    Iterator<?> names = client.getDelegate().getMappedStatementNames();
+    while (names.hasNext()) {
+      MappedStatement statement = client.getDelegate().getMappedStatement((String) names.next());
+      StatementType type = statement.getStatementType();
+      boolean writes = type == StatementType.INSERT || type == StatementType.UPDATE || type == StatementType.DELETE
+          || type == StatementType.PROCEDURE;
+      if (writes && statement.getTableDependencies() != null && !triggers.contains(statement)) {
+        statement.addExecuteListener(cacheModel);
+      }
+    }
+  }
+
+  /**
+   * Registers the statements that declare the entity they write with the entity cache of the result map.
+   */
+  private void wireUpEntityWriters() {
+    for (EntityWriter writer : entityWriters) {
+      ResultMap resultMap = delegate.getResultMap(writer.resultMapName);
+      EntityCache entityCache = resultMap.getEntityCache();
+      if (entityCache == null) {
+        throw new SqlMapException("The statement named " + writer.statement.getId() + " declares the entity "
+            + writer.resultMapName + ", but that result map does not declare an entity cache.");
+      }
+      if (writer.keyProperties.length != entityCache.getIdProperties().length) {
+        throw new SqlMapException("The statement named " + writer.statement.getId() + " declares "
+            + writer.keyProperties.length + " key properties for the entity " + writer.resultMapName + ", which has "
+            + entityCache.getIdProperties().length + " id properties.");
+      }
+      writer.statement.addExecuteListener(new EntityInvalidation(entityCache, writer.keyProperties));
+    }
+    entityWriters.clear();
+  }
+
+  /**
+   * Registers the entity caches of the result maps with the invalidation bus, if there is one, so that their evictions
+   * are broadcast to the other nodes.
+   */
+  private void wireUpEntityCaches() {
+    InvalidationBus bus = delegate.getInvalidationBus();
+    if (bus == null) {
+      return;
+    }
+    Iterator<?> names = delegate.getResultMapNames();
+    while (names.hasNext()) {
+      EntityCache entityCache = delegate.getResultMap((String) names.next()).getEntityCache();
+      if (entityCache != null) {
+        bus.register(entityCache);
       }
     }
   }
@@ -526,4 +815,35 @@ public class SqlMapConfiguration {
     }
   }
 
+  /**
+   * A statement that declares the entity it writes.
+   */
+  private static class EntityWriter {
+
+    /** The statement. */
+    private final MappedStatement statement;
+
+    /** The name of the result map. */
+    private final String resultMapName;
+
+    /** The key properties. */
+    private final String[] keyProperties;
+
+    /**
+     * Instantiates a new entity writer.
+     *
+     * @param statement
+     *          the statement
+     * @param resultMapName
+     *          the name of the result map
+     * @param keyProperties
+     *          the key properties
+     */
+    EntityWriter(MappedStatement statement, String resultMapName, String[] keyProperties) {
+      this.statement = statement;
+      this.resultMapName = resultMapName;
+      this.keyProperties = keyProperties;
+    }
+  }
+
 }
@@ -40,13 +40,19 @@ public abstract class BaseDataExchange implements DataExchange {
   @Override
   public CacheKey getCacheKey(StatementScope statementScope, ParameterMap parameterMap, Object parameterObject) {
     CacheKey key = new CacheKey();
+    updateCacheKey(key, statementScope, parameterMap, parameterObject);
+    return key;
+  }
+
+  @Override
+  public void updateCacheKey(CacheKey key, StatementScope statementScope, ParameterMap parameterMap,
+      Object parameterObject) {
     Object[] data = getData(statementScope, parameterMap, parameterObject);
+    key.ensureCapacity(data.length);
     for (Object element : data) {
-      if (element != null) {
-        key.update(element);
-      }
+      // nulls are kept, otherwise (null, 1) and (1, null) would make the same key
+      key.update(element);
     }
-    return key;
   }
 
   /**
@@ -95,4 +95,21 @@ public interface DataExchange {
    */
   CacheKey getCacheKey(StatementScope statementScope, ParameterMap parameterMap, Object parameterObject);
 
+  /**
+   * Adds the values of a parameter object to a cache key.
+   *
+   * @param key
+   *          - the cache key to update
+   * @param statementScope
+   *          - the request scope
+   * @param parameterMap
+   *          - the parameter map
+   * @param parameterObject
+   *          - the parameter object
+   */
+  default void updateCacheKey(CacheKey key, StatementScope statementScope, ParameterMap parameterMap,
+      Object parameterObject) {
+    key.update(getCacheKey(statementScope, parameterMap, parameterObject));
+  }
+
 }
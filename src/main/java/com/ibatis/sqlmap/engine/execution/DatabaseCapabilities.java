@@ -0,0 +1,261 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.execution;
+
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * What a database and its driver support, read once from the metadata of a connection, so that the engine does not
+ * ask the driver again on every statement.
+ * <p>
+ * A capability the driver fails to report is taken as unsupported.
+ */
+public final class DatabaseCapabilities {
+
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(DatabaseCapabilities.class);
+
+  /** The database product name. */
+  private final String databaseProductName;
+
+  /** The driver name. */
+  private final String driverName;
+
+  /** The URL. */
+  private final String url;
+
+  /** Whether a statement may return several result sets. */
+  private final boolean multipleResultSetsSupported;
+
+  /** Whether the driver supports batch updates. */
+  private final boolean batchUpdatesSupported;
+
+  /** Whether the driver returns the keys generated by an insert. */
+  private final boolean getGeneratedKeysSupported;
+
+  /** The maximum number of parameters of a statement, 0 if unknown. */
+  private final int maxParameters;
+
+  /** The fetch size of a new statement, 0 if the driver picks it. */
+  private final int defaultFetchSize;
+
+  /**
+   * Instantiates new database capabilities.
+   *
+   * @param databaseProductName
+   *          the database product name
+   * @param driverName
+   *          the driver name
+   * @param url
+   *          the URL
+   * @param multipleResultSetsSupported
+   *          whether a statement may return several result sets
+   * @param batchUpdatesSupported
+   *          whether the driver supports batch updates
+   * @param getGeneratedKeysSupported
+   *          whether the driver returns the keys generated by an insert
+   * @param maxParameters
+   *          the maximum number of parameters of a statement, 0 if unknown
+   * @param defaultFetchSize
+   *          the fetch size of a new statement
+   */
+  public DatabaseCapabilities(String databaseProductName, String driverName, String url,
+      boolean multipleResultSetsSupported, boolean batchUpdatesSupported, boolean getGeneratedKeysSupported,
+      int maxParameters, int defaultFetchSize) {
+    this.databaseProductName = databaseProductName == null ? "" : databaseProductName;
+    this.driverName = driverName == null ? "" : driverName;
+    this.url = url;
+    this.multipleResultSetsSupported = multipleResultSetsSupported;
+    this.batchUpdatesSupported = batchUpdatesSupported;
+    this.getGeneratedKeysSupported = getGeneratedKeysSupported;
+    this.maxParameters = maxParameters;
+    this.defaultFetchSize = defaultFetchSize;
+  }
+
+  /**
+   * Reads the capabilities of the database of a connection.
+   *
+   * @param conn
+   *          the connection
+   *
+   * @return the capabilities
+   *
+   * @throws SQLException
+   *           if the metadata cannot be read
+   */
+  public static DatabaseCapabilities probe(Connection conn) throws SQLException {
+    DatabaseMetaData metaData = conn.getMetaData();
+    String productName = null;
+    String driverName = null;
+    String url = null;
+    boolean multipleResultSets = false;
+    boolean batchUpdates = false;
+    boolean generatedKeys = false;
+    try {
+      productName = metaData.getDatabaseProductName();
+      driverName = metaData.getDriverName();
+      url = metaData.getURL();
+    } catch (SQLException | RuntimeException | AbstractMethodError e) {
+      log.debug("Could not read the database or driver name.  Cause: " + e);
+    }
+    try {
+      multipleResultSets = metaData.supportsMultipleResultSets();
+    } catch (SQLException | RuntimeException | AbstractMethodError e) {
+      log.debug("Could not check support for multiple result sets.  Cause: " + e);
+    }
+    try {
+      batchUpdates = metaData.supportsBatchUpdates();
+    } catch (SQLException | RuntimeException | AbstractMethodError e) {
+      log.debug("Could not check support for batch updates.  Cause: " + e);
+    }
+    try {
+      generatedKeys = metaData.supportsGetGeneratedKeys();
+    } catch (SQLException | RuntimeException | AbstractMethodError e) {
+      log.debug("Could not check support for generated keys.  Cause: " + e);
+    }
+    return new DatabaseCapabilities(productName, driverName, url, multipleResultSets, batchUpdates, generatedKeys,
+        maxParametersOf(productName), defaultFetchSizeOf(conn));
+  }
+
+  /**
+   * Gets the known limit of the number of parameters of a statement, for a database product. The limits are the ones
+   * of the oldest versions still in use.
+   *
+   * @param productName
+   *          the database product name
+   *
+   * @return the limit, or 0 if it is unknown
+   */
+  private static int maxParametersOf(String productName) {
+    if (productName == null) {
+      return 0;
+    }
+    if (productName.startsWith("Microsoft SQL Server")) {
+      return 2100;
+    }
+    if (productName.startsWith("PostgreSQL")) {
+      return 32767;
+    }
+    if (productName.startsWith("SQLite")) {
+      return 999;
+    }
+    if (productName.startsWith("Oracle")) {
+      return 65535;
+    }
+    return 0;
+  }
+
+  /**
+   * Gets the fetch size of a new statement of a connection.
+   *
+   * @param conn
+   *          the connection
+   *
+   * @return the fetch size, or 0 if it cannot be read
+   */
+  private static int defaultFetchSizeOf(Connection conn) {
+    try (Statement statement = conn.createStatement()) {
+      return statement.getFetchSize();
+    } catch (SQLException | RuntimeException | AbstractMethodError e) {
+      log.debug("Could not read the default fetch size.  Cause: " + e);
+      return 0;
+    }
+  }
+
+  /**
+   * Gets the database product name.
+   *
+   * @return the database product name, empty if unknown
+   */
+  public String getDatabaseProductName() {
+    return databaseProductName;
+  }
+
+  /**
+   * Gets the driver name.
+   *
+   * @return the driver name, empty if unknown
+   */
+  public String getDriverName() {
+    return driverName;
+  }
+
+  /**
+   * Gets the URL of the database.
+   *
+   * @return the URL, or null if unknown
+   */
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Tells if a statement may return several result sets.
+   *
+   * @return true if it may
+   */
+  public boolean supportsMultipleResultSets() {
+    return multipleResultSetsSupported;
+  }
+
+  /**
+   * Tells if the driver supports batch updates.
+   *
+   * @return true if it does
+   */
+  public boolean supportsBatchUpdates() {
+    return batchUpdatesSupported;
+  }
+
+  /**
+   * Tells if the driver returns the keys generated by an insert.
+   *
+   * @return true if it does
+   */
+  public boolean supportsGetGeneratedKeys() {
+    return getGeneratedKeysSupported;
+  }
+
+  /**
+   * Gets the maximum number of parameters of a statement.
+   *
+   * @return the maximum, or 0 if it is unknown
+   */
+  public int getMaxParameters() {
+    return maxParameters;
+  }
+
+  /**
+   * Gets the fetch size of a new statement.
+   *
+   * @return the default fetch size, 0 if the driver picks it
+   */
+  public int getDefaultFetchSize() {
+    return defaultFetchSize;
+  }
+
+  @Override
+  public String toString() {
+    return databaseProductName + " (" + driverName + ")";
+  }
+
+}
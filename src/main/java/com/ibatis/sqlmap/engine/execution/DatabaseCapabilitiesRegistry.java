@@ -0,0 +1,94 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.execution;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+/**
+ * The capabilities of the databases a client runs statements on, probed once per data source, or once per JDBC URL for
+ * the connections provided by the application.
+ */
+public class DatabaseCapabilitiesRegistry {
+
+  /** The capabilities, by data source. */
+  private final Map<DataSource, DatabaseCapabilities> byDataSource = new ConcurrentHashMap<>();
+
+  /** The capabilities, by JDBC URL. */
+  private final Map<String, DatabaseCapabilities> byUrl = new ConcurrentHashMap<>();
+
+  /** The capabilities of the connections seen without data source, so that their URL is read once. */
+  private final Map<Connection, DatabaseCapabilities> byConnection = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Gets the capabilities of the database of a connection.
+   *
+   * @param dataSource
+   *          the data source the connection comes from, or null if unknown
+   * @param conn
+   *          the connection
+   *
+   * @return the capabilities
+   *
+   * @throws SQLException
+   *           if the metadata of the connection cannot be read
+   */
+  public DatabaseCapabilities get(DataSource dataSource, Connection conn) throws SQLException {
+    if (dataSource != null) {
+      DatabaseCapabilities capabilities = byDataSource.get(dataSource);
+      if (capabilities == null) {
+        capabilities = DatabaseCapabilities.probe(conn);
+        DatabaseCapabilities existing = byDataSource.putIfAbsent(dataSource, capabilities);
+        if (existing != null) {
+          capabilities = existing;
+        }
+      }
+      return capabilities;
+    }
+    DatabaseCapabilities capabilities = byConnection.get(conn);
+    if (capabilities == null) {
+      String url = conn.getMetaData().getURL();
+      capabilities = url == null ? null : byUrl.get(url);
+      if (capabilities == null) {
+        capabilities = DatabaseCapabilities.probe(conn);
+        if (url != null) {
+          DatabaseCapabilities existing = byUrl.putIfAbsent(url, capabilities);
+          if (existing != null) {
+            capabilities = existing;
+          }
+        }
+      }
+      byConnection.put(conn, capabilities);
+    }
+    return capabilities;
+  }
+
+  /**
+   * Forgets the probed capabilities, so that they are probed again, for instance after a data source was reconfigured.
+   */
+  public void clear() {
+    byDataSource.clear();
+    byUrl.clear();
+    byConnection.clear();
+  }
+
+}
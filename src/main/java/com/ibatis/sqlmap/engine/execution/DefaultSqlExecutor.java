@@ -15,6 +15,8 @@
  */
 package com.ibatis.sqlmap.engine.execution;
 
+import com.ibatis.common.beans.Probe;
+import com.ibatis.common.beans.ProbeFactory;
 import com.ibatis.sqlmap.engine.config.SqlMapConfiguration;
 import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
 import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
@@ -23,11 +25,14 @@ import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMapping;
 import com.ibatis.sqlmap.engine.mapping.result.ResultMap;
 import com.ibatis.sqlmap.engine.mapping.result.ResultObjectFactoryUtil;
 import com.ibatis.sqlmap.engine.mapping.statement.DefaultRowHandler;
+import com.ibatis.sqlmap.engine.mapping.statement.InsertStatement;
 import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
 import com.ibatis.sqlmap.engine.mapping.statement.RowHandlerCallback;
 import com.ibatis.sqlmap.engine.scope.ErrorContext;
 import com.ibatis.sqlmap.engine.scope.SessionScope;
 import com.ibatis.sqlmap.engine.scope.StatementScope;
+import com.ibatis.sqlmap.engine.type.TypeHandler;
+import com.ibatis.sqlmap.engine.type.TypeHandlerFactory;
 
 import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
@@ -38,7 +43,12 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -74,13 +84,18 @@ public class DefaultSqlExecutor implements SqlExecutor {
     int rows = 0;
     try {
       errorContext.setMoreInfo("Check the SQL Statement (preparation failed).");
-      ps = prepareStatement(statementScope.getSession(), conn, sql);
+      InsertStatement keyStatement = getGeneratedKeysStatement(statementScope);
+      ps = prepareStatement(statementScope, conn, sql);
       setStatementTimeout(statementScope.getStatement(), ps);
       errorContext.setMoreInfo("Check the parameters (set parameters failed).");
       statementScope.getParameterMap().setParameters(statementScope, ps, parameters);
       errorContext.setMoreInfo("Check the statement (update failed).");
       ps.execute();
       rows = ps.getUpdateCount();
+      if (keyStatement != null) {
+        errorContext.setMoreInfo("Check the key properties (retrieval of generated keys failed).");
+        writeGeneratedKeys(keyStatement, ps, Collections.singletonList(statementScope.getParameterObject()));
+      }
     } finally {
       closeStatement(statementScope.getSession(), ps);
       cleanupResultObjectFactory();
@@ -108,7 +123,8 @@ public class DefaultSqlExecutor implements SqlExecutor {
       throws SQLException {
     Batch batch = (Batch) statementScope.getSession().getBatch();
     if (batch == null) {
-      batch = new Batch();
+      SqlMapClientImpl client = (SqlMapClientImpl) statementScope.getSession().getSqlMapClient();
+      batch = new Batch(client.getDelegate().isBatchReordering(), statementScope.getSession().getBatchSize());
       statementScope.getSession().setBatch(batch);
     }
     batch.addBatch(statementScope, conn, sql, parameters);
@@ -501,7 +517,28 @@ public class DefaultSqlExecutor implements SqlExecutor {
    *           the SQL exception
    */
   private boolean isMultipleResultSetSupportPresent(StatementScope scope, Statement stmt) throws SQLException {
-    return forceMultipleResultSetSupport(scope) || stmt.getConnection().getMetaData().supportsMultipleResultSets();
+    return forceMultipleResultSetSupport(scope)
+        || getDatabaseCapabilities(scope, stmt.getConnection()).supportsMultipleResultSets();
+  }
+
+  /**
+   * Gets the capabilities of the database of a connection, probed once per data source.
+   *
+   * @param scope
+   *          the scope
+   * @param conn
+   *          the connection
+   *
+   * @return the database capabilities
+   *
+   * @throws SQLException
+   *           the SQL exception
+   */
+  private static DatabaseCapabilities getDatabaseCapabilities(StatementScope scope, Connection conn)
+      throws SQLException {
+    SessionScope sessionScope = scope.getSession();
+    return ((SqlMapClientImpl) sessionScope.getSqlMapClient()).getDelegate().getDatabaseCapabilities(sessionScope,
+        conn);
   }
 
   /**
@@ -715,6 +752,93 @@ public class DefaultSqlExecutor implements SqlExecutor {
     return ps;
   }
 
+  /**
+   * Prepares the statement of a request. The statements that read generated keys are prepared for it, and are not
+   * cached by the session.
+   *
+   * @param statementScope
+   *          the statement scope
+   * @param conn
+   *          the conn
+   * @param sql
+   *          the sql
+   *
+   * @return the prepared statement
+   *
+   * @throws SQLException
+   *           the SQL exception
+   */
+  private static PreparedStatement prepareStatement(StatementScope statementScope, Connection conn, String sql)
+      throws SQLException {
+    InsertStatement keyStatement = getGeneratedKeysStatement(statementScope);
+    if (keyStatement == null) {
+      return prepareStatement(statementScope.getSession(), conn, sql);
+    }
+    if (!getDatabaseCapabilities(statementScope, conn).supportsGetGeneratedKeys()) {
+      throw new SQLException("The statement named " + keyStatement.getId()
+          + " uses generated keys, but the JDBC driver does not support them.");
+    }
+    String[] keyColumns = keyStatement.getKeyColumns();
+    return keyColumns == null ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+        : conn.prepareStatement(sql, keyColumns);
+  }
+
+  /**
+   * Gets the statement of a request if it reads generated keys.
+   *
+   * @param statementScope
+   *          the statement scope
+   *
+   * @return the insert statement, or null if the statement does not read generated keys
+   */
+  private static InsertStatement getGeneratedKeysStatement(StatementScope statementScope) {
+    MappedStatement statement = statementScope.getStatement();
+    if (statement instanceof InsertStatement && ((InsertStatement) statement).isUseGeneratedKeys()) {
+      return (InsertStatement) statement;
+    }
+    return null;
+  }
+
+  /**
+   * Writes the keys generated by an execution of a statement to the key properties of its parameter objects, one row
+   * of keys per parameter object, in order.
+   *
+   * @param keyStatement
+   *          the insert statement
+   * @param ps
+   *          the executed statement
+   * @param parameterObjects
+   *          the parameter objects of the execution
+   *
+   * @throws SQLException
+   *           the SQL exception
+   */
+  private static void writeGeneratedKeys(InsertStatement keyStatement, Statement ps, List<Object> parameterObjects)
+      throws SQLException {
+    TypeHandlerFactory typeHandlerFactory = ((SqlMapClientImpl) keyStatement.getSqlMapClient()).getDelegate()
+        .getTypeHandlerFactory();
+    String[] keyProperties = keyStatement.getKeyProperties();
+    try (ResultSet rs = ps.getGeneratedKeys()) {
+      for (Object parameterObject : parameterObjects) {
+        if (!rs.next()) {
+          break;
+        }
+        if (parameterObject == null) {
+          continue;
+        }
+        Probe probe = ProbeFactory.getProbe(parameterObject);
+        for (int i = 0; i < keyProperties.length; i++) {
+          TypeHandler handler = typeHandlerFactory
+              .getTypeHandler(probe.getPropertyTypeForSetter(parameterObject, keyProperties[i]));
+          if (handler == null) {
+            handler = typeHandlerFactory.getTypeHandler(Object.class);
+          }
+          probe.setObject(parameterObject, keyProperties[i], handler.getResult(rs, i + 1));
+        }
+      }
+    }
+  }
+
   /**
    * Prepare call.
    *
@@ -850,6 +974,27 @@ public class DefaultSqlExecutor implements SqlExecutor {
    */
   private static class Batch {
 
+    /** Set if the batch keeps one statement per distinct SQL and statement. */
+    private final boolean reordering;
+
+    /** The number of statements after which the batch is executed, 0 for no limit. */
+    private final int maxSize;
+
+    /** The index of the sub-batch of each statement id and SQL, in a reordering batch. */
+    private final Map<List<String>, Integer> subBatches = new HashMap<>();
+
+    /** The batch order of the statement of each sub-batch. */
+    private final List<Integer> orderList = new ArrayList<>();
+
+    /** The number of statements added to each sub-batch since it was last executed. */
+    private final List<Integer> pendingList = new ArrayList<>();
+
+    /** The statement of each sub-batch if it reads generated keys, else null. */
+    private final List<InsertStatement> keyStatementList = new ArrayList<>();
+
+    /** The parameter objects added to each sub-batch that reads generated keys since it was last executed. */
+    private final List<List<Object>> keyParameterList = new ArrayList<>();
+
     /** The current sql. */
     private String currentSql;
 
@@ -862,10 +1007,21 @@ public class DefaultSqlExecutor implements SqlExecutor {
     /** The size. */
     private int size;
 
+    /** The number of statements added since the batch was last executed. */
+    private int pending;
+
     /**
      * Create a new batch.
+     *
+     * @param reordering
+     *          true to keep one statement per distinct SQL and statement, and to run the sub-batches by batch order of
+     *          their statements, then by first appearance
+     * @param maxSize
+     *          the number of statements after which the batch is executed, or 0 for no limit
      */
-    public Batch() {
+    public Batch(boolean reordering, int maxSize) {
+      this.reordering = reordering;
+      this.maxSize = maxSize;
       this.size = 0;
     }
 
@@ -879,7 +1035,8 @@ public class DefaultSqlExecutor implements SqlExecutor {
     }
 
     /**
-     * Add a prepared statement to the batch.
+     * Add a prepared statement to the batch. If the batch then holds as many pending statements as its maximum size, it
+     * is executed, and its results are kept until the batch ends.
      *
      * @param statementScope
      *          - the request scope
@@ -891,24 +1048,135 @@ public class DefaultSqlExecutor implements SqlExecutor {
      *          - the parameters for the SQL
      *
      * @throws SQLException
-     *           - if the prepare for the SQL fails
+     *           - if the prepare for the SQL fails, or the execution of the batch
      */
     public void addBatch(StatementScope statementScope, Connection conn, String sql, Object[] parameters)
         throws SQLException {
       PreparedStatement ps = null;
-      if (currentSql != null && currentSql.equals(sql)) {
-        int last = statementList.size() - 1;
-        ps = (PreparedStatement) statementList.get(last);
+      int index;
+      if (reordering) {
+        List<String> key = Arrays.asList(statementScope.getStatement().getId(), sql);
+        Integer subBatch = subBatches.get(key);
+        if (subBatch == null) {
+          subBatches.put(key, statementList.size());
+          ps = addSubBatch(statementScope, conn, sql);
+          index = statementList.size() - 1;
+        } else {
+          index = subBatch;
+          ps = (PreparedStatement) statementList.get(index);
+        }
+      } else if (currentSql != null && currentSql.equals(sql)
+          && keyStatementList.get(statementList.size() - 1) == getGeneratedKeysStatement(statementScope)) {
+        index = statementList.size() - 1;
+        ps = (PreparedStatement) statementList.get(index);
       } else {
-        ps = prepareStatement(statementScope.getSession(), conn, sql);
-        setStatementTimeout(statementScope.getStatement(), ps);
+        ps = addSubBatch(statementScope, conn, sql);
+        index = statementList.size() - 1;
         currentSql = sql;
-        statementList.add(ps);
-        batchResultList.add(new BatchResult(statementScope.getStatement().getId(), sql));
       }
       statementScope.getParameterMap().setParameters(statementScope, ps, parameters);
       ps.addBatch();
+      if (keyStatementList.get(index) != null) {
+        keyParameterList.get(index).add(statementScope.getParameterObject());
+      }
+      pendingList.set(index, pendingList.get(index) + 1);
       size++;
+      pending++;
+      if (maxSize > 0 && pending >= maxSize) {
+        for (int subBatch : executionOrder()) {
+          executeSubBatch(subBatch);
+        }
+      }
+    }
+
+    /**
+     * Prepares the statement of a new sub-batch. A statement the session caches for the SQL is only used if no other
+     * sub-batch uses it, since the sub-batches of a batch that share the SQL, such as those of different statements of
+     * a reordering batch, each need their own statement.
+     *
+     * @param statementScope
+     *          the request scope
+     * @param conn
+     *          the database connection
+     * @param sql
+     *          the SQL of the sub-batch
+     *
+     * @return the prepared statement
+     *
+     * @throws SQLException
+     *           if the prepare for the SQL fails
+     */
+    private PreparedStatement addSubBatch(StatementScope statementScope, Connection conn, String sql)
+        throws SQLException {
+      PreparedStatement ps = prepareStatement(statementScope, conn, sql);
+      if (statementList.contains(ps)) {
+        ps = conn.prepareStatement(sql);
+      }
+      setStatementTimeout(statementScope.getStatement(), ps);
+      InsertStatement keyStatement = getGeneratedKeysStatement(statementScope);
+      keyStatementList.add(keyStatement);
+      keyParameterList.add(keyStatement == null ? null : new ArrayList<>());
+      statementList.add(ps);
+      batchResultList.add(new BatchResult(statementScope.getStatement().getId(), sql));
+      orderList.add(statementScope.getStatement().getBatchOrder());
+      pendingList.add(0);
+      return ps;
+    }
+
+    /**
+     * Gets the order in which the sub-batches run: the order they were added in, or for a reordering batch, by batch
+     * order, keeping the order of first appearance among the sub-batches of the same batch order.
+     *
+     * @return the indexes of the sub-batches
+     */
+    private int[] executionOrder() {
+      Integer[] indexes = new Integer[statementList.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = i;
+      }
+      if (reordering) {
+        Arrays.sort(indexes, Comparator.comparingInt(orderList::get));
+      }
+      return Arrays.stream(indexes).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Executes the statements pending in a sub-batch, if any, and adds their update counts to its result. If the
+     * sub-batch reads generated keys, they are written to the parameter objects of its statements.
+     *
+     * @param index
+     *          the index of the sub-batch
+     *
+     * @throws SQLException
+     *           if the driver fails to execute the batch
+     */
+    private void executeSubBatch(int index) throws SQLException {
+      int count = pendingList.get(index);
+      if (count == 0) {
+        return;
+      }
+      pendingList.set(index, 0);
+      pending -= count;
+      PreparedStatement ps = (PreparedStatement) statementList.get(index);
+      BatchResult br = (BatchResult) batchResultList.get(index);
+      int[] rowCounts = ps.executeBatch();
+      InsertStatement keyStatement = keyStatementList.get(index);
+      if (keyStatement != null) {
+        List<Object> parameterObjects = keyParameterList.get(index);
+        try {
+          writeGeneratedKeys(keyStatement, ps, parameterObjects);
+        } finally {
+          parameterObjects.clear();
+        }
+      }
+      int[] updateCounts = br.getUpdateCounts();
+      if (updateCounts == null) {
+        br.setUpdateCounts(rowCounts);
+      } else {
+        int[] merged = Arrays.copyOf(updateCounts, updateCounts.length + rowCounts.length);
+        System.arraycopy(rowCounts, 0, merged, updateCounts.length, rowCounts.length);
+        br.setUpdateCounts(merged);
+      }
     }
 
     /**
@@ -917,16 +1185,16 @@ public class DefaultSqlExecutor implements SqlExecutor {
      * <p>
      * Execute the current session's batch
      *
-     * @return - the number of rows updated
+     * @return - the number of rows updated, including the ones of the executions triggered by the maximum size
      *
      * @throws SQLException
      *           - if the batch fails
      */
     public int executeBatch() throws SQLException {
       int totalRowCount = 0;
-      for (Object element : statementList) {
-        PreparedStatement ps = (PreparedStatement) element;
-        int[] rowCounts = ps.executeBatch();
+      for (int i : executionOrder()) {
+        executeSubBatch(i);
+        int[] rowCounts = ((BatchResult) batchResultList.get(i)).getUpdateCounts();
         for (int j = 0; j < rowCounts.length; j++) {
           if (rowCounts[j] == Statement.SUCCESS_NO_INFO) {
             // do nothing
@@ -943,7 +1211,7 @@ public class DefaultSqlExecutor implements SqlExecutor {
     /**
      * Batch execution method that returns all the information the driver has to offer.
      *
-     * @return a List of BatchResult objects
+     * @return a List of BatchResult objects, holding the update counts of all the executions of each sub-batch
      *
      * @throws SQLException
      *           if a database access error occurs, or the drive does not support batch statements
@@ -952,11 +1220,11 @@ public class DefaultSqlExecutor implements SqlExecutor {
      */
     public List executeBatchDetailed() throws SQLException, BatchException {
       List answer = new ArrayList<>();
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        BatchResult br = (BatchResult) batchResultList.get(i);
-        PreparedStatement ps = (PreparedStatement) statementList.get(i);
+      int[] order = executionOrder();
+      for (int i = 0, n = order.length; i < n; i++) {
+        BatchResult br = (BatchResult) batchResultList.get(order[i]);
         try {
-          br.setUpdateCounts(ps.executeBatch());
+          executeSubBatch(order[i]);
         } catch (BatchUpdateException e) {
           StringBuilder message = new StringBuilder();
           message.append("Sub batch number ");
@@ -988,7 +1256,13 @@ public class DefaultSqlExecutor implements SqlExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      subBatches.clear();
+      orderList.clear();
+      pendingList.clear();
+      keyStatementList.clear();
+      keyParameterList.clear();
       size = 0;
+      pending = 0;
     }
   }
 
@@ -19,11 +19,15 @@ import com.ibatis.common.util.PaginatedList;
 import com.ibatis.sqlmap.client.SqlMapClient;
 import com.ibatis.sqlmap.client.SqlMapSession;
 import com.ibatis.sqlmap.client.event.RowHandler;
+import com.ibatis.sqlmap.engine.cache.CacheStatistics;
 import com.ibatis.sqlmap.engine.execution.BatchException;
 import com.ibatis.sqlmap.engine.execution.SqlExecutor;
 import com.ibatis.sqlmap.engine.mapping.result.ResultObjectFactory;
 import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
@@ -582,6 +586,45 @@ public interface ExtendedSqlMapClient extends SqlMapClient {
   @Override
   void flushDataCache(String cacheId);
 
+  /**
+   * Writes the entries of cache models to a stream, to be imported by another client or a later run.
+   *
+   * @param out
+   *          the stream, which is flushed but not closed
+   * @param cacheModelIds
+   *          the cache model ids, none for all of them
+   *
+   * @return the number of entries written
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  int exportCaches(OutputStream out, String... cacheModelIds) throws IOException;
+
+  /**
+   * Reads cache entries written by {@link #exportCaches(OutputStream, String...)} into the cache models of the same ids.
+   * Entries of unknown cache models are skipped.
+   *
+   * @param in
+   *          the stream, which is not closed
+   *
+   * @return the number of entries read
+   *
+   * @throws IOException
+   *           Signals that an I/O exception has occurred.
+   */
+  int importCaches(InputStream in) throws IOException;
+
+  /**
+   * Gets the statistics of a cache model.
+   *
+   * @param cacheModelId
+   *          the cache model id
+   *
+   * @return the statistics, a live view
+   */
+  CacheStatistics getCacheStatistics(String cacheModelId);
+
   /**
    * Gets the result object factory.
    *
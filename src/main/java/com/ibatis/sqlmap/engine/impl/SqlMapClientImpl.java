@@ -22,11 +22,15 @@ import com.ibatis.sqlmap.client.SqlMapClient;
 import com.ibatis.sqlmap.client.SqlMapException;
 import com.ibatis.sqlmap.client.SqlMapSession;
 import com.ibatis.sqlmap.client.event.RowHandler;
+import com.ibatis.sqlmap.engine.cache.CacheStatistics;
 import com.ibatis.sqlmap.engine.execution.BatchException;
 import com.ibatis.sqlmap.engine.execution.SqlExecutor;
 import com.ibatis.sqlmap.engine.mapping.result.ResultObjectFactory;
 import com.ibatis.sqlmap.engine.mapping.statement.MappedStatement;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
@@ -191,6 +195,11 @@ public class SqlMapClientImpl implements SqlMapClient, ExtendedSqlMapClient {
     getLocalSqlMapSession().startBatch();
   }
 
+  @Override
+  public void startBatch(int batchSize) throws SQLException {
+    getLocalSqlMapSession().startBatch(batchSize);
+  }
+
   @Override
   public int executeBatch() throws SQLException {
     return getLocalSqlMapSession().executeBatch();
@@ -305,6 +314,21 @@ public class SqlMapClientImpl implements SqlMapClient, ExtendedSqlMapClient {
     delegate.flushDataCache(cacheId);
   }
 
+  @Override
+  public int exportCaches(OutputStream out, String... cacheModelIds) throws IOException {
+    return delegate.exportCaches(out, cacheModelIds);
+  }
+
+  @Override
+  public int importCaches(InputStream in) throws IOException {
+    return delegate.importCaches(in);
+  }
+
+  @Override
+  public CacheStatistics getCacheStatistics(String cacheModelId) {
+    return delegate.getCacheModel(cacheModelId).getStatistics();
+  }
+
   /**
    * Gets the local sql map session.
    *
@@ -23,8 +23,15 @@ import com.ibatis.sqlmap.client.SqlMapException;
 import com.ibatis.sqlmap.client.event.RowHandler;
 import com.ibatis.sqlmap.engine.cache.CacheKey;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.CacheRefresher;
+import com.ibatis.sqlmap.engine.cache.CacheScheduler;
+import com.ibatis.sqlmap.engine.cache.InvalidationBus;
+import com.ibatis.sqlmap.engine.cache.CacheSnapshot;
+import com.ibatis.sqlmap.engine.cache.weighted.CacheMemoryBudget;
 import com.ibatis.sqlmap.engine.exchange.DataExchangeFactory;
 import com.ibatis.sqlmap.engine.execution.BatchException;
+import com.ibatis.sqlmap.engine.execution.DatabaseCapabilities;
+import com.ibatis.sqlmap.engine.execution.DatabaseCapabilitiesRegistry;
 import com.ibatis.sqlmap.engine.execution.DefaultSqlExecutor;
 import com.ibatis.sqlmap.engine.execution.SqlExecutor;
 import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMap;
@@ -43,8 +50,12 @@ import com.ibatis.sqlmap.engine.transaction.TransactionState;
 import com.ibatis.sqlmap.engine.transaction.user.UserProvidedTransaction;
 import com.ibatis.sqlmap.engine.type.TypeHandlerFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -75,6 +86,12 @@ public class SqlMapExecutorDelegate {
   /** The force multiple result set support. */
   private boolean forceMultipleResultSetSupport;
 
+  /** The batch reordering. */
+  private boolean batchReordering;
+
+  /** The default number of statements after which a batch is executed, 0 for no limit. */
+  private int batchSize;
+
   /** The tx manager. */
   private TransactionManager txManager;
 
@@ -105,6 +122,21 @@ public class SqlMapExecutorDelegate {
   /** The statement cache enabled. */
   private boolean statementCacheEnabled = true;
 
+  /** The memory budget shared by the weighted cache models. */
+  private CacheMemoryBudget cacheMemoryBudget;
+
+  /** The scheduler of the cache model flushes and expiry. */
+  private CacheScheduler cacheScheduler;
+
+  /** The invalidation bus. */
+  private InvalidationBus invalidationBus;
+
+  /** The refresher of the cache entries, created on first use. */
+  private CacheRefresher cacheRefresher;
+
+  /** The capabilities of the databases, probed once per data source. */
+  private final DatabaseCapabilitiesRegistry databaseCapabilities = new DatabaseCapabilitiesRegistry();
+
   /**
    * Default constructor.
    */
@@ -428,6 +460,48 @@ public class SqlMapExecutorDelegate {
     }
   }
 
+  /**
+   * Write the entries of cache models to a stream.
+   *
+   * @param out
+   *          - the stream
+   * @param cacheModelIds
+   *          - the IDs of the cache models, none for all of them
+   *
+   * @return - the number of entries written
+   *
+   * @throws IOException
+   *           - if the stream cannot be written
+   */
+  public int exportCaches(OutputStream out, String... cacheModelIds) throws IOException {
+    List<CacheModel> models = new ArrayList<>();
+    if (cacheModelIds == null || cacheModelIds.length == 0) {
+      for (Object cacheModel : cacheModels.values()) {
+        models.add((CacheModel) cacheModel);
+      }
+    } else {
+      for (String id : cacheModelIds) {
+        models.add(getCacheModel(id));
+      }
+    }
+    return CacheSnapshot.write(models, out);
+  }
+
+  /**
+   * Read cache entries written by {@link #exportCaches(OutputStream, String...)} into the cache models of the same IDs.
+   *
+   * @param in
+   *          - the stream
+   *
+   * @return - the number of entries read
+   *
+   * @throws IOException
+   *           - if the stream cannot be read
+   */
+  public int importCaches(InputStream in) throws IOException {
+    return CacheSnapshot.read(in, id -> (CacheModel) cacheModels.get(id));
+  }
+
   // -- Basic Methods
   /**
    * Call an insert statement by ID.
@@ -490,6 +564,9 @@ public class SqlMapExecutorDelegate {
 
       if (selectKeyStatement != null && selectKeyStatement.isRunAfterSQL()) {
         generatedKey = executeSelectKey(sessionScope, trans, ms, param);
+      } else if (ms instanceof InsertStatement && ((InsertStatement) ms).isUseGeneratedKeys() && param != null
+          && !sessionScope.isInBatch()) {
+        generatedKey = PROBE.getObject(param, ((InsertStatement) ms).getKeyProperties()[0]);
       }
 
       autoCommitTransaction(sessionScope, autoStart);
@@ -934,7 +1011,20 @@ public class SqlMapExecutorDelegate {
    *          - the session
    */
   public void startBatch(SessionScope sessionScope) {
+    startBatch(sessionScope, batchSize);
+  }
+
+  /**
+   * Start a batch for a session, executed each time it holds the given number of statements.
+   *
+   * @param sessionScope
+   *          - the session
+   * @param batchSize
+   *          - the number of statements after which the batch is executed, or 0 for no limit
+   */
+  public void startBatch(SessionScope sessionScope, int batchSize) {
     sessionScope.setInBatch(true);
+    sessionScope.setBatchSize(batchSize);
   }
 
   /**
@@ -1009,6 +1099,35 @@ public class SqlMapExecutorDelegate {
     return ds;
   }
 
+  /**
+   * Gets the registry of the database capabilities.
+   *
+   * @return the database capabilities registry
+   */
+  public DatabaseCapabilitiesRegistry getDatabaseCapabilitiesRegistry() {
+    return databaseCapabilities;
+  }
+
+  /**
+   * Gets the capabilities of the database of a connection of a session. They are probed once for the data source, or
+   * once per JDBC URL when the connection was provided by the application.
+   *
+   * @param sessionScope
+   *          the session scope, or null
+   * @param conn
+   *          the connection
+   *
+   * @return the capabilities
+   *
+   * @throws SQLException
+   *           if the metadata of the connection cannot be read
+   */
+  public DatabaseCapabilities getDatabaseCapabilities(SessionScope sessionScope, Connection conn)
+      throws SQLException {
+    boolean userConnection = sessionScope != null && sessionScope.getTransaction() instanceof UserProvidedTransaction;
+    return databaseCapabilities.get(userConnection ? null : getDataSource(), conn);
+  }
+
   /**
    * Getter for the SqlExecutor.
    *
@@ -1211,4 +1330,113 @@ public class SqlMapExecutorDelegate {
   public void setForceMultipleResultSetSupport(boolean forceMultipleResultSetSupport) {
     this.forceMultipleResultSetSupport = forceMultipleResultSetSupport;
   }
+
+  /**
+   * Checks if batches group their statements by SQL. A reordering batch keeps one prepared statement per distinct SQL
+   * and runs the sub-batches by batch order of their statements, then by first appearance, so that interleaved
+   * statements such as parent and child inserts make two sub-batches instead of one per row.
+   *
+   * @return true, if is batch reordering
+   */
+  public boolean isBatchReordering() {
+    return batchReordering;
+  }
+
+  /**
+   * Sets if batches group their statements by SQL.
+   *
+   * @param batchReordering
+   *          the new batch reordering
+   */
+  public void setBatchReordering(boolean batchReordering) {
+    this.batchReordering = batchReordering;
+  }
+
+  /**
+   * Gets the number of statements after which a batch started without explicit size is executed.
+   *
+   * @return the batch size, 0 for no limit
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Sets the number of statements after which a batch started without explicit size is executed.
+   *
+   * @param batchSize
+   *          the new batch size, 0 for no limit
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(batchSize, 0);
+  }
+
+  /**
+   * Gets the memory budget shared by the weighted cache models.
+   *
+   * @return the cache memory budget, or null if there is none
+   */
+  public CacheMemoryBudget getCacheMemoryBudget() {
+    return cacheMemoryBudget;
+  }
+
+  /**
+   * Sets the memory budget shared by the weighted cache models.
+   *
+   * @param cacheMemoryBudget
+   *          the new cache memory budget
+   */
+  public void setCacheMemoryBudget(CacheMemoryBudget cacheMemoryBudget) {
+    this.cacheMemoryBudget = cacheMemoryBudget;
+  }
+
+  /**
+   * Gets the scheduler of the cache model flushes and expiry.
+   *
+   * @return the cache scheduler, or null if flushes and expiry happen on the request threads
+   */
+  public CacheScheduler getCacheScheduler() {
+    return cacheScheduler;
+  }
+
+  /**
+   * Sets the scheduler of the cache model flushes and expiry.
+   *
+   * @param cacheScheduler
+   *          the new cache scheduler
+   */
+  public void setCacheScheduler(CacheScheduler cacheScheduler) {
+    this.cacheScheduler = cacheScheduler;
+  }
+
+  /**
+   * Gets the bus that broadcasts the cache invalidations to the other nodes.
+   *
+   * @return the invalidation bus, or null if invalidations stay local
+   */
+  public InvalidationBus getInvalidationBus() {
+    return invalidationBus;
+  }
+
+  /**
+   * Sets the bus that broadcasts the cache invalidations to the other nodes.
+   *
+   * @param invalidationBus
+   *          the new invalidation bus
+   */
+  public void setInvalidationBus(InvalidationBus invalidationBus) {
+    this.invalidationBus = invalidationBus;
+  }
+
+  /**
+   * Gets the refresher of the cache entries, creating it on first use.
+   *
+   * @return the cache refresher
+   */
+  public synchronized CacheRefresher getCacheRefresher() {
+    if (cacheRefresher == null) {
+      cacheRefresher = new CacheRefresher();
+    }
+    return cacheRefresher;
+  }
 }
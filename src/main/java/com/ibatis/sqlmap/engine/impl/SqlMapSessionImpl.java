@@ -222,6 +222,11 @@ public class SqlMapSessionImpl implements SqlMapSession {
     delegate.startBatch(sessionScope);
   }
 
+  @Override
+  public void startBatch(int batchSize) throws SQLException {
+    delegate.startBatch(sessionScope, batchSize);
+  }
+
   @Override
   public int executeBatch() throws SQLException {
     return delegate.executeBatch(sessionScope);
@@ -257,6 +257,20 @@ public class ParameterMap {
     return dataExchange.getCacheKey(statementScope, this, parameterObject);
   }
 
+  /**
+   * Adds the values of a parameter object to a cache key.
+   *
+   * @param key
+   *          the cache key
+   * @param statementScope
+   *          the statement scope
+   * @param parameterObject
+   *          the parameter object
+   */
+  public void updateCacheKey(CacheKey key, StatementScope statementScope, Object parameterObject) {
+    dataExchange.updateCacheKey(key, statementScope, this, parameterObject);
+  }
+
   /**
    * Refresh parameter object values.
    *
@@ -19,6 +19,7 @@ import com.ibatis.common.beans.Probe;
 import com.ibatis.common.beans.ProbeFactory;
 import com.ibatis.common.jdbc.exception.NestedSQLException;
 import com.ibatis.sqlmap.client.SqlMapException;
+import com.ibatis.sqlmap.engine.cache.EntityCache;
 import com.ibatis.sqlmap.engine.exchange.DataExchange;
 import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
 import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
@@ -88,6 +89,9 @@ public class ResultMap {
   /** The xml name. */
   private String xmlName;
 
+  /** The entity cache, or null if the objects are not cached by id. */
+  private EntityCache entityCache;
+
   /** The resource. */
   private String resource;
 
@@ -349,6 +353,25 @@ public class ResultMap {
     return discriminator;
   }
 
+  /**
+   * Gets the entity cache.
+   *
+   * @return the entity cache, or null if the objects are not cached by id
+   */
+  public EntityCache getEntityCache() {
+    return entityCache;
+  }
+
+  /**
+   * Sets the entity cache.
+   *
+   * @param entityCache
+   *          the new entity cache
+   */
+  public void setEntityCache(EntityCache entityCache) {
+    this.entityCache = entityCache;
+  }
+
   /**
    * Resolve sub map.
    *
@@ -58,7 +58,16 @@ public class SimpleDynamicSql implements Sql {
 
   @Override
   public String getSql(StatementScope statementScope, Object parameterObject) {
-    return processDynamicElements(sqlStatement, parameterObject);
+    if (statementScope == null || statementScope.getSql() != this) {
+      return processDynamicElements(sqlStatement, parameterObject);
+    }
+    // rendered once per execution, for the cache key and for the statement
+    String sql = statementScope.getDynamicSql();
+    if (sql == null) {
+      sql = processDynamicElements(sqlStatement, parameterObject);
+      statementScope.setDynamicSql(sql);
+    }
+    return sql;
   }
 
   @Override
@@ -73,6 +82,7 @@ public class SimpleDynamicSql implements Sql {
 
   @Override
   public void cleanup(StatementScope statementScope) {
+    statementScope.setDynamicSql(null);
   }
 
   /**
@@ -15,23 +15,39 @@
  */
 package com.ibatis.sqlmap.engine.mapping.statement;
 
+import com.ibatis.common.logging.Log;
+import com.ibatis.common.logging.LogFactory;
 import com.ibatis.sqlmap.client.event.RowHandler;
 import com.ibatis.sqlmap.engine.cache.CacheKey;
 import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.TableDependency;
+import com.ibatis.sqlmap.engine.cache.TransactionalCache;
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
 import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMap;
 import com.ibatis.sqlmap.engine.mapping.result.ResultMap;
 import com.ibatis.sqlmap.engine.mapping.sql.Sql;
+import com.ibatis.sqlmap.engine.scope.SessionScope;
 import com.ibatis.sqlmap.engine.scope.StatementScope;
 import com.ibatis.sqlmap.engine.transaction.Transaction;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * The Class CachingStatement.
  */
 public class CachingStatement extends MappedStatement {
 
+  /** The Constant log. */
+  private static final Log log = LogFactory.getLog(CachingStatement.class);
+
+  /** Set while a background refresh runs, so that its statements skip the cache and store their results. */
+  private static final ThreadLocal<Boolean> REFRESHING = new ThreadLocal<>();
+
   /** The statement. */
   private MappedStatement statement;
 
@@ -90,15 +106,25 @@ public class CachingStatement extends MappedStatement {
   @Override
   public Object executeQueryForObject(StatementScope statementScope, Transaction trans, Object parameterObject,
       Object resultObject) throws SQLException {
+    TransactionalCache transactionalCache = stagingCache(statementScope);
+    if (transactionalCache != null && transactionalCache.isFlushed(cacheModel)) {
+      // the entries do not reflect the writes of the transaction
+      return statement.executeQueryForObject(statementScope, trans, parameterObject, resultObject);
+    }
     CacheKey cacheKey = getCacheKey(statementScope, parameterObject);
     cacheKey.update("executeQueryForObject");
-    Object object = cacheModel.getObject(cacheKey);
+    Object object = REFRESHING.get() == null ? cacheModel.getObject(cacheKey) : null;
     if (object == CacheModel.NULL_OBJECT) {
       // This was cached, but null
       object = null;
+      if (resultObject == null) {
+        refreshIfDue(statementScope, cacheKey, client -> client.queryForObject(getId(), parameterObject));
+      }
     } else if (object == null) {
-      object = statement.executeQueryForObject(statementScope, trans, parameterObject, resultObject);
-      cacheModel.putObject(cacheKey, object);
+      object = load(cacheKey, parameterObject, transactionalCache,
+          () -> statement.executeQueryForObject(statementScope, trans, parameterObject, resultObject));
+    } else if (resultObject == null) {
+      refreshIfDue(statementScope, cacheKey, client -> client.queryForObject(getId(), parameterObject));
     }
     return object;
   }
@@ -106,24 +132,175 @@ public class CachingStatement extends MappedStatement {
   @Override
   public List executeQueryForList(StatementScope statementScope, Transaction trans, Object parameterObject,
       int skipResults, int maxResults) throws SQLException {
+    TransactionalCache transactionalCache = stagingCache(statementScope);
+    if (transactionalCache != null && transactionalCache.isFlushed(cacheModel)) {
+      // the entries do not reflect the writes of the transaction
+      return statement.executeQueryForList(statementScope, trans, parameterObject, skipResults, maxResults);
+    }
     CacheKey cacheKey = getCacheKey(statementScope, parameterObject);
     cacheKey.update("executeQueryForList");
     cacheKey.update(skipResults);
     cacheKey.update(maxResults);
-    Object listAsObject = cacheModel.getObject(cacheKey);
+    Object listAsObject = REFRESHING.get() == null ? cacheModel.getObject(cacheKey) : null;
     List list;
-    if (listAsObject == CacheModel.NULL_OBJECT) {
-      // The cached object was null
-      list = null;
-    } else if (listAsObject == null) {
-      list = statement.executeQueryForList(statementScope, trans, parameterObject, skipResults, maxResults);
-      cacheModel.putObject(cacheKey, list);
+    if (listAsObject == null) {
+      list = (List) load(cacheKey, parameterObject, transactionalCache,
+          () -> statement.executeQueryForList(statementScope, trans, parameterObject, skipResults, maxResults));
     } else {
-      list = (List) listAsObject;
+      // The cached object may be null
+      list = listAsObject == CacheModel.NULL_OBJECT ? null : (List) listAsObject;
+      refreshIfDue(statementScope, cacheKey,
+          client -> client.queryForList(getId(), parameterObject, skipResults, maxResults));
     }
     return list;
   }
 
+  /**
+   * Runs the query of a cache miss and caches its result. When the cache model loads single flight, only one caller per
+   * key runs the query and the others wait for it, then take its result, copied as the cache model would copy a cached
+   * entry. A caller that waits longer than the load timeout, or whose loader failed, runs the query itself. Loads
+   * staged by a transaction are not shared.
+   *
+   * @param cacheKey
+   *          the cache key
+   * @param parameterObject
+   *          the parameter object
+   * @param transactionalCache
+   *          the transactional cache to stage the result in, or null to put it in the cache model
+   * @param query
+   *          the query
+   *
+   * @return the result of the query
+   *
+   * @throws SQLException
+   *           the SQL exception
+   */
+  private Object load(CacheKey cacheKey, Object parameterObject, TransactionalCache transactionalCache, Query query)
+      throws SQLException {
+    if (!cacheModel.isSingleFlight() || REFRESHING.get() != null || transactionalCache != null) {
+      return loadAndCache(cacheKey, parameterObject, transactionalCache, query);
+    }
+    CompletableFuture<Object> load = new CompletableFuture<>();
+    CompletableFuture<Object> inFlight = cacheModel.beginLoad(cacheKey, load);
+    if (inFlight == null) {
+      try {
+        Object result = loadAndCache(cacheKey, parameterObject, null, query);
+        load.complete(result);
+        return result;
+      } catch (SQLException | RuntimeException | Error e) {
+        load.completeExceptionally(e);
+        throw e;
+      } finally {
+        cacheModel.endLoad(cacheKey, load);
+      }
+    }
+    try {
+      return cacheModel.copyLoadedValue(inFlight.get(cacheModel.getLoadTimeout(), TimeUnit.MILLISECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException e) {
+      // fall back to running the query
+    }
+    return loadAndCache(cacheKey, parameterObject, null, query);
+  }
+
+  /**
+   * Starts a background reload of a cached entry if it is due for refresh. The reload runs the statement again through
+   * the client, with the same parameter object, and replaces the entry with its result. Only cache models shared by all
+   * sessions are refreshed, since the reload runs in a session of its own.
+   *
+   * @param statementScope
+   *          the statement scope
+   * @param cacheKey
+   *          the cache key
+   * @param refresh
+   *          the query that reloads the entry
+   */
+  private void refreshIfDue(StatementScope statementScope, CacheKey cacheKey, Refresh refresh) {
+    if (cacheModel.getRefreshAfter() <= 0 || REFRESHING.get() != null || !isSharedBySessions()
+        || statementScope == null || statementScope.getSession() == null || !cacheModel.claimRefresh(cacheKey)) {
+      return;
+    }
+    SqlMapClientImpl client = (SqlMapClientImpl) statementScope.getSession().getSqlMapClient();
+    boolean submitted = client.getDelegate().getCacheRefresher().submit(() -> {
+      REFRESHING.set(Boolean.TRUE);
+      try {
+        refresh.run(client);
+      } catch (Exception e) {
+        log.warn("Error refreshing cache '" + cacheModel.getId() + "' for statement '" + getId() + "'.  Cause: " + e);
+      } finally {
+        REFRESHING.remove();
+        cacheModel.endRefresh(cacheKey);
+      }
+    });
+    if (!submitted) {
+      cacheModel.endRefresh(cacheKey);
+    }
+  }
+
+  /**
+   * Gets the transactional cache the results of a query must be staged in. Results are staged once the transaction of
+   * the session has written to the database, since they may then depend on uncommitted data.
+   *
+   * @param statementScope
+   *          the statement scope
+   *
+   * @return the transactional cache, or null if results go to the cache model directly
+   */
+  private TransactionalCache stagingCache(StatementScope statementScope) {
+    SessionScope sessionScope = statementScope == null ? null : statementScope.getSession();
+    TransactionalCache transactionalCache = sessionScope == null ? null : sessionScope.getActiveTransactionalCache();
+    if (transactionalCache == null || REFRESHING.get() != null
+        || !sessionScope.isCommitRequired() && !transactionalCache.hasPendingFlushes()) {
+      return null;
+    }
+    return transactionalCache;
+  }
+
+  /**
+   * Tells if the cache entries are shared by all sessions, which is the case unless the cache model hands out the
+   * cached objects themselves to callers that may modify them.
+   *
+   * @return true if they are
+   */
+  private boolean isSharedBySessions() {
+    return cacheModel.isReadOnly() || cacheModel.isSerialize() || cacheModel.isCopyOnRead();
+  }
+
+  /**
+   * Runs a query and caches its result, unless the cache model was flushed while the query ran.
+   *
+   * @param cacheKey
+   *          the cache key
+   * @param parameterObject
+   *          the parameter object
+   * @param transactionalCache
+   *          the transactional cache to stage the result in, or null to put it in the cache model
+   * @param query
+   *          the query
+   *
+   * @return the result of the query
+   *
+   * @throws SQLException
+   *           the SQL exception
+   */
+  private Object loadAndCache(CacheKey cacheKey, Object parameterObject, TransactionalCache transactionalCache,
+      Query query) throws SQLException {
+    long generation = cacheModel.getFlushGeneration();
+    long start = System.nanoTime();
+    Object result = query.run();
+    cacheModel.getStatistics().recordLoad(System.nanoTime() - start);
+    if (transactionalCache != null) {
+      transactionalCache.putObject(cacheModel, cacheKey, result, generation, statement.getTableDependencies(),
+          parameterObject);
+    } else if (cacheModel.isDependencyTracking()) {
+      cacheModel.putObject(cacheKey, result, generation, statement.getTableDependencies(), parameterObject);
+    } else {
+      cacheModel.putObject(cacheKey, result, generation);
+    }
+    return result;
+  }
+
   @Override
   public void executeQueryWithRowHandler(StatementScope statementScope, Transaction trans, Object parameterObject,
       RowHandler rowHandler) throws SQLException {
@@ -133,7 +310,7 @@ public class CachingStatement extends MappedStatement {
   @Override
   public CacheKey getCacheKey(StatementScope statementScope, Object parameterObject) {
     CacheKey key = statement.getCacheKey(statementScope, parameterObject);
-    if (!cacheModel.isReadOnly() && !cacheModel.isSerialize()) {
+    if (!isSharedBySessions()) {
       key.update(statementScope.getSession());
     }
     return key;
@@ -154,6 +331,41 @@ public class CachingStatement extends MappedStatement {
     statement.notifyListeners();
   }
 
+  @Override
+  public void notifyListeners(StatementScope statementScope, Object parameterObject) {
+    statement.notifyListeners(statementScope, parameterObject);
+  }
+
+  @Override
+  public TableDependency[] getTableDependencies() {
+    return statement.getTableDependencies();
+  }
+
+  @Override
+  public void setTableDependencies(TableDependency[] tableDependencies) {
+    statement.setTableDependencies(tableDependencies);
+  }
+
+  @Override
+  public boolean isById() {
+    return statement.isById();
+  }
+
+  @Override
+  public void setById(boolean byId) {
+    statement.setById(byId);
+  }
+
+  @Override
+  public int getBatchOrder() {
+    return statement.getBatchOrder();
+  }
+
+  @Override
+  public void setBatchOrder(int batchOrder) {
+    statement.setBatchOrder(batchOrder);
+  }
+
   @Override
   public void initRequest(StatementScope statementScope) {
     statement.initRequest(statementScope);
@@ -184,4 +396,37 @@ public class CachingStatement extends MappedStatement {
     return statement.getAdditionalResultMaps();
   }
 
+
+  /**
+   * A query run on a cache miss.
+   */
+  private interface Query {
+
+    /**
+     * Runs the query.
+     *
+     * @return the result
+     *
+     * @throws SQLException
+     *           the SQL exception
+     */
+    Object run() throws SQLException;
+  }
+
+  /**
+   * A reload of a cached entry.
+   */
+  private interface Refresh {
+
+    /**
+     * Runs the statement again.
+     *
+     * @param client
+     *          the client
+     *
+     * @throws SQLException
+     *           the SQL exception
+     */
+    void run(SqlMapClientImpl client) throws SQLException;
+  }
 }
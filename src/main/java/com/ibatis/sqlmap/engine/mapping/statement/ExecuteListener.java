@@ -31,4 +31,17 @@ public interface ExecuteListener {
    */
   void onExecuteStatement(MappedStatement statement);
 
+  /**
+   * On execute statement, with the parameter object the statement was executed with. By default the parameter object
+   * is ignored.
+   *
+   * @param statement
+   *          the statement
+   * @param parameterObject
+   *          the parameter object
+   */
+  default void onExecuteStatement(MappedStatement statement, Object parameterObject) {
+    onExecuteStatement(statement);
+  }
+
 }
@@ -30,6 +30,12 @@ public class InsertStatement extends MappedStatement {
   /** The select key statement. */
   private SelectKeyStatement selectKeyStatement;
 
+  /** The properties the keys generated by the database are written to, null if the keys are not read. */
+  private String[] keyProperties;
+
+  /** The names of the generated key columns, null to let the driver choose them. */
+  private String[] keyColumns;
+
   @Override
   public StatementType getStatementType() {
     return StatementType.INSERT;
@@ -71,4 +77,51 @@ public class InsertStatement extends MappedStatement {
   public void setSelectKeyStatement(SelectKeyStatement selectKeyStatement) {
     this.selectKeyStatement = selectKeyStatement;
   }
+
+  /**
+   * Tells if the keys generated by the database are read after the insert and written to the parameter object.
+   *
+   * @return true if they are
+   */
+  public boolean isUseGeneratedKeys() {
+    return keyProperties != null;
+  }
+
+  /**
+   * Gets the properties the generated keys are written to.
+   *
+   * @return the key properties, or null if the generated keys are not read
+   */
+  public String[] getKeyProperties() {
+    return keyProperties;
+  }
+
+  /**
+   * Sets the properties the generated keys are written to, in the order of the key columns.
+   *
+   * @param keyProperties
+   *          the key properties, or null not to read the generated keys
+   */
+  public void setKeyProperties(String[] keyProperties) {
+    this.keyProperties = keyProperties;
+  }
+
+  /**
+   * Gets the names of the generated key columns.
+   *
+   * @return the key columns, or null to let the driver choose them
+   */
+  public String[] getKeyColumns() {
+    return keyColumns;
+  }
+
+  /**
+   * Sets the names of the generated key columns.
+   *
+   * @param keyColumns
+   *          the key columns, or null to let the driver choose them
+   */
+  public void setKeyColumns(String[] keyColumns) {
+    this.keyColumns = keyColumns;
+  }
 }
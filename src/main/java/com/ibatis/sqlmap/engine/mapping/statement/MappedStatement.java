@@ -20,12 +20,21 @@ import com.ibatis.common.jdbc.exception.NestedSQLException;
 import com.ibatis.sqlmap.client.SqlMapClient;
 import com.ibatis.sqlmap.client.event.RowHandler;
 import com.ibatis.sqlmap.engine.cache.CacheKey;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.EntityCache;
+import com.ibatis.sqlmap.engine.cache.EntityInvalidation;
+import com.ibatis.sqlmap.engine.cache.TableDependency;
+import com.ibatis.sqlmap.engine.cache.TransactionalCache;
 import com.ibatis.sqlmap.engine.execution.SqlExecutor;
 import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
 import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMap;
+import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMapping;
 import com.ibatis.sqlmap.engine.mapping.result.ResultMap;
 import com.ibatis.sqlmap.engine.mapping.sql.Sql;
+import com.ibatis.sqlmap.engine.mapping.sql.raw.RawSql;
+import com.ibatis.sqlmap.engine.mapping.sql.stat.StaticSql;
 import com.ibatis.sqlmap.engine.scope.ErrorContext;
+import com.ibatis.sqlmap.engine.scope.SessionScope;
 import com.ibatis.sqlmap.engine.scope.StatementScope;
 import com.ibatis.sqlmap.engine.transaction.Transaction;
 import com.ibatis.sqlmap.engine.transaction.TransactionException;
@@ -38,6 +47,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -50,6 +60,12 @@ import org.w3c.dom.Document;
  */
 public class MappedStatement {
 
+  /** The number of cache key updates made after the parameter values: the SQL shape, and the ones of the callers. */
+  private static final int CACHE_KEY_EXTRA_UPDATES = 5;
+
+  /** The maximum number of SQL shapes kept per statement. */
+  private static final int MAX_SQL_SHAPES = 1024;
+
   /** The id. */
   private String id;
 
@@ -74,6 +90,12 @@ public class MappedStatement {
   /** The base cache key. */
   private int baseCacheKey;
 
+  /** The updates shared by all the cache keys of the statement. */
+  private volatile CacheKey cacheKeyPrefix;
+
+  /** The canonical instances of the SQL texts rendered by the statement, if it is dynamic. */
+  private final ConcurrentHashMap<String, String> sqlShapes = new ConcurrentHashMap<>();
+
   /** The sql map client. */
   private SqlMapClientImpl sqlMapClient;
 
@@ -89,6 +111,15 @@ public class MappedStatement {
   /** The resource. */
   private String resource;
 
+  /** The tables the statement reads or writes, declared or derived from the SQL text of its first execution. */
+  private volatile TableDependency[] tableDependencies;
+
+  /** Set if the statement selects an object by id, through the entity cache of its result map. */
+  private boolean byId;
+
+  /** The rank of the statement in a reordering batch: lower ranks run first. */
+  private int batchOrder;
+
   /**
    * Gets the statement type.
    *
@@ -135,12 +166,14 @@ public class MappedStatement {
 
       statementScope.setResultMap(resultMap);
       statementScope.setParameterMap(parameterMap);
+      statementScope.setParameterObject(parameterObject);
 
       errorContext.setMoreInfo("Check the parameter map.");
       Object[] parameters = parameterMap.getParameterObjectValues(statementScope, parameterObject);
 
       errorContext.setMoreInfo("Check the SQL statement.");
       String sqlString = sql.getSql(statementScope, parameterObject);
+      deriveTableDependencies(sqlString);
 
       errorContext.setActivity("executing mapped statement");
       errorContext.setMoreInfo("Check the statement or the result map.");
@@ -153,7 +186,7 @@ public class MappedStatement {
 
       errorContext.reset();
       sql.cleanup(statementScope);
-      notifyListeners();
+      notifyListeners(statementScope, parameterObject);
       return rows;
     } catch (SQLException e) {
       errorContext.setCause(e);
@@ -183,6 +216,64 @@ public class MappedStatement {
    */
   public Object executeQueryForObject(StatementScope statementScope, Transaction trans, Object parameterObject,
       Object resultObject) throws SQLException {
+    EntityCache entityCache = resultObject == null ? getEntityCache(statementScope) : null;
+    Object entityId = entityCache == null ? null : entityCache.idOf(parameterObject);
+    if (entityId == null) {
+      return queryForObject(statementScope, trans, parameterObject, resultObject);
+    }
+    Object object = entityCache.getObject(entityId);
+    if (object == null) {
+      long generation = entityCache.getGeneration();
+      object = queryForObject(statementScope, trans, parameterObject, null);
+      entityCache.putObject(entityId, object, generation);
+    }
+    return object;
+  }
+
+  /**
+   * Gets the entity cache to look the object up in, if the statement selects by id. The entity cache is bypassed once
+   * the transaction of the session has written to the database, since the cached objects do not reflect its writes and
+   * the objects it reads may not be committed.
+   *
+   * @param statementScope
+   *          the statement scope
+   *
+   * @return the entity cache, or null
+   */
+  private EntityCache getEntityCache(StatementScope statementScope) {
+    ResultMap map = getResultMap();
+    if (!byId || map == null || map.getEntityCache() == null) {
+      return null;
+    }
+    SessionScope sessionScope = statementScope == null ? null : statementScope.getSession();
+    if (sessionScope != null) {
+      TransactionalCache transactionalCache = sessionScope.getActiveTransactionalCache();
+      if (sessionScope.isCommitRequired() || transactionalCache != null && transactionalCache.hasPendingFlushes()) {
+        return null;
+      }
+    }
+    return map.getEntityCache();
+  }
+
+  /**
+   * Runs the statement for a single object.
+   *
+   * @param statementScope
+   *          the statement scope
+   * @param trans
+   *          the trans
+   * @param parameterObject
+   *          the parameter object
+   * @param resultObject
+   *          the result object
+   *
+   * @return the object
+   *
+   * @throws SQLException
+   *           the SQL exception
+   */
+  private Object queryForObject(StatementScope statementScope, Transaction trans, Object parameterObject,
+      Object resultObject) throws SQLException {
     try {
       Object object = null;
 
@@ -311,6 +402,7 @@ public class MappedStatement {
 
       errorContext.setMoreInfo("Check the SQL statement.");
       String sqlString = sql.getSql(statementScope, parameterObject);
+      deriveTableDependencies(sqlString);
 
       errorContext.setActivity("executing mapped statement");
       errorContext.setMoreInfo("Check the SQL statement or the result map.");
@@ -324,7 +416,7 @@ public class MappedStatement {
 
       errorContext.reset();
       sql.cleanup(statementScope);
-      notifyListeners();
+      notifyListeners(statementScope, parameterObject);
     } catch (SQLException e) {
       errorContext.setCause(e);
       throw new NestedSQLException(errorContext.toString(), e.getSQLState(), e.getErrorCode(), e);
@@ -512,6 +604,7 @@ public class MappedStatement {
    */
   public void setId(String id) {
     this.id = id;
+    this.cacheKeyPrefix = null;
   }
 
   /**
@@ -622,33 +715,45 @@ public class MappedStatement {
   public CacheKey getCacheKey(StatementScope statementScope, Object parameterObject) {
     Sql sql = statementScope.getSql();
     ParameterMap pmap = sql.getParameterMap(statementScope, parameterObject);
-    CacheKey cacheKey = pmap.getCacheKey(statementScope, parameterObject);
-    cacheKey.update(id);
-
-    // I am not sure how any clustered cache solution would ever have had any cache hits against
-    // replicated objects. I could not make it happen
-    // The baseCacheKey value which was being used in the update below is consistent across
-    // JVMInstances on the same machine
-    // but it's not consistent across machines, and therefore breaks clustered caching.
-
-    // What would happen is the cache values were being replicated across machines but there
-    // were never any cache hits for cached objects on
-    // anything but the original machine an object was created on.
-
-    // After reviewing this implementation I could not figure out why baseCacheKey is used for
-    // this anyway as it's not needed, so I removed it.
-    // The values used from the pmap.getCacheKey, plus id, plus the params below are unique and
-    // the same across machines, so now I get replicated
-    // cache hits when I force failover in my cluster
-
-    // I wish I could make a unit test for this, but I can't do it as the old implementation
-    // works on 1 machine, but fails across machines.
-    // cacheKey.update(baseCacheKey);
-
-    cacheKey.update(sql.getSql(statementScope, parameterObject)); // Fixes bug 953001
+    CacheKey prefix = cacheKeyPrefix;
+    if (prefix == null) {
+      // The statement id rather than the baseCacheKey, which is not the same across machines and broke
+      // replicated caches.
+      prefix = new CacheKey().update(id);
+      cacheKeyPrefix = prefix;
+    }
+    ParameterMapping[] mappings = pmap.getParameterMappings();
+    CacheKey cacheKey = new CacheKey(prefix, (mappings == null ? 0 : mappings.length) + CACHE_KEY_EXTRA_UPDATES);
+    pmap.updateCacheKey(cacheKey, statementScope, parameterObject);
+    if (!(sql instanceof StaticSql) && !(sql instanceof RawSql)) {
+      // Fixes bug 953001: the same parameters may render different SQL
+      updateSqlShape(cacheKey, sql.getSql(statementScope, parameterObject));
+    }
     return cacheKey;
   }
 
+  /**
+   * Adds the rendered SQL of a dynamic statement to a cache key, as the canonical instance of the text among the ones
+   * the statement has rendered so far. Keys built from the same instance compare it by reference, and the text keeps
+   * the keys meaningful in other JVMs, for replicated caches and cache snapshots. Past {@link #MAX_SQL_SHAPES} shapes,
+   * the rendered text itself is added.
+   * <p>
+   * Finding the canonical instance hashes the rendered text once per key, as the text is rendered anew for each
+   * execution. A shape number would not save that hash and would differ between JVMs, so the text is kept instead.
+   *
+   * @param cacheKey
+   *          the cache key
+   * @param sqlString
+   *          the rendered SQL
+   */
+  private void updateSqlShape(CacheKey cacheKey, String sqlString) {
+    String shape = sqlShapes.get(sqlString);
+    if (shape == null) {
+      shape = sqlShapes.size() < MAX_SQL_SHAPES ? sqlShapes.computeIfAbsent(sqlString, text -> text) : sqlString;
+    }
+    cacheKey.update(shape);
+  }
+
   /**
    * Sets the base cache key.
    *
@@ -673,8 +778,106 @@ public class MappedStatement {
    * Notify listeners.
    */
   public void notifyListeners() {
+    notifyListeners(null, null);
+  }
+
+  /**
+   * Notify listeners. Within a transaction, the flushes of cache models are deferred to the end of the transaction.
+   *
+   * @param statementScope
+   *          the statement scope, may be null
+   * @param parameterObject
+   *          the parameter object the statement was executed with
+   */
+  public void notifyListeners(StatementScope statementScope, Object parameterObject) {
+    TransactionalCache transactionalCache = statementScope == null || statementScope.getSession() == null ? null
+        : statementScope.getSession().getActiveTransactionalCache();
     for (Object executeListener : executeListeners) {
-      ((ExecuteListener) executeListener).onExecuteStatement(this);
+      if (transactionalCache != null && executeListener instanceof CacheModel) {
+        transactionalCache.onExecuteStatement((CacheModel) executeListener, this, parameterObject);
+      } else if (transactionalCache != null && executeListener instanceof EntityInvalidation) {
+        ((EntityInvalidation) executeListener).onExecuteStatement(this, parameterObject, transactionalCache);
+      } else {
+        ((ExecuteListener) executeListener).onExecuteStatement(this, parameterObject);
+      }
+    }
+  }
+
+  /**
+   * Tells if the statement selects an object by id, through the entity cache of its result map.
+   *
+   * @return true if it does
+   */
+  public boolean isById() {
+    return byId;
+  }
+
+  /**
+   * Marks the statement as selecting an object by id, through the entity cache of its result map.
+   *
+   * @param byId
+   *          the new by id
+   */
+  public void setById(boolean byId) {
+    this.byId = byId;
+  }
+
+  /**
+   * Gets the rank of the statement in a reordering batch.
+   *
+   * @return the batch order
+   */
+  public int getBatchOrder() {
+    return batchOrder;
+  }
+
+  /**
+   * Sets the rank of the statement in a reordering batch. The sub-batches of lower ranks run first, and the ones of the
+   * same rank run in the order their statements were first added.
+   *
+   * @param batchOrder
+   *          the new batch order
+   */
+  public void setBatchOrder(int batchOrder) {
+    this.batchOrder = batchOrder;
+  }
+
+  /**
+   * Gets the tables the statement reads or writes.
+   *
+   * @return the table dependencies, or null if they were not declared and the statement has not run yet
+   */
+  public TableDependency[] getTableDependencies() {
+    return tableDependencies;
+  }
+
+  /**
+   * Declares the tables the statement reads or writes.
+   *
+   * @param tableDependencies
+   *          the new table dependencies
+   */
+  public void setTableDependencies(TableDependency[] tableDependencies) {
+    this.tableDependencies = tableDependencies;
+  }
+
+  /**
+   * Derives the tables of the statement from its SQL text, unless they are already known. The tables of dynamic SQL,
+   * whose text changes between executions, and of an insert, update or delete whose SQL is not recognized as a write,
+   * are unknown unless declared, so that they depend on any table and a write of them flushes the cache.
+   *
+   * @param sqlString
+   *          the SQL text
+   */
+  protected void deriveTableDependencies(String sqlString) {
+    if (tableDependencies == null) {
+      StatementType type = getStatementType();
+      boolean write = type == StatementType.INSERT || type == StatementType.UPDATE || type == StatementType.DELETE;
+      if (!(sql instanceof StaticSql || sql instanceof RawSql) || write && !TableDependency.isWrite(sqlString)) {
+        tableDependencies = new TableDependency[0];
+      } else {
+        tableDependencies = TableDependency.fromSql(sqlString);
+      }
     }
   }
 
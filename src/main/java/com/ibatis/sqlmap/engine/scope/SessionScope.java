@@ -19,15 +19,19 @@ import com.ibatis.sqlmap.client.SqlMapClient;
 import com.ibatis.sqlmap.client.SqlMapException;
 import com.ibatis.sqlmap.client.SqlMapExecutor;
 import com.ibatis.sqlmap.client.SqlMapTransactionManager;
+import com.ibatis.sqlmap.engine.cache.TransactionalCache;
 import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
 import com.ibatis.sqlmap.engine.transaction.Transaction;
 import com.ibatis.sqlmap.engine.transaction.TransactionState;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A Session based implementation of the Scope interface.
@@ -72,17 +76,27 @@ public class SessionScope {
   // Used by SqlExecutor
   private Object batch;
 
+  /** The number of statements after which the batch is executed, 0 for no limit. */
+  private int batchSize;
+
   /** The commit required. */
   private boolean commitRequired;
 
   /** The prepared statements. */
   private Map preparedStatements;
 
+  /** The prepared statements of the session, by identity, to tell them apart from the others quickly. */
+  private Set<PreparedStatement> preparedStatementSet;
+
+  /** The cache changes of the current transaction. */
+  private TransactionalCache transactionalCache;
+
   /**
    * Default constructor.
    */
   public SessionScope() {
     this.preparedStatements = new HashMap<>();
+    this.preparedStatementSet = Collections.newSetFromMap(new IdentityHashMap<>());
     this.inBatch = false;
     this.requestStackDepth = 0;
     this.id = getNextId();
@@ -221,6 +235,25 @@ public class SessionScope {
     this.batch = batch;
   }
 
+  /**
+   * Gets the number of statements after which the batch is executed.
+   *
+   * @return the batch size, 0 for no limit
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * Sets the number of statements after which the batch is executed.
+   *
+   * @param batchSize
+   *          the new batch size, 0 for no limit
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
   /**
    * Get the request stack depth.
    *
@@ -263,6 +296,31 @@ public class SessionScope {
     this.commitRequired = commitRequired;
   }
 
+  /**
+   * Gets the cache changes of the current transaction.
+   *
+   * @return the transactional cache
+   */
+  public TransactionalCache getTransactionalCache() {
+    if (transactionalCache == null) {
+      transactionalCache = new TransactionalCache();
+    }
+    return transactionalCache;
+  }
+
+  /**
+   * Gets the cache changes of the current transaction, if the session runs a transaction started through the
+   * transaction manager. Sessions using a user provided connection update the cache models directly.
+   *
+   * @return the transactional cache, or null if no such transaction is running
+   */
+  public TransactionalCache getActiveTransactionalCache() {
+    if (transactionState == TransactionState.STATE_STARTED || transactionState == TransactionState.STATE_COMMITTED) {
+      return getTransactionalCache();
+    }
+    return null;
+  }
+
   /**
    * Checks for prepared statement for.
    *
@@ -284,7 +342,7 @@ public class SessionScope {
    * @return true, if successful
    */
   public boolean hasPreparedStatement(PreparedStatement ps) {
-    return preparedStatements.containsValue(ps);
+    return preparedStatementSet.contains(ps);
   }
 
   /**
@@ -321,6 +379,7 @@ public class SessionScope {
         throw new SqlMapException("Duplicate prepared statement found.  This is likely a bug.");
       }
       preparedStatements.put(sql, ps);
+      preparedStatementSet.add(ps);
     }
   }
 
@@ -338,6 +397,7 @@ public class SessionScope {
       }
     }
     preparedStatements.clear();
+    preparedStatementSet.clear();
   }
 
   /**
@@ -345,7 +405,6 @@ public class SessionScope {
    */
   public void cleanup() {
     closePreparedStatements();
-    preparedStatements.clear();
   }
 
   @Override
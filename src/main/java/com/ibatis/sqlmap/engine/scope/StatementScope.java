@@ -45,6 +45,9 @@ public class StatementScope {
   /** The result map. */
   private ResultMap resultMap;
 
+  /** The parameter object. */
+  private Object parameterObject;
+
   /** The sql. */
   private Sql sql;
 
@@ -174,6 +177,25 @@ public class StatementScope {
     this.resultMap = resultMap;
   }
 
+  /**
+   * Get the parameter object of the request.
+   *
+   * @return - the parameter object
+   */
+  public Object getParameterObject() {
+    return parameterObject;
+  }
+
+  /**
+   * Set the parameter object of the request.
+   *
+   * @param parameterObject
+   *          - the parameter object
+   */
+  public void setParameterObject(Object parameterObject) {
+    this.parameterObject = parameterObject;
+  }
+
   /**
    * Get the SQL for the request.
    *
@@ -112,6 +112,7 @@ public class TransactionManager {
       sessionScope.setCommitRequired(false);
     }
     sessionScope.setTransactionState(TransactionState.STATE_COMMITTED);
+    sessionScope.getTransactionalCache().commit();
   }
 
   /**
@@ -152,6 +153,7 @@ public class TransactionManager {
     } finally {
       sessionScope.setTransaction(null);
       sessionScope.setTransactionState(TransactionState.STATE_ENDED);
+      sessionScope.getTransactionalCache().end();
     }
   }
 
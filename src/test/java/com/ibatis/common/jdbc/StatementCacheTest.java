@@ -0,0 +1,123 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.common.jdbc;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StatementCacheTest {
+
+  private static final Method PREPARE;
+
+  static {
+    try {
+      PREPARE = Connection.class.getMethod("prepareStatement", String.class);
+    } catch (NoSuchMethodException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final List<MockStatement> prepared = new ArrayList<>();
+
+  @Test
+  void testClosedStatementIsReused() throws Throwable {
+    StatementCache cache = new StatementCache(createConnection(), 10);
+    PreparedStatement first = (PreparedStatement) cache.prepare(PREPARE, new Object[] { "select 1" });
+    first.setQueryTimeout(5);
+    first.close();
+    Assertions.assertTrue(first.isClosed());
+    PreparedStatement second = (PreparedStatement) cache.prepare(PREPARE, new Object[] { "select 1" });
+    Assertions.assertEquals(1, prepared.size());
+    Assertions.assertEquals(0, second.getQueryTimeout());
+    Assertions.assertTrue(prepared.get(0).parametersCleared);
+    Assertions.assertFalse(prepared.get(0).closed);
+    Assertions.assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  void testStatementInUseIsNotShared() throws Throwable {
+    StatementCache cache = new StatementCache(createConnection(), 10);
+    PreparedStatement first = (PreparedStatement) cache.prepare(PREPARE, new Object[] { "select 1" });
+    PreparedStatement second = (PreparedStatement) cache.prepare(PREPARE, new Object[] { "select 1" });
+    Assertions.assertEquals(2, prepared.size());
+    first.close();
+    second.close();
+    Assertions.assertEquals(1, cache.size());
+    Assertions.assertTrue(prepared.get(0).closed);
+  }
+
+  @Test
+  void testLeastRecentlyUsedStatementIsClosed() throws Throwable {
+    StatementCache cache = new StatementCache(createConnection(), 2);
+    for (String sql : new String[] { "a", "b", "a", "c" }) {
+      ((PreparedStatement) cache.prepare(PREPARE, new Object[] { sql })).close();
+    }
+    Assertions.assertEquals(2, cache.size());
+    Assertions.assertEquals(3, prepared.size());
+    Assertions.assertTrue(prepared.get(1).closed);
+    Assertions.assertFalse(prepared.get(0).closed);
+    cache.clear();
+    Assertions.assertTrue(prepared.get(0).closed);
+  }
+
+  private Connection createConnection() {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] { Connection.class },
+        (proxy, method, args) -> {
+          if ("prepareStatement".equals(method.getName())) {
+            MockStatement statement = new MockStatement();
+            prepared.add(statement);
+            return statement.proxy;
+          }
+          return null;
+        });
+  }
+
+  private static class MockStatement {
+
+    private final Map<String, Object> settings = new HashMap<>();
+
+    private boolean closed;
+
+    private boolean parametersCleared;
+
+    private final PreparedStatement proxy = (PreparedStatement) Proxy.newProxyInstance(
+        PreparedStatement.class.getClassLoader(), new Class[] { PreparedStatement.class }, (proxy, method, args) -> {
+          String name = method.getName();
+          if ("close".equals(name)) {
+            closed = true;
+          } else if ("isClosed".equals(name)) {
+            return closed;
+          } else if ("clearParameters".equals(name)) {
+            parametersCleared = true;
+          } else if (name.startsWith("set")) {
+            settings.put(name.substring(3), args[0]);
+          } else if (name.startsWith("get") && method.getReturnType() == int.class) {
+            return settings.getOrDefault(name.substring(3), 0);
+          }
+          return null;
+        });
+  }
+
+}
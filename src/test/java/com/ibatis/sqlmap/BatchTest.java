@@ -17,6 +17,8 @@ package com.ibatis.sqlmap;
 
 import com.ibatis.sqlmap.engine.execution.BatchException;
 import com.ibatis.sqlmap.engine.execution.BatchResult;
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
+import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
 
 import java.sql.BatchUpdateException;
 import java.sql.SQLException;
@@ -395,4 +397,91 @@ class BatchTest extends BaseSqlMap {
       }
     }
   }
+
+  @Test
+  void testExecutebatchDetailedWithReordering() throws Exception {
+    ((SqlMapClientImpl) BaseSqlMap.sqlMap).getDelegate().setBatchReordering(true);
+    final List<?> results = executeInterleavedBatch();
+
+    Assertions.assertEquals(2, results.size());
+
+    BatchResult br = (BatchResult) results.get(0);
+    Assertions.assertEquals("insertAccountViaInlineParameters", br.getStatementId());
+    Assertions.assertEquals(4, br.getUpdateCounts().length);
+
+    br = (BatchResult) results.get(1);
+    Assertions.assertEquals("updateAccountViaInlineParameters", br.getStatementId());
+    Assertions.assertEquals(4, br.getUpdateCounts().length);
+    Assertions.assertEquals(1, br.getUpdateCounts()[3]);
+  }
+
+  @Test
+  void testExecutebatchDetailedWithBatchOrder() throws Exception {
+    SqlMapExecutorDelegate delegate = ((SqlMapClientImpl) BaseSqlMap.sqlMap).getDelegate();
+    delegate.setBatchReordering(true);
+    delegate.getMappedStatement("updateAccountViaInlineParameters").setBatchOrder(-1);
+    try {
+      final List<?> results = executeInterleavedBatch();
+
+      Assertions.assertEquals(2, results.size());
+      Assertions.assertEquals("updateAccountViaInlineParameters", ((BatchResult) results.get(0)).getStatementId());
+      Assertions.assertEquals("insertAccountViaInlineParameters", ((BatchResult) results.get(1)).getStatementId());
+    } finally {
+      delegate.getMappedStatement("updateAccountViaInlineParameters").setBatchOrder(0);
+    }
+  }
+
+  @Test
+  void testExecutebatchDetailedWithBatchSize() throws Exception {
+    try {
+      BaseSqlMap.sqlMap.startTransaction();
+      BaseSqlMap.sqlMap.startBatch(2);
+
+      // insert 5 accounts, executed 2 by 2
+      for (int id = 10; id < 15; id++) {
+        final Account account = new Account();
+        account.setId(id);
+        account.setFirstName("fred");
+        account.setLastName("flintstone");
+        account.setEmailAddress("fred.flintstone@gmail.com");
+        BaseSqlMap.sqlMap.insert("insertAccountViaInlineParameters", account);
+      }
+      // the 5 initial accounts and the first 4 inserted ones
+      Assertions.assertEquals(9, BaseSqlMap.sqlMap.queryForList("getAllAccountsAsHashMapViaResultClass").size());
+
+      final List<?> results = BaseSqlMap.sqlMap.executeBatchDetailed();
+      BaseSqlMap.sqlMap.commitTransaction();
+
+      Assertions.assertEquals(1, results.size());
+      Assertions.assertEquals(5, ((BatchResult) results.get(0)).getUpdateCounts().length);
+    } finally {
+      BaseSqlMap.sqlMap.endTransaction();
+    }
+  }
+
+  private List<?> executeInterleavedBatch() throws SQLException, BatchException {
+    try {
+      BaseSqlMap.sqlMap.startTransaction();
+      BaseSqlMap.sqlMap.startBatch();
+
+      // insert and update 4 accounts, one after the other
+      for (int id = 10; id < 14; id++) {
+        final Account account = new Account();
+        account.setId(id);
+        account.setFirstName("fred");
+        account.setLastName("flintstone");
+        account.setEmailAddress("fred.flintstone@gmail.com");
+        BaseSqlMap.sqlMap.insert("insertAccountViaInlineParameters", account);
+        account.setFirstName("barney");
+        BaseSqlMap.sqlMap.update("updateAccountViaInlineParameters", account);
+      }
+
+      final List<?> results = BaseSqlMap.sqlMap.executeBatchDetailed();
+      BaseSqlMap.sqlMap.commitTransaction();
+      return results;
+    } finally {
+      BaseSqlMap.sqlMap.endTransaction();
+    }
+  }
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap;
+
+import com.ibatis.sqlmap.engine.execution.BatchResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import testdomain.Account;
+
+class GeneratedKeysTest extends BaseSqlMap {
+
+  @BeforeEach
+  void setUp() throws Exception {
+    BaseSqlMap.initSqlMap("com/ibatis/sqlmap/maps/SqlMapConfig.xml", null);
+    BaseSqlMap.initScript("scripts/generated-account-init.sql");
+  }
+
+  @Test
+  void testInsertReadsTheGeneratedKey() throws Exception {
+    Account account = newGeneratedAccount("Clinton");
+    Object key = BaseSqlMap.sqlMap.insert("insertGeneratedAccount", account);
+    Assertions.assertEquals(100, account.getId());
+    Assertions.assertEquals(100, key);
+
+    account = newGeneratedAccount("Jim");
+    BaseSqlMap.sqlMap.insert("insertGeneratedAccountWithKeyColumn", account);
+    Assertions.assertEquals(101, account.getId());
+  }
+
+  @Test
+  void testBatchInsertReadsTheGeneratedKeysInOrder() throws Exception {
+    List<Account> accounts = new ArrayList<>();
+    try {
+      BaseSqlMap.sqlMap.startTransaction();
+      BaseSqlMap.sqlMap.startBatch();
+      for (String firstName : new String[] { "Clinton", "Jim", "Fred" }) {
+        Account account = newGeneratedAccount(firstName);
+        accounts.add(account);
+        BaseSqlMap.sqlMap.insert("insertGeneratedAccountWithKeyColumn", account);
+      }
+      List<?> results = BaseSqlMap.sqlMap.executeBatchDetailed();
+      BaseSqlMap.sqlMap.commitTransaction();
+
+      Assertions.assertEquals(1, results.size());
+      Assertions.assertEquals(3, ((BatchResult) results.get(0)).getUpdateCounts().length);
+    } finally {
+      BaseSqlMap.sqlMap.endTransaction();
+    }
+    Assertions.assertEquals(100, accounts.get(0).getId());
+    Assertions.assertEquals(101, accounts.get(1).getId());
+    Assertions.assertEquals(102, accounts.get(2).getId());
+  }
+
+  private Account newGeneratedAccount(String firstName) {
+    Account account = new Account();
+    account.setFirstName(firstName);
+    account.setLastName("Begin");
+    return account;
+  }
+
+}
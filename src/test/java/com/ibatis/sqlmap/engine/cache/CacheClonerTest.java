@@ -0,0 +1,168 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.serializer.BeanCacheSerializer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CacheClonerTest {
+
+  private final CacheCloner cloner = new CacheCloner(new BeanCacheSerializer());
+
+  @Test
+  void testCopiesBeanGraph() {
+    Node root = new Node();
+    root.setName("root");
+    root.setCreated(new Date(1000L));
+    root.setTags(new String[] { "a", "b" });
+    Node child = new Node();
+    child.setName("child");
+    child.setParent(root);
+    root.getChildren().add(child);
+    root.getChildren().add(child);
+
+    Node copy = (Node) cloner.copy(root);
+    Assertions.assertNotSame(root, copy);
+    Assertions.assertEquals("root", copy.getName());
+    Assertions.assertEquals(root.getCreated(), copy.getCreated());
+    Assertions.assertNotSame(root.getCreated(), copy.getCreated());
+    Assertions.assertNotSame(root.getTags(), copy.getTags());
+    Assertions.assertEquals("b", copy.getTags()[1]);
+    Assertions.assertEquals(2, copy.getChildren().size());
+    Node childCopy = copy.getChildren().get(0);
+    Assertions.assertNotSame(child, childCopy);
+    Assertions.assertSame(childCopy, copy.getChildren().get(1));
+    Assertions.assertSame(copy, childCopy.getParent());
+  }
+
+  @Test
+  void testCopiesMapsAndSharesImmutables() {
+    Map<String, Object> map = new HashMap<>();
+    String text = "text";
+    map.put("text", text);
+    map.put("list", new ArrayList<>(Collections.singletonList(Integer.valueOf(1))));
+
+    Map<?, ?> copy = (Map<?, ?>) cloner.copy(map);
+    Assertions.assertNotSame(map, copy);
+    Assertions.assertSame(text, copy.get("text"));
+    Assertions.assertNotSame(map.get("list"), copy.get("list"));
+    Assertions.assertEquals(map.get("list"), copy.get("list"));
+  }
+
+  @Test
+  void testFallsBackToSerialization() {
+    List<String> unmodifiable = Collections.unmodifiableList(new ArrayList<>(Collections.singletonList("a")));
+    Object copy = cloner.copy(unmodifiable);
+    Assertions.assertNotSame(unmodifiable, copy);
+    Assertions.assertEquals(unmodifiable, copy);
+  }
+
+  @Test
+  void testCopiesFieldsWithoutSetters() {
+    Counter counter = new Counter();
+    counter.increment();
+    counter.increment();
+    counter.getHistory().add(new Date(1000L));
+
+    Counter copy = (Counter) cloner.copy(counter);
+    Assertions.assertEquals(2, copy.getCount());
+    Assertions.assertNotSame(counter.getHistory(), copy.getHistory());
+    Assertions.assertEquals(counter.getHistory(), copy.getHistory());
+    Assertions.assertNotSame(counter.getScratch(), copy.getScratch());
+  }
+
+  public static class Counter {
+
+    private int count;
+    private final List<Date> history = new ArrayList<>();
+    private transient Object scratch = new Object();
+
+    public void increment() {
+      count++;
+    }
+
+    public int getCount() {
+      return count;
+    }
+
+    public List<Date> getHistory() {
+      return history;
+    }
+
+    public Object getScratch() {
+      return scratch;
+    }
+  }
+
+  public static class Node {
+
+    private String name;
+    private Date created;
+    private String[] tags;
+    private Node parent;
+    private List<Node> children = new ArrayList<>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Date getCreated() {
+      return created;
+    }
+
+    public void setCreated(Date created) {
+      this.created = created;
+    }
+
+    public String[] getTags() {
+      return tags;
+    }
+
+    public void setTags(String[] tags) {
+      this.tags = tags;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+  }
+
+}
@@ -15,6 +15,12 @@
  */
 package com.ibatis.sqlmap.engine.cache;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -48,4 +54,44 @@ class CacheKeyTest {
 
   }
 
+  @Test
+  void testPrimitiveAndBoxedUpdatesMatch() {
+    CacheKey primitive = new CacheKey().update("statement").update(7).update(8L);
+    CacheKey boxed = new CacheKey().update("statement").update(Integer.valueOf(7)).update(Long.valueOf(8));
+    Assertions.assertEquals(primitive, boxed);
+    Assertions.assertEquals(primitive.hashCode(), boxed.hashCode());
+    Assertions.assertNotEquals(new CacheKey().update(7), new CacheKey().update(7L));
+  }
+
+  @Test
+  void testNullsArePositional() {
+    CacheKey first = new CacheKey().update((Object) null).update("a");
+    CacheKey second = new CacheKey().update("a").update((Object) null);
+    Assertions.assertNotEquals(first, second);
+    Assertions.assertEquals(first, new CacheKey().update((Object) null).update("a"));
+  }
+
+  @Test
+  void testPrefixIsNotModified() throws Exception {
+    CacheKey prefix = new CacheKey().update("statement");
+    CacheKey key = new CacheKey(prefix, 1).update(1).update(2).update("grows");
+    Assertions.assertEquals(new CacheKey().update("statement").update(1).update(2).update("grows"), key);
+    Assertions.assertEquals(new CacheKey().update("statement"), prefix);
+    CacheKey copy = key.clone();
+    copy.update(3);
+    Assertions.assertNotEquals(key, copy);
+  }
+
+  @Test
+  void testSerializedKeyIsEqual() throws Exception {
+    CacheKey key = new CacheKey().update("statement").update(42).update(BigDecimal.ONE);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(key);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Assertions.assertEquals(key, in.readObject());
+    }
+  }
+
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.fifo.ConcurrentFifoCacheController;
+import com.ibatis.sqlmap.engine.cache.lru.ConcurrentLruCacheController;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheController;
+import com.ibatis.sqlmap.engine.cache.memory.MemoryCacheController;
+import com.ibatis.sqlmap.engine.mapping.statement.UpdateStatement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CacheModelTest {
+
+  private CacheModel newCacheModel(boolean concurrent) throws Exception {
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setId("test-cache");
+    cacheModel.setReadOnly(true);
+    cacheModel.setConcurrent(concurrent);
+    cacheModel.setCacheController(concurrent ? new ConcurrentLruCacheController() : new LruCacheController());
+    return cacheModel;
+  }
+
+  private CacheKey newKey(String value) {
+    return new CacheKey().update(value);
+  }
+
+  @Test
+  void testGetAndPutObject() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    Assertions.assertNull(cacheModel.getObject(newKey("a")));
+    cacheModel.putObject(newKey("a"), "value");
+    Assertions.assertEquals("value", cacheModel.getObject(newKey("a")));
+    cacheModel.putObject(newKey("b"), null);
+    Assertions.assertSame(CacheModel.NULL_OBJECT, cacheModel.getObject(newKey("b")));
+    Assertions.assertEquals(3, cacheModel.getRequestCount());
+    Assertions.assertEquals(2, cacheModel.getHitCount());
+    Assertions.assertEquals(2.0 / 3.0, cacheModel.getHitRatio(), 0.0001);
+  }
+
+  @Test
+  void testFlushAdvancesGeneration() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    cacheModel.putObject(newKey("a"), "value");
+    long generation = cacheModel.getFlushGeneration();
+    cacheModel.flush();
+    Assertions.assertEquals(generation + 1, cacheModel.getFlushGeneration());
+    Assertions.assertNull(cacheModel.getObject(newKey("a")));
+  }
+
+  @Test
+  void testPutWithStaleGenerationIsIgnored() throws Exception {
+    for (boolean concurrent : new boolean[] { true, false }) {
+      CacheModel cacheModel = newCacheModel(concurrent);
+      long generation = cacheModel.getFlushGeneration();
+      cacheModel.flush();
+      cacheModel.putObject(newKey("a"), "stale", generation);
+      Assertions.assertNull(cacheModel.getObject(newKey("a")));
+      cacheModel.putObject(newKey("a"), "fresh", cacheModel.getFlushGeneration());
+      Assertions.assertEquals("fresh", cacheModel.getObject(newKey("a")));
+    }
+  }
+
+  @Test
+  void testNoStaleEntrySurvivesConcurrentFlushes() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    int loaders = 4;
+    int rounds = 2000;
+    CyclicBarrier barrier = new CyclicBarrier(loaders + 2);
+    List<Object> failures = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < loaders; t++) {
+      CacheKey key = newKey("key-" + t);
+      threads.add(new Thread(() -> {
+        try {
+          for (int round = 0; round < rounds; round++) {
+            barrier.await(10, TimeUnit.SECONDS);
+            long generation = cacheModel.getFlushGeneration();
+            if (cacheModel.getObject(key) == null) {
+              cacheModel.putObject(key, Long.valueOf(generation), generation);
+            }
+            barrier.await(10, TimeUnit.SECONDS);
+          }
+        } catch (Exception e) {
+          failures.add(e);
+        }
+      }));
+    }
+    threads.add(new Thread(() -> {
+      try {
+        for (int round = 0; round < rounds; round++) {
+          barrier.await(10, TimeUnit.SECONDS);
+          cacheModel.flush();
+          barrier.await(10, TimeUnit.SECONDS);
+        }
+      } catch (Exception e) {
+        failures.add(e);
+      }
+    }));
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    try {
+      for (int round = 0; round < rounds; round++) {
+        barrier.await(10, TimeUnit.SECONDS);
+        barrier.await(10, TimeUnit.SECONDS);
+        Long current = Long.valueOf(cacheModel.getFlushGeneration());
+        for (int t = 0; t < loaders; t++) {
+          Object value = cacheModel.getObject(newKey("key-" + t));
+          if (value != null && !current.equals(value)) {
+            failures.add("entry loaded under generation " + value + " survived the flush to " + current);
+          }
+        }
+      }
+    } catch (Exception e) {
+      failures.add(e);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assertions.assertEquals(Collections.emptyList(), failures);
+  }
+
+  @Test
+  void testFlushInterval() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    long[] now = { 1000 };
+    cacheModel.setClock(() -> now[0]);
+    cacheModel.setFlushInterval(10);
+    cacheModel.putObject(newKey("a"), "value");
+    now[0] += 9;
+    Assertions.assertEquals("value", cacheModel.getObject(newKey("a")));
+    now[0] += 2;
+    Assertions.assertNull(cacheModel.getObject(newKey("a")));
+  }
+
+  @Test
+  void testCopyOnRead() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    cacheModel.setReadOnly(false);
+    cacheModel.setCopyOnRead(true);
+    List<String> list = new ArrayList<>();
+    list.add("a");
+    cacheModel.putObject(newKey("a"), list);
+    list.add("b");
+    List<?> first = (List<?>) cacheModel.getObject(newKey("a"));
+    Assertions.assertEquals(Collections.singletonList("a"), first);
+    first.clear();
+    Assertions.assertEquals(Collections.singletonList("a"), cacheModel.getObject(newKey("a")));
+  }
+
+  @Test
+  void testTimeToLiveExpiresEntriesOneByOne() throws Exception {
+    CacheModel cacheModel = newCacheModel(false);
+    long[] now = { 1000 };
+    cacheModel.setClock(() -> now[0]);
+    cacheModel.setTimeToLive(30);
+    cacheModel.putObject(newKey("a"), "old");
+    now[0] += 20;
+    cacheModel.putObject(newKey("b"), "new");
+    now[0] += 20;
+    Assertions.assertNull(cacheModel.getObject(newKey("a")));
+    Assertions.assertEquals("new", cacheModel.getObject(newKey("b")));
+    Assertions.assertEquals(0, cacheModel.getFlushGeneration());
+  }
+
+  @Test
+  void testExpiryKeepsValuePutWhileRemoving() throws Exception {
+    CacheModel recheck = newExpiringCacheModel(new ConcurrentLruCacheController() {
+      private int reads;
+
+      @Override
+      public Object getObject(CacheModel cacheModel, Object key) {
+        Object value = super.getObject(cacheModel, key);
+        if (++reads == 3) {
+          cacheModel.putObject((CacheKey) key, "fresh");
+        }
+        return value;
+      }
+    });
+    CacheModel conditional = newExpiringCacheModel(new ConcurrentLruCacheController() {
+      @Override
+      public boolean removeObject(CacheModel cacheModel, Object key, Object object) {
+        cacheModel.putObject((CacheKey) key, "fresh");
+        return super.removeObject(cacheModel, key, object);
+      }
+    });
+    for (CacheModel cacheModel : new CacheModel[] { recheck, conditional }) {
+      Assertions.assertNull(cacheModel.getObject(newKey("a")));
+      Assertions.assertEquals("fresh", cacheModel.getObject(newKey("a")));
+    }
+  }
+
+  private CacheModel newExpiringCacheModel(CacheController controller) throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    cacheModel.setCacheController(controller);
+    long[] now = { 1000 };
+    cacheModel.setClock(() -> now[0]);
+    cacheModel.setTimeToLive(10);
+    cacheModel.putObject(newKey("a"), "old");
+    Assertions.assertEquals("old", cacheModel.getObject(newKey("a")));
+    now[0] += 10;
+    return cacheModel;
+  }
+
+  @Test
+  void testRefreshIsClaimedOnceWhenDue() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    long[] now = { 1000 };
+    cacheModel.setClock(() -> now[0]);
+    cacheModel.setRefreshAfter(20);
+    cacheModel.putObject(newKey("a"), "value");
+    now[0] += 19;
+    Assertions.assertFalse(cacheModel.claimRefresh(newKey("a")));
+    now[0] += 1;
+    Assertions.assertTrue(cacheModel.claimRefresh(newKey("a")));
+    Assertions.assertFalse(cacheModel.claimRefresh(newKey("a")));
+    Assertions.assertEquals("value", cacheModel.getObject(newKey("a")));
+    cacheModel.putObject(newKey("a"), "fresh");
+    cacheModel.endRefresh(newKey("a"));
+    Assertions.assertFalse(cacheModel.claimRefresh(newKey("a")));
+    Assertions.assertEquals("fresh", cacheModel.getObject(newKey("a")));
+  }
+
+  @Test
+  void testFailedRefreshIsRetriedLater() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    long[] now = { 1000 };
+    cacheModel.setClock(() -> now[0]);
+    cacheModel.setRefreshAfter(20);
+    cacheModel.putObject(newKey("a"), "value");
+    now[0] += 20;
+    Assertions.assertTrue(cacheModel.claimRefresh(newKey("a")));
+    cacheModel.endRefresh(newKey("a"));
+    Assertions.assertFalse(cacheModel.claimRefresh(newKey("a")));
+    now[0] += 20;
+    Assertions.assertTrue(cacheModel.claimRefresh(newKey("a")));
+  }
+
+  @Test
+  void testDependencyTrackingEvictsDependentEntries() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    cacheModel.setDependencyTracking(true);
+    TableDependency[] accountRows = TableDependency.parse("ACCOUNT(id)");
+    cacheModel.putObject(newKey("account-1"), "one", -1, accountRows, Integer.valueOf(1));
+    cacheModel.putObject(newKey("account-2"), "two", -1, accountRows, Integer.valueOf(2));
+    cacheModel.putObject(newKey("accounts"), "all", -1, TableDependency.parse("ACCOUNT"), null);
+    cacheModel.putObject(newKey("orders"), "orders", -1, TableDependency.parse("ORDERS"), null);
+
+    UpdateStatement update = new UpdateStatement();
+    update.setTableDependencies(TableDependency.parse("app.Account(id)"));
+    cacheModel.onExecuteStatement(update, Collections.singletonMap("id", Long.valueOf(2)));
+    Assertions.assertEquals("one", cacheModel.getObject(newKey("account-1")));
+    Assertions.assertNull(cacheModel.getObject(newKey("account-2")));
+    Assertions.assertNull(cacheModel.getObject(newKey("accounts")));
+    Assertions.assertEquals("orders", cacheModel.getObject(newKey("orders")));
+
+    update.setTableDependencies(TableDependency.parse("ACCOUNT"));
+    cacheModel.onExecuteStatement(update, null);
+    Assertions.assertNull(cacheModel.getObject(newKey("account-1")));
+    Assertions.assertEquals("orders", cacheModel.getObject(newKey("orders")));
+
+    update.setTableDependencies(null);
+    cacheModel.onExecuteStatement(update, null);
+    Assertions.assertNull(cacheModel.getObject(newKey("orders")));
+  }
+
+  @Test
+  void testEntriesWithUnknownTablesAreEvictedByAnyWrite() throws Exception {
+    CacheModel cacheModel = newCacheModel(false);
+    cacheModel.setDependencyTracking(true);
+    cacheModel.putObject(newKey("unknown"), "value", -1, new TableDependency[0], null);
+    long generation = cacheModel.getFlushGeneration();
+    cacheModel.invalidate(TableDependency.parse("ORDERS"), null);
+    Assertions.assertNull(cacheModel.getObject(newKey("unknown")));
+    cacheModel.putObject(newKey("late"), "stale", generation, TableDependency.parse("ACCOUNT"), null);
+    Assertions.assertNull(cacheModel.getObject(newKey("late")));
+  }
+
+  @Test
+  void testRejectedPutIsNotTracked() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    cacheModel.setDependencyTracking(true);
+    long generation = cacheModel.getFlushGeneration();
+    cacheModel.flush();
+    cacheModel.putObject(newKey("stale"), "value", generation, TableDependency.parse("ACCOUNT"), null);
+    Assertions.assertNull(cacheModel.getObject(newKey("stale")));
+    Assertions.assertEquals(0, cacheModel.getTrackedDependencyCount());
+  }
+
+  @Test
+  void testRecordsOfEvictedEntriesArePruned() throws Exception {
+    CacheModel cacheModel = newCacheModel(true);
+    cacheModel.setDependencyTracking(true);
+    TableDependency[] accountRows = TableDependency.parse("ACCOUNT(id)");
+    for (int i = 0; i < 100010; i++) {
+      cacheModel.putObject(newKey("account-" + i), "value", -1, accountRows, Integer.valueOf(i));
+    }
+    Assertions.assertTrue(cacheModel.getTrackedDependencyCount() < 1000);
+    Assertions.assertEquals(0, cacheModel.getStatistics().getFlushCount());
+    Assertions.assertEquals("value", cacheModel.getObject(newKey("account-99990")));
+    Assertions.assertEquals("value", cacheModel.getObject(newKey("account-100009")));
+    cacheModel.onExecuteStatement(updateOf("ACCOUNT(id)"), Integer.valueOf(100009));
+    Assertions.assertNull(cacheModel.getObject(newKey("account-100009")));
+    Assertions.assertEquals("value", cacheModel.getObject(newKey("account-100008")));
+  }
+
+  private UpdateStatement updateOf(String tables) {
+    UpdateStatement update = new UpdateStatement();
+    update.setTableDependencies(TableDependency.parse(tables));
+    return update;
+  }
+
+  @Test
+  void testConditionalRemoveKeepsNewerValue() throws Exception {
+    CacheController[] controllers = { new LruCacheController(), new ConcurrentLruCacheController(),
+        new ConcurrentFifoCacheController(), new MemoryCacheController() };
+    for (CacheController controller : controllers) {
+      CacheModel cacheModel = newCacheModel(true);
+      String older = new String("older");
+      String newer = new String("newer");
+      controller.putObject(cacheModel, "key", older);
+      controller.putObject(cacheModel, "key", newer);
+      Assertions.assertFalse(controller.removeObject(cacheModel, "key", older));
+      Assertions.assertSame(newer, controller.getObject(cacheModel, "key"));
+      Assertions.assertTrue(controller.removeObject(cacheModel, "key", newer));
+      Assertions.assertNull(controller.getObject(cacheModel, "key"));
+    }
+  }
+
+}
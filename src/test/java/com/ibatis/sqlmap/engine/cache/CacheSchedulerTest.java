@@ -0,0 +1,82 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheController;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CacheSchedulerTest {
+
+  private final CacheScheduler scheduler = new CacheScheduler();
+
+  @AfterEach
+  void shutdown() {
+    scheduler.shutdown();
+  }
+
+  private CacheModel newCacheModel() throws Exception {
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setId("scheduled-cache");
+    cacheModel.setCacheController(new LruCacheController());
+    return cacheModel;
+  }
+
+  private CacheKey newKey(String value) {
+    return new CacheKey().update(value);
+  }
+
+  @Test
+  void testFlushesInBackground() throws Exception {
+    CacheModel cacheModel = newCacheModel();
+    cacheModel.setFlushInterval(20);
+    scheduler.schedule(cacheModel);
+    Assertions.assertTrue(cacheModel.isScheduled());
+    long generation = cacheModel.getFlushGeneration();
+    cacheModel.putObject(newKey("a"), "value");
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cacheModel.getFlushGeneration() == generation && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    Assertions.assertTrue(cacheModel.getFlushGeneration() > generation);
+    Assertions.assertNull(cacheModel.getCacheController().getObject(cacheModel, newKey("a")));
+  }
+
+  @Test
+  void testExpiresEntriesInBackground() throws Exception {
+    CacheModel cacheModel = newCacheModel();
+    cacheModel.setTimeToLive(20);
+    scheduler.schedule(cacheModel);
+    cacheModel.putObject(newKey("a"), "value");
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cacheModel.getCacheController().getObject(cacheModel, newKey("a")) != null
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    Assertions.assertNull(cacheModel.getCacheController().getObject(cacheModel, newKey("a")));
+    Assertions.assertEquals(0, cacheModel.getFlushGeneration());
+  }
+
+  @Test
+  void testIgnoresModelsWithoutExpiry() throws Exception {
+    CacheModel cacheModel = newCacheModel();
+    scheduler.schedule(cacheModel);
+    Assertions.assertFalse(cacheModel.isScheduled());
+  }
+
+}
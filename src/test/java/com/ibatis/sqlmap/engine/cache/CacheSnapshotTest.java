@@ -0,0 +1,151 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheController;
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
+import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
+import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMap;
+import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMapping;
+import com.ibatis.sqlmap.engine.mapping.statement.SelectStatement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CacheSnapshotTest {
+
+  private CacheModel newCacheModel(String id) throws Exception {
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setId(id);
+    cacheModel.setReadOnly(true);
+    cacheModel.setCacheController(new LruCacheController());
+    return cacheModel;
+  }
+
+  private CacheKey newKey(String statement, int id) {
+    return new CacheKey().update(statement).update(id);
+  }
+
+  @Test
+  void testExportAndImport() throws Exception {
+    CacheModel source = newCacheModel("accounts");
+    source.putObject(newKey("getAccount", 1), "Clinton");
+    source.putObject(newKey("getAccount", 2), null);
+    source.putObject(new CacheKey().update(new Object()), "not serializable");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Assertions.assertEquals(2, CacheSnapshot.write(Collections.singletonList(source), out));
+    Assertions.assertEquals(0, source.getRequestCount());
+
+    CacheModel target = newCacheModel("accounts");
+    int read = CacheSnapshot.read(new ByteArrayInputStream(out.toByteArray()),
+        id -> id.equals(target.getId()) ? target : null);
+    Assertions.assertEquals(2, read);
+    Assertions.assertEquals("Clinton", target.getObject(newKey("getAccount", 1)));
+    Assertions.assertSame(CacheModel.NULL_OBJECT, target.getObject(newKey("getAccount", 2)));
+  }
+
+  @Test
+  void testUnknownCacheModelsAreSkipped() throws Exception {
+    CacheModel source = newCacheModel("accounts");
+    source.putObject(newKey("getAccount", 1), "Clinton");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CacheSnapshot.write(Collections.singletonList(source), out);
+    Assertions.assertEquals(0, CacheSnapshot.read(new ByteArrayInputStream(out.toByteArray()), id -> null));
+  }
+
+  @Test
+  void testExportReadsSerializedEntries() throws Exception {
+    CacheModel source = newCacheModel("accounts");
+    source.setReadOnly(false);
+    source.setSerialize(true);
+    source.putObject(newKey("getAccount", 1), "Clinton");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Assertions.assertEquals(1, CacheSnapshot.write(Collections.singletonList(source), out));
+
+    CacheModel target = newCacheModel("accounts");
+    CacheSnapshot.read(new ByteArrayInputStream(out.toByteArray()), id -> target);
+    Assertions.assertEquals("Clinton", target.getObject(newKey("getAccount", 1)));
+  }
+
+  @Test
+  void testWarmupParametersAreTyped() throws Exception {
+    SqlMapExecutorDelegate delegate = new SqlMapExecutorDelegate();
+    SqlMapClientImpl client = new SqlMapClientImpl(delegate);
+    SelectStatement byId = new SelectStatement();
+    byId.setId("getAccount");
+    byId.setParameterClass(Integer.class);
+    delegate.addMappedStatement(byId);
+    SelectStatement byBean = new SelectStatement();
+    byBean.setId("findAccounts");
+    byBean.setParameterClass(AccountQuery.class);
+    delegate.addMappedStatement(byBean);
+    SelectStatement byMap = new SelectStatement();
+    byMap.setId("findByMap");
+    ParameterMap parameterMap = new ParameterMap(delegate);
+    ParameterMapping mapping = new ParameterMapping();
+    mapping.setPropertyName("id");
+    mapping.setTypeHandler(delegate.getTypeHandlerFactory().getTypeHandler(Long.class));
+    parameterMap.setParameterMappingList(Collections.singletonList(mapping));
+    byMap.setParameterMap(parameterMap);
+    delegate.addMappedStatement(byMap);
+
+    Assertions.assertEquals(Integer.valueOf(42), CacheWarmup.toParameter(client, "getAccount", "42"));
+    AccountQuery query = (AccountQuery) CacheWarmup.toParameter(client, "findAccounts",
+        CacheWarmup.parseParameter("id=7&name=Clinton"));
+    Assertions.assertEquals(7, query.getId());
+    Assertions.assertEquals("Clinton", query.getName());
+    Map<?, ?> map = (Map<?, ?>) CacheWarmup.toParameter(client, "findByMap",
+        CacheWarmup.parseParameter("id=7&name=Clinton"));
+    Assertions.assertEquals(Long.valueOf(7), map.get("id"));
+    Assertions.assertEquals("Clinton", map.get("name"));
+  }
+
+  public static class AccountQuery {
+
+    private int id;
+    private String name;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  @Test
+  void testParseWarmupParameter() {
+    Assertions.assertEquals("42", CacheWarmup.parseParameter("42"));
+    Map<?, ?> parameter = (Map<?, ?>) CacheWarmup.parseParameter("id=1 & name=Clinton");
+    Assertions.assertEquals("1", parameter.get("id"));
+    Assertions.assertEquals("Clinton", parameter.get("name"));
+  }
+
+}
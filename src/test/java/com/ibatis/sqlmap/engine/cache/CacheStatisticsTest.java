@@ -0,0 +1,136 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.lru.ConcurrentLruCacheController;
+import com.ibatis.sqlmap.engine.config.SqlMapConfiguration;
+import com.ibatis.sqlmap.engine.mapping.statement.UpdateStatement;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CacheStatisticsTest {
+
+  private CacheModel newCacheModel(int size) throws Exception {
+    ConcurrentLruCacheController controller = new ConcurrentLruCacheController();
+    controller.setCacheSize(size);
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setId("stats-cache");
+    cacheModel.setReadOnly(true);
+    cacheModel.setConcurrent(true);
+    cacheModel.setCacheController(controller);
+    return cacheModel;
+  }
+
+  private CacheKey newKey(String value) {
+    return new CacheKey().update(value);
+  }
+
+  @Test
+  void testCountsRequestsPutsAndEvictions() throws Exception {
+    CacheModel cacheModel = newCacheModel(2);
+    CacheStatistics statistics = cacheModel.getStatistics();
+    Assertions.assertEquals(0.0, statistics.getHitRatio());
+    cacheModel.getObject(newKey("a"));
+    cacheModel.putObject(newKey("a"), "1");
+    cacheModel.putObject(newKey("b"), "2");
+    cacheModel.putObject(newKey("c"), "3");
+    cacheModel.getObject(newKey("c"));
+    Assertions.assertEquals(2, statistics.getRequestCount());
+    Assertions.assertEquals(1, statistics.getHitCount());
+    Assertions.assertEquals(1, statistics.getMissCount());
+    Assertions.assertEquals(3, statistics.getPutCount());
+    Assertions.assertEquals(1, statistics.getEvictionCount());
+    Assertions.assertEquals(2, statistics.getEntryCount());
+
+    statistics.reset();
+    Assertions.assertEquals(0, statistics.getRequestCount());
+    Assertions.assertEquals(0, statistics.getEvictionCount());
+  }
+
+  @Test
+  void testCountsFlushesByCause() throws Exception {
+    CacheModel cacheModel = newCacheModel(10);
+    cacheModel.onExecuteStatement(new UpdateStatement(), null);
+    cacheModel.onExecuteStatement(new UpdateStatement());
+    cacheModel.flush();
+    cacheModel.setFlushInterval(1);
+    Thread.sleep(5);
+    cacheModel.getObject(newKey("a"));
+    CacheStatistics statistics = cacheModel.getStatistics();
+    Assertions.assertEquals(2, statistics.getStatementFlushCount());
+    Assertions.assertEquals(1, statistics.getOtherFlushCount());
+    Assertions.assertEquals(1, statistics.getIntervalFlushCount());
+    Assertions.assertEquals(4, statistics.getFlushCount());
+  }
+
+  @Test
+  void testCountsLoads() throws Exception {
+    CacheStatistics statistics = newCacheModel(10).getStatistics();
+    statistics.recordLoad(2000000);
+    statistics.recordLoad(4000000);
+    Assertions.assertEquals(2, statistics.getLoadCount());
+    Assertions.assertEquals(6.0, statistics.getTotalLoadTime(), 0.0001);
+    Assertions.assertEquals(3.0, statistics.getAverageLoadTime(), 0.0001);
+  }
+
+  @Test
+  void testIsStandardMBean() throws Exception {
+    CacheModel cacheModel = newCacheModel(10);
+    cacheModel.getObject(newKey("a"));
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("com.ibatis.sqlmap:type=CacheModel,name=CacheStatisticsTest");
+    server.registerMBean(cacheModel.getStatistics(), name);
+    try {
+      Assertions.assertEquals(Long.valueOf(1), server.getAttribute(name, "MissCount"));
+      Assertions.assertEquals("stats-cache", server.getAttribute(name, "CacheModelId"));
+      server.invoke(name, "reset", null, null);
+      Assertions.assertEquals(Long.valueOf(0), server.getAttribute(name, "RequestCount"));
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+  @Test
+  void testIsRegisteredUnderTheClientName() throws Exception {
+    SqlMapConfiguration first = newJmxConfiguration();
+    SqlMapConfiguration second = newJmxConfiguration();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("com.ibatis.sqlmap:type=CacheModel,client=\"orders\",name=\"jmx-cache\"");
+    try {
+      first.finalizeSqlMapConfig();
+      second.finalizeSqlMapConfig();
+      first.getClient().getDelegate().getCacheModel("jmx-cache").getObject(newKey("a"));
+      Assertions.assertEquals(Long.valueOf(1), server.getAttribute(name, "MissCount"));
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+  private SqlMapConfiguration newJmxConfiguration() {
+    SqlMapConfiguration config = new SqlMapConfiguration();
+    config.setCacheJmxEnabled(true);
+    config.setCacheJmxName("orders");
+    config.newCacheModelConfig("jmx-cache", new ConcurrentLruCacheController(), true, false);
+    return config;
+  }
+
+}
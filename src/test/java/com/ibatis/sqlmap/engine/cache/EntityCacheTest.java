@@ -0,0 +1,121 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.mapping.statement.UpdateStatement;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class EntityCacheTest {
+
+  @Test
+  void testIntegralIdsOfAnyTypeMatch() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 100);
+    cache.putObject(5, "five", cache.getGeneration());
+    Assertions.assertEquals("five", cache.getObject(5L));
+    Assertions.assertEquals("five", cache.getObject((short) 5));
+    cache.putObject("key", "string", cache.getGeneration());
+    Assertions.assertEquals("string", cache.getObject("key"));
+    Assertions.assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void testIdOfParameterObject() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 100);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 7);
+    Assertions.assertEquals(7, cache.idOf(parameter));
+    Assertions.assertEquals(7, cache.idOf(7));
+    Assertions.assertNull(cache.idOf(new HashMap<>()));
+    parameter.put("version", 2);
+    Assertions.assertEquals(Arrays.asList(7, 2), EntityCache.idOf(parameter, new String[] { "id", "version" }));
+  }
+
+  @Test
+  void testReadWriteEntityCacheHandsOutCopies() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 100, false);
+    Map<String, Object> account = new HashMap<>();
+    account.put("name", "Clinton");
+    cache.putObject(1, account, cache.getGeneration());
+    account.put("name", "changed");
+    @SuppressWarnings("unchecked")
+    Map<String, Object> first = (Map<String, Object>) cache.getObject(1);
+    Assertions.assertEquals("Clinton", first.get("name"));
+    first.put("name", "changed");
+    Assertions.assertEquals("Clinton", ((Map<?, ?>) cache.getObject(1)).get("name"));
+    Assertions.assertNotSame(cache.getObject(1), cache.getObject(1));
+  }
+
+  @Test
+  void testReadOnlyEntityCacheHandsOutTheCachedObject() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 100);
+    Map<String, Object> account = new HashMap<>();
+    cache.putObject(1, account, cache.getGeneration());
+    Assertions.assertSame(account, cache.getObject(1));
+  }
+
+  @Test
+  void testLoadOverlappingEvictionIsNotCached() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 100);
+    long generation = cache.getGeneration();
+    cache.evict(1);
+    cache.putObject(1, "stale", generation);
+    Assertions.assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void testSizeIsBounded() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 64);
+    for (long id = 0; id < 1000; id++) {
+      cache.putObject(id, "value", cache.getGeneration());
+      cache.putObject("id" + id, "value", cache.getGeneration());
+    }
+    Assertions.assertTrue(cache.getSize() <= 64);
+  }
+
+  @Test
+  void testInvalidationEvictsOnlyTheWrittenId() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 100);
+    cache.putObject(1, "one", cache.getGeneration());
+    cache.putObject(2, "two", cache.getGeneration());
+    EntityInvalidation invalidation = new EntityInvalidation(cache, new String[] { "id" });
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("id", 1L);
+    invalidation.onExecuteStatement(new UpdateStatement(), parameter);
+    Assertions.assertNull(cache.getObject(1));
+    Assertions.assertEquals("two", cache.getObject(2));
+    invalidation.onExecuteStatement(new UpdateStatement(), new HashMap<>());
+    Assertions.assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void testTransactionEvictsAgainWhenItEnds() {
+    EntityCache cache = new EntityCache("account", new String[] { "id" }, 100);
+    EntityInvalidation invalidation = new EntityInvalidation(cache, new String[] { "id" });
+    TransactionalCache transactionalCache = new TransactionalCache();
+    invalidation.onExecuteStatement(new UpdateStatement(), 1, transactionalCache);
+    Assertions.assertTrue(transactionalCache.hasPendingFlushes());
+    cache.putObject(1, "uncommitted", cache.getGeneration());
+    transactionalCache.commit();
+    Assertions.assertNull(cache.getObject(1));
+  }
+
+}
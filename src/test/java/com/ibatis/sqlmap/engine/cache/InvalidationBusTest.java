@@ -0,0 +1,152 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.invalidation.LoopbackInvalidationTransport;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheController;
+import com.ibatis.sqlmap.engine.mapping.statement.UpdateStatement;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class InvalidationBusTest {
+
+  private CacheModel newCacheModel() throws Exception {
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setId("accounts");
+    cacheModel.setReadOnly(true);
+    cacheModel.setConcurrent(true);
+    cacheModel.setCacheController(new LruCacheController());
+    return cacheModel;
+  }
+
+  private InvalidationBus newBus(String channel, CacheModel cacheModel) throws Exception {
+    LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport();
+    Properties props = new Properties();
+    props.setProperty("channel", channel);
+    transport.setProperties(props);
+    InvalidationBus bus = new InvalidationBus(transport);
+    bus.register(cacheModel);
+    return bus;
+  }
+
+  private CacheKey newKey(String value) {
+    return new CacheKey().update(value);
+  }
+
+  private void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assertions.assertTrue(condition.getAsBoolean());
+  }
+
+  @Test
+  void testFlushIsAppliedOnOtherNodes() throws Exception {
+    CacheModel nodeA = newCacheModel();
+    CacheModel nodeB = newCacheModel();
+    InvalidationBus busA = newBus("flush", nodeA);
+    InvalidationBus busB = newBus("flush", nodeB);
+    try {
+      nodeB.putObject(newKey("a"), "value");
+      nodeA.flush();
+      nodeA.putObject(newKey("a"), "value");
+      await(() -> nodeB.getObject(newKey("a")) == null);
+      // a node ignores its own flushes
+      Assertions.assertEquals("value", nodeA.getObject(newKey("a")));
+    } finally {
+      busA.close();
+      busB.close();
+    }
+  }
+
+  @Test
+  void testDependentRowsAreInvalidatedOnOtherNodes() throws Exception {
+    CacheModel nodeA = newCacheModel();
+    CacheModel nodeB = newCacheModel();
+    nodeA.setDependencyTracking(true);
+    nodeB.setDependencyTracking(true);
+    InvalidationBus busA = newBus("rows", nodeA);
+    InvalidationBus busB = newBus("rows", nodeB);
+    try {
+      TableDependency[] accountRows = TableDependency.parse("ACCOUNT(id)");
+      nodeB.putObject(newKey("account-1"), "one", -1, accountRows, Integer.valueOf(1));
+      nodeB.putObject(newKey("account-2"), "two", -1, accountRows, Integer.valueOf(2));
+      nodeB.putObject(newKey("orders"), "orders", -1, TableDependency.parse("ORDERS"), null);
+
+      UpdateStatement update = new UpdateStatement();
+      update.setTableDependencies(accountRows);
+      nodeA.onExecuteStatement(update, Collections.singletonMap("id", Long.valueOf(2)));
+      await(() -> nodeB.getObject(newKey("account-2")) == null);
+      Assertions.assertEquals("one", nodeB.getObject(newKey("account-1")));
+      Assertions.assertEquals("orders", nodeB.getObject(newKey("orders")));
+    } finally {
+      busA.close();
+      busB.close();
+    }
+  }
+
+  @Test
+  void testEntityEvictionsAreAppliedOnOtherNodes() throws Exception {
+    EntityCache nodeA = new EntityCache("account", new String[] { "id", "version" }, 100);
+    EntityCache nodeB = new EntityCache("account", new String[] { "id", "version" }, 100);
+    InvalidationBus busA = newBus("entities", newCacheModel());
+    InvalidationBus busB = newBus("entities", newCacheModel());
+    busA.register(nodeA);
+    busB.register(nodeB);
+    try {
+      nodeB.putObject(Arrays.asList(1, "a"), "one", nodeB.getGeneration());
+      nodeB.putObject(Arrays.asList(2, "a"), "two", nodeB.getGeneration());
+      new EntityInvalidation(nodeA, new String[] { "id", "version" }).onExecuteStatement(new UpdateStatement(),
+          Collections.singletonMap("id", 1));
+      await(() -> nodeB.getSize() == 0);
+
+      nodeB.putObject(Arrays.asList(1, "a"), "one", nodeB.getGeneration());
+      nodeB.putObject(Arrays.asList(2, "a"), "two", nodeB.getGeneration());
+      nodeA.evict(Arrays.asList(2, "a"));
+      await(() -> nodeB.getObject(Arrays.asList(2, "a")) == null);
+      Assertions.assertEquals("one", nodeB.getObject(Arrays.asList(1, "a")));
+    } finally {
+      busA.close();
+      busB.close();
+    }
+  }
+
+  @Test
+  void testClosedBusNoLongerBroadcasts() throws Exception {
+    CacheModel nodeA = newCacheModel();
+    CacheModel nodeB = newCacheModel();
+    InvalidationBus busA = newBus("closed", nodeA);
+    InvalidationBus busB = newBus("closed", nodeB);
+    busA.close();
+    try {
+      Assertions.assertNull(nodeA.getInvalidationBus());
+      nodeB.putObject(newKey("a"), "value");
+      nodeA.flush();
+      Thread.sleep(100);
+      Assertions.assertEquals("value", nodeB.getObject(newKey("a")));
+    } finally {
+      busB.close();
+    }
+  }
+
+}
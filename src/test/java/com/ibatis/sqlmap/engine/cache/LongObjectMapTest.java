@@ -0,0 +1,74 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LongObjectMapTest {
+
+  @Test
+  void testMatchesHashMapUnderRandomOperations() {
+    LongObjectMap map = new LongObjectMap(10000);
+    Map<Long, Object> expected = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 100000; i++) {
+      long key = random.nextInt(2000) - 1000;
+      if (random.nextInt(3) == 0) {
+        Assertions.assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        Object value = "v" + i;
+        map.put(key, value);
+        expected.put(key, value);
+      }
+    }
+    Assertions.assertEquals(expected.size(), map.size());
+    for (long key = -1000; key < 1000; key++) {
+      Assertions.assertEquals(expected.get(key), map.get(key));
+    }
+  }
+
+  @Test
+  void testEvictsUnreadEntriesFirst() {
+    LongObjectMap map = new LongObjectMap(3);
+    map.put(1, "a");
+    map.put(2, "b");
+    map.put(3, "c");
+    map.get(1);
+    map.get(3);
+    Assertions.assertTrue(map.put(4, "d"));
+    Assertions.assertEquals(3, map.size());
+    Assertions.assertNull(map.get(2));
+    Assertions.assertEquals("a", map.get(1));
+    Assertions.assertEquals("d", map.get(4));
+  }
+
+  @Test
+  void testClear() {
+    LongObjectMap map = new LongObjectMap(100);
+    for (long key = 0; key < 50; key++) {
+      map.put(key << 32, key);
+    }
+    map.clear();
+    Assertions.assertEquals(0, map.size());
+    Assertions.assertNull(map.get(1L << 32));
+  }
+
+}
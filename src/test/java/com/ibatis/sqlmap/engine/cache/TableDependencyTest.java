@@ -0,0 +1,76 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TableDependencyTest {
+
+  private String tables(TableDependency[] dependencies) {
+    StringBuilder builder = new StringBuilder();
+    for (TableDependency dependency : dependencies) {
+      if (builder.length() > 0) {
+        builder.append(',');
+      }
+      builder.append(dependency);
+    }
+    return builder.toString();
+  }
+
+  @Test
+  void testParse() {
+    TableDependency[] dependencies = TableDependency.parse(" APP.ACCOUNT(id), \"Orders\" ,");
+    Assertions.assertEquals(2, dependencies.length);
+    Assertions.assertEquals("account", dependencies[0].getTable());
+    Assertions.assertEquals("id", dependencies[0].getKeyProperty());
+    Assertions.assertEquals("orders", dependencies[1].getTable());
+    Assertions.assertNull(dependencies[1].getKeyProperty());
+    Assertions.assertEquals(new TableDependency("account", "id"), dependencies[0]);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> TableDependency.parse("ACCOUNT(id"));
+  }
+
+  @Test
+  void testWriteStatements() {
+    Assertions.assertEquals("account", tables(TableDependency.fromSql("insert into APP.ACCOUNT (ID) values (?)")));
+    Assertions.assertEquals("account",
+        tables(TableDependency.fromSql("UPDATE account SET name = ? WHERE id IN (SELECT id FROM orders)")));
+    Assertions.assertEquals("order_line", tables(TableDependency.fromSql("delete from \"ORDER_LINE\" where id = ?")));
+  }
+
+  @Test
+  void testWriteAfterWithClause() {
+    String sql = "WITH RECURSIVE recent (id) AS (SELECT id FROM orders WHERE (created > ?)), "
+        + "totals AS NOT MATERIALIZED (SELECT 1 FROM line) INSERT INTO archive SELECT id FROM recent";
+    Assertions.assertTrue(TableDependency.isWrite(sql));
+    Assertions.assertEquals("archive", tables(TableDependency.fromSql(sql)));
+    Assertions.assertFalse(TableDependency.isWrite("with recent as (select id from orders) select * from recent"));
+    Assertions.assertEquals("orders,recent",
+        tables(TableDependency.fromSql("with recent as (select id from orders) select * from recent")));
+    Assertions.assertFalse(TableDependency.isWrite("call refresh_totals(?)"));
+  }
+
+  @Test
+  void testQueries() {
+    Assertions.assertEquals("account,orders,line",
+        tables(TableDependency.fromSql("select a.id, 'from x' from ACCOUNT a, ORDERS as o "
+            + "left outer join LINE l on l.order_id = o.id -- from comment\n where a.id = o.account_id")));
+    Assertions.assertEquals("account",
+        tables(TableDependency.fromSql("select * from (select id from account) t where t.id = ?")));
+    Assertions.assertEquals("", tables(TableDependency.fromSql("call refresh_totals(?)")));
+  }
+
+}
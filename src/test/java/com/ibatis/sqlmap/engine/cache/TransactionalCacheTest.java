@@ -0,0 +1,99 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache;
+
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheController;
+import com.ibatis.sqlmap.engine.mapping.statement.UpdateStatement;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TransactionalCacheTest {
+
+  private CacheModel newCacheModel(String id) throws Exception {
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setId(id);
+    cacheModel.setReadOnly(true);
+    cacheModel.setCacheController(new LruCacheController());
+    return cacheModel;
+  }
+
+  private CacheKey newKey(String value) {
+    return new CacheKey().update(value);
+  }
+
+  @Test
+  void testStagedEntriesArePublishedOnCommit() throws Exception {
+    CacheModel cacheModel = newCacheModel("accounts");
+    TransactionalCache transactionalCache = new TransactionalCache();
+    transactionalCache.putObject(cacheModel, newKey("a"), "value", cacheModel.getFlushGeneration(), null, null);
+    Assertions.assertNull(cacheModel.getObject(newKey("a")));
+    transactionalCache.commit();
+    Assertions.assertEquals("value", cacheModel.getObject(newKey("a")));
+  }
+
+  @Test
+  void testStagedEntriesAreDiscardedOnEnd() throws Exception {
+    CacheModel cacheModel = newCacheModel("accounts");
+    TransactionalCache transactionalCache = new TransactionalCache();
+    transactionalCache.putObject(cacheModel, newKey("a"), "value", cacheModel.getFlushGeneration(), null, null);
+    transactionalCache.end();
+    transactionalCache.commit();
+    Assertions.assertNull(cacheModel.getObject(newKey("a")));
+  }
+
+  @Test
+  void testFlushesAreDeferredToCommit() throws Exception {
+    CacheModel accounts = newCacheModel("accounts");
+    CacheModel orders = newCacheModel("orders");
+    accounts.putObject(newKey("old"), "old");
+    TransactionalCache transactionalCache = new TransactionalCache();
+    transactionalCache.putObject(accounts, newKey("a"), "uncommitted", accounts.getFlushGeneration(), null, null);
+    transactionalCache.putObject(orders, newKey("o"), "order", orders.getFlushGeneration(), null, null);
+
+    transactionalCache.onExecuteStatement(accounts, new UpdateStatement(), null);
+    Assertions.assertTrue(transactionalCache.hasPendingFlushes());
+    Assertions.assertTrue(transactionalCache.isFlushed(accounts));
+    Assertions.assertFalse(transactionalCache.isFlushed(orders));
+    Assertions.assertEquals("old", accounts.getObject(newKey("old")));
+
+    transactionalCache.commit();
+    Assertions.assertNull(accounts.getObject(newKey("old")));
+    Assertions.assertNull(accounts.getObject(newKey("a")));
+    Assertions.assertEquals("order", orders.getObject(newKey("o")));
+    Assertions.assertFalse(transactionalCache.hasPendingFlushes());
+  }
+
+  @Test
+  void testInvalidationsAreReplayedOnCommit() throws Exception {
+    CacheModel cacheModel = newCacheModel("accounts");
+    cacheModel.setDependencyTracking(true);
+    cacheModel.putObject(newKey("account-1"), "one", -1, TableDependency.parse("ACCOUNT(id)"), Integer.valueOf(1));
+    cacheModel.putObject(newKey("account-2"), "two", -1, TableDependency.parse("ACCOUNT(id)"), Integer.valueOf(2));
+    UpdateStatement update = new UpdateStatement();
+    update.setTableDependencies(TableDependency.parse("ACCOUNT(id)"));
+
+    TransactionalCache transactionalCache = new TransactionalCache();
+    transactionalCache.onExecuteStatement(cacheModel, update, Collections.singletonMap("id", Integer.valueOf(1)));
+    Assertions.assertEquals("one", cacheModel.getObject(newKey("account-1")));
+    transactionalCache.end();
+    Assertions.assertNull(cacheModel.getObject(newKey("account-1")));
+    Assertions.assertEquals("two", cacheModel.getObject(newKey("account-2")));
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.fifo;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheControllerTest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentFifoCacheControllerTest extends LruCacheControllerTest {
+
+  @Override
+  protected CacheController getController() {
+    return new ConcurrentFifoCacheController();
+  }
+
+  @Test
+  void testEvictsInInsertionOrder() {
+    ConcurrentFifoCacheController cc = new ConcurrentFifoCacheController();
+    cc.setCacheSize(3);
+    cc.putObject(null, "a", "1");
+    cc.putObject(null, "b", "2");
+    cc.putObject(null, "c", "3");
+    cc.putObject(null, "d", "4");
+    Assertions.assertNull(cc.getObject(null, "a"));
+    Assertions.assertEquals("2", cc.getObject(null, "b"));
+
+    // replacing a value keeps its place
+    cc.putObject(null, "b", "22");
+    cc.putObject(null, "e", "5");
+    Assertions.assertNull(cc.getObject(null, "b"));
+    Assertions.assertEquals("3", cc.getObject(null, "c"));
+    Assertions.assertEquals("4", cc.getObject(null, "d"));
+    Assertions.assertEquals("5", cc.getObject(null, "e"));
+    Assertions.assertEquals(3, cc.getKeys().size());
+  }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.lfu;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheControllerTest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheControllerTest extends LruCacheControllerTest {
+
+  @Override
+  protected CacheController getController() {
+    return new TinyLfuCacheController();
+  }
+
+  @Test
+  void testHotKeysSurviveScan() {
+    final TinyLfuCacheController cc = new TinyLfuCacheController();
+    cc.setCacheSize(100);
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < 50; i++) {
+        if (cc.getObject(null, "hot" + i) == null) {
+          cc.putObject(null, "hot" + i, "value" + i);
+        }
+      }
+    }
+    for (int i = 0; i < 1000; i++) {
+      cc.putObject(null, "cold" + i, "value" + i);
+    }
+    int hits = 0;
+    for (int i = 0; i < 50; i++) {
+      if (cc.getObject(null, "hot" + i) != null) {
+        hits++;
+      }
+    }
+    Assertions.assertTrue(hits >= 45, "hot keys were evicted by the scan: " + hits);
+  }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.lru;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentLruCacheControllerTest extends LruCacheControllerTest {
+
+  @Override
+  protected CacheController getController() {
+    return new ConcurrentLruCacheController();
+  }
+
+  @Test
+  void testLeastRecentlyUsedIsEvicted() {
+    final CacheController cc = this.getController();
+    final Properties props = new Properties();
+    props.setProperty("size", "2");
+    cc.setProperties(props);
+    cc.putObject(null, "a", "1");
+    cc.putObject(null, "b", "2");
+    Assertions.assertEquals("1", cc.getObject(null, "a"));
+    cc.putObject(null, "c", "3");
+    Assertions.assertEquals("1", cc.getObject(null, "a"));
+    Assertions.assertNull(cc.getObject(null, "b"));
+    Assertions.assertEquals("3", cc.getObject(null, "c"));
+  }
+
+  @Test
+  void testFailedConditionalRemoveDoesNotPromote() {
+    final ConcurrentLruCacheController cc = new ConcurrentLruCacheController();
+    cc.setCacheSize(2);
+    cc.putObject(null, "a", "1");
+    cc.putObject(null, "b", "2");
+    Assertions.assertFalse(cc.removeObject(null, "a", new String("1")));
+    cc.putObject(null, "c", "3");
+    Assertions.assertNull(cc.getObject(null, "a"));
+    Assertions.assertEquals("2", cc.getObject(null, "b"));
+    Assertions.assertTrue(cc.removeObject(null, "b", cc.getObject(null, "b")));
+    Assertions.assertNull(cc.getObject(null, "b"));
+  }
+
+  @Test
+  void testSegmentCapacitiesAddUpToTheCacheSize() {
+    final ConcurrentLruCacheController cc = new ConcurrentLruCacheController();
+    cc.setCacheSize(1033);
+    for (int i = 0; i < 100000; i++) {
+      cc.putObject(null, Integer.valueOf(i), Integer.valueOf(i));
+    }
+    Assertions.assertEquals(1033, cc.getKeys().size());
+  }
+
+  @Test
+  void testLargeCacheStaysBounded() {
+    final ConcurrentLruCacheController cc = new ConcurrentLruCacheController();
+    cc.setCacheSize(1000);
+    for (int i = 0; i < 5000; i++) {
+      cc.putObject(null, Integer.valueOf(i), Integer.valueOf(i));
+    }
+    int cached = 0;
+    for (int i = 0; i < 5000; i++) {
+      if (cc.getObject(null, Integer.valueOf(i)) != null) {
+        cached++;
+      }
+    }
+    Assertions.assertTrue(cached <= 1000);
+    Assertions.assertNotNull(cc.getObject(null, Integer.valueOf(4999)));
+  }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.mapped;
+
+import com.ibatis.sqlmap.client.SqlMapException;
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.CacheKey;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheControllerTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MappedFileCacheControllerTest extends LruCacheControllerTest {
+
+  @Override
+  protected CacheController getController() {
+    return newController(tempFile());
+  }
+
+  @Override
+  @Test
+  public void testSizeOne() {
+    // Entries are bounded by the capacity of the file, not by count
+  }
+
+  private static File tempFile() {
+    try {
+      File file = File.createTempFile("mapped-cache", ".cache");
+      file.delete();
+      file.deleteOnExit();
+      return file;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static MappedFileCacheController newController(File file) {
+    MappedFileCacheController controller = new MappedFileCacheController();
+    controller.setFile(file.getPath());
+    controller.setCapacity(64 * 1024);
+    return controller;
+  }
+
+  private static CacheModel hourlyModel() {
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setFlushInterval(60L * 60L * 1000L);
+    return cacheModel;
+  }
+
+  @Test
+  void testEntriesSurviveRestart() {
+    final File file = tempFile();
+    final CacheModel cacheModel = hourlyModel();
+    final CacheKey key = new CacheKey().update("account").update(Integer.valueOf(1));
+    final MappedFileCacheController first = newController(file);
+    first.putObject(cacheModel, key, new byte[] { 1, 2, 3 });
+    first.putObject(cacheModel, "null", CacheModel.NULL_OBJECT);
+    first.putObject(cacheModel, "removed", "value");
+    first.removeObject(cacheModel, "removed");
+    first.close();
+
+    final MappedFileCacheController second = newController(file);
+    final CacheKey sameKey = new CacheKey().update("account").update(Integer.valueOf(1));
+    Assertions.assertTrue(Arrays.equals(new byte[] { 1, 2, 3 }, (byte[]) second.getObject(cacheModel, sameKey)));
+    Assertions.assertSame(CacheModel.NULL_OBJECT, second.getObject(cacheModel, "null"));
+    Assertions.assertNull(second.getObject(cacheModel, "removed"));
+    second.close();
+  }
+
+  @Test
+  void testFlushIsPersisted() {
+    final File file = tempFile();
+    final CacheModel cacheModel = hourlyModel();
+    final MappedFileCacheController first = newController(file);
+    first.putObject(cacheModel, "key", "value");
+    first.flush(cacheModel);
+    first.putObject(cacheModel, "other", "value");
+    first.close();
+
+    final MappedFileCacheController second = newController(file);
+    Assertions.assertNull(second.getObject(cacheModel, "key"));
+    Assertions.assertEquals("value", second.getObject(cacheModel, "other"));
+    second.close();
+  }
+
+  @Test
+  void testFlushIntervalElapsedAcrossRestart() throws Exception {
+    final File file = tempFile();
+    final CacheModel cacheModel = new CacheModel();
+    cacheModel.setFlushInterval(50);
+    final MappedFileCacheController first = newController(file);
+    first.putObject(cacheModel, "key", "value");
+    first.close();
+    Thread.sleep(100);
+
+    final MappedFileCacheController second = newController(file);
+    Assertions.assertNull(second.getObject(cacheModel, "key"));
+    second.close();
+  }
+
+  @Test
+  void testTimeToLiveElapsedAcrossRestart() throws Exception {
+    final File file = tempFile();
+    final CacheModel cacheModel = new CacheModel();
+    cacheModel.setTimeToLive(200);
+    final MappedFileCacheController first = newController(file);
+    first.putObject(cacheModel, "old", "value");
+    Thread.sleep(300);
+    first.putObject(cacheModel, "new", "value");
+    first.close();
+
+    final MappedFileCacheController second = newController(file);
+    Assertions.assertNull(second.getObject(cacheModel, "old"));
+    Assertions.assertEquals("value", second.getObject(cacheModel, "new"));
+    Thread.sleep(300);
+    Assertions.assertNull(second.getObject(cacheModel, "new"));
+    second.close();
+  }
+
+  @Test
+  void testNothingIsRestoredWithoutFlushIntervalOrTimeToLive() {
+    final File file = tempFile();
+    final CacheModel cacheModel = new CacheModel();
+    final MappedFileCacheController first = newController(file);
+    first.putObject(cacheModel, "key", "value");
+    first.close();
+
+    final MappedFileCacheController second = newController(file);
+    Assertions.assertNull(second.getObject(cacheModel, "key"));
+    second.close();
+  }
+
+  @Test
+  void testFileIsLockedWhileOpen() {
+    final File file = tempFile();
+    final MappedFileCacheController first = newController(file);
+    first.putObject(null, "key", "value");
+    final MappedFileCacheController second = newController(file);
+    Assertions.assertThrows(SqlMapException.class, () -> second.getObject(null, "key"));
+    first.close();
+    Assertions.assertNull(second.getObject(null, "key"));
+    second.close();
+  }
+
+  @Test
+  void testFileOrDirectoryIsRequired() {
+    final MappedFileCacheController cc = new MappedFileCacheController();
+    Assertions.assertThrows(SqlMapException.class, () -> cc.getObject(null, "key"));
+  }
+
+  @Test
+  void testFullFileIsCompacted() {
+    final MappedFileCacheController cc = newController(tempFile());
+    final byte[] value = new byte[1000];
+    for (int i = 0; i < 500; i++) {
+      cc.putObject(null, "key" + i % 10, value);
+    }
+    for (int i = 0; i < 10; i++) {
+      Assertions.assertNotNull(cc.getObject(null, "key" + i));
+    }
+  }
+
+}
@@ -18,6 +18,9 @@ package com.ibatis.sqlmap.engine.cache.memory;
 import com.ibatis.sqlmap.engine.cache.CacheController;
 import com.ibatis.sqlmap.engine.cache.lru.LruCacheControllerTest;
 
+import java.util.Properties;
+
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 class MemoryCacheControllerTest extends LruCacheControllerTest {
@@ -27,9 +30,44 @@ class MemoryCacheControllerTest extends LruCacheControllerTest {
     return new MemoryCacheController();
   }
 
-  @Override
   @Test
-  public void testSizeOne() {
-    // This is not relevant for this model
+  void testReclaimedEntriesAreExpunged() {
+    MemoryCacheController cc = new MemoryCacheController();
+    for (int i = 0; i < 100; i++) {
+      cc.putObject(null, "key" + i, "value" + i);
+    }
+    for (int i = 0; i < 50; i++) {
+      cc.reclaim("key" + i);
+    }
+    Assertions.assertEquals(50, cc.getKeys().size());
+    Assertions.assertEquals(50, cc.getEvictionCount());
+    Assertions.assertNull(cc.getObject(null, "key0"));
+    Assertions.assertEquals("value99", cc.getObject(null, "key99"));
+  }
+
+  @Test
+  void testSoftEntriesAreExpunged() {
+    MemoryCacheController cc = new MemoryCacheController();
+    cc.setReferenceType(MemoryCacheLevel.SOFT);
+    cc.putObject(null, "key", "value");
+    cc.reclaim("key");
+    Assertions.assertTrue(cc.getKeys().isEmpty());
+    cc.putObject(null, "key", "value");
+    Assertions.assertEquals("value", cc.getObject(null, "key"));
   }
+
+  @Test
+  void testStrongEntriesAreBounded() {
+    MemoryCacheController cc = new MemoryCacheController();
+    Properties props = new Properties();
+    props.setProperty("reference-type", "STRONG");
+    props.setProperty("cache-size", "10");
+    cc.setProperties(props);
+    for (int i = 0; i < 100; i++) {
+      cc.putObject(null, "key" + i, new Object());
+    }
+    Assertions.assertEquals(10, cc.getKeys().size());
+    Assertions.assertNotNull(cc.getObject(null, "key99"));
+  }
+
 }
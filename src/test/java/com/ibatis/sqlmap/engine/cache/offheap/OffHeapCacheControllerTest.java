@@ -0,0 +1,111 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.offheap;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheControllerTest;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheControllerTest extends LruCacheControllerTest {
+
+  @Override
+  protected CacheController getController() {
+    return new OffHeapCacheController();
+  }
+
+  @Override
+  @Test
+  public void testSizeOne() {
+    // Entries are bounded by the capacity, not by count
+  }
+
+  private static byte[] bytes(int length, int seed) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i * 31 + seed);
+    }
+    return bytes;
+  }
+
+  @Test
+  void testBytesAreCopiedOffHeap() {
+    final OffHeapCacheController cc = new OffHeapCacheController();
+    final byte[] value = bytes(1500, 7);
+    cc.putObject(null, "key", value);
+    final byte[] cached = (byte[]) cc.getObject(null, "key");
+    Assertions.assertNotSame(value, cached);
+    Assertions.assertTrue(Arrays.equals(value, cached));
+    Assertions.assertTrue(cc.getReservedBytes() > 0);
+  }
+
+  @Test
+  void testLeastRecentlyUsedIsEvictedWhenFull() {
+    final OffHeapCacheController cc = new OffHeapCacheController();
+    final Properties props = new Properties();
+    props.setProperty("capacity", "4K");
+    props.setProperty("slab-size", "2K");
+    props.setProperty("chunk-size", "256");
+    cc.setProperties(props);
+    cc.putObject(null, "a", bytes(1024, 1));
+    cc.putObject(null, "b", bytes(1024, 2));
+    cc.putObject(null, "c", bytes(1024, 3));
+    cc.putObject(null, "d", bytes(1024, 4));
+    Assertions.assertNotNull(cc.getObject(null, "a"));
+    cc.putObject(null, "e", bytes(1500, 5));
+    Assertions.assertNull(cc.getObject(null, "b"));
+    Assertions.assertNull(cc.getObject(null, "c"));
+    Assertions.assertTrue(Arrays.equals(bytes(1024, 1), (byte[]) cc.getObject(null, "a")));
+    Assertions.assertTrue(Arrays.equals(bytes(1500, 5), (byte[]) cc.getObject(null, "e")));
+    Assertions.assertEquals(4096, cc.getReservedBytes());
+  }
+
+  @Test
+  void testValueLargerThanCapacityIsNotCached() {
+    final OffHeapCacheController cc = new OffHeapCacheController();
+    cc.setCapacity(1024);
+    cc.putObject(null, "a", bytes(100, 1));
+    cc.putObject(null, "b", bytes(4096, 2));
+    Assertions.assertNull(cc.getObject(null, "b"));
+    Assertions.assertNotNull(cc.getObject(null, "a"));
+  }
+
+  @Test
+  void testHeapValuesAreChargedAgainstCapacity() {
+    final OffHeapCacheController cc = new OffHeapCacheController();
+    final Properties props = new Properties();
+    props.setProperty("capacity", "1K");
+    props.setProperty("chunk-size", "256");
+    cc.setProperties(props);
+    for (int i = 0; i < 10; i++) {
+      cc.putObject(null, "key" + i, "value" + i);
+    }
+    Assertions.assertEquals(4, cc.getKeys().size());
+    Assertions.assertEquals(6, cc.getEvictionCount());
+    Assertions.assertEquals("value9", cc.getObject(null, "key9"));
+    cc.putObject(null, "bytes", bytes(300, 1));
+    Assertions.assertEquals(3, cc.getKeys().size());
+    cc.removeObject(null, "bytes");
+    cc.putObject(null, "key10", "value10");
+    cc.putObject(null, "key11", "value11");
+    Assertions.assertEquals(4, cc.getKeys().size());
+  }
+
+}
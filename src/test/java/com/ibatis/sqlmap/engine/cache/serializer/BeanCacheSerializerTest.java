@@ -0,0 +1,256 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.serializer;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BeanCacheSerializerTest {
+
+  private final BeanCacheSerializer serializer = new BeanCacheSerializer();
+
+  private Object roundTrip(Object value) throws Exception {
+    return serializer.deserialize(serializer.serialize(value));
+  }
+
+  @Test
+  void testBeanRoundTrip() throws Exception {
+    Account account = new Account();
+    account.setId(42);
+    account.setName("Clinton");
+    account.setBalance(new BigDecimal("12.50"));
+    account.setActive(true);
+    Timestamp created = new Timestamp(1000000L);
+    created.setNanos(123456789);
+    account.setCreated(created);
+    account.setStatus(Status.CLOSED);
+    account.setSecret("transient");
+
+    byte[] bytes = serializer.serialize(account);
+    Assertions.assertNotEquals((byte) 0xAC, bytes[0]);
+    Account copy = (Account) serializer.deserialize(bytes);
+    Assertions.assertNotSame(account, copy);
+    Assertions.assertEquals(42, copy.getId());
+    Assertions.assertEquals("Clinton", copy.getName());
+    Assertions.assertEquals(new BigDecimal("12.50"), copy.getBalance());
+    Assertions.assertTrue(copy.isActive());
+    Assertions.assertEquals(created, copy.getCreated());
+    Assertions.assertSame(Status.CLOSED, copy.getStatus());
+    Assertions.assertNull(copy.getSecret());
+  }
+
+  @Test
+  void testSharedReferencesAndCycles() throws Exception {
+    Account first = new Account();
+    first.setId(1);
+    Account second = new Account();
+    second.setId(2);
+    first.setParent(second);
+    second.setParent(first);
+    List<Account> list = new ArrayList<>();
+    list.add(first);
+    list.add(second);
+    list.add(first);
+
+    List<?> copy = (List<?>) roundTrip(list);
+    Assertions.assertEquals(3, copy.size());
+    Account firstCopy = (Account) copy.get(0);
+    Account secondCopy = (Account) copy.get(1);
+    Assertions.assertSame(firstCopy, copy.get(2));
+    Assertions.assertSame(secondCopy, firstCopy.getParent());
+    Assertions.assertSame(firstCopy, secondCopy.getParent());
+  }
+
+  @Test
+  void testMapsAndNulls() throws Exception {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("id", Integer.valueOf(7));
+    map.put("none", null);
+    map.put("price", Double.valueOf(1.5));
+    map.put("bytes", new byte[] { 1, 2, 3 });
+
+    Map<?, ?> copy = (Map<?, ?>) roundTrip(map);
+    Assertions.assertEquals(new ArrayList<>(map.keySet()), new ArrayList<>(copy.keySet()));
+    Assertions.assertEquals(Integer.valueOf(7), copy.get("id"));
+    Assertions.assertTrue(copy.containsKey("none"));
+    Assertions.assertNull(copy.get("none"));
+    Assertions.assertEquals(Double.valueOf(1.5), copy.get("price"));
+    Assertions.assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) copy.get("bytes"));
+  }
+
+  @Test
+  void testUnsupportedValuesUseJavaSerialization() throws Exception {
+    List<String> unmodifiable = Collections.unmodifiableList(new ArrayList<>(Collections.singletonList("a")));
+    byte[] bytes = serializer.serialize(unmodifiable);
+    Assertions.assertEquals((byte) 0xAC, bytes[0]);
+    Assertions.assertEquals(unmodifiable, serializer.deserialize(bytes));
+
+    Account account = new Account();
+    account.setAttachment(unmodifiable);
+    Account copy = (Account) roundTrip(account);
+    Assertions.assertEquals(unmodifiable, copy.getAttachment());
+  }
+
+  @Test
+  void testReadsJavaSerializedValues() throws Exception {
+    Account account = new Account();
+    account.setName("legacy");
+    Account copy = (Account) serializer.deserialize(new JavaCacheSerializer().serialize(account));
+    Assertions.assertEquals("legacy", copy.getName());
+  }
+
+  @Test
+  void testFieldsOfNonSerializableSuperclassAreNotWritten() throws Exception {
+    Child child = new Child();
+    child.setBase("changed");
+    child.setOwn("own");
+    Child copy = (Child) roundTrip(child);
+    Assertions.assertEquals("own", copy.getOwn());
+    Assertions.assertEquals("initial", copy.getBase());
+
+    Child javaCopy = (Child) new JavaCacheSerializer().deserialize(new JavaCacheSerializer().serialize(child));
+    Assertions.assertEquals(javaCopy.getBase(), copy.getBase());
+  }
+
+  enum Status {
+    OPEN, CLOSED
+  }
+
+  public static class Account implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int id;
+    private String name;
+    private BigDecimal balance;
+    private boolean active;
+    private Timestamp created;
+    private Status status;
+    private Account parent;
+    private Object attachment;
+    private transient String secret;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public BigDecimal getBalance() {
+      return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+      this.balance = balance;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public void setActive(boolean active) {
+      this.active = active;
+    }
+
+    public Timestamp getCreated() {
+      return created;
+    }
+
+    public void setCreated(Timestamp created) {
+      this.created = created;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    public void setStatus(Status status) {
+      this.status = status;
+    }
+
+    public Account getParent() {
+      return parent;
+    }
+
+    public void setParent(Account parent) {
+      this.parent = parent;
+    }
+
+    public Object getAttachment() {
+      return attachment;
+    }
+
+    public void setAttachment(Object attachment) {
+      this.attachment = attachment;
+    }
+
+    public String getSecret() {
+      return secret;
+    }
+
+    public void setSecret(String secret) {
+      this.secret = secret;
+    }
+  }
+
+  public static class Base {
+
+    private String base = "initial";
+
+    public String getBase() {
+      return base;
+    }
+
+    public void setBase(String base) {
+      this.base = base;
+    }
+  }
+
+  public static class Child extends Base implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String own;
+
+    public String getOwn() {
+      return own;
+    }
+
+    public void setOwn(String own) {
+      this.own = own;
+    }
+  }
+
+}
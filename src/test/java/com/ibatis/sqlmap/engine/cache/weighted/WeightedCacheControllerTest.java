@@ -0,0 +1,102 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.cache.weighted;
+
+import com.ibatis.sqlmap.engine.cache.CacheController;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheControllerTest;
+
+import java.util.Collections;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import testdomain.Account;
+
+class WeightedCacheControllerTest extends LruCacheControllerTest {
+
+  @Override
+  protected CacheController getController() {
+    return new WeightedCacheController();
+  }
+
+  @Override
+  @Test
+  public void testSizeOne() {
+    // Entries are bounded by weight, not by count
+  }
+
+  @Test
+  void testMaxBytes() {
+    final WeightedCacheController cc = new WeightedCacheController();
+    final Properties props = new Properties();
+    props.setProperty("max-bytes", "1K");
+    props.setProperty("weigher", FixedWeigher.class.getName());
+    cc.setProperties(props);
+    Assertions.assertEquals(1024, cc.getMaxBytes());
+    cc.putObject(null, "a", "1");
+    cc.putObject(null, "b", "2");
+    Assertions.assertEquals("1", cc.getObject(null, "a"));
+    cc.putObject(null, "c", "3");
+    Assertions.assertEquals("1", cc.getObject(null, "a"));
+    Assertions.assertNull(cc.getObject(null, "b"));
+    Assertions.assertEquals(800, cc.getWeight());
+  }
+
+  @Test
+  void testSharedBudget() {
+    final CacheMemoryBudget budget = new CacheMemoryBudget(1000);
+    final WeightedCacheController first = new WeightedCacheController();
+    final WeightedCacheController second = new WeightedCacheController();
+    first.setWeigher(new FixedWeigher());
+    second.setWeigher(new FixedWeigher());
+    first.setMemoryBudget(budget);
+    second.setMemoryBudget(budget);
+    first.putObject(null, "a", "1");
+    first.putObject(null, "b", "2");
+    second.putObject(null, "c", "3");
+    Assertions.assertEquals(800, budget.getWeight());
+    Assertions.assertNull(first.getObject(null, "a"));
+    Assertions.assertEquals("2", first.getObject(null, "b"));
+    Assertions.assertEquals("3", second.getObject(null, "c"));
+    second.flush(null);
+    Assertions.assertEquals(400, budget.getWeight());
+  }
+
+  @Test
+  void testDefaultWeigherCountsListSize() {
+    final DefaultWeigher weigher = new DefaultWeigher();
+    final long small = weigher.weigh("key", Collections.nCopies(1, new Account()));
+    final long large = weigher.weigh("key", Collections.nCopies(1000, new Account()));
+    Assertions.assertTrue(large > small * 100);
+  }
+
+  @Test
+  void testParseSize() {
+    Assertions.assertEquals(512, CacheMemoryBudget.parseSize("512"));
+    Assertions.assertEquals(2048, CacheMemoryBudget.parseSize("2k"));
+    Assertions.assertEquals(3L * 1024 * 1024, CacheMemoryBudget.parseSize("3MB"));
+    Assertions.assertEquals(1024L * 1024 * 1024, CacheMemoryBudget.parseSize("1G"));
+  }
+
+  public static class FixedWeigher implements Weigher {
+    @Override
+    public long weigh(Object key, Object value) {
+      return 400;
+    }
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.execution;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DatabaseCapabilitiesRegistryTest {
+
+  @Test
+  void testProbesOncePerDataSource() throws SQLException {
+    AtomicInteger probes = new AtomicInteger();
+    DatabaseCapabilitiesRegistry registry = new DatabaseCapabilitiesRegistry();
+    DataSource dataSource = JdbcProxies.proxy(DataSource.class, (name, args) -> null);
+    DatabaseCapabilities first = registry.get(dataSource, createConnection("jdbc:test:a", probes));
+    DatabaseCapabilities second = registry.get(dataSource, createConnection("jdbc:test:a", probes));
+    Assertions.assertSame(first, second);
+    Assertions.assertEquals(1, probes.get());
+    Assertions.assertEquals("Microsoft SQL Server", first.getDatabaseProductName());
+    Assertions.assertTrue(first.supportsMultipleResultSets());
+    Assertions.assertTrue(first.supportsGetGeneratedKeys());
+    Assertions.assertFalse(first.supportsBatchUpdates());
+    Assertions.assertEquals(2100, first.getMaxParameters());
+    Assertions.assertEquals(50, first.getDefaultFetchSize());
+  }
+
+  @Test
+  void testConnectionsWithoutDataSourceAreKeyedByUrl() throws SQLException {
+    AtomicInteger probes = new AtomicInteger();
+    DatabaseCapabilitiesRegistry registry = new DatabaseCapabilitiesRegistry();
+    Connection a = createConnection("jdbc:test:a", probes);
+    DatabaseCapabilities capabilities = registry.get(null, a);
+    Assertions.assertSame(capabilities, registry.get(null, a));
+    Assertions.assertSame(capabilities, registry.get(null, createConnection("jdbc:test:a", probes)));
+    Assertions.assertNotSame(capabilities, registry.get(null, createConnection("jdbc:test:b", probes)));
+    Assertions.assertEquals(2, probes.get());
+    registry.clear();
+    registry.get(null, a);
+    Assertions.assertEquals(3, probes.get());
+  }
+
+  private static Connection createConnection(String url, AtomicInteger probes) {
+    DatabaseMetaData metaData = JdbcProxies.proxy(DatabaseMetaData.class, (name, args) -> {
+      switch (name) {
+        case "getURL":
+          return url;
+        case "getDatabaseProductName":
+          probes.incrementAndGet();
+          return "Microsoft SQL Server";
+        case "supportsMultipleResultSets":
+        case "supportsGetGeneratedKeys":
+          return true;
+        case "supportsBatchUpdates":
+          throw new SQLException("not reported");
+        default:
+          return null;
+      }
+    });
+    Statement statement = JdbcProxies.proxy(Statement.class, (name, args) -> "getFetchSize".equals(name) ? 50 : null);
+    return JdbcProxies.proxy(Connection.class, (name, args) -> {
+      if ("getMetaData".equals(name)) {
+        return metaData;
+      }
+      return "createStatement".equals(name) ? statement : null;
+    });
+  }
+
+}
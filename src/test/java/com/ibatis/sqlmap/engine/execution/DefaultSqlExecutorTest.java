@@ -0,0 +1,185 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.execution;
+
+import com.ibatis.sqlmap.engine.impl.SqlMapClientImpl;
+import com.ibatis.sqlmap.engine.impl.SqlMapExecutorDelegate;
+import com.ibatis.sqlmap.engine.mapping.parameter.ParameterMap;
+import com.ibatis.sqlmap.engine.mapping.statement.InsertStatement;
+import com.ibatis.sqlmap.engine.scope.SessionScope;
+import com.ibatis.sqlmap.engine.scope.StatementScope;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import testdomain.Account;
+
+class DefaultSqlExecutorTest {
+
+  private final SqlMapExecutorDelegate delegate = new SqlMapExecutorDelegate();
+
+  private final SqlMapClientImpl client = new SqlMapClientImpl(delegate);
+
+  private final SessionScope sessionScope = new SessionScope();
+
+  private final InsertStatement statement = new InsertStatement();
+
+  private final List<Object> prepareArguments = new ArrayList<>();
+
+  DefaultSqlExecutorTest() {
+    sessionScope.setSqlMapClient(client);
+    sessionScope.setSqlMapExecutor(client);
+    statement.setId("insertAccount");
+    statement.setSqlMapClient(client);
+    statement.setKeyProperties(new String[] { "id" });
+  }
+
+  @Test
+  void testGeneratedKeyIsWrittenToTheParameterObject() throws Exception {
+    Account account = new Account();
+    new DefaultSqlExecutor().executeUpdate(newStatementScope(account), createConnection(42), "insert", new Object[0]);
+    Assertions.assertEquals(42, account.getId());
+    Assertions.assertEquals(Statement.RETURN_GENERATED_KEYS, prepareArguments.get(1));
+  }
+
+  @Test
+  void testGeneratedKeysOfABatchAreWrittenInOrder() throws Exception {
+    statement.setKeyColumns(new String[] { "ACC_ID" });
+    Connection conn = createConnection(7, 8);
+    DefaultSqlExecutor executor = new DefaultSqlExecutor();
+    Map<String, Object> first = new HashMap<>();
+    Map<String, Object> second = new HashMap<>();
+    executor.addBatch(newStatementScope(first), conn, "insert", new Object[0]);
+    executor.addBatch(newStatementScope(second), conn, "insert", new Object[0]);
+    Assertions.assertNull(first.get("id"));
+
+    List<?> results = executor.executeBatchDetailed(sessionScope);
+    Assertions.assertEquals(1, results.size());
+    Assertions.assertEquals(7, first.get("id"));
+    Assertions.assertEquals(8, second.get("id"));
+    Assertions.assertEquals(Arrays.asList("ACC_ID"), Arrays.asList((String[]) prepareArguments.get(1)));
+  }
+
+  @Test
+  void testSubBatchesOfTheSameSqlHaveTheirOwnStatement() throws Exception {
+    delegate.setBatchReordering(true);
+    delegate.setStatementCacheEnabled(true);
+    InsertStatement audit = new InsertStatement();
+    audit.setId("insertAudit");
+    audit.setSqlMapClient(client);
+    audit.setBatchOrder(-1);
+    InsertStatement insert = new InsertStatement();
+    insert.setId("insertAccount");
+    insert.setSqlMapClient(client);
+    Connection conn = JdbcProxies.proxy(Connection.class, (name, args) -> {
+      if (!"prepareStatement".equals(name)) {
+        return null;
+      }
+      int[] added = new int[1];
+      return JdbcProxies.proxy(PreparedStatement.class, (psName, psArgs) -> {
+        if ("addBatch".equals(psName)) {
+          added[0]++;
+        } else if ("executeBatch".equals(psName)) {
+          int[] rowCounts = new int[added[0]];
+          added[0] = 0;
+          return rowCounts;
+        }
+        return null;
+      });
+    });
+    DefaultSqlExecutor executor = new DefaultSqlExecutor();
+    executor.addBatch(newStatementScope(insert, null), conn, "insert", new Object[0]);
+    executor.addBatch(newStatementScope(audit, null), conn, "insert", new Object[0]);
+    executor.addBatch(newStatementScope(insert, null), conn, "insert", new Object[0]);
+
+    List<?> results = executor.executeBatchDetailed(sessionScope);
+    Assertions.assertEquals(2, results.size());
+    Assertions.assertEquals("insertAudit", ((BatchResult) results.get(0)).getStatementId());
+    Assertions.assertEquals(1, ((BatchResult) results.get(0)).getUpdateCounts().length);
+    Assertions.assertEquals("insertAccount", ((BatchResult) results.get(1)).getStatementId());
+    Assertions.assertEquals(2, ((BatchResult) results.get(1)).getUpdateCounts().length);
+  }
+
+  private StatementScope newStatementScope(Object parameterObject) {
+    return newStatementScope(statement, parameterObject);
+  }
+
+  private StatementScope newStatementScope(InsertStatement statement, Object parameterObject) {
+    StatementScope statementScope = new StatementScope(sessionScope);
+    statementScope.setStatement(statement);
+    statementScope.setParameterMap(new ParameterMap(delegate));
+    statementScope.setParameterObject(parameterObject);
+    return statementScope;
+  }
+
+  private Connection createConnection(Integer... keys) {
+    Iterator<Integer> generatedKeys = Arrays.asList(keys).iterator();
+    Integer[] current = new Integer[1];
+    ResultSet keySet = JdbcProxies.proxy(ResultSet.class, (name, args) -> {
+      switch (name) {
+        case "next":
+          current[0] = generatedKeys.hasNext() ? generatedKeys.next() : null;
+          return current[0] != null;
+        case "getInt":
+        case "getObject":
+          return current[0];
+        default:
+          return null;
+      }
+    });
+    PreparedStatement ps = JdbcProxies.proxy(PreparedStatement.class, (name, args) -> {
+      switch (name) {
+        case "getUpdateCount":
+          return 1;
+        case "executeBatch":
+          return new int[] { 1, 1 };
+        case "getGeneratedKeys":
+          return keySet;
+        default:
+          return null;
+      }
+    });
+    DatabaseMetaData metaData = JdbcProxies.proxy(DatabaseMetaData.class,
+        (name, args) -> "supportsGetGeneratedKeys".equals(name) ? true : null);
+    Statement probe = JdbcProxies.proxy(Statement.class, (name, args) -> null);
+    return JdbcProxies.proxy(Connection.class, (name, args) -> {
+      switch (name) {
+        case "getMetaData":
+          return metaData;
+        case "createStatement":
+          return probe;
+        case "prepareStatement":
+          prepareArguments.addAll(Arrays.asList(args));
+          return ps;
+        default:
+          return null;
+      }
+    });
+  }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.execution;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates JDBC objects for the tests, whose methods are answered by a handler. The methods the handler answers with
+ * null return false or 0 if they return a boolean or an int.
+ */
+final class JdbcProxies {
+
+  private JdbcProxies() {
+  }
+
+  static <T> T proxy(Class<T> type, Handler handler) {
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+      switch (method.getName()) {
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "equals":
+          return proxy == args[0];
+        default:
+          Object value = handler.invoke(method.getName(), args);
+          if (value == null && method.getReturnType() == boolean.class) {
+            return false;
+          }
+          if (value == null && method.getReturnType() == int.class) {
+            return 0;
+          }
+          return value;
+      }
+    }));
+  }
+
+  /**
+   * Answers the calls of the methods of a JDBC object.
+   */
+  interface Handler {
+    Object invoke(String name, Object[] args) throws Exception;
+  }
+
+}
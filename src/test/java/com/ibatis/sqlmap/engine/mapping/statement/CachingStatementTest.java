@@ -0,0 +1,204 @@
+/*
+ * Copyright 2004-2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.ibatis.sqlmap.engine.mapping.statement;
+
+import com.ibatis.sqlmap.engine.cache.CacheKey;
+import com.ibatis.sqlmap.engine.cache.CacheModel;
+import com.ibatis.sqlmap.engine.cache.lru.LruCacheController;
+import com.ibatis.sqlmap.engine.scope.SessionScope;
+import com.ibatis.sqlmap.engine.scope.StatementScope;
+import com.ibatis.sqlmap.engine.transaction.Transaction;
+import com.ibatis.sqlmap.engine.transaction.TransactionState;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CachingStatementTest {
+
+  private CacheModel newCacheModel(long loadTimeout) throws Exception {
+    CacheModel cacheModel = new CacheModel();
+    cacheModel.setId("single-flight");
+    cacheModel.setReadOnly(true);
+    cacheModel.setSingleFlight(true);
+    cacheModel.setLoadTimeout(loadTimeout);
+    cacheModel.setCacheController(new LruCacheController());
+    return cacheModel;
+  }
+
+  private List<Thread> startQueries(CachingStatement statement, int count, List<Object> results,
+      CountDownLatch done) {
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Thread thread = new Thread(() -> {
+        try {
+          results.add(statement.executeQueryForList(null, null, "param", 0, -1));
+        } catch (Exception e) {
+          results.add(e);
+        } finally {
+          done.countDown();
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+    return threads;
+  }
+
+  @Test
+  void testConcurrentMissesRunTheQueryOnce() throws Exception {
+    SlowStatement slow = new SlowStatement(200, false);
+    CacheModel cacheModel = newCacheModel(5000);
+    CachingStatement statement = new CachingStatement(slow, cacheModel);
+    List<Object> results = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(8);
+    startQueries(statement, 8, results, done);
+    done.await();
+    Assertions.assertEquals(1, slow.runs.get());
+    Assertions.assertEquals(8, results.size());
+    for (Object result : results) {
+      Assertions.assertEquals(Collections.singletonList("row"), result);
+    }
+    Assertions.assertEquals(8, cacheModel.getStatistics().getRequestCount());
+  }
+
+  @Test
+  void testWaitersGetTheirOwnCopy() throws Exception {
+    SlowStatement slow = new SlowStatement(200, false);
+    CacheModel cacheModel = newCacheModel(5000);
+    cacheModel.setReadOnly(false);
+    cacheModel.setCopyOnRead(true);
+    CachingStatement statement = new CachingStatement(slow, cacheModel);
+    List<Object> results = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(4);
+    startQueries(statement, 4, results, done);
+    done.await();
+    Assertions.assertEquals(1, slow.runs.get());
+    Set<Object> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    distinct.addAll(results);
+    Assertions.assertEquals(4, distinct.size());
+  }
+
+  @Test
+  void testWaitersRunTheQueryWhenTheLoaderFails() throws Exception {
+    SlowStatement slow = new SlowStatement(100, true);
+    CachingStatement statement = new CachingStatement(slow, newCacheModel(5000));
+    List<Object> results = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(3);
+    startQueries(statement, 3, results, done);
+    done.await();
+    Assertions.assertTrue(slow.runs.get() >= 2);
+    Assertions.assertTrue(results.stream().anyMatch(r -> r instanceof SQLException));
+    Assertions.assertTrue(results.contains(Collections.singletonList("row")));
+  }
+
+  @Test
+  void testWaitIsBounded() throws Exception {
+    SlowStatement slow = new SlowStatement(500, false);
+    CachingStatement statement = new CachingStatement(slow, newCacheModel(20));
+    List<Object> results = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(2);
+    startQueries(statement, 2, results, done);
+    done.await();
+    Assertions.assertEquals(2, slow.runs.get());
+  }
+
+  @Test
+  void testResultsAreStagedOnceTheTransactionHasWritten() throws Exception {
+    SlowStatement slow = new SlowStatement(0, false);
+    CacheModel cacheModel = newCacheModel(5000);
+    CachingStatement statement = new CachingStatement(slow, cacheModel);
+    SessionScope sessionScope = new SessionScope();
+    sessionScope.setTransactionState(TransactionState.STATE_STARTED);
+    StatementScope statementScope = new StatementScope(sessionScope);
+
+    statement.executeQueryForList(statementScope, null, "read", 0, -1);
+    Assertions.assertNotNull(cacheModel.getObject(new CacheKey().update("read").update("executeQueryForList")
+        .update(0).update(-1)));
+
+    sessionScope.setCommitRequired(true);
+    statement.executeQueryForList(statementScope, null, "written", 0, -1);
+    CacheKey written = new CacheKey().update("written").update("executeQueryForList").update(0).update(-1);
+    Assertions.assertNull(cacheModel.getObject(written));
+    sessionScope.getTransactionalCache().commit();
+    Assertions.assertNotNull(cacheModel.getObject(written));
+  }
+
+  @Test
+  void testQueriesBypassCachesFlushedByTheTransaction() throws Exception {
+    SlowStatement slow = new SlowStatement(0, false);
+    CacheModel cacheModel = newCacheModel(5000);
+    CachingStatement statement = new CachingStatement(slow, cacheModel);
+    statement.executeQueryForList(null, null, "param", 0, -1);
+    Assertions.assertEquals(1, slow.runs.get());
+
+    SessionScope sessionScope = new SessionScope();
+    sessionScope.setTransactionState(TransactionState.STATE_STARTED);
+    StatementScope statementScope = new StatementScope(sessionScope);
+    UpdateStatement update = new UpdateStatement();
+    update.addExecuteListener(cacheModel);
+    update.notifyListeners(statementScope, null);
+    statement.executeQueryForList(statementScope, null, "param", 0, -1);
+    Assertions.assertEquals(2, slow.runs.get());
+    statement.executeQueryForList(null, null, "param", 0, -1);
+    Assertions.assertEquals(2, slow.runs.get());
+
+    sessionScope.getTransactionalCache().end();
+    statement.executeQueryForList(null, null, "param", 0, -1);
+    Assertions.assertEquals(3, slow.runs.get());
+  }
+
+  private static class SlowStatement extends MappedStatement {
+
+    private final long delay;
+    private final boolean failFirst;
+    private final AtomicInteger runs = new AtomicInteger();
+
+    SlowStatement(long delay, boolean failFirst) {
+      this.delay = delay;
+      this.failFirst = failFirst;
+    }
+
+    @Override
+    public CacheKey getCacheKey(StatementScope statementScope, Object parameterObject) {
+      return new CacheKey().update(parameterObject);
+    }
+
+    @Override
+    public List executeQueryForList(StatementScope statementScope, Transaction trans, Object parameterObject,
+        int skipResults, int maxResults) throws SQLException {
+      int run = runs.incrementAndGet();
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (failFirst && run == 1) {
+        throw new SQLException("first load fails");
+      }
+      return Collections.singletonList("row");
+    }
+  }
+
+}
@@ -0,0 +1,30 @@
+--
+-- Copyright 2004-2026 the original author or authors.
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--    https://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- HSQL DATABASE
+
+-- Dropping Tables
+
+DROP TABLE GENERATED_ACCOUNT;
+
+-- Creating Tables
+
+CREATE TABLE GENERATED_ACCOUNT (
+    ACC_ID             INTEGER GENERATED BY DEFAULT AS IDENTITY (START WITH 100) NOT NULL,
+    ACC_FIRST_NAME     VARCHAR(255) NOT NULL,
+    ACC_LAST_NAME      VARCHAR(255) NOT NULL,
+    PRIMARY KEY (ACC_ID)
+);